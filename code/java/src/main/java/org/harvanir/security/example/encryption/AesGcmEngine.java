@@ -0,0 +1,267 @@
+package org.harvanir.security.example.encryption;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * AesGcmEngine
+ *
+ * AEAD AES-GCM yang bisa dipakai ulang untuk jalur dengan message rate
+ * tinggi. Dibanding {@code TinyAesGcmPSKDemo} versi awal yang di setiap
+ * panggilan melakukan {@code Cipher.getInstance}, decode Base64 key,
+ * {@code new SecretKeySpec} dan beberapa salinan array:
+ *
+ * - key di-parse sekali saat engine dibuat,
+ * - {@link Cipher} dan buffer nonce diambil dari pool kecil tanpa lock (aman
+ * juga untuk virtual thread, tidak seperti {@link ThreadLocal} yang akan
+ * membuat satu Cipher per virtual thread),
+ * - nonce berasal dari {@link NonceSequence} milik engine (prefix acak +
+ * counter per blok), bukan {@code SecureRandom} bersama, sehingga throughput
+ * ikut naik dengan jumlah thread dan pemakaian key bisa dibatasi,
+ * - {@link #encrypt(ByteBuffer, ByteBuffer, ByteBuffer)} dan
+ * {@link #decrypt(ByteBuffer, ByteBuffer, ByteBuffer)} membaca dan menulis
+ * langsung ke buffer milik caller (heap maupun direct) tanpa salinan
+ * perantara. Satu-satunya alokasi per panggilan adalah
+ * {@link GCMParameterSpec} yang diwajibkan API JCE.
+ *
+ * Format output: nonce (12) | ciphertext | tag (16). Method {@code byte[]} dan
+ * Base64 di bawah hanya lapisan kemudahan di atas versi ByteBuffer.
+ */
+public final class AesGcmEngine {
+
+	public static final int NONCE_LENGTH = 12;
+
+	public static final int TAG_LENGTH = 16;
+
+	public static final int OVERHEAD = NONCE_LENGTH + TAG_LENGTH;
+
+	private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+
+	private static final Pool POOL = new Pool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+
+	private final SecretKey key;
+
+	private final NonceSequence nonces;
+
+	public AesGcmEngine(byte[] key) {
+		this(key, NonceSequence.DEFAULT_LIMIT);
+	}
+
+	/**
+	 * @param nonceLimit jumlah pesan maksimum dengan nonce dari engine ini
+	 *                   sebelum key wajib dirotasi.
+	 */
+	public AesGcmEngine(byte[] key, long nonceLimit) {
+		if (key.length != 16 && key.length != 24 && key.length != 32) {
+			throw new IllegalArgumentException("AES key must be 16, 24 or 32 bytes");
+		}
+		this.key = new SecretKeySpec(key, "AES");
+		this.nonces = new NonceSequence(nonceLimit);
+	}
+
+	public AesGcmEngine(SecretKey key) {
+		this(key.getEncoded());
+	}
+
+	public static AesGcmEngine fromBase64Key(String key) {
+		return new AesGcmEngine(Base64.getDecoder().decode(key));
+	}
+
+	public static int sealedSize(int plaintextLength) {
+		return plaintextLength + OVERHEAD;
+	}
+
+	/**
+	 * Enkripsi {@code plaintext.remaining()} byte ke {@code out} sebagai nonce |
+	 * ciphertext | tag. Posisi kedua buffer dimajukan.
+	 *
+	 * @param aad data tambahan yang ikut diautentikasi (tidak dienkripsi), atau
+	 *            null.
+	 * @return jumlah byte yang ditulis ke {@code out}.
+	 * @throws GeneralSecurityException juga jika batas nonce key ini tercapai.
+	 */
+	public int encrypt(ByteBuffer aad, ByteBuffer plaintext, ByteBuffer out) throws GeneralSecurityException {
+		return encrypt(null, aad, plaintext, out);
+	}
+
+	/**
+	 * Sama seperti {@link #encrypt(ByteBuffer, ByteBuffer, ByteBuffer)} tetapi
+	 * dengan nonce dari caller (misalnya counter per session). Caller wajib
+	 * menjamin nonce tidak pernah dipakai dua kali dengan key yang sama.
+	 *
+	 * @param nonce 12 byte, atau null untuk nonce dari {@link NonceSequence}
+	 *              engine.
+	 */
+	public int encrypt(byte[] nonce, ByteBuffer aad, ByteBuffer plaintext, ByteBuffer out)
+			throws GeneralSecurityException {
+		if (nonce != null && nonce.length != NONCE_LENGTH) {
+			throw new IllegalArgumentException("Nonce must be " + NONCE_LENGTH + " bytes");
+		}
+		int sealed = sealedSize(plaintext.remaining());
+		if (out.remaining() < sealed) {
+			throw new IllegalArgumentException("Output buffer too small: " + out.remaining() + " < " + sealed);
+		}
+
+		State state = POOL.acquire();
+		try {
+			if (nonce == null) {
+				nonces.next(state.nonce);
+			} else {
+				System.arraycopy(nonce, 0, state.nonce, 0, NONCE_LENGTH);
+			}
+			state.cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, state.nonce));
+			if (aad != null) {
+				state.cipher.updateAAD(aad);
+			}
+			out.put(state.nonce);
+			state.cipher.doFinal(plaintext, out);
+			return sealed;
+		} finally {
+			POOL.release(state);
+		}
+	}
+
+	public int encrypt(ByteBuffer plaintext, ByteBuffer out) throws GeneralSecurityException {
+		return encrypt(null, plaintext, out);
+	}
+
+	/**
+	 * true jika pemakaian nonce sudah mendekati batas dan key sebaiknya dirotasi.
+	 */
+	public boolean isRekeyDue() {
+		return nonces.isRekeyDue();
+	}
+
+	public NonceSequence getNonceSequence() {
+		return nonces;
+	}
+
+	/**
+	 * Kebalikan dari {@link #encrypt(ByteBuffer, ByteBuffer, ByteBuffer)};
+	 * {@code sealed.remaining()} harus tepat satu pesan.
+	 *
+	 * @return jumlah byte plaintext yang ditulis ke {@code out}.
+	 * @throws AEADBadTagException jika pesan atau AAD diubah.
+	 */
+	public int decrypt(ByteBuffer aad, ByteBuffer sealed, ByteBuffer out) throws GeneralSecurityException {
+		if (sealed.remaining() < OVERHEAD) {
+			throw new AEADBadTagException("Input too short");
+		}
+		int plain = sealed.remaining() - OVERHEAD;
+		if (out.remaining() < plain) {
+			throw new IllegalArgumentException("Output buffer too small: " + out.remaining() + " < " + plain);
+		}
+
+		State state = POOL.acquire();
+		try {
+			GCMParameterSpec spec;
+			if (sealed.hasArray()) {
+				// nonce dibaca langsung dari array input
+				spec = new GCMParameterSpec(TAG_LENGTH * 8, sealed.array(), sealed.arrayOffset() + sealed.position(),
+						NONCE_LENGTH);
+				sealed.position(sealed.position() + NONCE_LENGTH);
+			} else {
+				sealed.get(state.nonce);
+				spec = new GCMParameterSpec(TAG_LENGTH * 8, state.nonce);
+			}
+			state.cipher.init(Cipher.DECRYPT_MODE, key, spec);
+			if (aad != null) {
+				state.cipher.updateAAD(aad);
+			}
+			return state.cipher.doFinal(sealed, out);
+		} finally {
+			POOL.release(state);
+		}
+	}
+
+	public int decrypt(ByteBuffer sealed, ByteBuffer out) throws GeneralSecurityException {
+		return decrypt(null, sealed, out);
+	}
+
+	public byte[] encrypt(byte[] plaintext) throws GeneralSecurityException {
+		byte[] out = new byte[sealedSize(plaintext.length)];
+		encrypt(null, ByteBuffer.wrap(plaintext), ByteBuffer.wrap(out));
+		return out;
+	}
+
+	public byte[] decrypt(byte[] sealed) throws GeneralSecurityException {
+		if (sealed.length < OVERHEAD) {
+			throw new AEADBadTagException("Input too short");
+		}
+		byte[] out = new byte[sealed.length - OVERHEAD];
+		decrypt(null, ByteBuffer.wrap(sealed), ByteBuffer.wrap(out));
+		return out;
+	}
+
+	public String encryptToBase64(String text) throws GeneralSecurityException {
+		return Base64.getEncoder().encodeToString(encrypt(text.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	public String decryptFromBase64(String text) throws GeneralSecurityException {
+		return new String(decrypt(Base64.getDecoder().decode(text)), StandardCharsets.UTF_8);
+	}
+
+	private static final class State {
+		private final Cipher cipher;
+
+		private final byte[] nonce = new byte[NONCE_LENGTH];
+
+		State() {
+			try {
+				cipher = Cipher.getInstance(TRANSFORMATION);
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException("AES/GCM not available", e);
+			}
+		}
+	}
+
+	/**
+	 * Pool berbasis slot: acquire mengambil state dari slot mana pun yang terisi
+	 * (mulai dari slot milik thread), release mengembalikannya ke slot kosong.
+	 * Jika semua slot kosong dibuat state baru; jika semua slot penuh state
+	 * dibuang. Tidak ada alokasi node seperti pada concurrent queue.
+	 */
+	private static final class Pool {
+		private final AtomicReferenceArray<State> slots;
+
+		Pool(int size) {
+			slots = new AtomicReferenceArray<>(size);
+		}
+
+		State acquire() {
+			int start = probe();
+			for (int i = 0; i < slots.length(); i++) {
+				int index = (start + i) % slots.length();
+				if (slots.get(index) != null) {
+					State state = slots.getAndSet(index, null);
+					if (state != null) {
+						return state;
+					}
+				}
+			}
+			return new State();
+		}
+
+		void release(State state) {
+			int start = probe();
+			for (int i = 0; i < slots.length(); i++) {
+				if (slots.compareAndSet((start + i) % slots.length(), null, state)) {
+					return;
+				}
+			}
+		}
+
+		private int probe() {
+			return (int) (Thread.currentThread().threadId() % slots.length());
+		}
+	}
+}
@@ -0,0 +1,342 @@
+package org.harvanir.security.example.encryption;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * BulkCipher
+ *
+ * Versi bulk dari {@link CaesarCipherDemo}, {@link AsciiCipherDemo} dan
+ * {@link XorCipherDemo} untuk data besar (misalnya obfuscation log dan
+ * fixture test). Demo aslinya memproses satu {@code char} per iterasi lewat
+ * {@code toCharArray()} dan {@code StringBuilder}; di sini transform bekerja
+ * langsung pada {@code byte[]}, {@link ByteBuffer}, {@code char[]},
+ * {@link CharBuffer} dan channel/file, dengan SIMD dari
+ * {@code jdk.incubator.vector} jika tersedia:
+ *
+ * - Caesar: perbandingan range dan wrap modulo 26 lewat mask,
+ * - ASCII shift: penjumlahan per lane,
+ * - XOR: XOR per lane dengan key yang berulang.
+ *
+ * Jika module {@code jdk.incubator.vector} tidak ada (JVM tanpa
+ * {@code --add-modules jdk.incubator.vector}) atau
+ * {@code -Dbulkcipher.scalar=true}, semua jalur memakai loop skalar dengan
+ * hasil yang sama.
+ *
+ * Semantik {@code char} sama persis dengan demo aslinya. Pada {@code byte}
+ * setiap byte diperlakukan sebagai satu karakter: Caesar identik untuk teks
+ * UTF-8/ASCII (hanya huruf ASCII yang berubah), ASCII shift dan XOR dihitung
+ * modulo 256 (identik dengan demo untuk teks Latin-1 yang hasilnya tetap di
+ * bawah 256). XOR dengan key {@code char} memakai 8 bit bawah setiap karakter
+ * key di jalur byte.
+ *
+ * Untuk XOR, {@code position} adalah posisi data di stream secara
+ * keseluruhan, supaya data yang dipotong per chunk memakai fase key yang
+ * benar. Transform lain tidak bergantung posisi. Decrypt = {@link #inverse()}.
+ */
+public final class BulkCipher {
+
+	public enum Mode {
+		CAESAR, ASCII_SHIFT, XOR
+	}
+
+	static final boolean VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+			&& !Boolean.getBoolean("bulkcipher.scalar");
+
+	private static final int CHUNK_SIZE = 64 * 1024;
+
+	private final Mode mode;
+
+	private final int shift;
+
+	private final char[] key;
+
+	private final byte[] byteKeyStream;
+
+	private final char[] charKeyStream;
+
+	private BulkCipher(Mode mode, int shift, char[] key) {
+		this.mode = mode;
+		this.shift = shift;
+		this.key = key;
+		if (key != null) {
+			// key diulang supaya satu vektor key bisa dibaca mulai dari fase mana pun
+			int length = key.length + (VECTORIZED ? BulkCipherVectors.maxLanes() : 0);
+			this.charKeyStream = new char[length];
+			this.byteKeyStream = new byte[length];
+			for (int i = 0; i < length; i++) {
+				charKeyStream[i] = key[i % key.length];
+				byteKeyStream[i] = (byte) charKeyStream[i];
+			}
+		} else {
+			this.charKeyStream = null;
+			this.byteKeyStream = null;
+		}
+	}
+
+	public static BulkCipher caesar(int shift) {
+		return new BulkCipher(Mode.CAESAR, Math.floorMod(shift, 26), null);
+	}
+
+	public static BulkCipher asciiShift(int shift) {
+		return new BulkCipher(Mode.ASCII_SHIFT, shift, null);
+	}
+
+	public static BulkCipher xor(char... key) {
+		if (key.length == 0) {
+			throw new IllegalArgumentException("XOR key must not be empty");
+		}
+		return new BulkCipher(Mode.XOR, 0, key.clone());
+	}
+
+	public static void main(String[] args) throws Exception {
+		int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+		StringBuilder sample = new StringBuilder();
+		while (sample.length() < megabytes * 1024 * 1024) {
+			sample.append("2024-05-01T10:15:30Z INFO user=Harvan action=login status=OK ");
+		}
+		String text = sample.toString();
+		byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+		System.out.printf("%d MB, SIMD: %s%n", megabytes, VECTORIZED);
+		System.out.printf("%-12s %14s %14s %14s%n", "cipher", "demo MB/s", "String MB/s", "byte[] MB/s");
+
+		bench("caesar", () -> CaesarCipherDemo.encrypt(text), caesar(CaesarCipherDemo.SHIFT), text, bytes);
+		bench("ascii", () -> AsciiCipherDemo.encrypt(text), asciiShift(AsciiCipherDemo.SHIFT), text, bytes);
+		bench("xor", () -> XorCipherDemo.encrypt(text, XorCipherDemo.KEY), xor(XorCipherDemo.KEY), text, bytes);
+	}
+
+	private static void bench(String name, Runnable demo, BulkCipher cipher, String text, byte[] bytes) {
+		double legacy = throughput(bytes.length, demo);
+		double string = throughput(bytes.length, () -> cipher.apply(text));
+		double array = throughput(bytes.length, () -> cipher.apply(bytes));
+		System.out.printf("%-12s %14.0f %14.0f %14.0f%n", name, legacy, string, array);
+	}
+
+	private static double throughput(int length, Runnable task) {
+		task.run();
+		task.run();
+		int rounds = 5;
+		long start = System.nanoTime();
+		for (int i = 0; i < rounds; i++) {
+			task.run();
+		}
+		return (double) length * rounds / (1024 * 1024) / ((System.nanoTime() - start) / 1e9);
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	public boolean isVectorized() {
+		return VECTORIZED;
+	}
+
+	/**
+	 * Transform kebalikan (untuk decrypt). XOR adalah kebalikan dirinya sendiri.
+	 */
+	public BulkCipher inverse() {
+		return switch (mode) {
+		case CAESAR -> caesar(-shift);
+		case ASCII_SHIFT -> asciiShift(-shift);
+		case XOR -> this;
+		};
+	}
+
+	/**
+	 * Transform {@code length} byte dari {@code src} ke {@code dst}; boleh array
+	 * dan offset yang sama (in place).
+	 *
+	 * @param position posisi {@code src[srcOffset]} di stream (fase key XOR).
+	 */
+	public void apply(byte[] src, int srcOffset, byte[] dst, int dstOffset, int length, long position) {
+		int done = 0;
+		if (VECTORIZED) {
+			done = switch (mode) {
+			case CAESAR -> BulkCipherVectors.caesar(src, srcOffset, dst, dstOffset, length, shift);
+			case ASCII_SHIFT -> BulkCipherVectors.add(src, srcOffset, dst, dstOffset, length, shift);
+			case XOR -> BulkCipherVectors.xor(src, srcOffset, dst, dstOffset, length, byteKeyStream, key.length,
+					phase(position));
+			};
+		}
+		if (done < length) {
+			scalar(src, srcOffset + done, dst, dstOffset + done, length - done, position + done);
+		}
+	}
+
+	public void apply(char[] src, int srcOffset, char[] dst, int dstOffset, int length, long position) {
+		int done = 0;
+		if (VECTORIZED) {
+			done = switch (mode) {
+			case CAESAR -> BulkCipherVectors.caesar(src, srcOffset, dst, dstOffset, length, shift);
+			case ASCII_SHIFT -> BulkCipherVectors.add(src, srcOffset, dst, dstOffset, length, shift);
+			case XOR -> BulkCipherVectors.xor(src, srcOffset, dst, dstOffset, length, charKeyStream, key.length,
+					phase(position));
+			};
+		}
+		if (done < length) {
+			scalar(src, srcOffset + done, dst, dstOffset + done, length - done, position + done);
+		}
+	}
+
+	/**
+	 * Transform in place seluruh array.
+	 */
+	public byte[] apply(byte[] data) {
+		apply(data, 0, data, 0, data.length, 0);
+		return data;
+	}
+
+	/**
+	 * Hasilnya sama dengan {@code encrypt} pada demo yang bersangkutan.
+	 */
+	public String apply(String text) {
+		char[] chars = text.toCharArray();
+		apply(chars, 0, chars, 0, chars.length, 0);
+		return new String(chars);
+	}
+
+	/**
+	 * Transform {@code min(src.remaining(), dst.remaining())} byte; posisi kedua
+	 * buffer dimajukan. Buffer heap diproses langsung di array-nya, buffer direct
+	 * lewat array perantara per chunk.
+	 *
+	 * @return jumlah byte yang diproses.
+	 */
+	public int apply(ByteBuffer src, ByteBuffer dst, long position) {
+		int length = Math.min(src.remaining(), dst.remaining());
+		if (src.hasArray() && dst.hasArray()) {
+			apply(src.array(), src.arrayOffset() + src.position(), dst.array(), dst.arrayOffset() + dst.position(),
+					length, position);
+			src.position(src.position() + length);
+			dst.position(dst.position() + length);
+			return length;
+		}
+		byte[] chunk = new byte[Math.min(length, CHUNK_SIZE)];
+		for (int done = 0; done < length;) {
+			int n = Math.min(chunk.length, length - done);
+			src.get(chunk, 0, n);
+			apply(chunk, 0, chunk, 0, n, position + done);
+			dst.put(chunk, 0, n);
+			done += n;
+		}
+		return length;
+	}
+
+	public int apply(CharBuffer src, CharBuffer dst, long position) {
+		int length = Math.min(src.remaining(), dst.remaining());
+		if (src.hasArray() && dst.hasArray()) {
+			apply(src.array(), src.arrayOffset() + src.position(), dst.array(), dst.arrayOffset() + dst.position(),
+					length, position);
+			src.position(src.position() + length);
+			dst.position(dst.position() + length);
+			return length;
+		}
+		char[] chunk = new char[Math.min(length, CHUNK_SIZE)];
+		for (int done = 0; done < length;) {
+			int n = Math.min(chunk.length, length - done);
+			src.get(chunk, 0, n);
+			apply(chunk, 0, chunk, 0, n, position + done);
+			dst.put(chunk, 0, n);
+			done += n;
+		}
+		return length;
+	}
+
+	/**
+	 * Stream dari {@code in} ke {@code out} per chunk 64 KB.
+	 *
+	 * @return jumlah byte yang diproses.
+	 */
+	public long apply(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+		long position = 0;
+		while (in.read(buffer) != -1) {
+			buffer.flip();
+			int n = buffer.remaining();
+			apply(buffer.array(), 0, buffer.array(), 0, n, position);
+			position += n;
+			while (buffer.hasRemaining()) {
+				out.write(buffer);
+			}
+			buffer.clear();
+		}
+		return position;
+	}
+
+	public long applyFile(Path source, Path target) throws IOException {
+		try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING)) {
+			return apply(in, out);
+		}
+	}
+
+	private int phase(long position) {
+		return (int) Math.floorMod(position, (long) key.length);
+	}
+
+	// jalur skalar, juga untuk sisa yang tidak genap satu vektor
+	private void scalar(byte[] src, int srcOffset, byte[] dst, int dstOffset, int length, long position) {
+		switch (mode) {
+		case CAESAR -> {
+			for (int i = 0; i < length; i++) {
+				dst[dstOffset + i] = (byte) shiftLetter(src[srcOffset + i] & 0xFF);
+			}
+		}
+		case ASCII_SHIFT -> {
+			for (int i = 0; i < length; i++) {
+				dst[dstOffset + i] = (byte) (src[srcOffset + i] + shift);
+			}
+		}
+		case XOR -> {
+			int phase = phase(position);
+			for (int i = 0; i < length; i++) {
+				dst[dstOffset + i] = (byte) (src[srcOffset + i] ^ byteKeyStream[phase]);
+				if (++phase == key.length) {
+					phase = 0;
+				}
+			}
+		}
+		}
+	}
+
+	private void scalar(char[] src, int srcOffset, char[] dst, int dstOffset, int length, long position) {
+		switch (mode) {
+		case CAESAR -> {
+			for (int i = 0; i < length; i++) {
+				dst[dstOffset + i] = (char) shiftLetter(src[srcOffset + i]);
+			}
+		}
+		case ASCII_SHIFT -> {
+			for (int i = 0; i < length; i++) {
+				dst[dstOffset + i] = (char) (src[srcOffset + i] + shift);
+			}
+		}
+		case XOR -> {
+			int phase = phase(position);
+			for (int i = 0; i < length; i++) {
+				dst[dstOffset + i] = (char) (src[srcOffset + i] ^ key[phase]);
+				if (++phase == key.length) {
+					phase = 0;
+				}
+			}
+		}
+		}
+	}
+
+	// (c | 0x20) melipat huruf besar ke huruf kecil, jadi satu cek range cukup
+	private int shiftLetter(int c) {
+		int offset = (c | 0x20) - 'a';
+		if (offset < 0 || offset >= 26) {
+			return c;
+		}
+		return offset + shift >= 26 ? c + shift - 26 : c + shift;
+	}
+}
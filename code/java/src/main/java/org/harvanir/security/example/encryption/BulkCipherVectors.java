@@ -0,0 +1,113 @@
+package org.harvanir.security.example.encryption;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * BulkCipherVectors
+ *
+ * Jalur SIMD untuk {@link BulkCipher} memakai {@code jdk.incubator.vector}.
+ * Class ini hanya di-load jika module tersebut ada di boot layer (JVM
+ * dijalankan dengan {@code --add-modules jdk.incubator.vector}). Setiap method
+ * hanya memproses kelipatan lebar vektor dan mengembalikan jumlah elemen yang
+ * sudah diproses; sisanya dikerjakan jalur skalar di {@link BulkCipher}.
+ *
+ * Caesar memakai trik yang sama dengan jalur skalar: {@code c | 0x20} melipat
+ * huruf besar ke huruf kecil, sehingga satu perbandingan unsigned
+ * {@code (c | 0x20) - 'a' < 26} menandai semua huruf, lalu lane yang melewati
+ * 'z'/'Z' dikurangi 26 lewat mask.
+ */
+final class BulkCipherVectors {
+
+	private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+
+	private static final VectorSpecies<Short> CHARS = ShortVector.SPECIES_PREFERRED;
+
+	private BulkCipherVectors() {
+	}
+
+	static int caesar(byte[] src, int srcOffset, byte[] dst, int dstOffset, int length, int shift) {
+		int bound = BYTES.loopBound(length);
+		byte s = (byte) shift;
+		byte wrapFrom = (byte) (26 - shift);
+		for (int i = 0; i < bound; i += BYTES.length()) {
+			ByteVector v = ByteVector.fromArray(BYTES, src, srcOffset + i);
+			ByteVector offset = v.or((byte) 0x20).sub((byte) 'a');
+			VectorMask<Byte> letter = offset.compare(VectorOperators.UNSIGNED_LT, (byte) 26);
+			VectorMask<Byte> wrap = letter.and(offset.compare(VectorOperators.GE, wrapFrom));
+			v.add(s, letter).sub((byte) 26, wrap).intoArray(dst, dstOffset + i);
+		}
+		return bound;
+	}
+
+	static int caesar(char[] src, int srcOffset, char[] dst, int dstOffset, int length, int shift) {
+		int bound = CHARS.loopBound(length);
+		short s = (short) shift;
+		short wrapFrom = (short) (26 - shift);
+		for (int i = 0; i < bound; i += CHARS.length()) {
+			ShortVector v = ShortVector.fromCharArray(CHARS, src, srcOffset + i);
+			ShortVector offset = v.or((short) 0x20).sub((short) 'a');
+			VectorMask<Short> letter = offset.compare(VectorOperators.UNSIGNED_LT, (short) 26);
+			VectorMask<Short> wrap = letter.and(offset.compare(VectorOperators.GE, wrapFrom));
+			v.add(s, letter).sub((short) 26, wrap).intoCharArray(dst, dstOffset + i);
+		}
+		return bound;
+	}
+
+	static int add(byte[] src, int srcOffset, byte[] dst, int dstOffset, int length, int shift) {
+		int bound = BYTES.loopBound(length);
+		byte s = (byte) shift;
+		for (int i = 0; i < bound; i += BYTES.length()) {
+			ByteVector.fromArray(BYTES, src, srcOffset + i).add(s).intoArray(dst, dstOffset + i);
+		}
+		return bound;
+	}
+
+	static int add(char[] src, int srcOffset, char[] dst, int dstOffset, int length, int shift) {
+		int bound = CHARS.loopBound(length);
+		short s = (short) shift;
+		for (int i = 0; i < bound; i += CHARS.length()) {
+			ShortVector.fromCharArray(CHARS, src, srcOffset + i).add(s).intoCharArray(dst, dstOffset + i);
+		}
+		return bound;
+	}
+
+	/**
+	 * @param keyStream key yang diulang sampai minimal key + satu lebar vektor,
+	 *                  sehingga vektor key untuk fase mana pun bisa dibaca
+	 *                  langsung dari {@code keyStream[phase]}.
+	 * @param phase     posisi di key untuk elemen pertama.
+	 */
+	static int xor(byte[] src, int srcOffset, byte[] dst, int dstOffset, int length, byte[] keyStream,
+			int keyLength, int phase) {
+		int bound = BYTES.loopBound(length);
+		int lanes = BYTES.length();
+		for (int i = 0; i < bound; i += lanes) {
+			ByteVector key = ByteVector.fromArray(BYTES, keyStream, phase);
+			ByteVector.fromArray(BYTES, src, srcOffset + i).lanewise(VectorOperators.XOR, key).intoArray(dst,
+					dstOffset + i);
+			phase = (phase + lanes) % keyLength;
+		}
+		return bound;
+	}
+
+	static int xor(char[] src, int srcOffset, char[] dst, int dstOffset, int length, char[] keyStream,
+			int keyLength, int phase) {
+		int bound = CHARS.loopBound(length);
+		int lanes = CHARS.length();
+		for (int i = 0; i < bound; i += lanes) {
+			ShortVector key = ShortVector.fromCharArray(CHARS, keyStream, phase);
+			ShortVector.fromCharArray(CHARS, src, srcOffset + i).lanewise(VectorOperators.XOR, key)
+					.intoCharArray(dst, dstOffset + i);
+			phase = (phase + lanes) % keyLength;
+		}
+		return bound;
+	}
+
+	static int maxLanes() {
+		return Math.max(BYTES.length(), CHARS.length());
+	}
+}
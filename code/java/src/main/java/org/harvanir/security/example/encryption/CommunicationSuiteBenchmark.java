@@ -0,0 +1,124 @@
+package org.harvanir.security.example.encryption;
+
+import java.nio.ByteBuffer;
+import java.security.KeyPairGenerator;
+
+import org.harvanir.security.example.encryption.Rsa2048MiniDemo.EncryptedCommunication;
+import org.harvanir.security.example.encryption.Rsa2048MiniDemo.EncryptedCommunication.EncryptedMessage;
+import org.harvanir.security.example.encryption.Rsa2048MiniDemo.EncryptedCommunication.SessionPolicy;
+import org.harvanir.security.example.encryption.Rsa2048MiniDemo.EncryptedCommunication.Suite;
+
+/**
+ * CommunicationSuiteBenchmark
+ *
+ * Perbandingan biaya {@link EncryptedCommunication} per suite: key generation
+ * (langsung lewat {@link KeyPairGenerator}), membuat instance (mengambil key
+ * pair dari {@link KeyPairPool}; lebih lambat jika pool habis), sign, verify,
+ * setup session (pesan pertama dengan key exchange) dan pesan berikutnya
+ * dengan session key yang sudah ada.
+ *
+ * Jalankan: {@code java ... CommunicationSuiteBenchmark [message-bytes]}
+ */
+public class CommunicationSuiteBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int messageSize = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+		String message = "x".repeat(messageSize);
+
+		System.out.printf("%-16s %12s %12s %12s %12s %14s %14s%n", "suite", "keygen us", "instance us", "sign us",
+				"verify us", "session us", "message us");
+		for (Suite suite : Suite.values()) {
+			run(suite, message);
+		}
+	}
+
+	private static void run(Suite suite, String message) throws Exception {
+		int keygenRounds = suite == Suite.RSA_2048 ? 10 : 500;
+		int rounds = suite == Suite.RSA_2048 ? 200 : 2_000;
+
+		// key pair yang dibutuhkan satu instance: RSA untuk keduanya, atau X25519 +
+		// Ed25519
+		KeyPairGenerator keyGenerator = KeyPairGenerator.getInstance(suite == Suite.RSA_2048 ? "RSA" : "X25519");
+		if (suite == Suite.RSA_2048) {
+			keyGenerator.initialize(2048);
+		}
+		KeyPairGenerator signingGenerator = suite == Suite.RSA_2048 ? null : KeyPairGenerator.getInstance("Ed25519");
+
+		// warm-up
+		for (int i = 0; i < keygenRounds / 5 + 1; i++) {
+			generate(keyGenerator, signingGenerator);
+			new EncryptedCommunication("warmup", suite, null);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < keygenRounds; i++) {
+			generate(keyGenerator, signingGenerator);
+		}
+		double keygen = micros(start, keygenRounds);
+
+		// constructor mengambil dari pool; hit jika pool sempat terisi di background
+		start = System.nanoTime();
+		for (int i = 0; i < keygenRounds; i++) {
+			new EncryptedCommunication("instance", suite, null);
+		}
+		double instance = micros(start, keygenRounds);
+
+		EncryptedCommunication a = new EncryptedCommunication("a", suite, SessionPolicy.perMessage());
+		EncryptedCommunication b = new EncryptedCommunication("b", suite, SessionPolicy.perMessage());
+		a.pairing(b);
+		a.setVerbose(false);
+		b.setVerbose(false);
+
+		ByteBuffer data = ByteBuffer.wrap(message.getBytes());
+		byte[] signature = a.sign(data.duplicate());
+		start = System.nanoTime();
+		for (int i = 0; i < rounds; i++) {
+			signature = a.sign(data.duplicate());
+		}
+		double sign = micros(start, rounds);
+
+		start = System.nanoTime();
+		for (int i = 0; i < rounds; i++) {
+			if (!b.verify(data.duplicate(), ByteBuffer.wrap(signature))) {
+				throw new IllegalStateException("Verify failed");
+			}
+		}
+		double verify = micros(start, rounds);
+
+		// session baru di setiap pesan: key exchange + AES-GCM
+		double session = exchange(a, b, message, rounds / 2);
+
+		EncryptedCommunication c = new EncryptedCommunication("c", suite, SessionPolicy.defaults());
+		EncryptedCommunication d = new EncryptedCommunication("d", suite, SessionPolicy.defaults());
+		c.pairing(d);
+		c.setVerbose(false);
+		d.setVerbose(false);
+		exchange(c, d, message, 1_000);
+		double perMessage = exchange(c, d, message, 20_000);
+
+		System.out.printf("%-16s %12.1f %12.1f %12.1f %12.1f %14.1f %14.1f%n", suite, keygen, instance, sign, verify,
+				session, perMessage);
+	}
+
+	private static void generate(KeyPairGenerator keyGenerator, KeyPairGenerator signingGenerator) {
+		keyGenerator.generateKeyPair();
+		if (signingGenerator != null) {
+			signingGenerator.generateKeyPair();
+		}
+	}
+
+	private static double exchange(EncryptedCommunication from, EncryptedCommunication to, String message,
+			int rounds) throws Exception {
+		long start = System.nanoTime();
+		for (int i = 0; i < rounds; i++) {
+			EncryptedMessage encrypted = from.createMessage(message);
+			if (!to.receiveMessage(encrypted)) {
+				throw new IllegalStateException("Message rejected");
+			}
+		}
+		return micros(start, rounds);
+	}
+
+	private static double micros(long start, int rounds) {
+		return (System.nanoTime() - start) / 1_000.0 / rounds;
+	}
+}
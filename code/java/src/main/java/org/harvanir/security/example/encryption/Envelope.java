@@ -0,0 +1,256 @@
+package org.harvanir.security.example.encryption;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+
+/**
+ * Envelope
+ *
+ * Format biner berversi untuk satu pesan terenkripsi, pengganti String Base64
+ * yang sebelumnya dipakai demo (Base64 menambah 33% ukuran dan CPU
+ * encode/decode di setiap hop). Semua angka big-endian:
+ *
+ * <pre>
+ *  0  version     u8   (1)
+ *  1  algorithm   u8   (lihat {@link Algorithm})
+ *  2  key id      i32
+ *  6  nonce len   u8
+ *  7  tag len     u8
+ *  8  sig len     u16
+ * 10  ct len      i32
+ * 14  nonce | ciphertext | tag | signature
+ * </pre>
+ *
+ * nonce | ciphertext | tag sengaja bersebelahan supaya sama persis dengan
+ * output {@link AesGcmEngine}: engine bisa menulis langsung ke buffer envelope
+ * tanpa salinan. Untuk AES-GCM, 14 byte header dipakai sebagai AAD sehingga
+ * algorithm dan key id ikut terautentikasi.
+ *
+ * Instance hanya view di atas ByteBuffer; field dibaca sebagai slice (tanpa
+ * salin data). Base64 hanya tersedia sebagai encoding di tepi
+ * ({@link #toBase64()} / {@link #fromBase64(String)}).
+ */
+public final class Envelope {
+
+	public static final int VERSION = 1;
+
+	public static final int HEADER_LENGTH = 14;
+
+	public enum Algorithm {
+		AES_GCM(1), AES_ECB_PKCS5(2), RSA_OAEP_SHA256(3),
+
+		// key exchange: public key X25519 ephemeral, session key via HKDF-SHA256
+		X25519_HKDF_SHA256(4);
+
+		private final int id;
+
+		Algorithm(int id) {
+			this.id = id;
+		}
+
+		public int getId() {
+			return id;
+		}
+
+		public static Algorithm of(int id) {
+			for (Algorithm algorithm : values()) {
+				if (algorithm.id == id) {
+					return algorithm;
+				}
+			}
+			throw new IllegalArgumentException("Unknown envelope algorithm: " + id);
+		}
+	}
+
+	private final ByteBuffer buffer;
+
+	private final Algorithm algorithm;
+
+	private final int keyId;
+
+	private final int nonceLength;
+
+	private final int tagLength;
+
+	private final int signatureLength;
+
+	private final int ciphertextLength;
+
+	private Envelope(ByteBuffer buffer, Algorithm algorithm, int keyId, int nonceLength, int tagLength,
+			int signatureLength, int ciphertextLength) {
+		this.buffer = buffer;
+		this.algorithm = algorithm;
+		this.keyId = keyId;
+		this.nonceLength = nonceLength;
+		this.tagLength = tagLength;
+		this.signatureLength = signatureLength;
+		this.ciphertextLength = ciphertextLength;
+	}
+
+	public static int size(int nonceLength, int ciphertextLength, int tagLength, int signatureLength) {
+		return HEADER_LENGTH + nonceLength + ciphertextLength + tagLength + signatureLength;
+	}
+
+	/**
+	 * Tulis header ke {@code out}; caller lalu menulis nonce, ciphertext, tag dan
+	 * signature berurutan dengan panjang yang sama.
+	 */
+	public static void writeHeader(ByteBuffer out, Algorithm algorithm, int keyId, int nonceLength,
+			int ciphertextLength, int tagLength, int signatureLength) {
+		if (nonceLength > 0xFF || tagLength > 0xFF || signatureLength > 0xFFFF || ciphertextLength < 0) {
+			throw new IllegalArgumentException("Envelope field too long");
+		}
+		out.put((byte) VERSION)
+				.put((byte) algorithm.getId())
+				.putInt(keyId)
+				.put((byte) nonceLength)
+				.put((byte) tagLength)
+				.putShort((short) signatureLength)
+				.putInt(ciphertextLength);
+	}
+
+	/**
+	 * Baca satu envelope mulai dari {@code src.position()} dan majukan posisi ke
+	 * akhir envelope. Data tidak disalin; envelope tetap menunjuk ke memori
+	 * {@code src}.
+	 *
+	 * @throws IllegalArgumentException jika format tidak valid atau terpotong.
+	 */
+	public static Envelope wrap(ByteBuffer src) {
+		int start = src.position();
+		if (src.remaining() < HEADER_LENGTH) {
+			throw new IllegalArgumentException("Truncated envelope header at " + start);
+		}
+		int version = src.get(start) & 0xFF;
+		if (version != VERSION) {
+			throw new IllegalArgumentException("Unsupported envelope version: " + version);
+		}
+		Algorithm algorithm = Algorithm.of(src.get(start + 1) & 0xFF);
+		int keyId = src.getInt(start + 2);
+		int nonceLength = src.get(start + 6) & 0xFF;
+		int tagLength = src.get(start + 7) & 0xFF;
+		int signatureLength = src.getShort(start + 8) & 0xFFFF;
+		int ciphertextLength = src.getInt(start + 10);
+
+		long length = (long) HEADER_LENGTH + nonceLength + tagLength + signatureLength + ciphertextLength;
+		if (ciphertextLength < 0 || length > src.remaining()) {
+			throw new IllegalArgumentException("Truncated envelope at " + start);
+		}
+		ByteBuffer view = src.slice(start, (int) length);
+		src.position(start + (int) length);
+		return new Envelope(view, algorithm, keyId, nonceLength, tagLength, signatureLength, ciphertextLength);
+	}
+
+	/**
+	 * Enkripsi {@code plaintext} dengan AES-GCM langsung ke {@code out} sebagai
+	 * envelope (header menjadi AAD).
+	 */
+	public static Envelope seal(AesGcmEngine engine, int keyId, ByteBuffer plaintext, ByteBuffer out)
+			throws GeneralSecurityException {
+		return seal(engine, keyId, null, plaintext, out);
+	}
+
+	/**
+	 * Seperti {@link #seal(AesGcmEngine, int, ByteBuffer, ByteBuffer)} dengan
+	 * nonce dari caller, atau nonce berikutnya dari {@link NonceSequence} milik
+	 * engine jika {@code nonce} null.
+	 *
+	 * @throws GeneralSecurityException juga jika {@code nonce} null dan batas
+	 *                                  nonce engine tercapai.
+	 */
+	public static Envelope seal(AesGcmEngine engine, int keyId, byte[] nonce, ByteBuffer plaintext, ByteBuffer out)
+			throws GeneralSecurityException {
+		int start = out.position();
+		writeHeader(out, Algorithm.AES_GCM, keyId, AesGcmEngine.NONCE_LENGTH, plaintext.remaining(),
+				AesGcmEngine.TAG_LENGTH, 0);
+		engine.encrypt(nonce, out.slice(start, HEADER_LENGTH), plaintext, out);
+		return wrap(out.duplicate().position(start));
+	}
+
+	/**
+	 * Kebalikan dari {@link #seal(AesGcmEngine, int, byte[], ByteBuffer, ByteBuffer)}.
+	 *
+	 * @return jumlah byte plaintext yang ditulis ke {@code out}.
+	 */
+	public int open(AesGcmEngine engine, ByteBuffer out) throws GeneralSecurityException {
+		if (algorithm != Algorithm.AES_GCM || nonceLength != AesGcmEngine.NONCE_LENGTH
+				|| tagLength != AesGcmEngine.TAG_LENGTH) {
+			throw new GeneralSecurityException("Not an AES-GCM envelope: " + algorithm);
+		}
+		return engine.decrypt(header(), sealed(), out);
+	}
+
+	public int getVersion() {
+		return VERSION;
+	}
+
+	public Algorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	public int getKeyId() {
+		return keyId;
+	}
+
+	public int length() {
+		return buffer.limit();
+	}
+
+	public ByteBuffer header() {
+		return buffer.slice(0, HEADER_LENGTH);
+	}
+
+	public ByteBuffer nonce() {
+		return buffer.slice(HEADER_LENGTH, nonceLength);
+	}
+
+	public ByteBuffer ciphertext() {
+		return buffer.slice(HEADER_LENGTH + nonceLength, ciphertextLength);
+	}
+
+	public ByteBuffer tag() {
+		return buffer.slice(HEADER_LENGTH + nonceLength + ciphertextLength, tagLength);
+	}
+
+	public ByteBuffer signature() {
+		return buffer.slice(buffer.limit() - signatureLength, signatureLength);
+	}
+
+	/**
+	 * nonce | ciphertext | tag, format yang dibaca {@link AesGcmEngine}.
+	 */
+	public ByteBuffer sealed() {
+		return buffer.slice(HEADER_LENGTH, nonceLength + ciphertextLength + tagLength);
+	}
+
+	/**
+	 * Semua byte kecuali signature; bagian inilah yang ditandatangani.
+	 */
+	public ByteBuffer signedPortion() {
+		return buffer.slice(0, buffer.limit() - signatureLength);
+	}
+
+	public ByteBuffer asBuffer() {
+		return buffer.duplicate();
+	}
+
+	public byte[] toByteArray() {
+		byte[] bytes = new byte[buffer.limit()];
+		buffer.get(0, bytes);
+		return bytes;
+	}
+
+	public String toBase64() {
+		return Base64.getEncoder().encodeToString(toByteArray());
+	}
+
+	public static Envelope fromBase64(String text) {
+		return wrap(ByteBuffer.wrap(Base64.getDecoder().decode(text)));
+	}
+
+	@Override
+	public String toString() {
+		return "Envelope[v" + VERSION + ", " + algorithm + ", key " + keyId + ", " + length() + " bytes]";
+	}
+}
@@ -0,0 +1,178 @@
+package org.harvanir.security.example.encryption;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * EnvelopeBatch
+ *
+ * Mengemas banyak {@link Envelope} ke satu buffer untuk disimpan atau dikirim
+ * sekaligus:
+ *
+ * <pre>
+ * "ENVB" | version u8 | envelope... | offset i32 * count | count i32
+ * </pre>
+ *
+ * Tabel offset ada di akhir (seperti central directory zip) sehingga
+ * {@link Writer} bisa menulis envelope satu per satu tanpa tahu jumlahnya di
+ * depan, dan {@link Reader} bisa akses acak ke envelope ke-i tanpa membaca
+ * yang sebelumnya. Reader tidak menyalin data; setiap envelope adalah slice
+ * dari buffer batch.
+ */
+public final class EnvelopeBatch {
+
+	public static final int MAGIC = 0x454E5642; // "ENVB"
+
+	public static final int VERSION = 1;
+
+	private static final int PREAMBLE_LENGTH = 5;
+
+	private EnvelopeBatch() {
+	}
+
+	/**
+	 * Ukuran batch untuk envelope dengan total panjang {@code envelopeBytes}.
+	 */
+	public static int size(int count, long envelopeBytes) {
+		long size = PREAMBLE_LENGTH + envelopeBytes + 4L * count + 4;
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Batch too large: " + size);
+		}
+		return (int) size;
+	}
+
+	public static final class Writer {
+
+		private final ByteBuffer out;
+
+		private final int start;
+
+		private int[] offsets = new int[64];
+
+		private int count;
+
+		private boolean finished;
+
+		public Writer(ByteBuffer out) {
+			this.out = out;
+			this.start = out.position();
+			out.putInt(MAGIC).put((byte) VERSION);
+		}
+
+		/**
+		 * Salin envelope yang sudah ada ke batch.
+		 */
+		public void add(Envelope envelope) {
+			int offset = begin(envelope.length());
+			out.put(envelope.asBuffer());
+			commit(offset);
+		}
+
+		/**
+		 * Enkripsi {@code plaintext} langsung ke dalam batch, tanpa envelope
+		 * perantara.
+		 */
+		public Envelope seal(AesGcmEngine engine, int keyId, ByteBuffer plaintext) throws GeneralSecurityException {
+			int offset = begin(Envelope.size(AesGcmEngine.NONCE_LENGTH, plaintext.remaining(),
+					AesGcmEngine.TAG_LENGTH, 0));
+			Envelope envelope = Envelope.seal(engine, keyId, plaintext, out);
+			commit(offset);
+			return envelope;
+		}
+
+		public int count() {
+			return count;
+		}
+
+		/**
+		 * Tulis tabel offset dan kembalikan view batch yang sudah lengkap.
+		 */
+		public ByteBuffer finish() {
+			if (finished) {
+				throw new IllegalStateException("Batch already finished");
+			}
+			if (out.remaining() < 4L * count + 4) {
+				throw new IllegalArgumentException("Output buffer too small for offset table");
+			}
+			for (int i = 0; i < count; i++) {
+				out.putInt(offsets[i]);
+			}
+			out.putInt(count);
+			finished = true;
+			return out.slice(start, out.position() - start);
+		}
+
+		private int begin(int length) {
+			if (finished) {
+				throw new IllegalStateException("Batch already finished");
+			}
+			// sisakan tempat untuk tabel offset termasuk entry ini
+			if (out.remaining() < (long) length + 4L * (count + 1) + 4) {
+				throw new IllegalArgumentException("Output buffer too small for envelope " + count);
+			}
+			return out.position() - start;
+		}
+
+		private void commit(int offset) {
+			if (count == offsets.length) {
+				offsets = Arrays.copyOf(offsets, count * 2);
+			}
+			offsets[count++] = offset;
+		}
+	}
+
+	public static final class Reader {
+
+		private final ByteBuffer batch;
+
+		private final int count;
+
+		private final int tableStart;
+
+		/**
+		 * @param batch buffer berisi tepat satu batch (position..limit).
+		 * @throws IllegalArgumentException jika bukan batch yang valid.
+		 */
+		public Reader(ByteBuffer batch) {
+			this.batch = batch.slice();
+			int length = this.batch.limit();
+			if (length < PREAMBLE_LENGTH + 4 || this.batch.getInt(0) != MAGIC) {
+				throw new IllegalArgumentException("Not an envelope batch");
+			}
+			int version = this.batch.get(4) & 0xFF;
+			if (version != VERSION) {
+				throw new IllegalArgumentException("Unsupported batch version: " + version);
+			}
+			this.count = this.batch.getInt(length - 4);
+			long table = length - 4 - 4L * count;
+			if (count < 0 || table < PREAMBLE_LENGTH) {
+				throw new IllegalArgumentException("Corrupt batch offset table");
+			}
+			this.tableStart = (int) table;
+		}
+
+		public int size() {
+			return count;
+		}
+
+		public Envelope get(int index) {
+			if (index < 0 || index >= count) {
+				throw new IndexOutOfBoundsException(index);
+			}
+			int offset = batch.getInt(tableStart + 4 * index);
+			if (offset < PREAMBLE_LENGTH || offset >= tableStart) {
+				throw new IllegalArgumentException("Corrupt batch offset " + offset + " for envelope " + index);
+			}
+			// batasi ke area envelope supaya envelope rusak tidak bisa membaca tabel
+			return Envelope.wrap(batch.slice(offset, tableStart - offset));
+		}
+
+		public void forEach(Consumer<Envelope> action) {
+			for (int i = 0; i < count; i++) {
+				action.accept(get(i));
+			}
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package org.harvanir.security.example.encryption;
+
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * HKDF-SHA256 (RFC 5869) untuk menurunkan subkey dari master key.
+ */
+final class Hkdf {
+
+	private static final String HMAC = "HmacSHA256";
+
+	private static final int HASH_LENGTH = 32;
+
+	private Hkdf() {
+	}
+
+	static byte[] derive(byte[] ikm, byte[] salt, byte[] info, int length) throws GeneralSecurityException {
+		return expand(extract(salt, ikm), info, length);
+	}
+
+	static byte[] extract(byte[] salt, byte[] ikm) throws GeneralSecurityException {
+		Mac mac = Mac.getInstance(HMAC);
+		// salt kosong diganti HashLen byte nol (RFC 5869 2.2)
+		mac.init(new SecretKeySpec(salt == null || salt.length == 0 ? new byte[HASH_LENGTH] : salt, HMAC));
+		return mac.doFinal(ikm);
+	}
+
+	static byte[] expand(byte[] prk, byte[] info, int length) throws GeneralSecurityException {
+		if (length > 255 * HASH_LENGTH) {
+			throw new IllegalArgumentException("HKDF output too long: " + length);
+		}
+		Mac mac = Mac.getInstance(HMAC);
+		mac.init(new SecretKeySpec(prk, HMAC));
+
+		byte[] okm = new byte[length];
+		byte[] block = new byte[0];
+		for (int offset = 0, counter = 1; offset < length; counter++) {
+			mac.update(block);
+			mac.update(info);
+			mac.update((byte) counter);
+			block = mac.doFinal();
+			int n = Math.min(block.length, length - offset);
+			System.arraycopy(block, 0, okm, offset, n);
+			offset += n;
+		}
+		return okm;
+	}
+}
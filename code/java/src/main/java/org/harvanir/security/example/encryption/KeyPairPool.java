@@ -0,0 +1,293 @@
+package org.harvanir.security.example.encryption;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * KeyPairPool
+ *
+ * Pool terbatas berisi key pair yang sudah dibuat di background, supaya
+ * pembuatan {@code EncryptedCommunication} saat burst tidak menunggu RSA
+ * keygen (ratusan ms). {@link #take()} mengambil key pair yang siap; hanya jika
+ * pool kosong key pair dibuat secara sinkron.
+ *
+ * Worker background menjaga isi pool minimal di low-water mark. Target isi
+ * mengikuti permintaan: laju {@link #take()} dihitung sebagai EWMA, dan target
+ * = laju x lookahead (dibatasi antara low-water dan capacity). Saat sepi
+ * worker diam di low-water; saat burst pool diisi sampai capacity. Worker
+ * memakai prioritas rendah supaya tidak merebut CPU thread request.
+ *
+ * Metrics: hit, miss, jumlah refill, latency refill (rata-rata dan maksimum),
+ * isi pool dan target saat ini; lihat {@link #snapshot()}.
+ */
+public final class KeyPairPool implements AutoCloseable {
+
+	private static final Map<String, KeyPairPool> SHARED = new ConcurrentHashMap<>();
+
+	private static final long DEMAND_INTERVAL_NANOS = Duration.ofMillis(100).toNanos();
+
+	private static final double DEMAND_SMOOTHING = 0.3;
+
+	private final String algorithm;
+
+	private final int keySize;
+
+	private final PoolConfig config;
+
+	private final ArrayBlockingQueue<KeyPair> ready;
+
+	private final Thread[] workers;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final AtomicInteger target;
+
+	private final LongAdder takes = new LongAdder();
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder refills = new LongAdder();
+
+	private final LongAdder refillNanos = new LongAdder();
+
+	private final AtomicLong refillNanosMax = new AtomicLong();
+
+	private final AtomicLong lastDemandUpdate = new AtomicLong(System.nanoTime());
+
+	private long lastTakes;
+
+	private volatile double demandPerSecond;
+
+	private volatile boolean closed;
+
+	/**
+	 * @param keySize ukuran key untuk {@link KeyPairGenerator#initialize(int)},
+	 *                atau 0 untuk default algoritma (X25519, Ed25519).
+	 */
+	public KeyPairPool(String algorithm, int keySize, PoolConfig config) {
+		this.algorithm = algorithm;
+		this.keySize = keySize;
+		this.config = config;
+		this.ready = new ArrayBlockingQueue<>(config.getCapacity());
+		this.target = new AtomicInteger(config.getLowWater());
+
+		this.workers = new Thread[config.getWorkers()];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new Thread(this::refillLoop, "keypair-pool-" + algorithm + "-" + (i + 1));
+			workers[i].setDaemon(true);
+			workers[i].setPriority(Thread.MIN_PRIORITY);
+			workers[i].start();
+		}
+	}
+
+	/**
+	 * Pool bersama per algoritma; RSA memakai key 2048 bit. Worker mulai mengisi
+	 * pool sejak panggilan pertama.
+	 */
+	public static KeyPairPool shared(String algorithm) {
+		return SHARED.computeIfAbsent(algorithm,
+				a -> new KeyPairPool(a, "RSA".equals(a) ? 2048 : 0, PoolConfig.defaults(a)));
+	}
+
+	public static void main(String[] args) throws Exception {
+		int burst = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		KeyPairPool pool = shared("RSA");
+
+		System.out.println("Mengisi pool sampai low-water...");
+		while (pool.size() < pool.config.getLowWater()) {
+			Thread.sleep(100);
+		}
+
+		long start = System.nanoTime();
+		for (int i = 0; i < burst; i++) {
+			new Rsa2048MiniDemo.EncryptedCommunication("burst-" + i);
+		}
+		System.out.printf("%d communicator dibuat dalam %.1f us per instance%n", burst,
+				(System.nanoTime() - start) / 1_000.0 / burst);
+		System.out.println(pool.snapshot());
+	}
+
+	/**
+	 * Ambil key pair yang sudah siap, atau buat sinkron jika pool kosong. Setiap
+	 * key pair hanya diberikan sekali.
+	 */
+	public KeyPair take() {
+		takes.increment();
+		KeyPair keyPair = ready.poll();
+		if (keyPair != null) {
+			hits.increment();
+			if (ready.size() < config.getLowWater()) {
+				wakeWorkers();
+			}
+			return keyPair;
+		}
+
+		misses.increment();
+		wakeWorkers();
+		try {
+			return newGenerator().generateKeyPair();
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("Key pair generation failed for " + algorithm, e);
+		}
+	}
+
+	public int size() {
+		return ready.size();
+	}
+
+	public int getTarget() {
+		return target.get();
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getRefills() {
+		return refills.sum();
+	}
+
+	public String snapshot() {
+		long refillCount = refills.sum();
+		return String.format(
+				"keypair.pool.%s size=%d target=%d hit=%d miss=%d refill=%d refill.avg.us=%.0f refill.max.us=%d demand.per.sec=%.1f",
+				algorithm, ready.size(), target.get(), hits.sum(), misses.sum(), refillCount,
+				refillCount == 0 ? 0.0 : refillNanos.sum() / 1_000.0 / refillCount, refillNanosMax.get() / 1_000,
+				demandPerSecond);
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		SHARED.remove(algorithm, this);
+		for (Thread worker : workers) {
+			worker.interrupt();
+		}
+	}
+
+	private void refillLoop() {
+		KeyPairGenerator generator;
+		try {
+			generator = newGenerator();
+		} catch (GeneralSecurityException e) {
+			System.err.println("Key pair pool disabled for " + algorithm + ": " + e.getMessage());
+			return;
+		}
+
+		while (!closed && !Thread.currentThread().isInterrupted()) {
+			updateDemand();
+			// inFlight mencegah beberapa worker mengisi slot yang sama
+			if (ready.size() + inFlight.incrementAndGet() <= target.get()) {
+				try {
+					long start = System.nanoTime();
+					KeyPair keyPair = generator.generateKeyPair();
+					long elapsed = System.nanoTime() - start;
+					refills.increment();
+					refillNanos.add(elapsed);
+					refillNanosMax.accumulateAndGet(elapsed, Math::max);
+					ready.offer(keyPair);
+				} finally {
+					inFlight.decrementAndGet();
+				}
+				continue;
+			}
+			inFlight.decrementAndGet();
+			// dibangunkan oleh take() saat pool turun di bawah low-water
+			LockSupport.parkNanos(this, DEMAND_INTERVAL_NANOS);
+		}
+	}
+
+	// Hanya satu worker per interval yang menghitung ulang laju permintaan
+	private void updateDemand() {
+		long now = System.nanoTime();
+		long last = lastDemandUpdate.get();
+		if (now - last < DEMAND_INTERVAL_NANOS || !lastDemandUpdate.compareAndSet(last, now)) {
+			return;
+		}
+		long total = takes.sum();
+		double rate = (total - lastTakes) * 1e9 / (now - last);
+		lastTakes = total;
+		double demand = DEMAND_SMOOTHING * rate + (1 - DEMAND_SMOOTHING) * demandPerSecond;
+		demandPerSecond = demand;
+
+		long wanted = (long) Math.ceil(demand * config.getLookahead().toNanos() / 1e9);
+		target.set((int) Math.max(config.getLowWater(), Math.min(config.getCapacity(), wanted)));
+	}
+
+	private void wakeWorkers() {
+		for (Thread worker : workers) {
+			LockSupport.unpark(worker);
+		}
+	}
+
+	private KeyPairGenerator newGenerator() throws GeneralSecurityException {
+		KeyPairGenerator generator = KeyPairGenerator.getInstance(algorithm);
+		if (keySize > 0) {
+			generator.initialize(keySize);
+		}
+		return generator;
+	}
+
+	public static class PoolConfig {
+		private final int capacity;
+
+		private final int lowWater;
+
+		private final int workers;
+
+		private final Duration lookahead;
+
+		/**
+		 * @param lookahead berapa lama permintaan (laju saat ini) harus bisa dilayani
+		 *                  dari isi pool tanpa keygen sinkron.
+		 */
+		public PoolConfig(int capacity, int lowWater, int workers, Duration lookahead) {
+			if (capacity <= 0 || lowWater < 0 || lowWater > capacity || workers <= 0) {
+				throw new IllegalArgumentException("Invalid pool config");
+			}
+			this.capacity = capacity;
+			this.lowWater = lowWater;
+			this.workers = workers;
+			this.lookahead = lookahead;
+		}
+
+		public static PoolConfig defaults(String algorithm) {
+			int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+			if ("RSA".equals(algorithm)) {
+				return new PoolConfig(64, 8, workers, Duration.ofSeconds(5));
+			}
+			return new PoolConfig(256, 32, 1, Duration.ofSeconds(1));
+		}
+
+		public int getCapacity() {
+			return capacity;
+		}
+
+		public int getLowWater() {
+			return lowWater;
+		}
+
+		public int getWorkers() {
+			return workers;
+		}
+
+		public Duration getLookahead() {
+			return lookahead;
+		}
+	}
+}
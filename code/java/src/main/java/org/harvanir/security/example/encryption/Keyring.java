@@ -0,0 +1,196 @@
+package org.harvanir.security.example.encryption;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keyring
+ *
+ * Kumpulan key AES-GCM di memori yang sudah siap pakai (di-decode dan dibungkus
+ * {@link AesGcmEngine} sekali saat ditambahkan), diindeks dengan key id.
+ * Setiap ciphertext adalah {@link Envelope} yang membawa key id di header,
+ * jadi decrypt mencari key dalam O(1) dan tulisan baru selalu memakai primary
+ * key.
+ *
+ * Rotasi online: {@link #rotate()} menambahkan key baru dan menjadikannya
+ * primary; data lama tetap bisa dibaca dengan key lamanya sampai
+ * {@link ReEncryptionJob} memindahkannya, lalu key lama bisa di-
+ * {@link #retire(int)}.
+ *
+ * Setiap key punya batas nonce ({@link NonceSequence}); begitu primary key
+ * mendekati batasnya, {@link #seal(ByteBuffer, ByteBuffer)} merotasi key secara
+ * otomatis sebelum batas itu tercapai.
+ */
+public final class Keyring {
+
+	private static final int KEY_LENGTH = 32;
+
+	private static final SecureRandom RNG = new SecureRandom();
+
+	private final Map<Integer, Key> keys = new ConcurrentHashMap<>();
+
+	private final long nonceLimit;
+
+	private volatile Key primary;
+
+	private int highestId;
+
+	public Keyring(int keyId, byte[] key) {
+		this(keyId, key, NonceSequence.DEFAULT_LIMIT);
+	}
+
+	/**
+	 * @param nonceLimit jumlah pesan maksimum per key.
+	 */
+	public Keyring(int keyId, byte[] key, long nonceLimit) {
+		this.nonceLimit = nonceLimit;
+		this.primary = add(keyId, key);
+	}
+
+	public static Keyring fromBase64Key(int keyId, String key) {
+		return new Keyring(keyId, Base64.getDecoder().decode(key));
+	}
+
+	/**
+	 * Tambahkan key tanpa menjadikannya primary (misalnya key lama yang masih
+	 * dipakai data tersimpan).
+	 */
+	public synchronized Key add(int keyId, byte[] key) {
+		Key entry = new Key(keyId, new AesGcmEngine(key, nonceLimit));
+		if (keys.putIfAbsent(keyId, entry) != null) {
+			throw new IllegalArgumentException("Duplicate key id: " + keyId);
+		}
+		highestId = Math.max(highestId, keyId);
+		return entry;
+	}
+
+	/**
+	 * Buat key acak baru dengan id berikutnya dan jadikan primary.
+	 *
+	 * @return key id baru.
+	 */
+	public synchronized int rotate() {
+		// id tidak pernah dipakai ulang, termasuk id key yang sudah di-retire
+		int keyId = highestId + 1;
+		byte[] key = new byte[KEY_LENGTH];
+		RNG.nextBytes(key);
+		primary = add(keyId, key);
+		return keyId;
+	}
+
+	public synchronized void setPrimary(int keyId) {
+		Key key = keys.get(keyId);
+		if (key == null) {
+			throw new IllegalArgumentException("Unknown key id: " + keyId);
+		}
+		primary = key;
+	}
+
+	/**
+	 * Hapus key yang sudah tidak dipakai data mana pun. Primary key tidak bisa
+	 * dihapus.
+	 */
+	public synchronized void retire(int keyId) {
+		if (primary.getId() == keyId) {
+			throw new IllegalStateException("Cannot retire primary key " + keyId);
+		}
+		keys.remove(keyId);
+	}
+
+	public Key primary() {
+		return primary;
+	}
+
+	public Key get(int keyId) {
+		return keys.get(keyId);
+	}
+
+	public int size() {
+		return keys.size();
+	}
+
+	/**
+	 * Enkripsi dengan primary key langsung ke {@code out}. Jika pemakaian nonce
+	 * primary key sudah mendekati batas, key dirotasi dulu.
+	 */
+	public Envelope seal(ByteBuffer plaintext, ByteBuffer out) throws GeneralSecurityException {
+		Key key = primary;
+		if (key.getEngine().isRekeyDue()) {
+			key = rotateIfPrimary(key);
+		}
+		return Envelope.seal(key.getEngine(), key.getId(), plaintext, out);
+	}
+
+	// hanya satu thread yang merotasi; thread lain memakai key hasil rotasi itu
+	private synchronized Key rotateIfPrimary(Key key) {
+		if (primary == key) {
+			rotate();
+		}
+		return primary;
+	}
+
+	/**
+	 * Decrypt dengan key yang id-nya tercatat di envelope.
+	 *
+	 * @throws GeneralSecurityException jika key id tidak dikenal atau tag tidak
+	 *                                  valid.
+	 */
+	public int open(Envelope envelope, ByteBuffer out) throws GeneralSecurityException {
+		Key key = keys.get(envelope.getKeyId());
+		if (key == null) {
+			throw new GeneralSecurityException("Unknown key id: " + envelope.getKeyId());
+		}
+		return envelope.open(key.getEngine(), out);
+	}
+
+	public byte[] encrypt(byte[] plaintext) throws GeneralSecurityException {
+		ByteBuffer out = ByteBuffer.allocate(
+				Envelope.size(AesGcmEngine.NONCE_LENGTH, plaintext.length, AesGcmEngine.TAG_LENGTH, 0));
+		seal(ByteBuffer.wrap(plaintext), out);
+		return out.array();
+	}
+
+	public byte[] decrypt(byte[] envelope) throws GeneralSecurityException {
+		Envelope parsed = Envelope.wrap(ByteBuffer.wrap(envelope));
+		byte[] out = new byte[parsed.ciphertext().remaining()];
+		open(parsed, ByteBuffer.wrap(out));
+		return out;
+	}
+
+	/**
+	 * true jika envelope belum memakai primary key.
+	 */
+	public boolean isStale(Envelope envelope) {
+		return envelope.getKeyId() != primary.getId();
+	}
+
+	/**
+	 * Decrypt dengan key lama lalu enkripsi ulang dengan primary key.
+	 */
+	public byte[] reEncrypt(byte[] envelope) throws GeneralSecurityException {
+		return encrypt(decrypt(envelope));
+	}
+
+	public static final class Key {
+		private final int id;
+
+		private final AesGcmEngine engine;
+
+		Key(int id, AesGcmEngine engine) {
+			this.id = id;
+			this.engine = engine;
+		}
+
+		public int getId() {
+			return id;
+		}
+
+		public AesGcmEngine getEngine() {
+			return engine;
+		}
+	}
+}
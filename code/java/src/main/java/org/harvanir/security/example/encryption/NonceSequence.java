@@ -0,0 +1,146 @@
+package org.harvanir.security.example.encryption;
+
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * NonceSequence
+ *
+ * Sumber nonce AES-GCM 12 byte untuk satu key, tanpa {@link SecureRandom} di
+ * jalur enkripsi. Nonce = prefix 4 byte | counter 64 bit (big-endian); prefix
+ * dan nilai awal counter diacak sekali saat sequence dibuat, setelah itu
+ * setiap nonce adalah nilai counter berikutnya (konstruksi deterministik NIST
+ * SP 800-38D 8.2.1). Dalam satu sequence nonce tidak pernah berulang. Dua
+ * sequence untuk key yang sama (misalnya dua proses) hanya bertabrakan jika
+ * titik awal 96 bit acaknya kebetulan berdekatan.
+ *
+ * Supaya thread tidak berebut satu counter, counter global hanya dimajukan per
+ * blok ({@value #BLOCK} nilai). Setiap lane (dipilih dari thread id) memakai
+ * bloknya sendiri dengan satu increment atomik per nonce, dan baru mengambil
+ * blok baru setelah habis. Nilai yang tidak terpakai di blok yang ditinggal
+ * dilewati, tidak pernah dipakai ulang.
+ *
+ * Batas pemakaian: setelah {@code limit} nonce dibagikan (dihitung per blok,
+ * jadi sedikit lebih konservatif) {@link #next(byte[])} menolak dengan
+ * {@link GeneralSecurityException}; mulai {@code rekeyAt} {@link #isRekeyDue()}
+ * bernilai true supaya pemilik key (misalnya {@link Keyring}) merotasi key
+ * sebelum batas itu tercapai.
+ */
+public final class NonceSequence {
+
+	/**
+	 * Batas pesan per key yang umum dipakai untuk AES-GCM dengan nonce 96 bit.
+	 */
+	public static final long DEFAULT_LIMIT = 1L << 32;
+
+	static final int BLOCK = 1024;
+
+	private static final int PREFIX_LENGTH = 4;
+
+	private static final SecureRandom RNG = new SecureRandom();
+
+	private final byte[] prefix = new byte[PREFIX_LENGTH];
+
+	private final long start;
+
+	private final long limit;
+
+	private final long rekeyAt;
+
+	private final AtomicLong leased = new AtomicLong();
+
+	private final AtomicReferenceArray<Lease> lanes;
+
+	public NonceSequence() {
+		this(DEFAULT_LIMIT);
+	}
+
+	/**
+	 * @param limit jumlah nonce maksimum; rotasi disarankan mulai 3/4 dari batas
+	 *              ini.
+	 */
+	public NonceSequence(long limit) {
+		if (limit <= 0) {
+			throw new IllegalArgumentException("limit must be positive");
+		}
+		this.limit = limit;
+		this.rekeyAt = limit - limit / 4;
+		RNG.nextBytes(prefix);
+		this.start = RNG.nextLong();
+		int cores = Runtime.getRuntime().availableProcessors();
+		this.lanes = new AtomicReferenceArray<>(Integer.highestOneBit(Math.max(1, cores * 2 - 1)) << 1);
+	}
+
+	/**
+	 * Tulis nonce berikutnya ke {@code nonce} (12 byte).
+	 *
+	 * @throws GeneralSecurityException jika batas nonce untuk key ini sudah
+	 *                                  tercapai.
+	 */
+	public void next(byte[] nonce) throws GeneralSecurityException {
+		int lane = (int) (Thread.currentThread().threadId() & (lanes.length() - 1));
+		Lease lease = lanes.get(lane);
+		if (lease != null) {
+			long value = lease.next.getAndIncrement();
+			if (value < lease.end) {
+				write(value, nonce);
+				return;
+			}
+		}
+
+		// blok lane habis: ambil blok baru; nilai pertamanya langsung dipakai
+		Lease fresh = lease();
+		long value = fresh.next.getAndIncrement();
+		lanes.compareAndSet(lane, lease, fresh);
+		write(value, nonce);
+	}
+
+	/**
+	 * Jumlah nonce yang sudah dibagikan ke lane (batas atas nonce yang terpakai).
+	 */
+	public long getLeased() {
+		return Math.min(leased.get(), limit);
+	}
+
+	public long getLimit() {
+		return limit;
+	}
+
+	public long getRemaining() {
+		return limit - getLeased();
+	}
+
+	public boolean isRekeyDue() {
+		return leased.get() >= rekeyAt;
+	}
+
+	private Lease lease() throws GeneralSecurityException {
+		long from = leased.getAndAdd(BLOCK);
+		if (from >= limit) {
+			throw new GeneralSecurityException("Nonce limit of " + limit + " reached, key must be rotated");
+		}
+		return new Lease(from, Math.min(from + BLOCK, limit));
+	}
+
+	private void write(long value, byte[] nonce) {
+		System.arraycopy(prefix, 0, nonce, 0, PREFIX_LENGTH);
+		long counter = start + value;
+		for (int i = AesGcmEngine.NONCE_LENGTH - 1; i >= PREFIX_LENGTH; i--) {
+			nonce[i] = (byte) counter;
+			counter >>>= 8;
+		}
+	}
+
+	private static final class Lease {
+		private final AtomicLong next;
+
+		private final long end;
+
+		Lease(long from, long end) {
+			this.next = new AtomicLong(from);
+			this.end = end;
+		}
+	}
+}
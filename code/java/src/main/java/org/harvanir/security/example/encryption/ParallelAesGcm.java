@@ -0,0 +1,386 @@
+package org.harvanir.security.example.encryption;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+import org.harvanir.security.example.encryption.StreamingAesGcm.Header;
+
+/**
+ * ParallelAesGcm
+ *
+ * Enkripsi AES-GCM bulk yang memakai semua core. Input dipotong menjadi chunk
+ * yang masing-masing diautentikasi sendiri, lalu chunk-chunk tersebut
+ * dienkripsi/didekripsi paralel di {@link ForkJoinPool} langsung ke posisi
+ * akhirnya di buffer output (tanpa tahap reassembly terpisah).
+ *
+ * Container yang dihasilkan adalah format "SAG1" dari {@link StreamingAesGcm}:
+ * header menyimpan ukuran chunk, salt dan nonce prefix, dan nonce setiap chunk
+ * diturunkan dari indeksnya, jadi setiap chunk bisa diproses tanpa
+ * bergantung pada chunk lain. Hasilnya bisa dibuka oleh
+ * {@link StreamingAesGcm} dan sebaliknya.
+ *
+ * Untuk data di atas 2 GB (batas {@code byte[]}/{@code ByteBuffer}) gunakan
+ * {@link #encryptFile(Path, Path)} yang memproses file per window mapping.
+ *
+ * Usage: {@code java ParallelAesGcm [size-mb]}
+ */
+public class ParallelAesGcm {
+
+	private static final int TAG_LENGTH = StreamingAesGcm.TAG_LENGTH;
+
+	private static final int HEADER_LENGTH = StreamingAesGcm.HEADER_LENGTH;
+
+	// window mapping untuk mode file; cukup besar supaya semua core kebagian chunk
+	private static final long MAP_WINDOW = 512L * 1024 * 1024;
+
+	private static final ThreadLocal<Cipher> CIPHERS = ThreadLocal.withInitial(() -> {
+		try {
+			return Cipher.getInstance(StreamingAesGcm.TRANSFORMATION);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	});
+
+	private final SecretKey masterKey;
+
+	private final int chunkSize;
+
+	private final ForkJoinPool pool;
+
+	public ParallelAesGcm(SecretKey masterKey) {
+		this(masterKey, StreamingAesGcm.DEFAULT_SEGMENT_SIZE, ForkJoinPool.commonPool());
+	}
+
+	public ParallelAesGcm(SecretKey masterKey, int chunkSize, ForkJoinPool pool) {
+		if (chunkSize < StreamingAesGcm.MIN_SEGMENT_SIZE || chunkSize > StreamingAesGcm.MAX_SEGMENT_SIZE) {
+			throw new IllegalArgumentException("Chunk size must be between " + StreamingAesGcm.MIN_SEGMENT_SIZE
+					+ " and " + StreamingAesGcm.MAX_SEGMENT_SIZE);
+		}
+		this.masterKey = masterKey;
+		this.chunkSize = chunkSize;
+		this.pool = pool;
+	}
+
+	public static void main(String[] args) throws Exception {
+		int sizeMb = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+
+		KeyGenerator kg = KeyGenerator.getInstance("AES");
+		kg.init(256);
+		SecretKey key = kg.generateKey();
+
+		ByteBuffer plain = ByteBuffer.allocateDirect(sizeMb * 1024 * 1024);
+		byte[] random = new byte[1024 * 1024];
+		new SecureRandom().nextBytes(random);
+		while (plain.hasRemaining()) {
+			plain.put(random, 0, Math.min(random.length, plain.remaining()));
+		}
+		plain.flip();
+
+		ForkJoinPool single = new ForkJoinPool(1);
+		ParallelAesGcm sequential = new ParallelAesGcm(key, StreamingAesGcm.DEFAULT_SEGMENT_SIZE, single);
+		ParallelAesGcm parallel = new ParallelAesGcm(key);
+		System.out.println("Cores: " + Runtime.getRuntime().availableProcessors() + ", parallelism: "
+				+ ForkJoinPool.commonPool().getParallelism());
+
+		ByteBuffer sealed = ByteBuffer.allocateDirect((int) parallel.ciphertextSize(plain.remaining()));
+		ByteBuffer opened = ByteBuffer.allocateDirect(plain.remaining());
+		for (int round = 0; round < 3; round++) {
+			long start = System.nanoTime();
+			sequential.encrypt(plain.duplicate(), sealed.clear());
+			report("Encrypt 1 thread ", plain.remaining(), start);
+
+			start = System.nanoTime();
+			parallel.encrypt(plain.duplicate(), sealed.clear());
+			report("Encrypt parallel ", plain.remaining(), start);
+
+			start = System.nanoTime();
+			parallel.decrypt(sealed.flip(), opened.clear());
+			report("Decrypt parallel ", plain.remaining(), start);
+		}
+		single.shutdown();
+		System.out.println("Round trip equal: " + plain.equals(opened.flip()));
+	}
+
+	/**
+	 * @return ukuran container untuk plaintext sebesar {@code plaintextSize}.
+	 */
+	public long ciphertextSize(long plaintextSize) {
+		return StreamingAesGcm.ciphertextSize(plaintextSize, chunkSize);
+	}
+
+	public byte[] encrypt(byte[] plaintext) throws GeneralSecurityException {
+		long size = ciphertextSize(plaintext.length);
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Container too large for byte[]: " + size);
+		}
+		byte[] out = new byte[(int) size];
+		encrypt(ByteBuffer.wrap(plaintext), ByteBuffer.wrap(out));
+		return out;
+	}
+
+	public byte[] decrypt(byte[] container) throws GeneralSecurityException {
+		ByteBuffer in = ByteBuffer.wrap(container);
+		byte[] out = new byte[(int) plaintextSize(in)];
+		decrypt(in, ByteBuffer.wrap(out));
+		return out;
+	}
+
+	/**
+	 * Enkripsi seluruh {@code in.remaining()} ke {@code out}; posisi keduanya
+	 * dimajukan. {@code out} harus punya sisa minimal {@link #ciphertextSize}.
+	 */
+	public void encrypt(ByteBuffer in, ByteBuffer out) throws GeneralSecurityException {
+		int size = in.remaining();
+		long sealedSize = ciphertextSize(size);
+		if (out.remaining() < sealedSize) {
+			throw new IllegalArgumentException("Output buffer too small: " + out.remaining() + " < " + sealedSize);
+		}
+		long chunks = Math.max(1, ((long) size + chunkSize - 1) / chunkSize);
+
+		Header header = Header.random(chunkSize);
+		out.put(header.getEncoded());
+		run(new ChunkTask(true, header, header.deriveKey(masterKey), in.slice(),
+				out.slice(out.position(), (int) (sealedSize - HEADER_LENGTH)), 0, chunks, 0, chunks));
+		in.position(in.limit());
+		out.position(out.position() + (int) (sealedSize - HEADER_LENGTH));
+	}
+
+	/**
+	 * Dekripsi container di {@code in} ke {@code out}.
+	 *
+	 * @throws AEADBadTagException jika ada chunk yang diubah, hilang, atau
+	 *                             container terpotong.
+	 */
+	public void decrypt(ByteBuffer in, ByteBuffer out) throws GeneralSecurityException {
+		long plainSize = plaintextSize(in);
+		if (out.remaining() < plainSize) {
+			throw new IllegalArgumentException("Output buffer too small: " + out.remaining() + " < " + plainSize);
+		}
+		byte[] encodedHeader = new byte[HEADER_LENGTH];
+		in.get(encodedHeader);
+		Header header = Header.parse(encodedHeader);
+		int sealedChunk = header.getSegmentSize() + TAG_LENGTH;
+		long chunks = ((long) in.remaining() + sealedChunk - 1) / sealedChunk;
+
+		run(new ChunkTask(false, header, header.deriveKey(masterKey), in.slice(),
+				out.slice(out.position(), (int) plainSize), 0, chunks, 0, chunks));
+		in.position(in.limit());
+		out.position(out.position() + (int) plainSize);
+	}
+
+	/**
+	 * @return ukuran plaintext dari container yang dimulai di posisi {@code in}.
+	 */
+	public static long plaintextSize(ByteBuffer in) throws AEADBadTagException {
+		if (in.remaining() < HEADER_LENGTH + TAG_LENGTH) {
+			throw new AEADBadTagException("Container too short");
+		}
+		byte[] encodedHeader = new byte[HEADER_LENGTH];
+		in.get(in.position(), encodedHeader);
+		int sealedChunk = Header.parse(encodedHeader).getSegmentSize() + TAG_LENGTH;
+		long body = in.remaining() - HEADER_LENGTH;
+		long chunks = (body + sealedChunk - 1) / sealedChunk;
+		if (body - (chunks - 1) * sealedChunk < TAG_LENGTH) {
+			throw new AEADBadTagException("Truncated final chunk");
+		}
+		return body - chunks * TAG_LENGTH;
+	}
+
+	/**
+	 * Enkripsi file paralel per window mapping; hasilnya sama dengan
+	 * {@link StreamingAesGcm#encryptFile(Path, Path)}.
+	 *
+	 * @return ukuran file container.
+	 */
+	public long encryptFile(Path source, Path target) throws IOException, GeneralSecurityException {
+		try (FileChannel src = FileChannel.open(source, StandardOpenOption.READ);
+				FileChannel dst = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.READ,
+						StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			long size = src.size();
+			long chunks = Math.max(1, (size + chunkSize - 1) / chunkSize);
+			StreamingAesGcm.checkSegmentCount(chunks);
+
+			Header header = Header.random(chunkSize);
+			SecretKey key = header.deriveKey(masterKey);
+			dst.write(ByteBuffer.wrap(header.getEncoded()), 0);
+
+			long perWindow = Math.max(1, MAP_WINDOW / chunkSize);
+			for (long first = 0; first < chunks; first += perWindow) {
+				long count = Math.min(perWindow, chunks - first);
+				long inPosition = first * chunkSize;
+				long inLength = Math.min(count * chunkSize, size - inPosition);
+				MappedByteBuffer in = src.map(FileChannel.MapMode.READ_ONLY, inPosition, inLength);
+				MappedByteBuffer out = dst.map(FileChannel.MapMode.READ_WRITE,
+						HEADER_LENGTH + first * (chunkSize + TAG_LENGTH), inLength + count * TAG_LENGTH);
+				run(new ChunkTask(true, header, key, in, out, first, chunks, 0, count));
+			}
+			return HEADER_LENGTH + size + chunks * TAG_LENGTH;
+		}
+	}
+
+	/**
+	 * Dekripsi file paralel per window mapping. Jika verifikasi gagal, file
+	 * target dihapus.
+	 *
+	 * @return ukuran file plaintext.
+	 */
+	public long decryptFile(Path source, Path target) throws IOException, GeneralSecurityException {
+		boolean complete = false;
+		try (FileChannel src = FileChannel.open(source, StandardOpenOption.READ);
+				FileChannel dst = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.READ,
+						StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			long size = src.size();
+			if (size < HEADER_LENGTH + TAG_LENGTH) {
+				throw new AEADBadTagException("Container too short");
+			}
+			ByteBuffer encodedHeader = ByteBuffer.allocate(HEADER_LENGTH);
+			src.read(encodedHeader, 0);
+			Header header = Header.parse(encodedHeader.array());
+			SecretKey key = header.deriveKey(masterKey);
+
+			int sealedChunk = header.getSegmentSize() + TAG_LENGTH;
+			long body = size - HEADER_LENGTH;
+			long chunks = (body + sealedChunk - 1) / sealedChunk;
+			StreamingAesGcm.checkSegmentCount(chunks);
+			if (body - (chunks - 1) * sealedChunk < TAG_LENGTH) {
+				throw new AEADBadTagException("Truncated final chunk");
+			}
+
+			long perWindow = Math.max(1, MAP_WINDOW / sealedChunk);
+			for (long first = 0; first < chunks; first += perWindow) {
+				long count = Math.min(perWindow, chunks - first);
+				long inPosition = first * sealedChunk;
+				long inLength = Math.min(count * sealedChunk, body - inPosition);
+				MappedByteBuffer in = src.map(FileChannel.MapMode.READ_ONLY, HEADER_LENGTH + inPosition, inLength);
+				MappedByteBuffer out = dst.map(FileChannel.MapMode.READ_WRITE,
+						first * header.getSegmentSize(), inLength - count * TAG_LENGTH);
+				run(new ChunkTask(false, header, key, in, out, first, chunks, 0, count));
+			}
+			complete = true;
+			return body - chunks * TAG_LENGTH;
+		} finally {
+			if (!complete) {
+				Files.deleteIfExists(target);
+			}
+		}
+	}
+
+	private void run(ChunkTask task) throws GeneralSecurityException {
+		try {
+			pool.invoke(task);
+		} catch (ChunkFailure e) {
+			throw e.getCause();
+		}
+	}
+
+	private static void report(String label, long bytes, long startNanos) {
+		double seconds = (System.nanoTime() - startNanos) / 1e9;
+		System.out.printf("%s: %d bytes in %.3fs (%.1f MB/s)%n", label, bytes, seconds,
+				bytes / seconds / (1024 * 1024));
+	}
+
+	/**
+	 * Memproses chunk {@code [from, to)} relatif terhadap awal {@code in}/{@code out}.
+	 * {@code firstChunk} adalah indeks absolut chunk pertama buffer ini di dalam
+	 * container, dipakai untuk nonce.
+	 */
+	private static final class ChunkTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final boolean encrypt;
+
+		private final transient Header header;
+
+		private final transient SecretKey key;
+
+		private final transient ByteBuffer in;
+
+		private final transient ByteBuffer out;
+
+		private final long firstChunk;
+
+		private final long totalChunks;
+
+		private final long from;
+
+		private final long to;
+
+		ChunkTask(boolean encrypt, Header header, SecretKey key, ByteBuffer in, ByteBuffer out, long firstChunk,
+				long totalChunks, long from, long to) {
+			this.encrypt = encrypt;
+			this.header = header;
+			this.key = key;
+			this.in = in;
+			this.out = out;
+			this.firstChunk = firstChunk;
+			this.totalChunks = totalChunks;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				long mid = (from + to) >>> 1;
+				invokeAll(new ChunkTask(encrypt, header, key, in, out, firstChunk, totalChunks, from, mid),
+						new ChunkTask(encrypt, header, key, in, out, firstChunk, totalChunks, mid, to));
+				return;
+			}
+
+			int plainChunk = header.getSegmentSize();
+			int sealedChunk = plainChunk + TAG_LENGTH;
+			int inStride = encrypt ? plainChunk : sealedChunk;
+			int outStride = encrypt ? sealedChunk : plainChunk;
+			int inOffset = (int) (from * inStride);
+			int inLength = Math.min(inStride, in.limit() - inOffset);
+			int outLength = encrypt ? inLength + TAG_LENGTH : inLength - TAG_LENGTH;
+
+			// slice absolut: setiap task punya position/limit sendiri
+			ByteBuffer src = in.slice(inOffset, inLength);
+			ByteBuffer dst = out.slice((int) (from * outStride), outLength);
+			long chunk = firstChunk + from;
+			boolean last = chunk == totalChunks - 1;
+			try {
+				if (encrypt) {
+					StreamingAesGcm.seal(CIPHERS.get(), key, header, chunk, last, src, dst);
+				} else {
+					StreamingAesGcm.open(CIPHERS.get(), key, header, chunk, last, src, dst);
+				}
+			} catch (GeneralSecurityException e) {
+				throw new ChunkFailure(e);
+			}
+		}
+	}
+
+	/**
+	 * Membawa {@link GeneralSecurityException} keluar dari ForkJoin task.
+	 */
+	private static final class ChunkFailure extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		ChunkFailure(GeneralSecurityException cause) {
+			super(cause);
+		}
+
+		@Override
+		public synchronized GeneralSecurityException getCause() {
+			return (GeneralSecurityException) super.getCause();
+		}
+	}
+}
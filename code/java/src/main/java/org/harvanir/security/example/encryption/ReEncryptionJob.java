@@ -0,0 +1,165 @@
+package org.harvanir.security.example.encryption;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * ReEncryptionJob
+ *
+ * Memindahkan record di {@code store} yang masih memakai key lama ke primary
+ * key {@link Keyring}, di background dan dengan laju dibatasi supaya tidak
+ * mengganggu traffic biasa. Record ditulis dengan
+ * {@link ConcurrentMap#replace(Object, Object, Object)}: jika record diubah
+ * pengguna di tengah jalan, hasil re-encrypt dibuang dan record dicek lagi di
+ * pass berikutnya.
+ *
+ * Setelah pass tanpa konflik, job menunggu {@code scanInterval} sebelum
+ * memeriksa lagi, jadi rotasi berikutnya ikut termigrasi otomatis. Record
+ * yang tidak bisa dibaca (rusak, key lama sudah di-retire) tetap di tempatnya,
+ * dicoba lagi setiap scan dan dilaporkan lewat {@link #getFailed()}.
+ */
+public final class ReEncryptionJob<K> implements AutoCloseable {
+
+	private final Keyring keyring;
+
+	private final ConcurrentMap<K, byte[]> store;
+
+	private final long intervalNanos;
+
+	private final long scanIntervalNanos;
+
+	private final Thread worker;
+
+	private final LongAdder migrated = new LongAdder();
+
+	private final LongAdder conflicts = new LongAdder();
+
+	// hasil pass terakhir; record rusak ditemui lagi setiap pass, jadi tidak dijumlahkan
+	private volatile long failed;
+
+	private volatile long remaining;
+
+	private volatile boolean closed;
+
+	/**
+	 * @param recordsPerSecond batas laju re-encrypt.
+	 */
+	public ReEncryptionJob(Keyring keyring, ConcurrentMap<K, byte[]> store, int recordsPerSecond,
+			Duration scanInterval) {
+		if (recordsPerSecond <= 0) {
+			throw new IllegalArgumentException("recordsPerSecond must be positive");
+		}
+		this.keyring = keyring;
+		this.store = store;
+		this.intervalNanos = 1_000_000_000L / recordsPerSecond;
+		this.scanIntervalNanos = scanInterval.toNanos();
+		this.worker = new Thread(this::run, "re-encryption");
+		this.worker.setDaemon(true);
+	}
+
+	public ReEncryptionJob<K> start() {
+		worker.start();
+		return this;
+	}
+
+	/**
+	 * Bangunkan job segera, misalnya tepat setelah {@link Keyring#rotate()}.
+	 */
+	public void wakeUp() {
+		LockSupport.unpark(worker);
+	}
+
+	public long getMigrated() {
+		return migrated.sum();
+	}
+
+	public long getConflicts() {
+		return conflicts.sum();
+	}
+
+	/**
+	 * Jumlah record yang tidak bisa dibaca atau di-decrypt pada pass terakhir.
+	 */
+	public long getFailed() {
+		return failed;
+	}
+
+	/**
+	 * Jumlah record yang belum memakai primary key menurut pass terakhir,
+	 * termasuk yang konflik dan yang gagal di-decrypt.
+	 */
+	public long getRemaining() {
+		return remaining;
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		worker.interrupt();
+	}
+
+	private void run() {
+		while (!closed && !Thread.currentThread().isInterrupted()) {
+			// konflik langsung dicoba lagi; record yang gagal baru di scan berikutnya
+			if (pass() == 0) {
+				LockSupport.parkNanos(this, scanIntervalNanos);
+			}
+		}
+	}
+
+	// satu pass: migrasi record lama dengan jarak antar record minimal
+	// intervalNanos; hasilnya jumlah record yang konflik dengan tulisan pengguna
+	private long pass() {
+		long conflicted = 0;
+		long unreadable = 0;
+		long next = System.nanoTime();
+		for (Map.Entry<K, byte[]> entry : store.entrySet()) {
+			if (closed) {
+				break;
+			}
+			byte[] current = entry.getValue();
+			Envelope envelope;
+			try {
+				envelope = Envelope.wrap(ByteBuffer.wrap(current));
+			} catch (IllegalArgumentException e) {
+				unreadable++;
+				continue;
+			}
+			if (!keyring.isStale(envelope)) {
+				continue;
+			}
+
+			long wait = next - System.nanoTime();
+			if (wait > 0) {
+				LockSupport.parkNanos(this, wait);
+			}
+			next = Math.max(next, System.nanoTime() - intervalNanos) + intervalNanos;
+
+			try {
+				byte[] updated = keyring.reEncrypt(current);
+				if (store.replace(entry.getKey(), current, updated)) {
+					migrated.increment();
+				} else {
+					conflicts.increment();
+					conflicted++;
+				}
+			} catch (GeneralSecurityException e) {
+				unreadable++;
+			}
+		}
+		failed = unreadable;
+		remaining = conflicted + unreadable;
+		return conflicted;
+	}
+
+	@Override
+	public String toString() {
+		return "ReEncryptionJob[migrated=" + migrated.sum() + ", conflicts=" + conflicts.sum() + ", failed="
+				+ failed + ", remaining=" + remaining + "]";
+	}
+}
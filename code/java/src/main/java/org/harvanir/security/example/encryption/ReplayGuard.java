@@ -0,0 +1,339 @@
+package org.harvanir.security.example.encryption;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * ReplayGuard
+ *
+ * Deteksi replay untuk pesan yang membawa nomor urut (per stream, misalnya
+ * per session atau per pengirim) dan timestamp. Dipakai dua langkah:
+ *
+ * - {@link #check(long, long, long)} sebelum crypto yang mahal: hanya membaca,
+ * jadi pesan palsu tidak bisa mengotori state.
+ * - {@link #commit(long, long, long)} setelah signature/tag valid: menandai
+ * pesan secara atomik; jika dua salinan lolos check bersamaan, hanya satu yang
+ * commit-nya berhasil.
+ *
+ * Per stream ada sliding bitmap window berupa ring blok 64-bit (exact, tanpa
+ * lock). Nomor urut yang sudah keluar dari window, atau stream yang sudah
+ * dikeluarkan dari map, dicek ke Bloom filter yang dibagi per bucket waktu.
+ * Setiap commit juga dicatat di Bloom filter, sehingga duplikat tetap
+ * terdeteksi selama umur pesan masih di bawah {@code maxAge}; pesan yang lebih
+ * tua ditolak lewat timestamp. Bloom filter bisa false positive (pesan sah yang
+ * sangat terlambat ditolak), tidak pernah false negative. Di dalam window
+ * commit bersamaan selalu exact; di luar window dua salinan yang di-commit
+ * pada saat yang persis sama bisa sama-sama lolos, jadi ukuran window
+ * sebaiknya lebih besar dari reordering normal.
+ *
+ * Memori terbatas: jumlah stream dibatasi {@code maxStreams} dan Bloom filter
+ * berukuran tetap.
+ */
+public final class ReplayGuard {
+
+	public enum Verdict {
+		FRESH, DUPLICATE, TOO_OLD, FUTURE
+	}
+
+	private static final int HASHES = 3;
+
+	private final ReplayConfig config;
+
+	private final int ringBlocks;
+
+	private final long bucketSpanSeconds;
+
+	private final Map<Long, Window> windows = new ConcurrentHashMap<>();
+
+	private final AtomicReferenceArray<Bucket> buckets;
+
+	public ReplayGuard(ReplayConfig config) {
+		this.config = config;
+		this.ringBlocks = Math.max(1, config.getWindowSize() / 64);
+		// bucket berputar; rentang timestamp yang diterima (maxAge + maxSkew) dibagi
+		// ke buckets - 1 supaya selalu tercakup tanpa menimpa bucket yang masih dipakai
+		long range = config.getMaxAge().toSeconds() + config.getMaxSkew().toSeconds();
+		this.bucketSpanSeconds = Math.max(1, (range + config.getBuckets() - 2) / (config.getBuckets() - 1));
+		this.buckets = new AtomicReferenceArray<>(config.getBuckets());
+	}
+
+	/**
+	 * Cek tanpa mengubah state.
+	 *
+	 * @param timestamp epoch detik saat pesan dibuat.
+	 */
+	public Verdict check(long stream, long sequence, long timestamp) {
+		long now = System.currentTimeMillis() / 1000;
+		if (timestamp < now - config.getMaxAge().toSeconds()) {
+			return Verdict.TOO_OLD;
+		}
+		if (timestamp > now + config.getMaxSkew().toSeconds()) {
+			return Verdict.FUTURE;
+		}
+
+		Window window = windows.get(stream);
+		if (window != null) {
+			int seen = window.seen(sequence);
+			if (seen >= 0) {
+				return seen == 1 ? Verdict.DUPLICATE : Verdict.FRESH;
+			}
+		}
+		return bloomContains(stream, sequence, timestamp) ? Verdict.DUPLICATE : Verdict.FRESH;
+	}
+
+	/**
+	 * Tandai pesan sebagai diterima. Panggil hanya setelah pesan terautentikasi.
+	 *
+	 * @return false jika pesan yang sama sudah di-commit (duplikat yang lolos
+	 *         check bersamaan).
+	 */
+	public boolean commit(long stream, long sequence, long timestamp) {
+		Window window = windows.get(stream);
+		boolean created = false;
+		if (window == null) {
+			evictIfFull();
+			Window fresh = new Window(ringBlocks, sequence);
+			window = windows.computeIfAbsent(stream, s -> fresh);
+			created = window == fresh;
+		}
+		int marked = window.mark(sequence);
+		boolean fresh = bloomAdd(stream, sequence, timestamp);
+		if (created) {
+			// window baru belum tahu riwayat stream (misalnya stream yang pernah
+			// dikeluarkan), jadi Bloom filter juga harus menyatakan baru
+			return marked == 1 && fresh;
+		}
+		// di dalam window hasil bitmap exact; di luar window pakai Bloom filter
+		return marked >= 0 ? marked == 1 : fresh;
+	}
+
+	public int getStreamCount() {
+		return windows.size();
+	}
+
+	private void evictIfFull() {
+		if (windows.size() < config.getMaxStreams()) {
+			return;
+		}
+		// buang beberapa stream sekaligus; riwayatnya tetap ada di Bloom filter
+		Iterator<Long> it = windows.keySet().iterator();
+		for (int i = 0; i < 16 && it.hasNext(); i++) {
+			it.next();
+			it.remove();
+		}
+	}
+
+	private boolean bloomContains(long stream, long sequence, long timestamp) {
+		long epoch = timestamp / bucketSpanSeconds;
+		Bucket bucket = buckets.get((int) (epoch % buckets.length()));
+		if (bucket == null || bucket.epoch != epoch) {
+			return false;
+		}
+		long hash = mix(stream, sequence);
+		for (int i = 0; i < HASHES; i++) {
+			if (!bucket.get(index(hash, i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// true jika setidaknya satu bit baru diset (belum pernah ditambahkan)
+	private boolean bloomAdd(long stream, long sequence, long timestamp) {
+		long epoch = timestamp / bucketSpanSeconds;
+		int slot = (int) (epoch % buckets.length());
+		Bucket bucket;
+		while (true) {
+			bucket = buckets.get(slot);
+			if (bucket != null && bucket.epoch >= epoch) {
+				break;
+			}
+			// bucket kosong atau milik periode lama: ganti dengan bucket baru
+			if (buckets.compareAndSet(slot, bucket, new Bucket(epoch, config.getBloomBits()))) {
+				bucket = buckets.get(slot);
+				break;
+			}
+		}
+		if (bucket.epoch != epoch) {
+			// timestamp lebih tua dari periode bucket; sudah ditolak oleh check()
+			return true;
+		}
+		long hash = mix(stream, sequence);
+		boolean added = false;
+		for (int i = 0; i < HASHES; i++) {
+			added |= bucket.set(index(hash, i));
+		}
+		return added;
+	}
+
+	private int index(long hash, int i) {
+		// double hashing: h1 + i * h2
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32) | 1;
+		return Math.floorMod(h1 + i * h2, config.getBloomBits());
+	}
+
+	private static long mix(long stream, long sequence) {
+		long h = stream * 0x9E3779B97F4A7C15L + sequence;
+		h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+		h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+		return h ^ (h >>> 31);
+	}
+
+	/**
+	 * Ring blok 64 nomor urut. Slot menyimpan blok terbaru yang jatuh di slot
+	 * itu; blok yang lebih tua dari isi slot berarti di luar window.
+	 *
+	 * {@code floor} adalah nomor urut pertama yang di-commit sejak window dibuat;
+	 * untuk nomor di bawahnya window tidak tahu apa-apa (misalnya stream pernah
+	 * dikeluarkan), jadi dianggap di luar window dan dicek ke Bloom filter.
+	 */
+	private static final class Window {
+		private final AtomicReferenceArray<Block> ring;
+
+		private final long floor;
+
+		Window(int blocks, long floor) {
+			this.ring = new AtomicReferenceArray<>(blocks);
+			this.floor = floor;
+		}
+
+		// 1 = sudah terlihat, 0 = belum, -1 = di luar window
+		int seen(long sequence) {
+			if (sequence < floor) {
+				return -1;
+			}
+			long index = sequence >>> 6;
+			Block block = ring.get((int) (index % ring.length()));
+			if (block == null || block.index < index) {
+				return 0;
+			}
+			if (block.index > index) {
+				return -1;
+			}
+			return (block.bits.get() & (1L << sequence)) != 0 ? 1 : 0;
+		}
+
+		// 1 = baru ditandai, 0 = sudah ada, -1 = di luar window
+		int mark(long sequence) {
+			if (sequence < floor) {
+				return -1;
+			}
+			long index = sequence >>> 6;
+			int slot = (int) (index % ring.length());
+			while (true) {
+				Block block = ring.get(slot);
+				if (block != null && block.index > index) {
+					return -1;
+				}
+				if (block == null || block.index < index) {
+					// window bergeser maju
+					ring.compareAndSet(slot, block, new Block(index));
+					continue;
+				}
+				long bit = 1L << sequence;
+				long previous = block.bits.getAndUpdate(bits -> bits | bit);
+				return (previous & bit) == 0 ? 1 : 0;
+			}
+		}
+	}
+
+	private static final class Block {
+		private final long index;
+
+		private final AtomicLong bits = new AtomicLong();
+
+		Block(long index) {
+			this.index = index;
+		}
+	}
+
+	private static final class Bucket {
+		private final long epoch;
+
+		private final AtomicLongArray words;
+
+		Bucket(long epoch, int bits) {
+			this.epoch = epoch;
+			this.words = new AtomicLongArray((bits + 63) / 64);
+		}
+
+		boolean get(int bit) {
+			return (words.get(bit >>> 6) & (1L << bit)) != 0;
+		}
+
+		boolean set(int bit) {
+			long mask = 1L << bit;
+			return (words.getAndUpdate(bit >>> 6, w -> w | mask) & mask) == 0;
+		}
+	}
+
+	public static class ReplayConfig {
+		private final int windowSize;
+
+		private final int maxStreams;
+
+		private final Duration maxAge;
+
+		private final Duration maxSkew;
+
+		private final int buckets;
+
+		private final int bloomBits;
+
+		/**
+		 * @param windowSize jumlah nomor urut terakhir per stream yang dicek exact
+		 *                   (kelipatan 64).
+		 * @param maxAge     pesan lebih tua dari ini ditolak; juga rentang Bloom
+		 *                   filter.
+		 * @param maxSkew    toleransi jam pengirim yang lebih cepat.
+		 * @param bloomBits  ukuran Bloom filter per bucket waktu.
+		 */
+		public ReplayConfig(int windowSize, int maxStreams, Duration maxAge, Duration maxSkew, int buckets,
+				int bloomBits) {
+			if (windowSize < 64 || maxStreams <= 0 || buckets < 2 || bloomBits < 64) {
+				throw new IllegalArgumentException("Invalid replay config");
+			}
+			this.windowSize = windowSize;
+			this.maxStreams = maxStreams;
+			this.maxAge = maxAge;
+			this.maxSkew = maxSkew;
+			this.buckets = buckets;
+			this.bloomBits = bloomBits;
+		}
+
+		// +-32 KB Bloom filter (4 x 64 Kbit), dialokasikan saat pesan pertama
+		public static ReplayConfig defaults() {
+			return new ReplayConfig(1024, 4096, Duration.ofMinutes(2), Duration.ofSeconds(30), 4, 1 << 16);
+		}
+
+		public int getWindowSize() {
+			return windowSize;
+		}
+
+		public int getMaxStreams() {
+			return maxStreams;
+		}
+
+		public Duration getMaxAge() {
+			return maxAge;
+		}
+
+		public Duration getMaxSkew() {
+			return maxSkew;
+		}
+
+		public int getBuckets() {
+			return buckets;
+		}
+
+		public int getBloomBits() {
+			return bloomBits;
+		}
+	}
+}
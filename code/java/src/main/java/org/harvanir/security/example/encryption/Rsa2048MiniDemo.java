@@ -1,15 +1,28 @@
 package org.harvanir.security.example.encryption;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.KeyFactory;
 import java.security.KeyPair;
-import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.security.SecureRandom;
 import java.security.Signature;
+import java.security.interfaces.RSAKey;
 import java.security.spec.MGF1ParameterSpec;
-import java.util.Base64;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.crypto.Cipher;
+import javax.crypto.KeyAgreement;
 import javax.crypto.spec.OAEPParameterSpec;
 import javax.crypto.spec.PSource;
 
@@ -19,6 +32,11 @@ public class Rsa2048MiniDemo {
 
 	public static void main(String[] args) throws Exception {
 		runObjectOrientedCode();
+		System.out.println();
+		runHybridSession();
+		System.out.println();
+		runBroadcast(EncryptedCommunication.Suite.RSA_2048, 4);
+		runBroadcast(EncryptedCommunication.Suite.X25519_ED25519, 200);
 	}
 
 	private static void runObjectOrientedCode() throws Exception {
@@ -29,19 +47,25 @@ public class Rsa2048MiniDemo {
 		String message1 = "Halo ini pesan pertama dari communicator 1 ke 2";
 		EncryptedMessage encryptedMessage1 = communicator1.createMessage(message1);
 		System.out.println("Pesan #1 : " + message1);
-		System.out.println("Encrypted pesan #1 : " + encryptedMessage1.getEncryptedMessage());
+		System.out.println("Encrypted pesan #1 : " + encryptedMessage1.getEncryptedMessage().toBase64());
 
 		System.out.println();
 		boolean isValidEncryptedFormat = communicator2.isValidEncryptedFormat(encryptedMessage1.getEncryptedMessage());
 		System.out.println("Format encrypted pesan #1 valid: " + isValidEncryptedFormat);
 		boolean isMessage1Received = communicator2.receiveMessage(encryptedMessage1);
 		System.out.println("Pesan #1 diterima dengan sukses: " + isMessage1Received);
+
+		// replay ditolak sebelum verify dan decrypt RSA
+		long start = System.nanoTime();
+		boolean isReplayReceived = communicator2.receiveMessage(encryptedMessage1);
+		System.out.printf("Replay pesan #1 diterima: %b (%d us)%n", isReplayReceived,
+				(System.nanoTime() - start) / 1_000);
 		System.out.println();
 
 		String message2 = "Halo ini balasan dari communicator 2 ke 1";
 		EncryptedMessage encryptedMessage2 = communicator2.createMessage(message2);
 		System.out.println("Pesan #2 : " + message2);
-		System.out.println("Encrypted pesan #2 : " + encryptedMessage2.getEncryptedMessage());
+		System.out.println("Encrypted pesan #2 : " + encryptedMessage2.getEncryptedMessage().toBase64());
 
 		System.out.println();
 		boolean isMessage2Received = communicator1.receiveMessage(encryptedMessage2);
@@ -49,28 +73,186 @@ public class Rsa2048MiniDemo {
 
 	}
 
+	// Satu pengirim ke banyak penerima: payload dienkripsi sekali, hanya content
+	// key yang dibungkus per penerima
+	private static void runBroadcast(EncryptedCommunication.Suite suite, int subscribers) throws Exception {
+		EncryptedCommunication hub = new EncryptedCommunication("hub-" + suite, suite, null);
+		hub.setVerbose(false);
+		EncryptedCommunication[] receivers = new EncryptedCommunication[subscribers];
+		for (int i = 0; i < subscribers; i++) {
+			receivers[i] = new EncryptedCommunication("subscriber-" + i, suite, null);
+			receivers[i].setVerbose(i == 0);
+			hub.registerPeer(receivers[i]);
+			receivers[i].registerPeer(hub);
+		}
+
+		String message = "Broadcast " + suite + " " + "y".repeat(16 * 1024);
+		long start = System.nanoTime();
+		ByteBuffer wire = hub.createBroadcast(message).encode();
+		long elapsed = System.nanoTime() - start;
+
+		int received = 0;
+		for (EncryptedCommunication receiver : receivers) {
+			if (receiver.receiveBroadcast(EncryptedCommunication.BroadcastMessage.decode(wire.duplicate()))) {
+				received++;
+			}
+		}
+		System.out.printf("Broadcast %s: %d penerima, %d bytes di wire, dibuat dalam %.1f ms, %d diterima%n", suite,
+				subscribers, wire.remaining(), elapsed / 1e6, received);
+	}
+
+	// Mode hybrid: RSA hanya untuk membungkus session key, pesan memakai AES-GCM
+	private static void runHybridSession() throws Exception {
+		runSession(EncryptedCommunication.Suite.RSA_2048);
+		System.out.println();
+		runSession(EncryptedCommunication.Suite.X25519_ED25519);
+	}
+
+	private static void runSession(EncryptedCommunication.Suite suite) throws Exception {
+		EncryptedCommunication.SessionPolicy policy = new EncryptedCommunication.SessionPolicy(3,
+				Duration.ofMinutes(10));
+		EncryptedCommunication sender = new EncryptedCommunication("sender-" + suite, suite, policy);
+		EncryptedCommunication receiver = new EncryptedCommunication("receiver-" + suite, suite, policy);
+		sender.pairing(receiver);
+
+		EncryptedMessage first = null;
+		for (int i = 1; i <= 5; i++) {
+			String message = "Pesan hybrid #" + i + (i == 4 ? " " + "x".repeat(64 * 1024) : "");
+			EncryptedMessage encrypted = sender.createMessage(message);
+			System.out.printf("Pesan hybrid #%d (%d bytes): %s, key exchange: %s%n", i, message.length(),
+					encrypted.getEncryptedMessage(), encrypted.getKeyExchange());
+			System.out.println("Diterima: " + receiver.receiveMessage(encrypted));
+			if (first == null) {
+				first = encrypted;
+			}
+		}
+
+		// key exchange lama di-replay bersama pesan dengan nonce baru
+		EncryptedMessage replayed = sender.new EncryptedMessage(first.getKeyExchange(),
+				sender.createMessage("Pesan hybrid #6").getEncryptedMessage());
+		System.out.println("Replay key exchange diterima: " + receiver.receiveMessage(replayed));
+	}
+
 	public static class EncryptedCommunication {
 
 		private static final String TRANSFORMATION = "RSA/ECB/OAEPWithSHA-256AndMGF1Padding";
 
-		private static final String SIGNER_ALGORITHM = "SHA256withRSA";
+		private static final int SESSION_KEY_LENGTH = 32;
+
+		// public key X25519 dalam encoding X.509 (SubjectPublicKeyInfo)
+		private static final int X25519_PUBLIC_KEY_LENGTH = 44;
+
+		private static final byte[] HKDF_INFO = "EncryptedCommunication/X25519/v1".getBytes(StandardCharsets.US_ASCII);
+
+		private static final SecureRandom RNG = new SecureRandom();
+
+		/**
+		 * Suite key agreement dan signature, dipilih per instance. Kedua pihak harus
+		 * memakai suite yang sama.
+		 */
+		public enum Suite {
+			// RSA-OAEP untuk membungkus key, SHA256withRSA untuk signature
+			RSA_2048("RSA", "SHA256withRSA"),
+
+			// X25519 ECDH + HKDF untuk session key, Ed25519 untuk signature
+			X25519_ED25519("X25519", "Ed25519");
+
+			private final String keyAlgorithm;
+
+			private final String signatureAlgorithm;
+
+			Suite(String keyAlgorithm, String signatureAlgorithm) {
+				this.keyAlgorithm = keyAlgorithm;
+				this.signatureAlgorithm = signatureAlgorithm;
+			}
+		}
 
 		private final String objectName;
 
+		private final Suite suite;
+
+		// null = setiap pesan dienkripsi langsung dengan RSA
+		private final SessionPolicy sessionPolicy;
+
 		private PublicKey otherPublicKey;
 
+		private PublicKey otherSigningKey;
+
+		// RSA: key pair yang sama untuk enkripsi dan signature; X25519: key agreement
 		private PrivateKey myPrivateKey;
 
 		private PublicKey myPublicKey;
 
+		private PrivateKey mySigningPrivateKey;
+
+		private PublicKey mySigningPublicKey;
+
 		private boolean hasPairing;
 
+		private int myKeyId;
+
+		private int otherKeyId;
+
+		// nomor urut pesan RSA langsung dan broadcast; session memakai counter sendiri
+		private final AtomicLong directSequence = new AtomicLong();
+
+		private final AtomicLong broadcastSequence = new AtomicLong();
+
+		private final ReplayGuard replayGuard = new ReplayGuard(ReplayGuard.ReplayConfig.defaults());
+
+		// peer yang dikenal untuk broadcast, key = fingerprint public key peer
+		private final Map<Integer, Peer> peers = new ConcurrentHashMap<>();
+
+		private volatile boolean verbose = true;
+
+		private OutboundSession outbound;
+
+		// session dari peer: yang aktif dan sebelumnya (pesan yang masih di jalan saat
+		// re-key)
+		private final Map<Integer, AesGcmEngine> inboundSessions = new LinkedHashMap<>() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, AesGcmEngine> eldest) {
+				return size() > 2;
+			}
+		};
+
 		public EncryptedCommunication(String objectName) {
+			this(objectName, null);
+		}
+
+		/**
+		 * @param sessionPolicy aktifkan mode hybrid RSA-OAEP + AES-GCM dengan aturan
+		 *                      re-key ini, atau null untuk RSA langsung per pesan.
+		 */
+		public EncryptedCommunication(String objectName, SessionPolicy sessionPolicy) {
+			this(objectName, Suite.RSA_2048, sessionPolicy);
+		}
+
+		/**
+		 * @param sessionPolicy aturan re-key. Untuk {@link Suite#X25519_ED25519}
+		 *                      tidak ada mode enkripsi langsung, jadi null berarti
+		 *                      session baru (ephemeral key baru) untuk setiap pesan.
+		 */
+		public EncryptedCommunication(String objectName, Suite suite, SessionPolicy sessionPolicy) {
 			this.objectName = objectName;
+			this.suite = suite;
+			this.sessionPolicy = sessionPolicy == null && suite == Suite.X25519_ED25519 ? SessionPolicy.perMessage()
+					: sessionPolicy;
 			try {
-				KeyPair kp = generate();
+				KeyPair kp = generate(suite.keyAlgorithm);
 				this.myPrivateKey = kp.getPrivate();
 				this.myPublicKey = kp.getPublic();
+				this.myKeyId = keyId(myPublicKey);
+				if (suite == Suite.RSA_2048) {
+					this.mySigningPrivateKey = myPrivateKey;
+					this.mySigningPublicKey = myPublicKey;
+				} else {
+					KeyPair signing = KeyPairPool.shared("Ed25519").take();
+					this.mySigningPrivateKey = signing.getPrivate();
+					this.mySigningPublicKey = signing.getPublic();
+				}
 			} catch (Exception e) {
 				System.err.println("Key pair generation failed: " + e.getMessage());
 				throw new RuntimeException("Error on generating key pair");
@@ -81,27 +263,138 @@ public class Rsa2048MiniDemo {
 			return myPublicKey;
 		}
 
+		public PublicKey getSigningPublicKey() {
+			return mySigningPublicKey;
+		}
+
+		public Suite getSuite() {
+			return suite;
+		}
+
+		void setVerbose(boolean verbose) {
+			this.verbose = verbose;
+		}
+
 		public void pairing(EncryptedCommunication other) {
 			if (hasPairing) return;
-			
+
 			hasPairing = true;
 			if (this.equals(other)) {
 				throw new RuntimeException("Cannot establish the same object.");
 			}
+			if (this.suite != other.getSuite()) {
+				throw new RuntimeException("Cannot pair " + suite + " with " + other.getSuite());
+			}
 			this.otherPublicKey = other.getPublicKey();
+			this.otherSigningKey = other.getSigningPublicKey();
+			this.otherKeyId = other.getKeyId();
+			registerPeer(other);
 			other.pairing(this);
 		}
 
-		private KeyPair generate() throws Exception {
-			KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
-			kpg.initialize(2048);
-			return kpg.generateKeyPair();
+		public int getKeyId() {
+			return myKeyId;
+		}
+
+		/**
+		 * Daftarkan peer untuk broadcast (dan untuk verifikasi broadcast dari peer
+		 * tersebut). Aman dipanggil dari banyak thread.
+		 *
+		 * @return key id peer.
+		 */
+		public int registerPeer(EncryptedCommunication other) {
+			if (this.suite != other.getSuite()) {
+				throw new RuntimeException("Cannot register " + other.getSuite() + " peer on " + suite);
+			}
+			peers.put(other.getKeyId(), new Peer(other.toString(), other.getPublicKey(), other.getSigningPublicKey()));
+			return other.getKeyId();
+		}
+
+		public void unregisterPeer(int keyId) {
+			peers.remove(keyId);
+		}
+
+		public int getPeerCount() {
+			return peers.size();
+		}
+
+		// key pair dari pool background; keygen sinkron hanya jika pool kosong
+		private KeyPair generate(String algorithm) throws Exception {
+			return KeyPairPool.shared(algorithm).take();
 		}
 
 		public EncryptedMessage createMessage(String message) throws Exception {
-			String encrypted = encrypt(message);
-			String signature = signEncrypted(encrypted);
-			return new EncryptedMessage(encrypted, signature);
+			byte[] plain = message.getBytes(StandardCharsets.UTF_8);
+			if (sessionPolicy == null) {
+				return new EncryptedMessage(null, encrypt(plain, replayNonce(directSequence.getAndIncrement())));
+			}
+			return createSessionMessage(plain);
+		}
+
+		// Pesan pertama setiap session membawa key exchange (session key yang
+		// dibungkus RSA-OAEP dan ditandatangani); pesan berikutnya hanya AES-GCM
+		private synchronized EncryptedMessage createSessionMessage(byte[] plain) throws Exception {
+			if (outbound == null || outbound.isExpired(sessionPolicy)) {
+				outbound = newSession();
+			}
+			Envelope keyExchange = outbound.counter == 0 ? outbound.keyExchange : null;
+
+			ByteBuffer out = ByteBuffer
+					.allocate(Envelope.size(AesGcmEngine.NONCE_LENGTH, plain.length, AesGcmEngine.TAG_LENGTH, 0));
+			Envelope envelope = Envelope.seal(outbound.engine, outbound.id, outbound.nextNonce(), ByteBuffer.wrap(plain),
+					out);
+			return new EncryptedMessage(keyExchange, envelope);
+		}
+
+		private OutboundSession newSession() throws Exception {
+			int id = RNG.nextInt();
+			if (suite == Suite.X25519_ED25519) {
+				// ephemeral X25519 per session: key exchange hanya membawa public key
+				// ephemeral (ditandatangani Ed25519), session key diturunkan kedua pihak
+				KeyPair ephemeral = KeyPairPool.shared("X25519").take();
+				byte[] ephemeralPublic = ephemeral.getPublic().getEncoded();
+				byte[] key = deriveSessionKey(ephemeral.getPrivate(), otherPublicKey, ephemeralPublic, id,
+						otherPublicKey);
+
+				byte[] payload = ByteBuffer.allocate(4 + ephemeralPublic.length).putInt(id).put(ephemeralPublic)
+						.array();
+				Envelope keyExchange = signedEnvelope(Envelope.Algorithm.X25519_HKDF_SHA256,
+						replayNonce(directSequence.getAndIncrement()), payload);
+				return new OutboundSession(id, new AesGcmEngine(key), keyExchange);
+			}
+
+			byte[] key = new byte[SESSION_KEY_LENGTH];
+			RNG.nextBytes(key);
+
+			// session id | session key
+			byte[] payload = ByteBuffer.allocate(4 + SESSION_KEY_LENGTH).putInt(id).put(key).array();
+			// key exchange memakai nomor urut pesan bertanda tangan dari pengirim ini
+			Envelope keyExchange = encrypt(payload, replayNonce(directSequence.getAndIncrement()));
+			Arrays.fill(payload, (byte) 0);
+			return new OutboundSession(id, new AesGcmEngine(key), keyExchange);
+		}
+
+		// HKDF(ECDH(private, public), salt = public key ephemeral, info = label | id |
+		// public key penerima)
+		private byte[] deriveSessionKey(PrivateKey privateKey, PublicKey publicKey, byte[] ephemeralPublic, int id,
+				PublicKey recipient) throws Exception {
+			KeyAgreement agreement = KeyAgreement.getInstance("X25519");
+			agreement.init(privateKey);
+			agreement.doPhase(publicKey, true);
+			byte[] secret = agreement.generateSecret();
+
+			byte[] recipientKey = recipient.getEncoded();
+			byte[] info = ByteBuffer.allocate(HKDF_INFO.length + 4 + recipientKey.length).put(HKDF_INFO).putInt(id)
+					.put(recipientKey).array();
+			byte[] key = Hkdf.derive(secret, ephemeralPublic, info, SESSION_KEY_LENGTH);
+			Arrays.fill(secret, (byte) 0);
+			return key;
+		}
+
+		// key id = 4 byte pertama SHA-256 public key penerima
+		static int keyId(PublicKey key) throws Exception {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getEncoded());
+			return ByteBuffer.wrap(digest).getInt();
 		}
 
 		// Enforcement of OAEP with SHA-256 (compatibility betwe)
@@ -109,36 +402,62 @@ public class Rsa2048MiniDemo {
 			return new OAEPParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256, PSource.PSpecified.DEFAULT);
 		}
 
-		private String encrypt(String message) throws Exception {
+		private Envelope encrypt(byte[] plain, byte[] nonce) throws Exception {
 			Cipher c = Cipher.getInstance(TRANSFORMATION);
 			OAEPParameterSpec oaep256 = getOapp256Spec();
 			c.init(Cipher.ENCRYPT_MODE, otherPublicKey, oaep256);
-			byte[] ct = c.doFinal(message.getBytes(StandardCharsets.UTF_8));
-			return Base64.getEncoder().encodeToString(ct);
+			return signedEnvelope(Envelope.Algorithm.RSA_OAEP_SHA256, nonce, c.doFinal(plain));
+		}
+
+		// Nonce (di sini hanya penanda replay, ikut ditandatangani) dan body ditulis
+		// ke envelope biner, lalu header + nonce + body ditandatangani dan signature
+		// ditaruh di akhir envelope
+		private Envelope signedEnvelope(Envelope.Algorithm algorithm, byte[] nonce, byte[] body) throws Exception {
+			int sigLength = signatureLength();
+
+			ByteBuffer out = ByteBuffer.allocate(Envelope.size(nonce.length, body.length, 0, sigLength));
+			Envelope.writeHeader(out, algorithm, otherKeyId, nonce.length, body.length, 0, sigLength);
+			out.put(nonce);
+			out.put(body);
+			out.put(sign(out.duplicate().flip()));
+			return Envelope.wrap(out.flip());
+		}
+
+		private int signatureLength() {
+			return suite == Suite.RSA_2048 ? (((RSAKey) mySigningPrivateKey).getModulus().bitLength() + 7) / 8 : 64;
+		}
+
+		byte[] sign(ByteBuffer data) throws Exception {
+			Signature signer = Signature.getInstance(suite.signatureAlgorithm);
+			signer.initSign(mySigningPrivateKey);
+			signer.update(data);
+			return signer.sign();
+		}
+
+		boolean verify(ByteBuffer data, ByteBuffer signature) throws Exception {
+			return verify(otherSigningKey, data, signature);
 		}
 
-		private String signEncrypted(String encryptedText) throws Exception {
-			Signature signer = Signature.getInstance(SIGNER_ALGORITHM);
-			signer.initSign(myPrivateKey);
-			signer.update(encryptedText.getBytes(StandardCharsets.UTF_8));
-			byte[] signature = signer.sign();
-			return Base64.getEncoder().encodeToString(signature);
+		private boolean verify(PublicKey signingKey, ByteBuffer data, ByteBuffer signature) throws Exception {
+			Signature verifier = Signature.getInstance(suite.signatureAlgorithm);
+			verifier.initVerify(signingKey);
+			verifier.update(data);
+			byte[] signatureBytes = new byte[signature.remaining()];
+			signature.get(signatureBytes);
+			return verifier.verify(signatureBytes);
 		}
 
 		// Method untuk memverifikasi signature encrypted message sebelum decrypt
-		private boolean isValidSignature(String encryptedText, String signature) throws Exception {
+		private boolean isValidSignature(Envelope envelope) throws Exception {
 			try {
-				Signature verifier = Signature.getInstance(SIGNER_ALGORITHM);
-				verifier.initVerify(otherPublicKey);
-				verifier.update(encryptedText.getBytes(StandardCharsets.UTF_8));
-				boolean isValid = verifier.verify(Base64.getDecoder().decode(signature));
+				boolean isValid = verify(envelope.signedPortion(), envelope.signature());
 
 				if (!isValid) {
 					System.err.printf("%s says: Encrypted message signature verification failed!%n", this);
 					return false;
 				}
 
-				System.out.printf("%s says: Encrypted message signature verified successfully%n", this);
+				log("%s says: Encrypted message signature verified successfully%n", this);
 				return true;
 			} catch (Exception e) {
 				System.err.printf("%s says: Signature verification failed.%n", this);
@@ -146,69 +465,523 @@ public class Rsa2048MiniDemo {
 			}
 		}
 
-		// Method alternatif untuk validasi encrypted text (check format)
-		private boolean isValidEncryptedFormat(String encryptedText) {
-			try {
-				// Check apakah string adalah valid Base64 dan panjangnya reasonable untuk RSA
-				// 2048
-				byte[] decoded = Base64.getDecoder().decode(encryptedText);
-				// RSA 2048 dengan OAEP menghasilkan ciphertext 256 bytes
-				return decoded.length == 256;
-			} catch (IllegalArgumentException e) {
-				return false;
+		// Method alternatif untuk validasi encrypted message (check format)
+		private boolean isValidEncryptedFormat(Envelope envelope) {
+			if (envelope.getAlgorithm() == Envelope.Algorithm.AES_GCM) {
+				return envelope.nonce().remaining() == AesGcmEngine.NONCE_LENGTH
+						&& envelope.tag().remaining() == AesGcmEngine.TAG_LENGTH;
+			}
+			if (envelope.getAlgorithm() == Envelope.Algorithm.X25519_HKDF_SHA256) {
+				return envelope.ciphertext().remaining() == 4 + X25519_PUBLIC_KEY_LENGTH;
 			}
+			// RSA 2048 dengan OAEP menghasilkan ciphertext 256 bytes
+			return envelope.getAlgorithm() == Envelope.Algorithm.RSA_OAEP_SHA256
+					&& envelope.ciphertext().remaining() == 256;
 		}
 
-		private String decrypt(String text) throws Exception {
+		private byte[] decrypt(Envelope envelope) throws Exception {
 			Cipher c = Cipher.getInstance(TRANSFORMATION);
 			OAEPParameterSpec spec = getOapp256Spec();
 			c.init(Cipher.DECRYPT_MODE, myPrivateKey, spec);
-			byte[] pt = c.doFinal(Base64.getDecoder().decode(text));
-			return new String(pt, StandardCharsets.UTF_8);
+			ByteBuffer ciphertext = envelope.ciphertext();
+			byte[] pt = new byte[c.getOutputSize(ciphertext.remaining())];
+			int length = c.doFinal(ciphertext, ByteBuffer.wrap(pt));
+			return Arrays.copyOf(pt, length);
 		}
 
-		public boolean receiveMessage(EncryptedMessage message) throws Exception {
-			System.out.printf("%s says: Received encrypted message: %s%n", this, message.getMessage());
-
-			if (!isValidSignature(message.encryptedMessage, message.getSignature())) {
+		// Envelope bertanda tangan (pesan RSA langsung atau key exchange): cek
+		// alamat dan signature sebelum decrypt
+		private byte[] receiveSigned(Envelope envelope) throws Exception {
+			Envelope.Algorithm expected = suite == Suite.RSA_2048 ? Envelope.Algorithm.RSA_OAEP_SHA256
+					: Envelope.Algorithm.X25519_HKDF_SHA256;
+			if (envelope.getAlgorithm() != expected) {
+				System.err.printf("%s says: Unexpected %s envelope for suite %s.%n", this, envelope.getAlgorithm(),
+						suite);
+				return null;
+			}
+			if (envelope.getKeyId() != myKeyId) {
+				System.err.printf("%s says: Message is not addressed to this key. Aborting decryption.%n", this);
+				return null;
+			}
+			if (!isValidSignature(envelope)) {
 				System.err
 						.printf("%s says: Message signature invalid! Possible tampering detected. Aborting decryption.%n",
 								this);
+				return null;
+			}
+			log("%s says: Message signature valid. Proceeding with decryption...%n", this);
+			if (envelope.getAlgorithm() == Envelope.Algorithm.X25519_HKDF_SHA256) {
+				// body tidak rahasia: session id | public key ephemeral
+				ByteBuffer body = envelope.ciphertext();
+				byte[] payload = new byte[body.remaining()];
+				body.get(payload);
+				return payload;
+			}
+			return decrypt(envelope);
+		}
+
+		// Verifikasi key exchange dan turunkan session key; session baru dipasang
+		// setelah pesan yang dibawanya terautentikasi
+		private InboundSession openKeyExchange(Envelope keyExchange) throws Exception {
+			byte[] payload = receiveSigned(keyExchange);
+			if (payload == null) {
+				return null;
+			}
+			ByteBuffer buffer = ByteBuffer.wrap(payload);
+			int id = buffer.getInt();
+			byte[] key;
+			if (suite == Suite.X25519_ED25519) {
+				if (payload.length != 4 + X25519_PUBLIC_KEY_LENGTH) {
+					return null;
+				}
+				byte[] ephemeralPublic = Arrays.copyOfRange(payload, 4, payload.length);
+				PublicKey ephemeral = KeyFactory.getInstance("X25519")
+						.generatePublic(new X509EncodedKeySpec(ephemeralPublic));
+				key = deriveSessionKey(myPrivateKey, ephemeral, ephemeralPublic, id, myPublicKey);
+			} else {
+				if (payload.length != 4 + SESSION_KEY_LENGTH) {
+					return null;
+				}
+				key = Arrays.copyOfRange(payload, 4, payload.length);
+				Arrays.fill(payload, (byte) 0);
+			}
+			AesGcmEngine engine = new AesGcmEngine(key);
+			Arrays.fill(key, (byte) 0);
+			return new InboundSession(id, engine);
+		}
+
+		private byte[] receiveSession(Envelope envelope, InboundSession pending) throws Exception {
+			AesGcmEngine engine;
+			if (pending != null) {
+				// pesan yang membawa key exchange harus memakai session dari key exchange itu
+				engine = pending.id == envelope.getKeyId() ? pending.engine : null;
+			} else {
+				synchronized (inboundSessions) {
+					engine = inboundSessions.get(envelope.getKeyId());
+				}
+			}
+			if (engine == null) {
+				System.err.printf("%s says: Unknown session %08x. Aborting decryption.%n", this, envelope.getKeyId());
+				return null;
+			}
+			ByteBuffer out = ByteBuffer.allocate(envelope.ciphertext().remaining());
+			envelope.open(engine, out);
+			return out.array();
+		}
+
+		// nonce 12 byte = nomor urut u64 | epoch detik u32; unik per key karena nomor
+		// urut tidak pernah berulang
+		static byte[] replayNonce(long sequence) {
+			return ByteBuffer.allocate(AesGcmEngine.NONCE_LENGTH).putLong(sequence)
+					.putInt((int) (System.currentTimeMillis() / 1000)).array();
+		}
+
+		// Cek replay sebelum verify/decrypt; hanya membaca header dan nonce
+		private boolean isReplay(long stream, Envelope envelope) {
+			ByteBuffer nonce = envelope.nonce();
+			if (nonce.remaining() != AesGcmEngine.NONCE_LENGTH) {
+				System.err.printf("%s says: Message without sequence number. Aborting decryption.%n", this);
+				return true;
+			}
+			ReplayGuard.Verdict verdict = replayGuard.check(stream, nonce.getLong(0), nonce.getInt(8) & 0xFFFFFFFFL);
+			if (verdict != ReplayGuard.Verdict.FRESH) {
+				System.err.printf("%s says: Message rejected before decryption: %s.%n", this, verdict);
+				return true;
+			}
+			return false;
+		}
+
+		// Setelah pesan terautentikasi; false jika salinan lain sudah diterima lebih
+		// dulu
+		private boolean commitReplay(long stream, Envelope envelope) {
+			ByteBuffer nonce = envelope.nonce();
+			if (!replayGuard.commit(stream, nonce.getLong(0), nonce.getInt(8) & 0xFFFFFFFFL)) {
+				System.err.printf("%s says: Duplicate message rejected.%n", this);
+				return false;
+			}
+			return true;
+		}
+
+		// stream replay: per session untuk AES-GCM, per pengirim untuk RSA langsung
+		private long replayStream(Envelope envelope) {
+			return envelope.getAlgorithm() == Envelope.Algorithm.AES_GCM ? 1L << 32 | (envelope.getKeyId() & 0xFFFFFFFFL)
+					: 2L << 32 | (otherKeyId & 0xFFFFFFFFL);
+		}
+
+		public boolean receiveMessage(EncryptedMessage message) throws Exception {
+			Envelope envelope = message.getMessage();
+			long stream = replayStream(envelope);
+			if (isReplay(stream, envelope)) {
+				return false;
+			}
+			// key exchange punya nomor urut sendiri di stream pengirim, jadi key exchange
+			// lama yang di-replay ditolak sebelum verify
+			Envelope keyExchange = message.getKeyExchange();
+			long keyExchangeStream = keyExchange != null ? replayStream(keyExchange) : 0;
+			if (keyExchange != null && isReplay(keyExchangeStream, keyExchange)) {
+				return false;
+			}
+			log("%s says: Received encrypted message: %s%n", this, envelope);
+
+			InboundSession pending = null;
+			if (keyExchange != null) {
+				pending = openKeyExchange(keyExchange);
+				if (pending == null) {
+					return false;
+				}
+			}
+
+			byte[] raw = envelope.getAlgorithm() == Envelope.Algorithm.AES_GCM ? receiveSession(envelope, pending)
+					: receiveSigned(envelope);
+			if (raw == null || keyExchange != null && !commitReplay(keyExchangeStream, keyExchange)
+					|| !commitReplay(stream, envelope)) {
+				return false;
+			}
+			if (pending != null) {
+				synchronized (inboundSessions) {
+					inboundSessions.put(pending.id, pending.engine);
+				}
+				log("%s says: New session %08x established%n", this, pending.id);
+			}
+
+			if (verbose) {
+				String rawMessage = new String(raw, StandardCharsets.UTF_8);
+				System.out.printf("%s says: Decrypted message: %s%n", this,
+						rawMessage.length() > 80 ? rawMessage.substring(0, 80) + "..." : rawMessage);
+			}
+
+			return true;
+		}
+
+		public BroadcastMessage createBroadcast(String message) throws Exception {
+			return createBroadcast(message, peers.keySet());
+		}
+
+		/**
+		 * Enkripsi pesan sekali dengan content key acak, lalu bungkus hanya content
+		 * key untuk setiap penerima: N penerima = satu enkripsi bulk + N key wrap
+		 * kecil (RSA-OAEP, atau X25519 + HKDF + AES-GCM dengan satu ephemeral key
+		 * untuk semua penerima). Payload ditandatangani sekali oleh pengirim.
+		 *
+		 * @param recipients key id peer yang terdaftar lewat
+		 *                   {@link #registerPeer(EncryptedCommunication)}.
+		 */
+		public BroadcastMessage createBroadcast(String message, Collection<Integer> recipients) throws Exception {
+			byte[] plain = message.getBytes(StandardCharsets.UTF_8);
+			byte[] contentKey = new byte[SESSION_KEY_LENGTH];
+			RNG.nextBytes(contentKey);
+
+			// payload AES-GCM (key id = pengirim) dengan signature di akhir envelope
+			int sigLength = signatureLength();
+			ByteBuffer out = ByteBuffer.allocate(
+					Envelope.size(AesGcmEngine.NONCE_LENGTH, plain.length, AesGcmEngine.TAG_LENGTH, sigLength));
+			Envelope.writeHeader(out, Envelope.Algorithm.AES_GCM, myKeyId, AesGcmEngine.NONCE_LENGTH, plain.length,
+					AesGcmEngine.TAG_LENGTH, sigLength);
+			new AesGcmEngine(contentKey).encrypt(replayNonce(broadcastSequence.getAndIncrement()),
+					out.slice(0, Envelope.HEADER_LENGTH), ByteBuffer.wrap(plain), out);
+			out.put(sign(out.duplicate().flip()));
+			Envelope payload = Envelope.wrap(out.flip());
+
+			Map<Integer, Envelope> wrappedKeys = new HashMap<>(recipients.size() * 2);
+			Envelope ephemeralEnvelope = null;
+			if (suite == Suite.X25519_ED25519) {
+				KeyPair ephemeral = KeyPairPool.shared("X25519").take();
+				byte[] ephemeralPublic = ephemeral.getPublic().getEncoded();
+				ByteBuffer ephemeralOut = ByteBuffer.allocate(Envelope.size(0, ephemeralPublic.length, 0, 0));
+				Envelope.writeHeader(ephemeralOut, Envelope.Algorithm.X25519_HKDF_SHA256, myKeyId, 0,
+						ephemeralPublic.length, 0, 0);
+				ephemeralEnvelope = Envelope.wrap(ephemeralOut.put(ephemeralPublic).flip());
+
+				for (int recipient : recipients) {
+					Peer peer = requirePeer(recipient);
+					// id 0: ephemeral key hanya dipakai untuk broadcast ini
+					byte[] kek = deriveSessionKey(ephemeral.getPrivate(), peer.publicKey, ephemeralPublic, 0,
+							peer.publicKey);
+					ByteBuffer wrapOut = ByteBuffer.allocate(
+							Envelope.size(AesGcmEngine.NONCE_LENGTH, contentKey.length, AesGcmEngine.TAG_LENGTH, 0));
+					wrappedKeys.put(recipient,
+							Envelope.seal(new AesGcmEngine(kek), recipient, ByteBuffer.wrap(contentKey), wrapOut));
+				}
+			} else {
+				Cipher c = Cipher.getInstance(TRANSFORMATION);
+				for (int recipient : recipients) {
+					Peer peer = requirePeer(recipient);
+					c.init(Cipher.ENCRYPT_MODE, peer.publicKey, getOapp256Spec());
+					byte[] wrapped = c.doFinal(contentKey);
+					ByteBuffer wrapOut = ByteBuffer.allocate(Envelope.size(0, wrapped.length, 0, 0));
+					Envelope.writeHeader(wrapOut, Envelope.Algorithm.RSA_OAEP_SHA256, recipient, 0, wrapped.length, 0,
+							0);
+					wrappedKeys.put(recipient, Envelope.wrap(wrapOut.put(wrapped).flip()));
+				}
+			}
+			Arrays.fill(contentKey, (byte) 0);
+			return new BroadcastMessage(payload, ephemeralEnvelope, wrappedKeys);
+		}
+
+		private Peer requirePeer(int keyId) {
+			Peer peer = peers.get(keyId);
+			if (peer == null) {
+				throw new IllegalArgumentException(String.format("Unknown peer %08x", keyId));
+			}
+			return peer;
+		}
+
+		public boolean receiveBroadcast(BroadcastMessage message) throws Exception {
+			Envelope payload = message.getPayload();
+			long stream = 3L << 32 | (payload.getKeyId() & 0xFFFFFFFFL);
+			if (isReplay(stream, payload)) {
+				return false;
+			}
+			Peer sender = peers.get(payload.getKeyId());
+			if (sender == null) {
+				System.err.printf("%s says: Broadcast from unknown peer %08x. Aborting decryption.%n", this,
+						payload.getKeyId());
+				return false;
+			}
+			if (!verify(sender.signingKey, payload.signedPortion(), payload.signature())) {
+				System.err.printf("%s says: Broadcast signature from %s invalid! Aborting decryption.%n", this,
+						sender.name);
+				return false;
+			}
+			Envelope wrapped = message.wrappedKeyFor(myKeyId);
+			if (wrapped == null) {
+				System.err.printf("%s says: Broadcast from %s is not addressed to this key.%n", this, sender.name);
 				return false;
 			}
-			System.out.printf("%s says: Message signature valid. Proceeding with decryption...%n", this);
 
-			String rawMessage = decrypt(message.getMessage());
-			System.out.printf("%s says: Decrypted message: %s%n", this, rawMessage);
+			byte[] contentKey;
+			if (suite == Suite.X25519_ED25519) {
+				Envelope ephemeralEnvelope = message.getEphemeral();
+				if (ephemeralEnvelope == null
+						|| ephemeralEnvelope.ciphertext().remaining() != X25519_PUBLIC_KEY_LENGTH) {
+					return false;
+				}
+				byte[] ephemeralPublic = new byte[X25519_PUBLIC_KEY_LENGTH];
+				ephemeralEnvelope.ciphertext().get(ephemeralPublic);
+				PublicKey ephemeral = KeyFactory.getInstance("X25519")
+						.generatePublic(new X509EncodedKeySpec(ephemeralPublic));
+				byte[] kek = deriveSessionKey(myPrivateKey, ephemeral, ephemeralPublic, 0, myPublicKey);
+				contentKey = new byte[SESSION_KEY_LENGTH];
+				wrapped.open(new AesGcmEngine(kek), ByteBuffer.wrap(contentKey));
+			} else {
+				contentKey = decrypt(wrapped);
+			}
 
+			ByteBuffer out = ByteBuffer.allocate(payload.ciphertext().remaining());
+			payload.open(new AesGcmEngine(contentKey), out);
+			Arrays.fill(contentKey, (byte) 0);
+			if (!commitReplay(stream, payload)) {
+				return false;
+			}
+			log("%s says: Broadcast from %s: %s%n", this, sender.name,
+					new String(out.array(), 0, Math.min(out.position(), 80), StandardCharsets.UTF_8));
 			return true;
 		}
 
+		private void log(String format, Object... args) {
+			if (verbose) {
+				System.out.printf(format, args);
+			}
+		}
+
 		@Override
 		public String toString() {
 			return objectName;
 		}
 
+		/**
+		 * Kapan session key diganti: setelah {@code maxMessages} pesan atau setelah
+		 * {@code maxAge}, mana yang lebih dulu.
+		 */
+		public static class SessionPolicy {
+			private final long maxMessages;
+
+			private final Duration maxAge;
+
+			public SessionPolicy(long maxMessages, Duration maxAge) {
+				if (maxMessages <= 0) {
+					throw new IllegalArgumentException("maxMessages must be positive");
+				}
+				this.maxMessages = maxMessages;
+				this.maxAge = maxAge;
+			}
+
+			public static SessionPolicy defaults() {
+				return new SessionPolicy(1_000_000, Duration.ofHours(1));
+			}
+
+			public static SessionPolicy perMessage() {
+				return new SessionPolicy(1, Duration.ofDays(1));
+			}
+
+			public long getMaxMessages() {
+				return maxMessages;
+			}
+
+			public Duration getMaxAge() {
+				return maxAge;
+			}
+		}
+
+		private static final class OutboundSession {
+			private final int id;
+
+			private final AesGcmEngine engine;
+
+			private final Envelope keyExchange;
+
+			private final long createdNanos = System.nanoTime();
+
+			private long counter;
+
+			OutboundSession(int id, AesGcmEngine engine, Envelope keyExchange) {
+				this.id = id;
+				this.engine = engine;
+				this.keyExchange = keyExchange;
+			}
+
+			boolean isExpired(SessionPolicy policy) {
+				return counter >= policy.getMaxMessages()
+						|| System.nanoTime() - createdNanos >= policy.getMaxAge().toNanos();
+			}
+
+			// nonce = counter | timestamp; unik karena key baru di setiap session
+			byte[] nextNonce() {
+				return replayNonce(counter++);
+			}
+		}
+
+		private static final class InboundSession {
+			private final int id;
+
+			private final AesGcmEngine engine;
+
+			InboundSession(int id, AesGcmEngine engine) {
+				this.id = id;
+				this.engine = engine;
+			}
+		}
+
+		private static final class Peer {
+			private final String name;
+
+			private final PublicKey publicKey;
+
+			private final PublicKey signingKey;
+
+			Peer(String name, PublicKey publicKey, PublicKey signingKey) {
+				this.name = name;
+				this.publicKey = publicKey;
+				this.signingKey = signingKey;
+			}
+		}
+
+		/**
+		 * Pesan broadcast: payload terenkripsi satu kali, ephemeral public key
+		 * (suite X25519) dan content key terbungkus per penerima yang diindeks
+		 * dengan key id penerima (lookup O(1)).
+		 *
+		 * Di wire dikemas sebagai {@link EnvelopeBatch}: payload, ephemeral (jika
+		 * ada), lalu semua wrapped key.
+		 */
+		public static final class BroadcastMessage {
+
+			private final Envelope payload;
+
+			private final Envelope ephemeral;
+
+			private final Map<Integer, Envelope> wrappedKeys;
+
+			BroadcastMessage(Envelope payload, Envelope ephemeral, Map<Integer, Envelope> wrappedKeys) {
+				this.payload = payload;
+				this.ephemeral = ephemeral;
+				this.wrappedKeys = wrappedKeys;
+			}
+
+			/**
+			 * Baca broadcast dari batch tanpa menyalin envelope; hanya header yang
+			 * dibaca untuk membangun indeks wrapped key.
+			 */
+			public static BroadcastMessage decode(ByteBuffer batch) {
+				EnvelopeBatch.Reader reader = new EnvelopeBatch.Reader(batch);
+				if (reader.size() == 0) {
+					throw new IllegalArgumentException("Empty broadcast");
+				}
+				Envelope payload = reader.get(0);
+				int index = 1;
+				Envelope ephemeral = null;
+				if (reader.size() > 1 && reader.get(1).getAlgorithm() == Envelope.Algorithm.X25519_HKDF_SHA256) {
+					ephemeral = reader.get(1);
+					index = 2;
+				}
+				Map<Integer, Envelope> wrappedKeys = new HashMap<>((reader.size() - index) * 2);
+				for (int i = index; i < reader.size(); i++) {
+					Envelope wrapped = reader.get(i);
+					wrappedKeys.put(wrapped.getKeyId(), wrapped);
+				}
+				return new BroadcastMessage(payload, ephemeral, wrappedKeys);
+			}
+
+			public ByteBuffer encode() {
+				long bytes = payload.length() + (ephemeral == null ? 0 : ephemeral.length());
+				for (Envelope wrapped : wrappedKeys.values()) {
+					bytes += wrapped.length();
+				}
+				int count = wrappedKeys.size() + (ephemeral == null ? 1 : 2);
+				EnvelopeBatch.Writer writer = new EnvelopeBatch.Writer(
+						ByteBuffer.allocate(EnvelopeBatch.size(count, bytes)));
+				writer.add(payload);
+				if (ephemeral != null) {
+					writer.add(ephemeral);
+				}
+				wrappedKeys.values().forEach(writer::add);
+				return writer.finish();
+			}
+
+			public Envelope getPayload() {
+				return payload;
+			}
+
+			public Envelope getEphemeral() {
+				return ephemeral;
+			}
+
+			public Envelope wrappedKeyFor(int keyId) {
+				return wrappedKeys.get(keyId);
+			}
+
+			public int getRecipientCount() {
+				return wrappedKeys.size();
+			}
+		}
+
 		final class EncryptedMessage {
 
-			final String encryptedMessage;
+			// session key terbungkus RSA, hanya ada di pesan pertama session (mode
+			// hybrid)
+			final Envelope keyExchange;
 
-			final String signature;
+			// ciphertext dan signature dalam satu envelope biner
+			final Envelope encryptedMessage;
 
-			EncryptedMessage(String encryptedMessage, String signature) {
+			EncryptedMessage(Envelope keyExchange, Envelope encryptedMessage) {
+				this.keyExchange = keyExchange;
 				this.encryptedMessage = encryptedMessage;
-				this.signature = signature;
 			}
 
-			String getMessage() {
+			Envelope getKeyExchange() {
+				return keyExchange;
+			}
+
+			Envelope getMessage() {
 				return encryptedMessage;
 			}
 
-			String getSignature() {
-				return signature;
+			ByteBuffer getSignature() {
+				return encryptedMessage.signature();
 			}
 
-			String getEncryptedMessage() {
+			Envelope getEncryptedMessage() {
 				return encryptedMessage;
 			}
 
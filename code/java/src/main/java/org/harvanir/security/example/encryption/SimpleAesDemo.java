@@ -3,7 +3,7 @@ package org.harvanir.security.example.encryption;
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
-import java.util.Base64;
+import java.nio.ByteBuffer;
 
 public class SimpleAesDemo {
 
@@ -11,27 +11,37 @@ public class SimpleAesDemo {
 		SecretKey key = generateKey();
 
 		String text = "Hello Harvan!";
-		String encrypted = encrypt(text, key);
+		Envelope encrypted = encrypt(text, key);
 		String decrypted = decrypt(encrypted, key);
 		
 		System.out.println("Plain text: " + text);
-		System.out.println("Encrypted : " + encrypted);
+		System.out.println("Encrypted : " + encrypted + " " + encrypted.toBase64());
 		System.out.println("Decrypted : " + decrypted);
 
 	}
 	
-	private static String decrypt(String encryptedText, SecretKey key) throws Exception{
+	private static String decrypt(Envelope encrypted, SecretKey key) throws Exception{
+		if (encrypted.getAlgorithm() != Envelope.Algorithm.AES_ECB_PKCS5) {
+			throw new IllegalArgumentException("Unexpected algorithm: " + encrypted.getAlgorithm());
+		}
 		Cipher cipher = Cipher.getInstance("AES");
 		cipher.init(Cipher.DECRYPT_MODE, key);
-		byte[] decryptedBytes = cipher.doFinal(Base64.getDecoder().decode(encryptedText));
-		return new String(decryptedBytes);
+		ByteBuffer ciphertext = encrypted.ciphertext();
+		byte[] decryptedBytes = new byte[cipher.getOutputSize(ciphertext.remaining())];
+		int length = cipher.doFinal(ciphertext, ByteBuffer.wrap(decryptedBytes));
+		return new String(decryptedBytes, 0, length);
 	}
 
-	private static String encrypt(String text, SecretKey key) throws Exception	{
+	private static Envelope encrypt(String text, SecretKey key) throws Exception	{
 		Cipher cipher = Cipher.getInstance("AES");
 		cipher.init(Cipher.ENCRYPT_MODE, key);
-		byte[] encryptedBytes = cipher.doFinal(text.getBytes());
-		return Base64.getEncoder().encodeToString(encryptedBytes);
+		byte[] plain = text.getBytes();
+		int length = cipher.getOutputSize(plain.length);
+		ByteBuffer out = ByteBuffer.allocate(Envelope.size(0, length, 0, 0));
+		// ECB tanpa nonce dan tag; ciphertext ditulis langsung ke envelope
+		Envelope.writeHeader(out, Envelope.Algorithm.AES_ECB_PKCS5, 0, 0, length, 0, 0);
+		cipher.doFinal(ByteBuffer.wrap(plain), out);
+		return Envelope.wrap(out.flip());
 	}
 
 	public static SecretKey generateKey() throws Exception {
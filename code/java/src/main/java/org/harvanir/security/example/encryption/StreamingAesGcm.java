@@ -0,0 +1,435 @@
+package org.harvanir.security.example.encryption;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * StreamingAesGcm
+ *
+ * Enkripsi AES-GCM bersegmen untuk file/stream berukuran besar dengan memori
+ * konstan. Berbeda dengan {@link TinyAesGcmPSKDemo} yang melakukan satu
+ * {@code doFinal} untuk seluruh plaintext, input dipotong per segmen dan
+ * setiap segmen punya nonce dan tag sendiri, jadi bisa diverifikasi satu per
+ * satu dan batas ~64 GB per nonce GCM tidak berlaku untuk keseluruhan file.
+ *
+ * Format (integer big-endian):
+ *
+ * <pre>
+ * header  : magic "SAG1" | segmentSize (int32) | salt (32) | noncePrefix (7)
+ * segment : ciphertext (segmentSize byte, segmen terakhir 0..segmentSize) | tag (16)
+ * </pre>
+ *
+ * - Key per file = HKDF-SHA256(master key, salt, header), sehingga nonce tidak
+ * pernah berulang antar file walaupun master key sama.
+ * - Nonce = noncePrefix (7) | nomor segmen (4) | flag segmen terakhir (1).
+ * Segmen yang dipotong, ditukar urutannya, atau stream yang berhenti tepat di
+ * batas segmen gagal diverifikasi karena nonce-nya tidak cocok.
+ * - Header ikut diautentikasi sebagai AAD di setiap segmen.
+ *
+ * {@link #encrypt(ReadableByteChannel, WritableByteChannel)} bekerja untuk
+ * channel apa pun; {@link #encryptFile(Path, Path)} memetakan input dan output
+ * dengan {@link MappedByteBuffer} per window sehingga cipher membaca dan
+ * menulis langsung ke page cache tanpa buffer perantara.
+ *
+ * Usage: {@code java StreamingAesGcm [size-mb]}
+ */
+public class StreamingAesGcm {
+
+	public static final int DEFAULT_SEGMENT_SIZE = 1024 * 1024;
+
+	static final int MIN_SEGMENT_SIZE = 4 * 1024;
+
+	// header belum terautentikasi saat dibaca; batasi buffer yang dialokasikan
+	static final int MAX_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	static final int TAG_LENGTH = 16;
+
+	static final int SALT_LENGTH = 32;
+
+	static final int NONCE_PREFIX_LENGTH = 7;
+
+	static final int HEADER_LENGTH = 4 + 4 + SALT_LENGTH + NONCE_PREFIX_LENGTH;
+
+	static final String TRANSFORMATION = "AES/GCM/NoPadding";
+
+	private static final byte[] MAGIC = { 'S', 'A', 'G', '1' };
+
+	private static final long MAX_SEGMENTS = 0xFFFFFFFFL;
+
+	// beberapa segmen per mapping, supaya address space yang di-map tetap kecil
+	private static final long MAP_WINDOW = 64L * 1024 * 1024;
+
+	private static final SecureRandom RNG = new SecureRandom();
+
+	private final SecretKey masterKey;
+
+	private final int segmentSize;
+
+	public StreamingAesGcm(SecretKey masterKey) {
+		this(masterKey, DEFAULT_SEGMENT_SIZE);
+	}
+
+	public StreamingAesGcm(SecretKey masterKey, int segmentSize) {
+		if (segmentSize < MIN_SEGMENT_SIZE || segmentSize > MAX_SEGMENT_SIZE) {
+			throw new IllegalArgumentException(
+					"Segment size must be between " + MIN_SEGMENT_SIZE + " and " + MAX_SEGMENT_SIZE);
+		}
+		this.masterKey = masterKey;
+		this.segmentSize = segmentSize;
+	}
+
+	public static void main(String[] args) throws Exception {
+		long sizeMb = args.length > 0 ? Long.parseLong(args[0]) : 256;
+
+		KeyGenerator kg = KeyGenerator.getInstance("AES");
+		kg.init(256);
+		StreamingAesGcm aead = new StreamingAesGcm(kg.generateKey());
+
+		Path plain = Files.createTempFile("streaming-gcm-plain", ".bin");
+		Path sealed = Files.createTempFile("streaming-gcm-sealed", ".bin");
+		Path opened = Files.createTempFile("streaming-gcm-opened", ".bin");
+		try {
+			writeRandomFile(plain, sizeMb * 1024 * 1024);
+
+			long start = System.nanoTime();
+			long written = aead.encryptFile(plain, sealed);
+			report("Encrypt (mapped)", written, start);
+
+			start = System.nanoTime();
+			long read = aead.decryptFile(sealed, opened);
+			report("Decrypt (mapped)", read, start);
+			System.out.println("Round trip equal: " + (Files.mismatch(plain, opened) == -1));
+
+			// stream/channel API: format yang sama, bisa saling dibaca
+			try (ReadableByteChannel in = Channels.newChannel(Files.newInputStream(sealed));
+					WritableByteChannel out = Channels.newChannel(Files.newOutputStream(opened))) {
+				start = System.nanoTime();
+				report("Decrypt (channel)", aead.decrypt(in, out), start);
+			}
+			System.out.println("Channel round trip equal: " + (Files.mismatch(plain, opened) == -1));
+
+			// buang segmen terakhir: harus terdeteksi sebagai truncation
+			try (FileChannel fc = FileChannel.open(sealed, StandardOpenOption.WRITE)) {
+				fc.truncate(HEADER_LENGTH + (long) DEFAULT_SEGMENT_SIZE + TAG_LENGTH);
+			}
+			try {
+				aead.decryptFile(sealed, opened);
+				System.out.println("Truncation NOT detected");
+			} catch (AEADBadTagException e) {
+				System.out.println("Truncation detected: " + e.getMessage());
+			}
+		} finally {
+			Files.deleteIfExists(plain);
+			Files.deleteIfExists(sealed);
+			Files.deleteIfExists(opened);
+		}
+	}
+
+	/**
+	 * @return jumlah byte ciphertext yang ditulis (termasuk header).
+	 */
+	public long encrypt(ReadableByteChannel in, WritableByteChannel out) throws IOException, GeneralSecurityException {
+		Header header = Header.random(segmentSize);
+		SecretKey key = header.deriveKey(masterKey);
+		Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+
+		long written = writeFully(out, ByteBuffer.wrap(header.encoded));
+		// satu byte ekstra untuk mengetahui apakah segmen ini yang terakhir
+		ByteBuffer plain = ByteBuffer.allocateDirect(segmentSize + 1);
+		ByteBuffer sealed = ByteBuffer.allocateDirect(segmentSize + TAG_LENGTH);
+		for (long segment = 0;; segment++) {
+			fill(in, plain);
+			plain.flip();
+			boolean last = plain.remaining() <= segmentSize;
+			int limit = plain.limit();
+			if (!last) {
+				plain.limit(segmentSize);
+			}
+
+			checkSegmentCount(segment + 1);
+			sealed.clear();
+			seal(cipher, key, header, segment, last, plain, sealed);
+			written += writeFully(out, sealed.flip());
+			if (last) {
+				return written;
+			}
+			plain.limit(limit);
+			plain.compact();
+		}
+	}
+
+	/**
+	 * @return jumlah byte plaintext yang ditulis.
+	 * @throws AEADBadTagException jika ada segmen yang diubah, ditukar, atau
+	 *                             stream terpotong.
+	 */
+	public long decrypt(ReadableByteChannel in, WritableByteChannel out) throws IOException, GeneralSecurityException {
+		ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_LENGTH);
+		fill(in, headerBuffer);
+		if (headerBuffer.hasRemaining()) {
+			throw new EOFException("Ciphertext shorter than header");
+		}
+		Header header = Header.parse(headerBuffer.array());
+		SecretKey key = header.deriveKey(masterKey);
+		Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+
+		int sealedSegment = header.segmentSize + TAG_LENGTH;
+		ByteBuffer sealed = ByteBuffer.allocateDirect(sealedSegment + 1);
+		ByteBuffer plain = ByteBuffer.allocateDirect(header.segmentSize);
+		long written = 0;
+		for (long segment = 0;; segment++) {
+			fill(in, sealed);
+			sealed.flip();
+			boolean last = sealed.remaining() <= sealedSegment;
+			if (last && sealed.remaining() < TAG_LENGTH) {
+				throw new AEADBadTagException("Truncated final segment");
+			}
+			int limit = sealed.limit();
+			if (!last) {
+				sealed.limit(sealedSegment);
+			}
+
+			checkSegmentCount(segment + 1);
+			plain.clear();
+			open(cipher, key, header, segment, last, sealed, plain);
+			written += writeFully(out, plain.flip());
+			if (last) {
+				return written;
+			}
+			sealed.limit(limit);
+			sealed.compact();
+		}
+	}
+
+	/**
+	 * Enkripsi file dengan input dan output di-map per window.
+	 *
+	 * @return ukuran file ciphertext.
+	 */
+	public long encryptFile(Path source, Path target) throws IOException, GeneralSecurityException {
+		try (FileChannel src = FileChannel.open(source, StandardOpenOption.READ);
+				FileChannel dst = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.READ,
+						StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			long size = src.size();
+			// plaintext kosong tetap menghasilkan satu segmen (hanya tag)
+			long segments = Math.max(1, (size + segmentSize - 1) / segmentSize);
+			checkSegmentCount(segments);
+
+			Header header = Header.random(segmentSize);
+			SecretKey key = header.deriveKey(masterKey);
+			Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+			dst.write(ByteBuffer.wrap(header.encoded), 0);
+
+			long perWindow = Math.max(1, MAP_WINDOW / segmentSize);
+			for (long first = 0; first < segments; first += perWindow) {
+				long count = Math.min(perWindow, segments - first);
+				long inPosition = first * segmentSize;
+				long inLength = Math.min(count * segmentSize, size - inPosition);
+				MappedByteBuffer in = src.map(FileChannel.MapMode.READ_ONLY, inPosition, inLength);
+				MappedByteBuffer out = dst.map(FileChannel.MapMode.READ_WRITE,
+						HEADER_LENGTH + first * (segmentSize + TAG_LENGTH), inLength + count * TAG_LENGTH);
+
+				for (long segment = first; segment < first + count; segment++) {
+					in.limit(Math.min(in.position() + segmentSize, in.capacity()));
+					seal(cipher, key, header, segment, segment == segments - 1, in, out);
+				}
+			}
+			return HEADER_LENGTH + size + segments * TAG_LENGTH;
+		}
+	}
+
+	/**
+	 * Kebalikan dari {@link #encryptFile(Path, Path)}. Jika verifikasi gagal,
+	 * file target dihapus supaya plaintext parsial tidak terpakai.
+	 *
+	 * @return ukuran file plaintext.
+	 */
+	public long decryptFile(Path source, Path target) throws IOException, GeneralSecurityException {
+		boolean complete = false;
+		try (FileChannel src = FileChannel.open(source, StandardOpenOption.READ);
+				FileChannel dst = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.READ,
+						StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			long size = src.size();
+			if (size < HEADER_LENGTH + TAG_LENGTH) {
+				throw new AEADBadTagException("Ciphertext too short");
+			}
+			ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_LENGTH);
+			src.read(headerBuffer, 0);
+			Header header = Header.parse(headerBuffer.array());
+			SecretKey key = header.deriveKey(masterKey);
+			Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+
+			int sealedSegment = header.segmentSize + TAG_LENGTH;
+			long body = size - HEADER_LENGTH;
+			long segments = (body + sealedSegment - 1) / sealedSegment;
+			checkSegmentCount(segments);
+			if (body - (segments - 1) * sealedSegment < TAG_LENGTH) {
+				throw new AEADBadTagException("Truncated final segment");
+			}
+
+			long perWindow = Math.max(1, MAP_WINDOW / sealedSegment);
+			for (long first = 0; first < segments; first += perWindow) {
+				long count = Math.min(perWindow, segments - first);
+				long inPosition = first * sealedSegment;
+				long inLength = Math.min(count * sealedSegment, body - inPosition);
+				MappedByteBuffer in = src.map(FileChannel.MapMode.READ_ONLY, HEADER_LENGTH + inPosition, inLength);
+				MappedByteBuffer out = dst.map(FileChannel.MapMode.READ_WRITE, first * header.segmentSize,
+						inLength - count * TAG_LENGTH);
+
+				for (long segment = first; segment < first + count; segment++) {
+					in.limit(Math.min(in.position() + sealedSegment, in.capacity()));
+					open(cipher, key, header, segment, segment == segments - 1, in, out);
+				}
+			}
+			complete = true;
+			return body - segments * TAG_LENGTH;
+		} finally {
+			if (!complete) {
+				Files.deleteIfExists(target);
+			}
+		}
+	}
+
+	/**
+	 * @return ukuran ciphertext untuk plaintext sebesar {@code plaintextSize}.
+	 */
+	public static long ciphertextSize(long plaintextSize, int segmentSize) {
+		long segments = Math.max(1, (plaintextSize + segmentSize - 1) / segmentSize);
+		return HEADER_LENGTH + plaintextSize + segments * TAG_LENGTH;
+	}
+
+	static void seal(Cipher cipher, SecretKey key, Header header, long segment, boolean last,
+			ByteBuffer in, ByteBuffer out) throws GeneralSecurityException {
+		cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, header.nonce(segment, last)));
+		cipher.updateAAD(header.encoded);
+		cipher.doFinal(in, out);
+	}
+
+	static void open(Cipher cipher, SecretKey key, Header header, long segment, boolean last,
+			ByteBuffer in, ByteBuffer out) throws GeneralSecurityException {
+		cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, header.nonce(segment, last)));
+		cipher.updateAAD(header.encoded);
+		cipher.doFinal(in, out);
+	}
+
+	static void checkSegmentCount(long segments) {
+		if (segments > MAX_SEGMENTS) {
+			throw new IllegalArgumentException("Too many segments: " + segments);
+		}
+	}
+
+	/**
+	 * Baca sampai buffer penuh atau EOF.
+	 */
+	private static void fill(ReadableByteChannel in, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining() && in.read(buffer) >= 0) {
+			// lanjut membaca
+		}
+	}
+
+	private static long writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+		long written = 0;
+		while (buffer.hasRemaining()) {
+			written += out.write(buffer);
+		}
+		return written;
+	}
+
+	private static void writeRandomFile(Path file, long size) throws IOException {
+		byte[] chunk = new byte[1024 * 1024];
+		RNG.nextBytes(chunk);
+		try (FileChannel fc = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			for (long remaining = size; remaining > 0; remaining -= chunk.length) {
+				writeFully(fc, ByteBuffer.wrap(chunk, 0, (int) Math.min(chunk.length, remaining)));
+			}
+		}
+	}
+
+	private static void report(String label, long bytes, long startNanos) {
+		double seconds = (System.nanoTime() - startNanos) / 1e9;
+		System.out.printf("%s: %d bytes in %.2fs (%.1f MB/s)%n", label, bytes, seconds,
+				bytes / seconds / (1024 * 1024));
+	}
+
+	/**
+	 * Header stream; juga dipakai {@link ParallelAesGcm} yang menghasilkan format
+	 * yang sama.
+	 */
+	static final class Header {
+		private final int segmentSize;
+
+		private final byte[] salt;
+
+		private final byte[] noncePrefix;
+
+		private final byte[] encoded;
+
+		private Header(int segmentSize, byte[] salt, byte[] noncePrefix) {
+			this.segmentSize = segmentSize;
+			this.salt = salt;
+			this.noncePrefix = noncePrefix;
+			this.encoded = ByteBuffer.allocate(HEADER_LENGTH).put(MAGIC).putInt(segmentSize).put(salt)
+					.put(noncePrefix).array();
+		}
+
+		static Header random(int segmentSize) {
+			byte[] salt = new byte[SALT_LENGTH];
+			byte[] prefix = new byte[NONCE_PREFIX_LENGTH];
+			RNG.nextBytes(salt);
+			RNG.nextBytes(prefix);
+			return new Header(segmentSize, salt, prefix);
+		}
+
+		static Header parse(byte[] encoded) throws AEADBadTagException {
+			ByteBuffer buffer = ByteBuffer.wrap(encoded);
+			byte[] magic = new byte[MAGIC.length];
+			buffer.get(magic);
+			int segmentSize = buffer.getInt();
+			if (!Arrays.equals(magic, MAGIC) || segmentSize < MIN_SEGMENT_SIZE
+					|| segmentSize > MAX_SEGMENT_SIZE) {
+				throw new AEADBadTagException("Not a SAG1 stream");
+			}
+			byte[] salt = new byte[SALT_LENGTH];
+			byte[] prefix = new byte[NONCE_PREFIX_LENGTH];
+			buffer.get(salt).get(prefix);
+			return new Header(segmentSize, salt, prefix);
+		}
+
+		SecretKey deriveKey(SecretKey masterKey) throws GeneralSecurityException {
+			byte[] master = masterKey.getEncoded();
+			return new SecretKeySpec(Hkdf.derive(master, salt, encoded, master.length), "AES");
+		}
+
+		int getSegmentSize() {
+			return segmentSize;
+		}
+
+		byte[] getEncoded() {
+			return encoded;
+		}
+
+		byte[] nonce(long segment, boolean last) {
+			return ByteBuffer.allocate(12).put(noncePrefix).putInt((int) segment).put((byte) (last ? 1 : 0))
+					.array();
+		}
+	}
+}
@@ -1,38 +1,89 @@
 package org.harvanir.security.example.encryption;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.security.SecureRandom;
+import java.time.Duration;
 import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
-import javax.crypto.spec.GCMParameterSpec;
-import javax.crypto.spec.SecretKeySpec;
 
 public class TinyAesGcmPSKDemo {
 
-	private static final int IV_LEN = 12; // 96-bit IV
-	
-	private static final int TAG_BIT = 128; // 128-bit auth tag
-	
-	private static final SecureRandom RNG = new SecureRandom();
-	
-	private static final String TRANSFORMATION = "AES/GCM/NoPadding";
-	
 	private static final String ALGORITHM = "AES";
+
+	private static final int KEY_ID = 1;
 	
 	public static void main(String[] args) throws Exception {
 		String key = generateKey();
+		Keyring keyring = Keyring.fromBase64Key(KEY_ID, key);
 
 		String text = "Hello Harvan!";
-		String encrypted = encrypt(text, key);
-		String decrypted = decrypt(encrypted, key);
+		Envelope encrypted = encrypt(text, keyring);
+		String decrypted = decrypt(encrypted, keyring);
 		
 		System.out.println("Plain text: " + text);
-		System.out.println("Encrypted : " + encrypted);
+		System.out.println("Encrypted : " + encrypted + " " + encrypted.toBase64());
 		System.out.println("Decrypted : " + decrypted);
 
+		runBatch(keyring.primary());
+		runRotation(keyring);
+	}
+
+	// rotasi key saat data lama tetap bisa dibaca, lalu migrasi di background
+	private static void runRotation(Keyring keyring) throws Exception {
+		ConcurrentMap<Integer, byte[]> store = new ConcurrentHashMap<>();
+		for (int i = 0; i < 2_000; i++) {
+			store.put(i, keyring.encrypt(("record ke-" + i).getBytes(StandardCharsets.UTF_8)));
+		}
+
+		int oldKeyId = keyring.primary().getId();
+		int newKeyId = keyring.rotate();
+		System.out.printf("Rotasi    : primary key %d -> %d%n", oldKeyId, newKeyId);
+
+		try (ReEncryptionJob<Integer> job = new ReEncryptionJob<>(keyring, store, 4_000, Duration.ofSeconds(1))
+				.start()) {
+			// tulisan baru langsung memakai key baru, record lama tetap terbaca
+			store.put(0, keyring.encrypt("record ke-0 (diubah)".getBytes(StandardCharsets.UTF_8)));
+			String first = new String(keyring.decrypt(store.get(1_999)), StandardCharsets.UTF_8);
+			System.out.println("Saat migrasi: " + first);
+
+			while (store.values().stream().anyMatch(v -> keyring.isStale(Envelope.wrap(ByteBuffer.wrap(v))))) {
+				Thread.sleep(50);
+			}
+			System.out.println("Migrasi   : " + job);
+		}
+
+		keyring.retire(oldKeyId);
+		System.out.println("Record 0  : " + new String(keyring.decrypt(store.get(0)), StandardCharsets.UTF_8));
+		System.out.println("Key aktif : " + keyring.size());
+	}
+
+	// banyak pesan dikemas ke satu buffer, lalu dibaca ulang tanpa salin data
+	private static void runBatch(Keyring.Key key) throws Exception {
+		int count = 10_000;
+		byte[] message = "Hello Harvan! pesan ke-00000".getBytes(StandardCharsets.UTF_8);
+		int envelopeSize = Envelope.size(AesGcmEngine.NONCE_LENGTH, message.length, AesGcmEngine.TAG_LENGTH, 0);
+		ByteBuffer buffer = ByteBuffer.allocate(EnvelopeBatch.size(count, (long) count * envelopeSize));
+
+		EnvelopeBatch.Writer writer = new EnvelopeBatch.Writer(buffer);
+		for (int i = 0; i < count; i++) {
+			writer.seal(key.getEngine(), key.getId(), ByteBuffer.wrap(message));
+		}
+		ByteBuffer batch = writer.finish();
+
+		EnvelopeBatch.Reader reader = new EnvelopeBatch.Reader(batch);
+		ByteBuffer plain = ByteBuffer.allocate(message.length);
+		int opened = 0;
+		for (int i = 0; i < reader.size(); i++) {
+			plain.clear();
+			reader.get(i).open(key.getEngine(), plain);
+			opened++;
+		}
+		System.out.printf("Batch     : %d envelope, %d bytes (Base64 per pesan: %d bytes), %d dibuka%n", count,
+				batch.remaining(), (long) count * ((envelopeSize + 2) / 3 * 4), opened);
 	}
 
 	private static String generateKey() throws Exception {
@@ -42,34 +93,18 @@ public class TinyAesGcmPSKDemo {
 		return Base64.getEncoder().encodeToString(sk.getEncoded());
 	}
 
-	private static String encrypt(String text, String key) throws Exception {
-		byte[] k = Base64.getDecoder().decode(key);
-		byte[] iv = new byte[IV_LEN];
-		RNG.nextBytes(iv);
-
-		Cipher c = Cipher.getInstance(TRANSFORMATION);
-		c.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(k, "AES"), new GCMParameterSpec(TAG_BIT, iv));
-		byte[] ct = c.doFinal(text.getBytes(StandardCharsets.UTF_8));
-
-		byte[] out = new byte[iv.length + ct.length];
-		System.arraycopy(iv, 0, out, 0, iv.length);
-		System.arraycopy(ct, 0, out, iv.length, ct.length);
-		return Base64.getEncoder().encodeToString(out);
+	// key di-parse sekali di keyring; envelope membawa key id primary
+	private static Envelope encrypt(String text, Keyring keyring) throws Exception {
+		byte[] plain = text.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer out = ByteBuffer.allocate(
+				Envelope.size(AesGcmEngine.NONCE_LENGTH, plain.length, AesGcmEngine.TAG_LENGTH, 0));
+		return keyring.seal(ByteBuffer.wrap(plain), out);
 	}
 
-	private static String decrypt(String text, String key) throws Exception {
-		byte[] all = Base64.getDecoder().decode(text);
-		if (all.length < IV_LEN + 16) throw new IllegalArgumentException("Input too short");
-
-		byte[] iv = new byte[IV_LEN];
-		byte[] ct = new byte[all.length - IV_LEN];
-		System.arraycopy(all, 0, iv, 0, IV_LEN);
-		System.arraycopy(all, IV_LEN, ct, 0, ct.length);
-
-		byte[] k = Base64.getDecoder().decode(key);
-		Cipher c = Cipher.getInstance(TRANSFORMATION);
-		c.init(Cipher.DECRYPT_MODE, new SecretKeySpec(k, ALGORITHM), new GCMParameterSpec(TAG_BIT, iv));
-		byte[] pt = c.doFinal(ct);
-		return new String(pt, StandardCharsets.UTF_8);
+	// key dicari dari key id di header envelope
+	private static String decrypt(Envelope envelope, Keyring keyring) throws Exception {
+		ByteBuffer out = ByteBuffer.allocate(envelope.ciphertext().remaining());
+		keyring.open(envelope, out);
+		return new String(out.array(), 0, out.position(), StandardCharsets.UTF_8);
 	}
 }
\ No newline at end of file
@@ -5,7 +5,8 @@ import de.mkammerer.argon2.Argon2Factory;
 
 public class Argon2idDemo {
 
-	// rekomendasi awal (tune agar ~100-250ms per hash di servermu)
+	// rekomendasi awal; HashCalibrator mencari nilai ~100-250ms per hash di
+	// servermu
 	private static final int ITERATION = 3;
 
 	private static final int MEMORY_KB = 64 * 1024; // 64MB
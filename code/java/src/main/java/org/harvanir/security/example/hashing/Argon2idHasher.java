@@ -0,0 +1,69 @@
+package org.harvanir.security.example.hashing;
+
+import java.util.List;
+
+import de.mkammerer.argon2.Argon2;
+import de.mkammerer.argon2.Argon2Factory;
+
+/**
+ * Argon2idHasher
+ *
+ * Argon2id lewat argon2-jvm dengan format PHC
+ * {@code $argon2id$v=19$m=<KB>,t=<iterasi>,p=<lanes>$salt$hash}. Verifikasi
+ * diserahkan ke library native (yang membaca string hash sendiri); parameter
+ * hasil parse dipakai untuk dispatch dan {@link #needsRehash(PasswordHash)}.
+ */
+public final class Argon2idHasher implements PasswordHasher {
+
+	public static final String ID = "argon2id";
+
+	private static final Argon2 ARGON2 = Argon2Factory.create(Argon2Factory.Argon2Types.ARGON2id);
+
+	private final int iterations;
+
+	private final int memoryKb;
+
+	private final int parallelism;
+
+	public Argon2idHasher() {
+		this(3, 64 * 1024, 2);
+	}
+
+	public Argon2idHasher(int iterations, int memoryKb, int parallelism) {
+		this.iterations = iterations;
+		this.memoryKb = memoryKb;
+		this.parallelism = parallelism;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	public int getMemoryKb() {
+		return memoryKb;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	@Override
+	public List<String> getIds() {
+		return List.of(ID);
+	}
+
+	@Override
+	public String hash(char[] password) {
+		return ARGON2.hash(iterations, memoryKb, parallelism, password);
+	}
+
+	@Override
+	public boolean verify(char[] password, PasswordHash stored) {
+		return ARGON2.verify(stored.getEncoded(), password);
+	}
+
+	@Override
+	public boolean needsRehash(PasswordHash stored) {
+		return stored.param("t") < iterations || stored.param("m") < memoryKb || stored.param("p") < parallelism;
+	}
+}
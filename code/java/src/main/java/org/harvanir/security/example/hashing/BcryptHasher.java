@@ -0,0 +1,60 @@
+package org.harvanir.security.example.hashing;
+
+import java.util.List;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+/**
+ * BcryptHasher
+ *
+ * bcrypt lewat jBCrypt ({@code $2a$<cost>$...}). jBCrypt hanya menerima
+ * {@link String}, jadi password sempat disalin ke String yang tidak bisa
+ * dihapus dari memori.
+ *
+ * jBCrypt 0.4 menolak revisi selain {@code 2a}, padahal hash {@code 2b}
+ * (OpenBSD) dan {@code 2y} (PHP) dihitung dengan algoritma yang sama; prefix
+ * keduanya ditulis ulang menjadi {@code $2a$} sebelum diverifikasi.
+ */
+public final class BcryptHasher implements PasswordHasher {
+
+	private final int cost;
+
+	public BcryptHasher() {
+		this(12);
+	}
+
+	public BcryptHasher(int cost) {
+		this.cost = cost;
+	}
+
+	public int getCost() {
+		return cost;
+	}
+
+	@Override
+	public List<String> getIds() {
+		return List.of("2a", "2b", "2y");
+	}
+
+	@Override
+	public String hash(char[] password) {
+		return BCrypt.hashpw(new String(password), BCrypt.gensalt(cost));
+	}
+
+	@Override
+	public boolean verify(char[] password, PasswordHash stored) {
+		return BCrypt.checkpw(new String(password), normalize(stored.getEncoded()));
+	}
+
+	@Override
+	public boolean needsRehash(PasswordHash stored) {
+		return stored.param("cost") < cost;
+	}
+
+	private static String normalize(String encoded) {
+		if (encoded.startsWith("$2b$") || encoded.startsWith("$2y$")) {
+			return "$2a$" + encoded.substring(4);
+		}
+		return encoded;
+	}
+}
@@ -0,0 +1,479 @@
+package org.harvanir.security.example.hashing;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+import com.sun.management.OperatingSystemMXBean;
+
+/**
+ * HashCalibrator
+ *
+ * Mencari parameter cost terkuat untuk PBKDF2, bcrypt, scrypt dan Argon2id
+ * yang masih memenuhi target latency di host ini, sebagai ganti konstanta
+ * tetap di demo ({@code ITER}, cost 12, N/r/p, {@code ITERATION} /
+ * {@code MEMORY_KB} / {@code PARALLELISM}) yang terlalu lambat di satu node dan
+ * terlalu lemah di node lain.
+ *
+ * Setiap kandidat diukur dengan {@code concurrency} thread yang hashing
+ * bersamaan (seperti saat login ramai), setelah warm-up JIT, dan latency yang
+ * dibandingkan dengan target adalah p90 dari semua sampel. Memory budget
+ * berlaku untuk seluruh hash yang berjalan bersamaan: scrypt dan Argon2id
+ * memakai memory sebesar mungkin dalam budget / concurrency, lalu menaikkan
+ * cost waktu sampai target latency (urutan yang disarankan RFC 9106). scrypt
+ * (lambdaworks, Java) dialokasikan di heap, Argon2id (argon2-jvm) di native
+ * memory, jadi keduanya punya budget sendiri.
+ *
+ * Estimasi awal bisa meleset ke dua arah: setelah diturunkan sampai memenuhi
+ * target, parameter dicoba naik satu langkah demi satu langkah selama masih
+ * memenuhi target, sehingga hasilnya parameter terkuat yang diukur lolos.
+ *
+ * Hasil disimpan sebagai properties bersama sidik jari host (jumlah CPU,
+ * arsitektur, OS, versi Java) dan konfigurasi; {@link #loadOrCalibrate(Path)}
+ * memakai ulang file itu selama host dan konfigurasinya sama.
+ */
+public final class HashCalibrator {
+
+	private static final char[] PASSWORD = "calibration-password".toCharArray();
+
+	private static final String[] HOST_KEYS = { "host.cpus", "host.arch", "host.os", "java.version" };
+
+	private static final String[] CONFIG_KEYS = { "target.ms", "heap.budget.bytes", "native.budget.bytes",
+			"concurrency" };
+
+	private final CalibrationConfig config;
+
+	public HashCalibrator(CalibrationConfig config) {
+		this.config = config;
+	}
+
+	public static void main(String[] args) throws Exception {
+		Path file = args.length > 0 ? Paths.get(args[0])
+				: Paths.get(System.getProperty("user.home"), ".security-demo", "hash-calibration.properties");
+		HashCalibrator calibrator = new HashCalibrator(CalibrationConfig.defaults());
+
+		long start = System.nanoTime();
+		Calibration calibration = calibrator.loadOrCalibrate(file);
+		System.out.printf("%s (%d ms)%n", file, (System.nanoTime() - start) / 1_000_000);
+		System.out.println(calibration);
+
+		PasswordHashers hashers = calibration.hashers();
+		String hash = hashers.hash(PASSWORD);
+		System.out.println("Hash : " + hash);
+		System.out.println("OK?  : " + hashers.verify(PASSWORD, hash));
+	}
+
+	/**
+	 * Pakai hasil tersimpan jika dibuat di host yang sama dengan konfigurasi
+	 * yang sama; jika tidak, kalibrasi ulang dan simpan hasilnya.
+	 */
+	public Calibration loadOrCalibrate(Path file) throws IOException {
+		if (Files.exists(file)) {
+			Properties stored = new Properties();
+			try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+				stored.load(reader);
+			}
+			if (matches(stored, fingerprint())) {
+				return new Calibration(stored);
+			}
+		}
+		Calibration calibration = calibrate();
+		calibration.save(file);
+		return calibration;
+	}
+
+	/**
+	 * Kalibrasi semua algoritma sekarang (beberapa detik sampai puluhan detik,
+	 * tergantung target latency).
+	 */
+	public Calibration calibrate() {
+		Properties result = fingerprint();
+		result.setProperty("calibrated.at", Instant.now().toString());
+		ExecutorService executor = Executors.newFixedThreadPool(config.getConcurrency());
+		try {
+			calibratePbkdf2(executor, result);
+			calibrateBcrypt(executor, result);
+			calibrateScrypt(executor, result);
+			calibrateArgon2id(executor, result);
+		} finally {
+			executor.shutdownNow();
+		}
+		return new Calibration(result);
+	}
+
+	// waktu linear terhadap iterasi: ekstrapolasi dua kali, lalu geser 10% ke
+	// bawah atau ke atas sampai batas target
+	private void calibratePbkdf2(ExecutorService executor, Properties result) {
+		IntFunction<PasswordHasher> candidate = Pbkdf2Hasher::new;
+		warmUp(executor, candidate.apply(10_000));
+
+		int iterations = 10_000;
+		long latency = measure(executor, candidate.apply(iterations));
+		for (int i = 0; i < 2; i++) {
+			iterations = roundDown(scale(iterations, latency), 1_000);
+			latency = measure(executor, candidate.apply(iterations));
+		}
+		while (latency > targetNanos() && iterations > 1_000) {
+			iterations = roundDown((long) (iterations * 0.9), 1_000);
+			latency = measure(executor, candidate.apply(iterations));
+		}
+		while (latency <= targetNanos()) {
+			int stronger = roundDown((long) (iterations * 1.1), 1_000);
+			long strongerLatency = measure(executor, candidate.apply(stronger));
+			if (strongerLatency > targetNanos()) {
+				break;
+			}
+			iterations = stronger;
+			latency = strongerLatency;
+		}
+		result.setProperty("pbkdf2.iterations", String.valueOf(iterations));
+		result.setProperty("pbkdf2.latency.ms", String.valueOf(latency / 1_000_000));
+	}
+
+	// setiap +1 cost menggandakan waktu; jBCrypt menerima cost 4..30
+	private void calibrateBcrypt(ExecutorService executor, Properties result) {
+		IntFunction<PasswordHasher> candidate = BcryptHasher::new;
+		warmUp(executor, candidate.apply(4));
+
+		long base = measure(executor, candidate.apply(8));
+		int cost = clamp(8 + log2Floor((double) targetNanos() / Math.max(1, base)), 4, 30);
+		long latency = measure(executor, candidate.apply(cost));
+		while (latency > targetNanos() && cost > 4) {
+			latency = measure(executor, candidate.apply(--cost));
+		}
+		while (latency <= targetNanos() && cost < 30) {
+			long strongerLatency = measure(executor, candidate.apply(cost + 1));
+			if (strongerLatency > targetNanos()) {
+				break;
+			}
+			cost++;
+			latency = strongerLatency;
+		}
+		result.setProperty("bcrypt.cost", String.valueOf(cost));
+		result.setProperty("bcrypt.latency.ms", String.valueOf(latency / 1_000_000));
+	}
+
+	// r = 8, p = 1; N terbesar (pangkat dua) yang muat di heap budget dan
+	// memenuhi target latency
+	private void calibrateScrypt(ExecutorService executor, Properties result) {
+		int r = 8;
+		long perHash = config.getHeapBudgetBytes() / config.getConcurrency();
+		int maxN = (int) Math.min(1 << 24, Long.highestOneBit(Math.max(1 << 10, perHash / (128L * r))));
+		warmUp(executor, new ScryptHasher(1 << 10, r, 1));
+
+		int n = Math.min(maxN, 1 << 14);
+		long latency = measure(executor, new ScryptHasher(n, r, 1));
+		n = (int) Math.min(maxN, Math.max(1 << 10, Long.highestOneBit(scale(n, latency))));
+		latency = measure(executor, new ScryptHasher(n, r, 1));
+		while (latency > targetNanos() && n > 1 << 10) {
+			n >>>= 1;
+			latency = measure(executor, new ScryptHasher(n, r, 1));
+		}
+		while (latency <= targetNanos() && n < maxN) {
+			long strongerLatency = measure(executor, new ScryptHasher(n << 1, r, 1));
+			if (strongerLatency > targetNanos()) {
+				break;
+			}
+			n <<= 1;
+			latency = strongerLatency;
+		}
+		result.setProperty("scrypt.n", String.valueOf(n));
+		result.setProperty("scrypt.r", String.valueOf(r));
+		result.setProperty("scrypt.p", "1");
+		result.setProperty("scrypt.latency.ms", String.valueOf(latency / 1_000_000));
+	}
+
+	// memory sebesar mungkin dalam native budget, lanes sesuai CPU yang tersisa
+	// per login bersamaan, lalu iterasi sebanyak mungkin dalam target
+	private void calibrateArgon2id(ExecutorService executor, Properties result) {
+		int cores = Runtime.getRuntime().availableProcessors();
+		int p = clamp(cores / config.getConcurrency(), 1, 4);
+		long perHashKb = config.getNativeBudgetBytes() / config.getConcurrency() / 1024;
+		int m = (int) Math.max(1024, Math.min(1 << 20, perHashKb / 1024 * 1024));
+		warmUp(executor, new Argon2idHasher(1, 1024, p));
+
+		long latency = measure(executor, new Argon2idHasher(1, m, p));
+		while (latency > targetNanos() && m > 1024) {
+			m = Math.max(1024, m / 2);
+			latency = measure(executor, new Argon2idHasher(1, m, p));
+		}
+		int t = 1;
+		if (latency <= targetNanos()) {
+			t = clamp((int) (targetNanos() / Math.max(1, latency)), 1, 100);
+			latency = measure(executor, new Argon2idHasher(t, m, p));
+			while (latency > targetNanos() && t > 1) {
+				latency = measure(executor, new Argon2idHasher(--t, m, p));
+			}
+			while (latency <= targetNanos() && t < 100) {
+				long strongerLatency = measure(executor, new Argon2idHasher(t + 1, m, p));
+				if (strongerLatency > targetNanos()) {
+					break;
+				}
+				t++;
+				latency = strongerLatency;
+			}
+		}
+		result.setProperty("argon2id.t", String.valueOf(t));
+		result.setProperty("argon2id.m", String.valueOf(m));
+		result.setProperty("argon2id.p", String.valueOf(p));
+		result.setProperty("argon2id.latency.ms", String.valueOf(latency / 1_000_000));
+	}
+
+	private void warmUp(ExecutorService executor, PasswordHasher hasher) {
+		for (int i = 0; i < config.getWarmupRounds(); i++) {
+			run(executor, hasher);
+		}
+	}
+
+	// p90 latency dari semua sampel, setiap round menjalankan concurrency hash
+	// bersamaan
+	private long measure(ExecutorService executor, PasswordHasher hasher) {
+		List<Long> samples = new ArrayList<>();
+		for (int i = 0; i < config.getRounds(); i++) {
+			samples.addAll(run(executor, hasher));
+		}
+		samples.sort(null);
+		return samples.get((int) Math.ceil(samples.size() * 0.9) - 1);
+	}
+
+	private List<Long> run(ExecutorService executor, PasswordHasher hasher) {
+		List<Future<Long>> futures = new ArrayList<>();
+		for (int i = 0; i < config.getConcurrency(); i++) {
+			futures.add(executor.submit(() -> {
+				long start = System.nanoTime();
+				hasher.hash(PASSWORD);
+				return System.nanoTime() - start;
+			}));
+		}
+		List<Long> samples = new ArrayList<>();
+		try {
+			for (Future<Long> future : futures) {
+				samples.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Calibration interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Hashing failed during calibration", e.getCause());
+		}
+		return samples;
+	}
+
+	private long targetNanos() {
+		return config.getTargetLatency().toNanos();
+	}
+
+	// nilai parameter yang waktunya linear, diskalakan ke target latency
+	private long scale(long value, long latency) {
+		return (long) (value * ((double) targetNanos() / Math.max(1, latency)));
+	}
+
+	private Properties fingerprint() {
+		Properties properties = new Properties();
+		properties.setProperty("host.cpus", String.valueOf(Runtime.getRuntime().availableProcessors()));
+		properties.setProperty("host.arch", System.getProperty("os.arch"));
+		properties.setProperty("host.os", System.getProperty("os.name"));
+		properties.setProperty("java.version", System.getProperty("java.version"));
+		properties.setProperty("target.ms", String.valueOf(config.getTargetLatency().toMillis()));
+		properties.setProperty("heap.budget.bytes", String.valueOf(config.getHeapBudgetBytes()));
+		properties.setProperty("native.budget.bytes", String.valueOf(config.getNativeBudgetBytes()));
+		properties.setProperty("concurrency", String.valueOf(config.getConcurrency()));
+		return properties;
+	}
+
+	private static boolean matches(Properties stored, Properties current) {
+		for (String[] keys : new String[][] { HOST_KEYS, CONFIG_KEYS }) {
+			for (String key : keys) {
+				if (!current.getProperty(key).equals(stored.getProperty(key))) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static int roundDown(long value, int step) {
+		return (int) Math.max(step, Math.min(Integer.MAX_VALUE, value / step * step));
+	}
+
+	private static int log2Floor(double value) {
+		return value < 1 ? -1 : 63 - Long.numberOfLeadingZeros((long) value);
+	}
+
+	private static int clamp(int value, int min, int max) {
+		return Math.max(min, Math.min(max, value));
+	}
+
+	/**
+	 * Parameter hasil kalibrasi; dibaca dari atau disimpan ke file properties.
+	 */
+	public static final class Calibration {
+		private final Properties properties;
+
+		Calibration(Properties properties) {
+			this.properties = properties;
+		}
+
+		public static Calibration load(Path file) throws IOException {
+			Properties properties = new Properties();
+			try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+				properties.load(reader);
+			}
+			return new Calibration(properties);
+		}
+
+		public void save(Path file) throws IOException {
+			if (file.getParent() != null) {
+				Files.createDirectories(file.getParent());
+			}
+			// tulis ke file sementara lalu rename, supaya node lain tidak membaca file
+			// setengah jadi
+			Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+			try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+				properties.store(writer, "HashCalibrator");
+			}
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		}
+
+		public Pbkdf2Hasher pbkdf2() {
+			return new Pbkdf2Hasher(get("pbkdf2.iterations"));
+		}
+
+		public BcryptHasher bcrypt() {
+			return new BcryptHasher(get("bcrypt.cost"));
+		}
+
+		public ScryptHasher scrypt() {
+			return new ScryptHasher(get("scrypt.n"), get("scrypt.r"), get("scrypt.p"));
+		}
+
+		public Argon2idHasher argon2id() {
+			return new Argon2idHasher(get("argon2id.t"), get("argon2id.m"), get("argon2id.p"));
+		}
+
+		/**
+		 * Dispatcher dengan Argon2id hasil kalibrasi untuk hash baru; hash lama
+		 * dengan parameter di bawah hasil kalibrasi ditandai
+		 * {@link PasswordHashers#needsRehash(String)}.
+		 */
+		public PasswordHashers hashers() {
+			return new PasswordHashers(argon2id(), List.of(pbkdf2(), bcrypt(), scrypt()),
+					PasswordHashers.DEFAULT_MAX_ENTRIES);
+		}
+
+		private int get(String key) {
+			String value = properties.getProperty(key);
+			if (value == null) {
+				throw new IllegalStateException("Missing calibration value: " + key);
+			}
+			return Integer.parseInt(value);
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+					"pbkdf2 i=%s (%s ms), bcrypt cost=%s (%s ms), scrypt N=%s r=%s p=%s (%s ms), argon2id t=%s m=%s KB p=%s (%s ms), concurrency=%s, calibrated %s",
+					properties.getProperty("pbkdf2.iterations"), properties.getProperty("pbkdf2.latency.ms"),
+					properties.getProperty("bcrypt.cost"), properties.getProperty("bcrypt.latency.ms"),
+					properties.getProperty("scrypt.n"), properties.getProperty("scrypt.r"),
+					properties.getProperty("scrypt.p"), properties.getProperty("scrypt.latency.ms"),
+					properties.getProperty("argon2id.t"), properties.getProperty("argon2id.m"),
+					properties.getProperty("argon2id.p"), properties.getProperty("argon2id.latency.ms"),
+					properties.getProperty("concurrency"), properties.getProperty("calibrated.at"));
+		}
+	}
+
+	public static class CalibrationConfig {
+		private final Duration targetLatency;
+
+		private final long heapBudgetBytes;
+
+		private final long nativeBudgetBytes;
+
+		private final int concurrency;
+
+		private final int warmupRounds;
+
+		private final int rounds;
+
+		/**
+		 * @param targetLatency     latency maksimum per hash saat {@code concurrency}
+		 *                          hash berjalan bersamaan.
+		 * @param heapBudgetBytes   total heap untuk semua hash scrypt yang berjalan
+		 *                          bersamaan.
+		 * @param nativeBudgetBytes total native memory untuk semua hash Argon2id
+		 *                          yang berjalan bersamaan.
+		 * @param concurrency       jumlah login bersamaan yang harus tetap memenuhi
+		 *                          target.
+		 */
+		public CalibrationConfig(Duration targetLatency, long heapBudgetBytes, long nativeBudgetBytes,
+				int concurrency, int warmupRounds, int rounds) {
+			if (targetLatency.isNegative() || targetLatency.isZero() || heapBudgetBytes <= 0 || nativeBudgetBytes <= 0
+					|| concurrency <= 0 || warmupRounds < 0 || rounds <= 0) {
+				throw new IllegalArgumentException("Invalid calibration config");
+			}
+			this.targetLatency = targetLatency;
+			this.heapBudgetBytes = heapBudgetBytes;
+			this.nativeBudgetBytes = nativeBudgetBytes;
+			this.concurrency = concurrency;
+			this.warmupRounds = warmupRounds;
+			this.rounds = rounds;
+		}
+
+		// 250 ms per hash dengan semua core sibuk login; scrypt maksimal seperempat
+		// heap, Argon2id maksimal seperempat memory fisik
+		public static CalibrationConfig defaults() {
+			return new CalibrationConfig(Duration.ofMillis(250), Runtime.getRuntime().maxMemory() / 4,
+					physicalMemory() / 4, Runtime.getRuntime().availableProcessors(), 3, 2);
+		}
+
+		// tanpa com.sun.management (JVM non-HotSpot) pakai ukuran heap sebagai batas
+		private static long physicalMemory() {
+			if (ManagementFactory.getOperatingSystemMXBean() instanceof OperatingSystemMXBean os) {
+				return os.getTotalMemorySize();
+			}
+			return Runtime.getRuntime().maxMemory();
+		}
+
+		public Duration getTargetLatency() {
+			return targetLatency;
+		}
+
+		public long getHeapBudgetBytes() {
+			return heapBudgetBytes;
+		}
+
+		public long getNativeBudgetBytes() {
+			return nativeBudgetBytes;
+		}
+
+		public int getConcurrency() {
+			return concurrency;
+		}
+
+		public int getWarmupRounds() {
+			return warmupRounds;
+		}
+
+		public int getRounds() {
+			return rounds;
+		}
+	}
+}
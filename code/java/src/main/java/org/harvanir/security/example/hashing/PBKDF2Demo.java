@@ -38,27 +38,17 @@ public class PBKDF2Demo {
 	}
 
 	private static boolean verify(char[] password, String stored) throws Exception {
-		String[] parts = stored.split("\\$");
-		if (parts.length != 5)
+		PasswordHash parsed;
+		try {
+			parsed = PasswordHash.parse(stored);
+		} catch (IllegalArgumentException e) {
 			return false;
-		int iter = Integer.parseInt(parts[2]);
-		byte[] salt = Base64.getDecoder().decode(parts[3]);
-		byte[] expected = Base64.getDecoder().decode(parts[4]);
-
-		PBEKeySpec spec = new PBEKeySpec(password, salt, iter, expected.length * 8);
-		byte[] actual = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256")
-				.generateSecret(spec).getEncoded();
-
-		return constantTimeEquals(expected, actual);
-	}
-
-	private static boolean constantTimeEquals(byte[] a, byte[] b) {
-		if (a.length != b.length)
+		}
+		// parse menerima semua format; hanya PBKDF2-HMAC-SHA256 yang diverifikasi di sini
+		if (!Pbkdf2Hasher.ID.equals(parsed.getId())) {
 			return false;
-		int r = 0;
-		for (int i = 0; i < a.length; i++)
-			r |= a[i] ^ b[i];
-		return r == 0;
+		}
+		return new Pbkdf2Hasher().verify(password, parsed);
 	}
 
 }
@@ -0,0 +1,247 @@
+package org.harvanir.security.example.hashing;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * PasswordHash
+ *
+ * Hasil parse string hash password yang tersimpan. Parser tidak memakai regex
+ * maupun {@code String.split}: string dipindai sekali per karakter {@code $},
+ * {@code ,} dan {@code =}. Format yang dikenali:
+ *
+ * - PHC: {@code $argon2id$v=19$m=65536,t=3,p=2$salt$hash},
+ * {@code $pbkdf2-sha256$i=150000$salt$hash} (Base64 tanpa padding),
+ * - bcrypt (modular crypt): {@code $2a$12$<22 char salt><31 char hash>},
+ * - scrypt lambdaworks: {@code $s0$<hex ln|r|p>$salt$hash},
+ * - format lama {@code PBKDF2Demo}: {@code pbkdf2$sha256$iter$salt$hash}
+ * (dibaca sebagai {@code pbkdf2-sha256}).
+ *
+ * Parameter selalu berupa angka (mis. {@code m}, {@code t}, {@code p},
+ * {@code i}, {@code cost}, {@code ln}, {@code r}). Salt dan hash di-decode dari
+ * Base64; untuk bcrypt keduanya tetap di dalam string asli (alfabet Base64
+ * bcrypt berbeda), sehingga {@link #getSalt()} dan {@link #getHash()} null.
+ */
+public final class PasswordHash {
+
+	private final String encoded;
+
+	private final String id;
+
+	private final int version;
+
+	private final String[] names;
+
+	private final int[] values;
+
+	private final byte[] salt;
+
+	private final byte[] hash;
+
+	private PasswordHash(String encoded, String id, int version, List<String> names, List<Integer> values,
+			byte[] salt, byte[] hash) {
+		this.encoded = encoded;
+		this.id = id;
+		this.version = version;
+		this.names = names.toArray(new String[0]);
+		this.values = values.stream().mapToInt(Integer::intValue).toArray();
+		this.salt = salt;
+		this.hash = hash;
+	}
+
+	/**
+	 * @throws IllegalArgumentException jika format tidak dikenali atau rusak.
+	 */
+	public static PasswordHash parse(String encoded) {
+		if (encoded.startsWith("pbkdf2$")) {
+			return parseLegacyPbkdf2(encoded);
+		}
+		if (encoded.length() < 2 || encoded.charAt(0) != '$') {
+			throw new IllegalArgumentException("Unknown password hash format");
+		}
+
+		Cursor cursor = new Cursor(encoded, 1);
+		String id = cursor.next();
+		if (id.startsWith("2") && id.length() == 2) {
+			return parseBcrypt(encoded, id, cursor);
+		}
+		if ("s0".equals(id)) {
+			return parseScrypt(encoded, cursor);
+		}
+		return parsePhc(encoded, id, cursor);
+	}
+
+	public String getEncoded() {
+		return encoded;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * @return versi algoritma ({@code v=}), atau -1 jika tidak ada.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * @throws IllegalArgumentException jika parameter tidak ada.
+	 */
+	public int param(String name) {
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].equals(name)) {
+				return values[i];
+			}
+		}
+		throw new IllegalArgumentException("Missing parameter '" + name + "' in " + id + " hash");
+	}
+
+	public byte[] getSalt() {
+		return salt == null ? null : salt.clone();
+	}
+
+	public byte[] getHash() {
+		return hash == null ? null : hash.clone();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("PasswordHash[").append(id);
+		if (version >= 0) {
+			sb.append(", v=").append(version);
+		}
+		for (int i = 0; i < names.length; i++) {
+			sb.append(", ").append(names[i]).append('=').append(values[i]);
+		}
+		return sb.append(']').toString();
+	}
+
+	// $<id>[$v=<version>][$<name>=<value>(,<name>=<value>)*]$<salt>$<hash>
+	private static PasswordHash parsePhc(String encoded, String id, Cursor cursor) {
+		int version = -1;
+		List<String> names = new ArrayList<>();
+		List<Integer> values = new ArrayList<>();
+
+		String segment = cursor.next();
+		if (segment != null && segment.startsWith("v=")) {
+			version = parseInt(segment, 2, segment.length(), 10);
+			segment = cursor.next();
+		}
+		if (segment != null && segment.indexOf('=') > 0) {
+			parseParams(segment, names, values);
+			segment = cursor.next();
+		}
+		String hash = cursor.next();
+		cursor.requireEnd();
+		// yang tersimpan di tabel user selalu hash lengkap
+		if (segment == null || hash == null) {
+			throw new IllegalArgumentException("Missing salt or hash in " + id + " hash");
+		}
+		return new PasswordHash(encoded, id, version, names, values, decode(segment), decode(hash));
+	}
+
+	// $2a$<cost>$<salt+hash>; salt/hash dibiarkan di string asli
+	private static PasswordHash parseBcrypt(String encoded, String id, Cursor cursor) {
+		String cost = cursor.next();
+		String rest = cursor.next();
+		cursor.requireEnd();
+		if (cost == null || rest == null || rest.length() != 53) {
+			throw new IllegalArgumentException("Malformed bcrypt hash");
+		}
+		return new PasswordHash(encoded, id, -1, List.of("cost"), List.of(parseInt(cost, 0, cost.length(), 10)),
+				null, null);
+	}
+
+	// $s0$<hex: log2(N) << 16 | r << 8 | p>$<salt>$<hash>
+	private static PasswordHash parseScrypt(String encoded, Cursor cursor) {
+		String params = cursor.next();
+		String salt = cursor.next();
+		String hash = cursor.next();
+		cursor.requireEnd();
+		if (params == null || salt == null || hash == null) {
+			throw new IllegalArgumentException("Malformed scrypt hash");
+		}
+		int packed = parseInt(params, 0, params.length(), 16);
+		return new PasswordHash(encoded, "s0", -1, List.of("ln", "r", "p"),
+				List.of(packed >>> 16, (packed >>> 8) & 0xFF, packed & 0xFF), decode(salt), decode(hash));
+	}
+
+	// pbkdf2$sha256$<iter>$<salt>$<hash>
+	private static PasswordHash parseLegacyPbkdf2(String encoded) {
+		Cursor cursor = new Cursor(encoded, "pbkdf2$".length());
+		String digest = cursor.next();
+		String iterations = cursor.next();
+		String salt = cursor.next();
+		String hash = cursor.next();
+		cursor.requireEnd();
+		if (digest == null || iterations == null || salt == null || hash == null) {
+			throw new IllegalArgumentException("Malformed pbkdf2 hash");
+		}
+		return new PasswordHash(encoded, "pbkdf2-" + digest, -1, List.of("i"),
+				List.of(parseInt(iterations, 0, iterations.length(), 10)), decode(salt), decode(hash));
+	}
+
+	private static void parseParams(String segment, List<String> names, List<Integer> values) {
+		int start = 0;
+		while (start < segment.length()) {
+			int end = segment.indexOf(',', start);
+			if (end < 0) {
+				end = segment.length();
+			}
+			int eq = segment.indexOf('=', start);
+			if (eq <= start || eq >= end) {
+				throw new IllegalArgumentException("Malformed parameter in password hash");
+			}
+			names.add(segment.substring(start, eq));
+			values.add(parseInt(segment, eq + 1, end, 10));
+			start = end + 1;
+		}
+	}
+
+	private static int parseInt(String s, int from, int to, int radix) {
+		try {
+			return Integer.parseInt(s, from, to, radix);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Malformed number in password hash", e);
+		}
+	}
+
+	// padding opsional: PHC tanpa padding, lambdaworks dengan padding
+	private static byte[] decode(String base64) {
+		return Base64.getDecoder().decode(base64);
+	}
+
+	private static final class Cursor {
+		private final String s;
+
+		private int position;
+
+		Cursor(String s, int position) {
+			this.s = s;
+			this.position = position;
+		}
+
+		// segmen berikutnya sampai '$' atau akhir string; null jika sudah habis
+		String next() {
+			if (position > s.length()) {
+				return null;
+			}
+			int end = s.indexOf('$', position);
+			if (end < 0) {
+				end = s.length();
+			}
+			String segment = s.substring(position, end);
+			position = end + 1;
+			return segment;
+		}
+
+		void requireEnd() {
+			if (position <= s.length()) {
+				throw new IllegalArgumentException("Unexpected trailing data in password hash");
+			}
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package org.harvanir.security.example.hashing;
+
+import java.util.List;
+
+/**
+ * PasswordHasher
+ *
+ * Satu algoritma hashing password. Implementasi: {@link Pbkdf2Hasher},
+ * {@link BcryptHasher}, {@link ScryptHasher}, {@link Argon2idHasher};
+ * {@link PasswordHashers} memilih implementasi dari id di hash tersimpan.
+ */
+public interface PasswordHasher {
+
+	/**
+	 * Id yang ditangani, sama dengan {@link PasswordHash#getId()} (mis.
+	 * {@code argon2id}, {@code 2a}, {@code s0}, {@code pbkdf2-sha256}).
+	 */
+	List<String> getIds();
+
+	/**
+	 * Hash password dengan salt baru dan parameter hasher ini.
+	 */
+	String hash(char[] password);
+
+	boolean verify(char[] password, PasswordHash stored);
+
+	/**
+	 * true jika hash tersimpan memakai parameter yang lebih lemah dari parameter
+	 * hasher ini, sehingga sebaiknya di-hash ulang setelah login berhasil.
+	 */
+	boolean needsRehash(PasswordHash stored);
+}
@@ -0,0 +1,152 @@
+package org.harvanir.security.example.hashing;
+
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PasswordHashers
+ *
+ * Satu pintu masuk untuk tabel user yang berisi campuran hash lama dan baru.
+ * Hash baru selalu dibuat dengan hasher {@code preferred};
+ * {@link #verify(char[], String)} memilih hasher dari id di awal hash
+ * tersimpan ({@code $argon2id$}, {@code $2a$}, {@code $s0$},
+ * {@code $pbkdf2-sha256$}, {@code pbkdf2$}).
+ *
+ * Hasil parse hash tersimpan di-cache per string (LRU), jadi hash milik user
+ * yang sering login tidak di-parse dan di-decode Base64 ulang. Yang di-cache
+ * hanya parameter, salt dan hash, tidak pernah hasil verifikasi.
+ *
+ * Hash dengan format rusak atau algoritma yang tidak terdaftar selalu gagal
+ * verifikasi.
+ */
+public final class PasswordHashers {
+
+	static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+	private final PasswordHasher preferred;
+
+	private final Map<String, PasswordHasher> byId = new HashMap<>();
+
+	private final Map<String, PasswordHash> parsed;
+
+	public PasswordHashers(PasswordHasher preferred, List<PasswordHasher> others, int maxEntries) {
+		this.preferred = preferred;
+		register(preferred);
+		for (PasswordHasher hasher : others) {
+			register(hasher);
+		}
+		this.parsed = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, PasswordHash> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Argon2id untuk hash baru; PBKDF2, bcrypt dan scrypt untuk hash lama.
+	 */
+	public static PasswordHashers defaults() {
+		return new PasswordHashers(new Argon2idHasher(),
+				List.of(new Pbkdf2Hasher(), new BcryptHasher(), new ScryptHasher()), DEFAULT_MAX_ENTRIES);
+	}
+
+	public static void main(String[] args) {
+		PasswordHashers hashers = defaults();
+		char[] password = "rahasiaBanget123".toCharArray();
+
+		// tabel user dengan hash dari semua demo
+		List<String> table = List.of(hashers.hash(password), new Pbkdf2Hasher().hash(password),
+				new BcryptHasher().hash(password), new ScryptHasher().hash(password),
+				legacyPbkdf2(password));
+		for (String stored : table) {
+			System.out.printf("%-60.60s ok=%s salah=%s rehash=%s%n", stored, hashers.verify(password, stored),
+					hashers.verify("salahPassword".toCharArray(), stored), hashers.needsRehash(stored));
+		}
+		System.out.println("Cache: " + hashers.cacheSize() + " hash");
+	}
+
+	// format PBKDF2Demo: pbkdf2$sha256$ITER$base64(salt)$base64(hash)
+	private static String legacyPbkdf2(char[] password) {
+		PasswordHash phc = PasswordHash.parse(new Pbkdf2Hasher().hash(password));
+		Base64.Encoder b64 = Base64.getEncoder();
+		return String.join("$", "pbkdf2", "sha256", String.valueOf(phc.param("i")),
+				b64.encodeToString(phc.getSalt()), b64.encodeToString(phc.getHash()));
+	}
+
+	public String hash(char[] password) {
+		return preferred.hash(password);
+	}
+
+	public boolean verify(char[] password, String stored) {
+		PasswordHash hash = parse(stored);
+		if (hash == null) {
+			return false;
+		}
+		PasswordHasher hasher = byId.get(hash.getId());
+		if (hasher == null) {
+			return false;
+		}
+		try {
+			return hasher.verify(password, hash);
+		} catch (IllegalArgumentException e) {
+			// parameter yang dibutuhkan algoritma tidak ada
+			return false;
+		}
+	}
+
+	/**
+	 * true jika hash tersimpan bukan dari hasher {@code preferred} atau
+	 * parameternya lebih lemah; panggil setelah verify berhasil lalu simpan
+	 * {@link #hash(char[])} yang baru.
+	 */
+	public boolean needsRehash(String stored) {
+		PasswordHash hash = parse(stored);
+		if (hash == null) {
+			return true;
+		}
+		PasswordHasher hasher = byId.get(hash.getId());
+		try {
+			return hasher != preferred || hasher.needsRehash(hash);
+		} catch (IllegalArgumentException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * @return hasil parse (dari cache jika ada), atau null jika format rusak.
+	 */
+	public PasswordHash parse(String stored) {
+		PasswordHash hash;
+		synchronized (parsed) {
+			hash = parsed.get(stored);
+		}
+		if (hash != null) {
+			return hash;
+		}
+		try {
+			hash = PasswordHash.parse(stored);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+		synchronized (parsed) {
+			parsed.put(stored, hash);
+		}
+		return hash;
+	}
+
+	int cacheSize() {
+		synchronized (parsed) {
+			return parsed.size();
+		}
+	}
+
+	private void register(PasswordHasher hasher) {
+		for (String id : hasher.getIds()) {
+			byId.put(id, hasher);
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package org.harvanir.security.example.hashing;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.List;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Pbkdf2Hasher
+ *
+ * PBKDF2-HMAC-SHA256 dengan format PHC
+ * {@code $pbkdf2-sha256$i=<iterasi>$salt$hash}. Hash format lama
+ * {@code PBKDF2Demo} ({@code pbkdf2$sha256$...}) tetap bisa diverifikasi dan
+ * selalu dianggap perlu di-hash ulang.
+ */
+public final class Pbkdf2Hasher implements PasswordHasher {
+
+	public static final String ID = "pbkdf2-sha256";
+
+	private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+
+	private static final int SALT_LEN = 16;
+
+	private static final int KEY_BITS = 256;
+
+	private static final SecureRandom RNG = new SecureRandom();
+
+	private final int iterations;
+
+	public Pbkdf2Hasher() {
+		this(150_000);
+	}
+
+	public Pbkdf2Hasher(int iterations) {
+		this.iterations = iterations;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	@Override
+	public List<String> getIds() {
+		return List.of(ID);
+	}
+
+	@Override
+	public String hash(char[] password) {
+		byte[] salt = new byte[SALT_LEN];
+		RNG.nextBytes(salt);
+		byte[] hash = derive(password, salt, iterations, KEY_BITS);
+		Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+		return "$" + ID + "$i=" + iterations + "$" + b64.encodeToString(salt) + "$" + b64.encodeToString(hash);
+	}
+
+	@Override
+	public boolean verify(char[] password, PasswordHash stored) {
+		byte[] expected = stored.getHash();
+		byte[] actual = derive(password, stored.getSalt(), stored.param("i"), expected.length * 8);
+		return MessageDigest.isEqual(expected, actual);
+	}
+
+	@Override
+	public boolean needsRehash(PasswordHash stored) {
+		return !stored.getEncoded().startsWith("$") || stored.param("i") < iterations;
+	}
+
+	static byte[] derive(char[] password, byte[] salt, int iterations, int bits) {
+		PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, bits);
+		try {
+			return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("PBKDF2 not available", e);
+		} finally {
+			spec.clearPassword();
+		}
+	}
+}
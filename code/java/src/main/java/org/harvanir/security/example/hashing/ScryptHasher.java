@@ -0,0 +1,94 @@
+package org.harvanir.security.example.hashing;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+
+import com.lambdaworks.crypto.SCrypt;
+import com.lambdaworks.crypto.SCryptUtil;
+
+/**
+ * ScryptHasher
+ *
+ * scrypt dengan format lambdaworks {@code $s0$<params>$salt$hash}. Verify
+ * memakai salt dan parameter hasil parse langsung ke {@link SCrypt#scrypt},
+ * tanpa {@link SCryptUtil#check} yang mem-parse ulang string setiap kali.
+ */
+public final class ScryptHasher implements PasswordHasher {
+
+	private final int n;
+
+	private final int r;
+
+	private final int p;
+
+	public ScryptHasher() {
+		this(16384, 8, 1);
+	}
+
+	/**
+	 * @param n work factor, harus pangkat dua.
+	 */
+	public ScryptHasher(int n, int r, int p) {
+		if (n < 2 || Integer.bitCount(n) != 1) {
+			throw new IllegalArgumentException("N must be a power of two");
+		}
+		this.n = n;
+		this.r = r;
+		this.p = p;
+	}
+
+	public int getN() {
+		return n;
+	}
+
+	public int getR() {
+		return r;
+	}
+
+	public int getP() {
+		return p;
+	}
+
+	@Override
+	public List<String> getIds() {
+		return List.of("s0");
+	}
+
+	@Override
+	public String hash(char[] password) {
+		return SCryptUtil.scrypt(new String(password), n, r, p);
+	}
+
+	@Override
+	public boolean verify(char[] password, PasswordHash stored) {
+		byte[] expected = stored.getHash();
+		byte[] passwordBytes = utf8(password);
+		try {
+			byte[] actual = SCrypt.scrypt(passwordBytes, stored.getSalt(), 1 << stored.param("ln"), stored.param("r"),
+					stored.param("p"), expected.length);
+			return MessageDigest.isEqual(expected, actual);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("scrypt failed", e);
+		} finally {
+			Arrays.fill(passwordBytes, (byte) 0);
+		}
+	}
+
+	@Override
+	public boolean needsRehash(PasswordHash stored) {
+		return (1 << stored.param("ln")) < n || stored.param("r") < r || stored.param("p") < p;
+	}
+
+	private static byte[] utf8(char[] password) {
+		ByteBuffer encoded = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+		byte[] bytes = new byte[encoded.remaining()];
+		encoded.get(bytes);
+		Arrays.fill(encoded.array(), (byte) 0);
+		return bytes;
+	}
+}
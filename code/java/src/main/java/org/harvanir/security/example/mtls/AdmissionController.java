@@ -0,0 +1,182 @@
+package org.harvanir.security.example.mtls;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AdmissionController
+ *
+ * Admission control untuk koneksi baru sebelum TLS handshake dimulai. Saat
+ * reconnect storm, handshake (RSA/ECDHE + verifikasi chain) jauh lebih mahal
+ * daripada melayani request di koneksi yang sudah established, jadi koneksi
+ * baru dibatasi dengan tiga lapis:
+ *
+ * - jumlah koneksi maksimum (termasuk yang sedang handshake),
+ * - jumlah handshake yang berjalan bersamaan, supaya CPU/carrier thread tetap
+ * tersisa untuk koneksi established,
+ * - token bucket handshake per detik dengan burst.
+ *
+ * Semua pengecekan non-blocking: jika salah satu batas terlampaui koneksi
+ * langsung ditolak (fast reject) daripada mengantre dan menambah latency.
+ * Token bucket diimplementasikan sebagai GCRA di atas satu {@link AtomicLong}
+ * (theoretical arrival time), tanpa lock.
+ */
+final class AdmissionController {
+
+	enum Decision {
+		ADMITTED, TOO_MANY_CONNECTIONS, TOO_MANY_HANDSHAKES, RATE_LIMITED
+	}
+
+	private final AdmissionConfig config;
+
+	private final long emissionIntervalNanos;
+
+	private final long burstToleranceNanos;
+
+	private final AtomicLong theoreticalArrival = new AtomicLong(System.nanoTime());
+
+	private final AtomicInteger connections = new AtomicInteger();
+
+	private final AtomicInteger handshakes = new AtomicInteger();
+
+	AdmissionController(AdmissionConfig config) {
+		this.config = config;
+		this.emissionIntervalNanos = config.getHandshakesPerSecond() > 0
+				? 1_000_000_000L / config.getHandshakesPerSecond()
+				: 0;
+		this.burstToleranceNanos = emissionIntervalNanos * Math.max(0, config.getHandshakeBurst() - 1);
+	}
+
+	/**
+	 * Coba terima satu koneksi baru. Jika {@link Decision#ADMITTED}, caller wajib
+	 * memanggil {@link #handshakeFinished()} setelah handshake selesai (sukses
+	 * atau gagal) dan {@link #connectionClosed()} ketika koneksi ditutup.
+	 */
+	Decision tryAdmit() {
+		if (!tryIncrement(connections, config.getMaxConnections())) {
+			return Decision.TOO_MANY_CONNECTIONS;
+		}
+		if (!tryIncrement(handshakes, config.getMaxConcurrentHandshakes())) {
+			connections.decrementAndGet();
+			return Decision.TOO_MANY_HANDSHAKES;
+		}
+		// token diambil paling akhir supaya koneksi yang ditolak batas lain tidak
+		// menghabiskan rate
+		if (!tryAcquireToken()) {
+			handshakes.decrementAndGet();
+			connections.decrementAndGet();
+			return Decision.RATE_LIMITED;
+		}
+		return Decision.ADMITTED;
+	}
+
+	void handshakeFinished() {
+		handshakes.decrementAndGet();
+	}
+
+	void connectionClosed() {
+		connections.decrementAndGet();
+	}
+
+	int getConnections() {
+		return connections.get();
+	}
+
+	int getHandshakesInProgress() {
+		return handshakes.get();
+	}
+
+	AdmissionConfig getConfig() {
+		return config;
+	}
+
+	private static boolean tryIncrement(AtomicInteger counter, int max) {
+		if (max <= 0) {
+			counter.incrementAndGet();
+			return true;
+		}
+		int current;
+		do {
+			current = counter.get();
+			if (current >= max) {
+				return false;
+			}
+		} while (!counter.compareAndSet(current, current + 1));
+		return true;
+	}
+
+	private boolean tryAcquireToken() {
+		if (emissionIntervalNanos == 0) {
+			return true;
+		}
+		long now = System.nanoTime();
+		long tat;
+		long next;
+		do {
+			tat = theoreticalArrival.get();
+			if (tat - burstToleranceNanos > now) {
+				return false;
+			}
+			next = Math.max(tat, now) + emissionIntervalNanos;
+		} while (!theoreticalArrival.compareAndSet(tat, next));
+		return true;
+	}
+
+	/**
+	 * Nilai <= 0 berarti tidak dibatasi.
+	 */
+	static class AdmissionConfig {
+		private final int handshakesPerSecond;
+
+		private final int handshakeBurst;
+
+		private final int maxConcurrentHandshakes;
+
+		private final int maxConnections;
+
+		private final int handshakeTimeoutMillis;
+
+		/**
+		 * @param handshakeTimeoutMillis batas waktu handshake, supaya client lambat
+		 *                               tidak menahan slot handshake selama idle
+		 *                               timeout.
+		 */
+		AdmissionConfig(int handshakesPerSecond, int handshakeBurst, int maxConcurrentHandshakes, int maxConnections,
+				int handshakeTimeoutMillis) {
+			this.handshakesPerSecond = handshakesPerSecond;
+			this.handshakeBurst = handshakeBurst;
+			this.maxConcurrentHandshakes = maxConcurrentHandshakes;
+			this.maxConnections = maxConnections;
+			this.handshakeTimeoutMillis = handshakeTimeoutMillis;
+		}
+
+		static AdmissionConfig defaults() {
+			int cores = Runtime.getRuntime().availableProcessors();
+			return new AdmissionConfig(cores * 500, cores * 100, Math.max(2, cores * 2), 10_000, 10_000);
+		}
+
+		static AdmissionConfig unlimited() {
+			return new AdmissionConfig(0, 0, 0, 0, 0);
+		}
+
+		public int getHandshakesPerSecond() {
+			return handshakesPerSecond;
+		}
+
+		public int getHandshakeBurst() {
+			return handshakeBurst;
+		}
+
+		public int getMaxConcurrentHandshakes() {
+			return maxConcurrentHandshakes;
+		}
+
+		public int getMaxConnections() {
+			return maxConnections;
+		}
+
+		public int getHandshakeTimeoutMillis() {
+			return handshakeTimeoutMillis;
+		}
+	}
+}
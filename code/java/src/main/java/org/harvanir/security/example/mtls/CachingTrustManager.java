@@ -0,0 +1,187 @@
+package org.harvanir.security.example.mtls;
+
+import java.net.Socket;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+
+/**
+ * CachingTrustManager
+ *
+ * Membungkus trust manager PKIX bawaan dan meng-cache hasil validasi chain
+ * client yang <b>berhasil</b>. Armada client hanya punya beberapa ratus cert
+ * berbeda, jadi path building + verifikasi signature yang sama tidak perlu
+ * diulang di setiap handshake.
+ *
+ * - Key cache: SHA-256 dari encoding DER seluruh chain plus authType.
+ * - Entry kedaluwarsa pada {@code min(now + ttl, notAfter terkecil di chain)},
+ * jadi cert yang expired tidak pernah lolos dari cache.
+ * - Jumlah entry dibatasi dengan LRU; kegagalan tidak di-cache.
+ * - Cache hidup bersama instance ini. {@link SslContextProvider} membuat trust
+ * manager baru setiap truststore di-reload, sehingga cache otomatis
+ * ter-invalidate ketika CA berubah.
+ *
+ * Verifikasi chain server (sisi client) tidak di-cache karena ikut memeriksa
+ * hostname per koneksi.
+ */
+final class CachingTrustManager extends X509ExtendedTrustManager {
+
+	static final Duration DEFAULT_TTL = Duration.ofMinutes(10);
+
+	static final int DEFAULT_MAX_ENTRIES = 4096;
+
+	private final X509ExtendedTrustManager delegate;
+
+	private final long ttlMillis;
+
+	private final Map<String, Long> validUntil;
+
+	private final MtlsMetrics metrics = MtlsMetrics.global();
+
+	CachingTrustManager(X509ExtendedTrustManager delegate, Duration ttl, int maxEntries) {
+		this.delegate = delegate;
+		this.ttlMillis = ttl.toMillis();
+		this.validUntil = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Bungkus setiap {@link X509ExtendedTrustManager} dengan cache default.
+	 */
+	static TrustManager[] wrap(TrustManager[] trustManagers) {
+		TrustManager[] wrapped = trustManagers.clone();
+		for (int i = 0; i < wrapped.length; i++) {
+			if (wrapped[i] instanceof X509ExtendedTrustManager tm) {
+				wrapped[i] = new CachingTrustManager(tm, DEFAULT_TTL, DEFAULT_MAX_ENTRIES);
+			}
+		}
+		return wrapped;
+	}
+
+	@Override
+	public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket)
+			throws CertificateException {
+		String key = key(chain, authType);
+		if (!isCached(key)) {
+			delegate.checkClientTrusted(chain, authType, socket);
+			remember(key, chain);
+		}
+	}
+
+	@Override
+	public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+			throws CertificateException {
+		String key = key(chain, authType);
+		if (!isCached(key)) {
+			delegate.checkClientTrusted(chain, authType, engine);
+			remember(key, chain);
+		}
+	}
+
+	@Override
+	public void checkClientTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+		String key = key(chain, authType);
+		if (!isCached(key)) {
+			delegate.checkClientTrusted(chain, authType);
+			remember(key, chain);
+		}
+	}
+
+	@Override
+	public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket)
+			throws CertificateException {
+		delegate.checkServerTrusted(chain, authType, socket);
+	}
+
+	@Override
+	public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+			throws CertificateException {
+		delegate.checkServerTrusted(chain, authType, engine);
+	}
+
+	@Override
+	public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+		delegate.checkServerTrusted(chain, authType);
+	}
+
+	@Override
+	public X509Certificate[] getAcceptedIssuers() {
+		return delegate.getAcceptedIssuers();
+	}
+
+	void invalidate() {
+		synchronized (validUntil) {
+			validUntil.clear();
+		}
+	}
+
+	int size() {
+		synchronized (validUntil) {
+			return validUntil.size();
+		}
+	}
+
+	private boolean isCached(String key) {
+		if (key == null) {
+			return false;
+		}
+		long now = System.currentTimeMillis();
+		synchronized (validUntil) {
+			Long until = validUntil.get(key);
+			if (until != null && now < until) {
+				metrics.counter(MtlsMetrics.TRUST_CACHE_HIT).increment();
+				return true;
+			}
+			if (until != null) {
+				validUntil.remove(key);
+			}
+		}
+		metrics.counter(MtlsMetrics.TRUST_CACHE_MISS).increment();
+		return false;
+	}
+
+	private void remember(String key, X509Certificate[] chain) {
+		if (key == null) {
+			return;
+		}
+		long until = System.currentTimeMillis() + ttlMillis;
+		for (X509Certificate cert : chain) {
+			until = Math.min(until, cert.getNotAfter().getTime());
+		}
+		synchronized (validUntil) {
+			validUntil.put(key, until);
+		}
+	}
+
+	/**
+	 * @return fingerprint chain, atau null jika chain kosong (biarkan delegate
+	 *         yang menolak).
+	 */
+	private static String key(X509Certificate[] chain, String authType) throws CertificateException {
+		if (chain == null || chain.length == 0) {
+			return null;
+		}
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			for (X509Certificate cert : chain) {
+				digest.update(cert.getEncoded());
+			}
+			return authType + ':' + HexFormat.of().formatHex(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new CertificateException("SHA-256 not available", e);
+		}
+	}
+}
@@ -0,0 +1,197 @@
+package org.harvanir.security.example.mtls;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Der
+ *
+ * Reader/writer DER minimal untuk struktur yang tidak punya API publik di JDK
+ * (OCSP request/response, extension AIA dan CRL distribution point). Hanya
+ * mendukung tag satu byte, cukup untuk struktur PKIX tersebut.
+ */
+final class Der {
+
+	static final int INTEGER = 0x02;
+
+	static final int BIT_STRING = 0x03;
+
+	static final int OCTET_STRING = 0x04;
+
+	static final int NULL = 0x05;
+
+	static final int OID = 0x06;
+
+	static final int ENUMERATED = 0x0a;
+
+	static final int GENERALIZED_TIME = 0x18;
+
+	static final int SEQUENCE = 0x30;
+
+	private static final DateTimeFormatter GENERALIZED = DateTimeFormatter.ofPattern("uuuuMMddHHmmss");
+
+	private final byte[] buf;
+
+	private final int offset;
+
+	private final int tag;
+
+	private final int valueOffset;
+
+	private final int length;
+
+	private Der(byte[] buf, int offset, int tag, int valueOffset, int length) {
+		this.buf = buf;
+		this.offset = offset;
+		this.tag = tag;
+		this.valueOffset = valueOffset;
+		this.length = length;
+	}
+
+	static Der parse(byte[] der) throws IOException {
+		return read(der, 0, der.length);
+	}
+
+	private static Der read(byte[] buf, int offset, int limit) throws IOException {
+		if (offset + 2 > limit) {
+			throw new IOException("Truncated DER at " + offset);
+		}
+		int tag = buf[offset] & 0xff;
+		if ((tag & 0x1f) == 0x1f) {
+			throw new IOException("Multi-byte DER tag not supported");
+		}
+		int pos = offset + 1;
+		int len = buf[pos++] & 0xff;
+		if (len > 0x7f) {
+			int count = len & 0x7f;
+			if (count == 0 || count > 4 || pos + count > limit) {
+				throw new IOException("Invalid DER length at " + offset);
+			}
+			len = 0;
+			for (int i = 0; i < count; i++) {
+				len = (len << 8) | (buf[pos++] & 0xff);
+			}
+		}
+		if (len < 0 || pos + len > limit) {
+			throw new IOException("DER length exceeds input at " + offset);
+		}
+		return new Der(buf, offset, tag, pos, len);
+	}
+
+	int tag() {
+		return tag;
+	}
+
+	boolean isContext(int number) {
+		return (tag & 0xc0) == 0x80 && (tag & 0x1f) == number;
+	}
+
+	boolean isConstructed() {
+		return (tag & 0x20) != 0;
+	}
+
+	/**
+	 * @return elemen-elemen di dalam value (untuk SEQUENCE, SET dan tag
+	 *         context yang constructed/explicit).
+	 */
+	List<Der> children() throws IOException {
+		List<Der> children = new ArrayList<>();
+		int pos = valueOffset;
+		int end = valueOffset + length;
+		while (pos < end) {
+			Der child = read(buf, pos, end);
+			children.add(child);
+			pos = child.valueOffset + child.length;
+		}
+		return children;
+	}
+
+	Der child(int index) throws IOException {
+		List<Der> children = children();
+		if (index >= children.size()) {
+			throw new IOException("Missing DER element " + index + " in tag 0x" + Integer.toHexString(tag));
+		}
+		return children.get(index);
+	}
+
+	/**
+	 * Parse isi value sebagai DER (untuk OCTET STRING yang membungkus struktur).
+	 */
+	Der unwrap() throws IOException {
+		return read(buf, valueOffset, valueOffset + length);
+	}
+
+	byte[] value() {
+		return Arrays.copyOfRange(buf, valueOffset, valueOffset + length);
+	}
+
+	/**
+	 * @return TLV lengkap, misalnya untuk data yang ditandatangani.
+	 */
+	byte[] encoded() {
+		return Arrays.copyOfRange(buf, offset, valueOffset + length);
+	}
+
+	/**
+	 * @return isi BIT STRING tanpa byte "unused bits".
+	 */
+	byte[] bits() {
+		return Arrays.copyOfRange(buf, valueOffset + 1, valueOffset + length);
+	}
+
+	String oid() {
+		StringBuilder sb = new StringBuilder();
+		long value = 0;
+		boolean first = true;
+		for (int i = valueOffset; i < valueOffset + length; i++) {
+			value = (value << 7) | (buf[i] & 0x7f);
+			if ((buf[i] & 0x80) == 0) {
+				if (first) {
+					long arc = Math.min(value / 40, 2);
+					sb.append(arc).append('.').append(value - arc * 40);
+					first = false;
+				} else {
+					sb.append('.').append(value);
+				}
+				value = 0;
+			}
+		}
+		return sb.toString();
+	}
+
+	Instant time() {
+		String text = new String(buf, valueOffset, length, StandardCharsets.US_ASCII);
+		// fraction detik (jika ada) diabaikan; OCSP/CRL selalu UTC ("Z")
+		return LocalDateTime.parse(text.substring(0, 14), GENERALIZED).toInstant(ZoneOffset.UTC);
+	}
+
+	static byte[] encode(int tag, byte[]... parts) {
+		int len = 0;
+		for (byte[] part : parts) {
+			len += part.length;
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream(len + 6);
+		out.write(tag);
+		if (len < 0x80) {
+			out.write(len);
+		} else {
+			int bytes = (32 - Integer.numberOfLeadingZeros(len) + 7) / 8;
+			out.write(0x80 | bytes);
+			for (int i = bytes - 1; i >= 0; i--) {
+				out.write(len >>> (i * 8));
+			}
+		}
+		for (byte[] part : parts) {
+			out.writeBytes(part);
+		}
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,53 @@
+package org.harvanir.security.example.mtls;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DirectBufferPool
+ *
+ * Pool sederhana untuk direct {@link ByteBuffer} berukuran tetap. Alokasi
+ * direct buffer mahal dan tidak di-GC dengan cepat, jadi buffer dikembalikan
+ * ke pool dan dipakai ulang. Jumlah buffer yang disimpan dibatasi
+ * {@code maxPooled}; sisanya dilepas ke GC.
+ */
+final class DirectBufferPool {
+
+	private final int bufferSize;
+
+	private final int maxPooled;
+
+	private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger pooled = new AtomicInteger();
+
+	DirectBufferPool(int bufferSize, int maxPooled) {
+		this.bufferSize = bufferSize;
+		this.maxPooled = maxPooled;
+	}
+
+	int getBufferSize() {
+		return bufferSize;
+	}
+
+	ByteBuffer acquire() {
+		ByteBuffer buffer = free.poll();
+		if (buffer == null) {
+			return ByteBuffer.allocateDirect(bufferSize);
+		}
+		pooled.decrementAndGet();
+		return buffer.clear();
+	}
+
+	void release(ByteBuffer buffer) {
+		if (buffer == null || buffer.capacity() != bufferSize) {
+			return;
+		}
+		if (pooled.incrementAndGet() > maxPooled) {
+			pooled.decrementAndGet();
+			return;
+		}
+		free.offer(buffer.clear());
+	}
+}
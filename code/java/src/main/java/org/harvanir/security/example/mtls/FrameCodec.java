@@ -0,0 +1,110 @@
+package org.harvanir.security.example.mtls;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * FrameCodec
+ *
+ * Framing biner sederhana untuk protokol mTLS yang di-multiplex:
+ *
+ * <pre>
+ * | length (int32) | streamId (int32) | flags (int8) | payload (length bytes) |
+ * </pre>
+ *
+ * Semua integer big-endian. {@code streamId} dipilih client dan dipantulkan
+ * server pada response, sehingga banyak request bisa berjalan bersamaan di satu
+ * koneksi dan dijawab tidak berurutan.
+ */
+final class FrameCodec {
+
+	static final int HEADER_LENGTH = 9;
+
+	static final int MAX_PAYLOAD = 16 * 1024 * 1024;
+
+	static final byte FLAG_NONE = 0;
+
+	static final byte FLAG_ERROR = 1;
+
+	private FrameCodec() {
+	}
+
+	/**
+	 * Tulis satu frame. Caller yang menulis dari beberapa thread harus
+	 * menyinkronkan pemanggilan ini dan flush sendiri.
+	 */
+	static void write(OutputStream out, int streamId, byte flags, byte[] payload) throws IOException {
+		if (payload.length > MAX_PAYLOAD) {
+			throw new IOException("Frame payload too large: " + payload.length);
+		}
+
+		byte[] header = new byte[HEADER_LENGTH];
+		putInt(header, 0, payload.length);
+		putInt(header, 4, streamId);
+		header[8] = flags;
+
+		out.write(header);
+		out.write(payload);
+	}
+
+	/**
+	 * @return frame berikutnya, atau null jika stream berakhir tepat di batas
+	 *         frame.
+	 */
+	static Frame read(DataInputStream in) throws IOException {
+		int length;
+		try {
+			length = in.readInt();
+		} catch (EOFException e) {
+			return null;
+		}
+		if (length < 0 || length > MAX_PAYLOAD) {
+			throw new IOException("Invalid frame length: " + length);
+		}
+
+		int streamId = in.readInt();
+		byte flags = in.readByte();
+		byte[] payload = new byte[length];
+		in.readFully(payload);
+		return new Frame(streamId, flags, payload);
+	}
+
+	private static void putInt(byte[] b, int offset, int value) {
+		b[offset] = (byte) (value >>> 24);
+		b[offset + 1] = (byte) (value >>> 16);
+		b[offset + 2] = (byte) (value >>> 8);
+		b[offset + 3] = (byte) value;
+	}
+
+	static final class Frame {
+		private final int streamId;
+
+		private final byte flags;
+
+		private final byte[] payload;
+
+		Frame(int streamId, byte flags, byte[] payload) {
+			this.streamId = streamId;
+			this.flags = flags;
+			this.payload = payload;
+		}
+
+		int getStreamId() {
+			return streamId;
+		}
+
+		byte getFlags() {
+			return flags;
+		}
+
+		boolean isError() {
+			return (flags & FLAG_ERROR) != 0;
+		}
+
+		byte[] getPayload() {
+			return payload;
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package org.harvanir.security.example.mtls;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.net.ssl.SSLSocket;
+
+import org.harvanir.security.example.mtls.FrameCodec.Frame;
+
+/**
+ * FramedConnectionHandler
+ *
+ * {@link MtlsServer.ConnectionHandler} untuk protokol {@link FrameCodec}. Thread
+ * koneksi hanya membaca frame; setiap request diproses di virtual thread
+ * sendiri dan response ditulis begitu selesai, jadi urutan response bisa
+ * berbeda dengan urutan request. Jumlah request in-flight per koneksi dibatasi
+ * supaya client yang terlalu agresif tidak menghabiskan memori server.
+ *
+ * Satu handler dipakai semua koneksi, tetapi executor request dibuat per
+ * koneksi dan ditutup sebelum {@link #handle} selesai (juga jika pembacaan
+ * frame gagal), jadi socket baru ditutup server setelah semua request koneksi
+ * itu selesai menulis response.
+ */
+final class FramedConnectionHandler implements MtlsServer.ConnectionHandler {
+
+	private static final int IO_BUFFER_SIZE = 16 * 1024;
+
+	private final RequestHandler requestHandler;
+
+	private final int maxInFlightPerConnection;
+
+	private final ThreadFactory requestThreads = Thread.ofVirtual().name("mtls-request-", 0).factory();
+
+	FramedConnectionHandler(RequestHandler requestHandler) {
+		this(requestHandler, 1024);
+	}
+
+	FramedConnectionHandler(RequestHandler requestHandler, int maxInFlightPerConnection) {
+		this.requestHandler = requestHandler;
+		this.maxInFlightPerConnection = maxInFlightPerConnection;
+	}
+
+	@Override
+	public void handle(SSLSocket socket, InputStream socketIn, OutputStream socketOut) throws Exception {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(socketIn, IO_BUFFER_SIZE));
+		OutputStream out = new BufferedOutputStream(socketOut, IO_BUFFER_SIZE);
+		ReentrantLock writeLock = new ReentrantLock();
+		Semaphore inFlight = new Semaphore(maxInFlightPerConnection);
+
+		// close() menunggu response yang masih diproses sebelum socket ditutup
+		try (ExecutorService requestWorkers = Executors.newThreadPerTaskExecutor(requestThreads)) {
+			Frame frame;
+			while ((frame = FrameCodec.read(in)) != null) {
+				inFlight.acquire();
+				Frame request = frame;
+				requestWorkers.execute(() -> {
+					try {
+						respond(out, writeLock, request);
+					} finally {
+						inFlight.release();
+					}
+				});
+			}
+		}
+	}
+
+	private void respond(OutputStream out, ReentrantLock writeLock, Frame request) {
+		byte flags = FrameCodec.FLAG_NONE;
+		byte[] response;
+		try {
+			response = requestHandler.handle(request.getPayload());
+		} catch (Exception e) {
+			flags = FrameCodec.FLAG_ERROR;
+			response = String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8);
+		}
+
+		writeLock.lock();
+		try {
+			FrameCodec.write(out, request.getStreamId(), flags, response);
+			out.flush();
+		} catch (IOException e) {
+			System.err.println("[Server] Error on writing frame " + request.getStreamId() + ": " + e.getMessage());
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@FunctionalInterface
+	interface RequestHandler {
+		byte[] handle(byte[] request) throws Exception;
+	}
+}
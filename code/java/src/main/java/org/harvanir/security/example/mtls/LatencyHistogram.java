@@ -0,0 +1,104 @@
+package org.harvanir.security.example.mtls;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram
+ *
+ * Histogram log-linear ala HdrHistogram dengan presisi ~1.5%: nilai di bawah
+ * 128 dicatat persis, di atasnya setiap pangkat dua dibagi 64 sub-bucket.
+ * Ukurannya tetap (~30 KB) berapa pun jumlah sampel, dan {@link #record(long)}
+ * lock-free sehingga aman dipanggil dari banyak thread sekaligus.
+ *
+ * Satuan nilai bebas (biasanya nanodetik); percentile dilaporkan sebagai batas
+ * atas bucket sehingga tidak pernah lebih kecil dari nilai sebenarnya.
+ */
+final class LatencyHistogram {
+
+	private static final int LINEAR_LIMIT = 128;
+
+	private static final int SUB_BUCKETS = 64;
+
+	private static final int BUCKETS = LINEAR_LIMIT + (63 - 7) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	private final LongAdder total = new LongAdder();
+
+	private final LongAdder sum = new LongAdder();
+
+	private final AtomicLong max = new AtomicLong();
+
+	void record(long value) {
+		long v = Math.max(0, value);
+		counts.incrementAndGet(indexOf(v));
+		total.increment();
+		sum.add(v);
+		max.accumulateAndGet(v, Math::max);
+	}
+
+	long getCount() {
+		return total.sum();
+	}
+
+	long getMax() {
+		return max.get();
+	}
+
+	double getMean() {
+		long n = total.sum();
+		return n == 0 ? 0 : (double) sum.sum() / n;
+	}
+
+	/**
+	 * @param percentile 0..100, misalnya 99.9
+	 */
+	long getValueAtPercentile(double percentile) {
+		long n = total.sum();
+		if (n == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(upperBound(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		total.reset();
+		sum.reset();
+		max.set(0);
+	}
+
+	private static int indexOf(long v) {
+		if (v < LINEAR_LIMIT) {
+			return (int) v;
+		}
+		int magnitude = 63 - Long.numberOfLeadingZeros(v);
+		int sub = (int) (v >>> (magnitude - 6)) - SUB_BUCKETS;
+		return LINEAR_LIMIT + (magnitude - 7) * SUB_BUCKETS + sub;
+	}
+
+	private static long upperBound(int index) {
+		if (index < LINEAR_LIMIT) {
+			return index;
+		}
+		int k = index - LINEAR_LIMIT;
+		int magnitude = k / SUB_BUCKETS + 7;
+		long sub = k % SUB_BUCKETS + SUB_BUCKETS;
+		int shift = magnitude - 6;
+		long bound = ((sub + 1) << shift) - 1;
+		// bucket teratas melewati Long.MAX_VALUE
+		return bound < 0 ? Long.MAX_VALUE : bound;
+	}
+}
@@ -0,0 +1,305 @@
+package org.harvanir.security.example.mtls;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.net.ssl.SSLSocket;
+
+import org.harvanir.security.example.mtls.FrameCodec.Frame;
+import org.harvanir.security.example.mtls.MtlsSocketExample.KeystoreInfo;
+import org.harvanir.security.example.mtls.MtlsSocketExample.TruststoreInfo;
+
+/**
+ * MtlsBenchmark
+ *
+ * Load generator untuk jalur mTLS. Menjalankan {@link MtlsServer} +
+ * {@link FramedConnectionHandler} (echo) di proses yang sama, lalu N client
+ * (virtual thread, closed loop) mengirim request selama durasi tertentu.
+ *
+ * Usage (semua opsi optional):
+ *
+ * <pre>
+ * java MtlsBenchmark --clients=64 --duration=30 --warmup=5 --payload=256 \
+ *     --reuse=keepalive|resume|none --key-type=rsa|ec \
+ *     --cipher=TLS_AES_128_GCM_SHA256 --certs=../../mtls --out=result.json
+ * </pre>
+ *
+ * - {@code reuse=keepalive}: satu koneksi per client, banyak request.
+ * - {@code reuse=resume}: koneksi baru per request dengan session resumption.
+ * - {@code reuse=none}: koneksi baru per request tanpa session cache,
+ * sehingga setiap handshake full.
+ *
+ * Catatan: client session cache JSSE menyimpan satu ticket TLS 1.3 per
+ * host:port dan ticket hanya dipakai sekali, jadi pada {@code reuse=resume}
+ * dengan banyak client bersamaan sebagian handshake tetap full. Angka
+ * full/resumed di hasil adalah yang benar-benar terjadi.
+ * - {@code key-type=ec} memakai file dari
+ * {@code KEY_TYPE=ec ./generate_mtls_certs.sh} (server-ec.p12, dst).
+ *
+ * Hasil ditulis sebagai JSON ke {@code --out} atau stdout.
+ */
+public class MtlsBenchmark {
+
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9, 99.99 };
+
+	private static final String[] PERCENTILE_NAMES = { "p50", "p90", "p99", "p99_9", "p99_99" };
+
+	private final Options options;
+
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	private final LatencyHistogram handshakeLatency = new LatencyHistogram();
+
+	private final LongAdder requests = new LongAdder();
+
+	private final LongAdder errors = new LongAdder();
+
+	private volatile boolean measuring;
+
+	private volatile boolean stopping;
+
+	MtlsBenchmark(Options options) {
+		this.options = options;
+	}
+
+	public static void main(String[] args) throws Exception {
+		Options options = Options.parse(args);
+		String json = new MtlsBenchmark(options).run();
+		if (options.out == null) {
+			System.out.println(json);
+		} else {
+			Files.writeString(Path.of(options.out), json);
+			System.out.println("[Benchmark] Result written to " + options.out);
+		}
+	}
+
+	String run() throws Exception {
+		String suffix = "ec".equals(options.keyType) ? "-ec" : "";
+		KeystoreInfo serverKs = new KeystoreInfo(options.certPath("server" + suffix + ".p12"), "serverpass");
+		TruststoreInfo serverTs = new TruststoreInfo(options.certPath("server-trust" + suffix + ".p12"), "storepass");
+		KeystoreInfo clientKs = new KeystoreInfo(options.certPath("client" + suffix + ".p12"), "clientpass");
+		TruststoreInfo clientTs = new TruststoreInfo(options.certPath("client-trust" + suffix + ".p12"), "storepass");
+
+		MtlsServer.ServerConfig serverConfig = new MtlsServer.ServerConfig("127.0.0.1", 0, 4096, 60_000, 1_000);
+		MtlsClient.ClientConfig clientConfig = new MtlsClient.ClientConfig(Math.max(1024, options.clients), 3600,
+				30_000, options.cipher == null ? null : new String[] { options.cipher }, !"none".equals(options.reuse));
+
+		try (MtlsServer server = new MtlsServer(new SslContextProvider(serverKs, serverTs), serverConfig,
+				new FramedConnectionHandler(request -> request)).start();
+				MtlsClient client = new MtlsClient(clientKs, clientTs, clientConfig)) {
+			int port = server.getLocalPort();
+
+			List<Thread> workers = new ArrayList<>(options.clients);
+			for (int i = 0; i < options.clients; i++) {
+				workers.add(Thread.ofVirtual().name("bench-client-" + i).start(() -> clientLoop(client, port)));
+			}
+
+			Thread.sleep(options.warmupSeconds * 1000L);
+			latency.reset();
+			handshakeLatency.reset();
+			requests.reset();
+			errors.reset();
+			long fullBefore = client.getFullHandshakes();
+			long resumedBefore = client.getResumedHandshakes();
+			long start = System.nanoTime();
+			measuring = true;
+
+			Thread.sleep(options.durationSeconds * 1000L);
+			measuring = false;
+			double elapsed = (System.nanoTime() - start) / 1e9;
+			long full = client.getFullHandshakes() - fullBefore;
+			long resumed = client.getResumedHandshakes() - resumedBefore;
+
+			stopping = true;
+			for (Thread worker : workers) {
+				worker.join();
+			}
+			return toJson(elapsed, full, resumed);
+		}
+	}
+
+	private void clientLoop(MtlsClient client, int port) {
+		byte[] payload = new byte[options.payloadBytes];
+		ThreadLocalRandom.current().nextBytes(payload);
+
+		SSLSocket keepAlive = null;
+		try {
+			while (!stopping) {
+				long t0 = System.nanoTime();
+				try {
+					if ("keepalive".equals(options.reuse)) {
+						if (keepAlive == null || keepAlive.isClosed()) {
+							keepAlive = connect(client, port, t0);
+						}
+						exchange(keepAlive, payload);
+					} else {
+						try (SSLSocket socket = connect(client, port, t0)) {
+							exchange(socket, payload);
+						}
+					}
+					if (measuring) {
+						latency.record(System.nanoTime() - t0);
+						requests.increment();
+					}
+				} catch (IOException e) {
+					if (measuring) {
+						errors.increment();
+					}
+					closeQuietly(keepAlive);
+					keepAlive = null;
+				}
+			}
+		} finally {
+			closeQuietly(keepAlive);
+		}
+	}
+
+	private SSLSocket connect(MtlsClient client, int port, long t0) throws IOException {
+		SSLSocket socket = client.connect("127.0.0.1", port);
+		if (measuring) {
+			handshakeLatency.record(System.nanoTime() - t0);
+		}
+		return socket;
+	}
+
+	private static void exchange(SSLSocket socket, byte[] payload) throws IOException {
+		OutputStream out = new BufferedOutputStream(socket.getOutputStream(), FrameCodec.HEADER_LENGTH + payload.length);
+		FrameCodec.write(out, 1, FrameCodec.FLAG_NONE, payload);
+		out.flush();
+
+		Frame reply = FrameCodec.read(new DataInputStream(socket.getInputStream()));
+		if (reply == null || reply.getPayload().length != payload.length) {
+			throw new IOException("Unexpected reply");
+		}
+	}
+
+	private static void closeQuietly(SSLSocket socket) {
+		if (socket == null) {
+			return;
+		}
+		try {
+			socket.close();
+		} catch (IOException ignored) {
+			// sudah ditutup
+		}
+	}
+
+	private String toJson(double elapsedSeconds, long fullHandshakes, long resumedHandshakes) {
+		StringBuilder sb = new StringBuilder(1024);
+		sb.append("{\n");
+		sb.append("  \"config\": {");
+		sb.append("\"clients\": ").append(options.clients);
+		sb.append(", \"durationSeconds\": ").append(options.durationSeconds);
+		sb.append(", \"warmupSeconds\": ").append(options.warmupSeconds);
+		sb.append(", \"payloadBytes\": ").append(options.payloadBytes);
+		sb.append(", \"reuse\": \"").append(options.reuse).append('"');
+		sb.append(", \"keyType\": \"").append(options.keyType).append('"');
+		sb.append(", \"cipher\": ").append(options.cipher == null ? "null" : '"' + options.cipher + '"');
+		sb.append("},\n");
+		sb.append("  \"elapsedSeconds\": ").append(format(elapsedSeconds)).append(",\n");
+		sb.append("  \"requests\": ").append(requests.sum()).append(",\n");
+		sb.append("  \"errors\": ").append(errors.sum()).append(",\n");
+		sb.append("  \"requestsPerSecond\": ").append(format(requests.sum() / elapsedSeconds)).append(",\n");
+		sb.append("  \"fullHandshakes\": ").append(fullHandshakes).append(",\n");
+		sb.append("  \"resumedHandshakes\": ").append(resumedHandshakes).append(",\n");
+		sb.append("  \"fullHandshakesPerSecond\": ").append(format(fullHandshakes / elapsedSeconds)).append(",\n");
+		sb.append("  \"resumedHandshakesPerSecond\": ").append(format(resumedHandshakes / elapsedSeconds))
+				.append(",\n");
+		sb.append("  \"throughputBytesPerSecond\": ")
+				.append(format(2.0 * requests.sum() * options.payloadBytes / elapsedSeconds)).append(",\n");
+		sb.append("  \"latencyMicros\": ").append(histogramJson(latency)).append(",\n");
+		sb.append("  \"handshakeLatencyMicros\": ").append(histogramJson(handshakeLatency)).append('\n');
+		sb.append("}\n");
+		return sb.toString();
+	}
+
+	private static String histogramJson(LatencyHistogram h) {
+		StringBuilder sb = new StringBuilder("{");
+		sb.append("\"count\": ").append(h.getCount());
+		sb.append(", \"mean\": ").append(format(h.getMean() / 1_000.0));
+		for (int i = 0; i < PERCENTILES.length; i++) {
+			sb.append(", \"").append(PERCENTILE_NAMES[i]).append("\": ")
+					.append(format(h.getValueAtPercentile(PERCENTILES[i]) / 1_000.0));
+		}
+		sb.append(", \"max\": ").append(format(h.getMax() / 1_000.0));
+		return sb.append('}').toString();
+	}
+
+	private static String format(double value) {
+		if (value == Math.rint(value)) {
+			return String.valueOf((long) value);
+		}
+		return String.format(Locale.ROOT, "%.3f", value);
+	}
+
+	static final class Options {
+		int clients = 16;
+
+		int durationSeconds = 10;
+
+		int warmupSeconds = 2;
+
+		int payloadBytes = 64;
+
+		String reuse = "keepalive";
+
+		String keyType = "rsa";
+
+		String cipher;
+
+		String certDir;
+
+		String out;
+
+		static Options parse(String[] args) {
+			Map<String, String> values = new HashMap<>();
+			for (String arg : args) {
+				if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+					throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+				}
+				int eq = arg.indexOf('=');
+				values.put(arg.substring(2, eq), arg.substring(eq + 1));
+			}
+
+			Options o = new Options();
+			o.clients = Integer.parseInt(values.getOrDefault("clients", String.valueOf(o.clients)));
+			o.durationSeconds = Integer.parseInt(values.getOrDefault("duration", String.valueOf(o.durationSeconds)));
+			o.warmupSeconds = Integer.parseInt(values.getOrDefault("warmup", String.valueOf(o.warmupSeconds)));
+			o.payloadBytes = Integer.parseInt(values.getOrDefault("payload", String.valueOf(o.payloadBytes)));
+			o.reuse = values.getOrDefault("reuse", o.reuse).toLowerCase(Locale.ROOT);
+			o.keyType = values.getOrDefault("key-type", o.keyType).toLowerCase(Locale.ROOT);
+			o.cipher = values.get("cipher");
+			o.certDir = values.get("certs");
+			o.out = values.get("out");
+
+			if (!List.of("keepalive", "resume", "none").contains(o.reuse)) {
+				throw new IllegalArgumentException("--reuse must be keepalive, resume or none");
+			}
+			if (!List.of("rsa", "ec").contains(o.keyType)) {
+				throw new IllegalArgumentException("--key-type must be rsa or ec");
+			}
+			if (o.payloadBytes > FrameCodec.MAX_PAYLOAD) {
+				throw new IllegalArgumentException("--payload must be <= " + FrameCodec.MAX_PAYLOAD);
+			}
+			return o;
+		}
+
+		String certPath(String fileName) {
+			if (certDir == null) {
+				return MtlsSocketExample.getCurrentFilePath(fileName);
+			}
+			return Path.of(certDir, fileName).toString();
+		}
+	}
+}
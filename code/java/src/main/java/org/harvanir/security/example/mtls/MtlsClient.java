@@ -0,0 +1,260 @@
+package org.harvanir.security.example.mtls;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+
+import org.harvanir.security.example.mtls.MtlsSocketExample.KeystoreInfo;
+import org.harvanir.security.example.mtls.MtlsSocketExample.TruststoreInfo;
+
+/**
+ * MtlsClient
+ *
+ * Client mTLS yang bisa dipakai ulang. {@link SSLContext} dibuat sekali saja
+ * (lewat {@link SslContextProvider}) sehingga keystore/truststore tidak di-load
+ * ulang dan client session cache milik context tetap hidup di antara koneksi.
+ * Koneksi berikutnya ke host:port yang sama me-resume session TLS 1.3 (PSK dari
+ * session ticket) tanpa verifikasi ulang certificate chain server.
+ *
+ * Handshake dihitung sebagai "full" jika trust manager dipanggil untuk
+ * memverifikasi certificate server; handshake yang di-resume tidak melewati
+ * langkah itu.
+ */
+final class MtlsClient implements AutoCloseable {
+
+	private final SslContextProvider contexts;
+
+	private final ClientConfig config;
+
+	private final Set<Object> verified = ConcurrentHashMap.newKeySet();
+
+	private final LongAdder fullHandshakes = new LongAdder();
+
+	private final LongAdder resumedHandshakes = new LongAdder();
+
+	private final MtlsMetrics metrics = MtlsMetrics.global();
+
+	private volatile KeyManager[] keyManagers;
+
+	private volatile TrustManager[] trustManagers;
+
+	MtlsClient(KeystoreInfo ksInfo, TruststoreInfo tsInfo) throws Exception {
+		this(ksInfo, tsInfo, ClientConfig.defaults());
+	}
+
+	MtlsClient(KeystoreInfo ksInfo, TruststoreInfo tsInfo, ClientConfig config) throws Exception {
+		this.config = config;
+		this.contexts = new SslContextProvider(ksInfo, tsInfo, () -> newContext(ksInfo, tsInfo));
+	}
+
+	private SSLContext newContext(KeystoreInfo ksInfo, TruststoreInfo tsInfo) throws Exception {
+		KeyManager[] km = MtlsSocketExample.loadKeyManagers(ksInfo);
+		TrustManager[] tm = trackHandshakes(
+				RevocationTrustManager.wrap(MtlsSocketExample.loadTrustManagers(tsInfo), RevocationChecker.shared()));
+		SSLContext ctx = MtlsSocketExample.createSslContext(km, tm);
+		keyManagers = km;
+		trustManagers = tm;
+
+		SSLSessionContext sessions = ctx.getClientSessionContext();
+		sessions.setSessionCacheSize(config.getSessionCacheSize());
+		sessions.setSessionTimeout(config.getSessionTimeoutSeconds());
+		return ctx;
+	}
+
+	/**
+	 * Reload context otomatis ketika client.p12/client-trust.p12 di-rotate.
+	 */
+	MtlsClient watchStores() throws IOException {
+		contexts.watch();
+		return this;
+	}
+
+	/**
+	 * Buka koneksi baru dan selesaikan handshake. Caller bertanggung jawab menutup
+	 * socket.
+	 */
+	SSLSocket connect(String host, int port) throws IOException {
+		// host + port dipakai JSSE sebagai key session cache; tanpa resumption setiap
+		// koneksi memakai context (dan session cache) baru
+		SSLContext ctx = config.isSessionResumption() ? contexts.get() : newUncachedContext();
+		SSLSocket socket = (SSLSocket) ctx.getSocketFactory().createSocket(host, port);
+		MtlsEvents.Handshake event = metrics.handshakeStarted("client", host + ":" + port);
+		try {
+			socket.setSoTimeout(config.getSoTimeoutMillis());
+			if (config.getCipherSuites() != null) {
+				socket.setEnabledCipherSuites(config.getCipherSuites());
+			}
+			socket.startHandshake();
+		} catch (IOException e) {
+			metrics.handshakeFailed(event, e);
+			verified.remove(socket);
+			socket.close();
+			throw e;
+		}
+
+		boolean resumed = !verified.remove(socket);
+		if (resumed) {
+			resumedHandshakes.increment();
+		} else {
+			fullHandshakes.increment();
+		}
+		metrics.handshakeCompleted(event, socket.getSession(), resumed);
+		return socket;
+	}
+
+	private SSLContext newUncachedContext() throws IOException {
+		try {
+			return MtlsSocketExample.createSslContext(keyManagers, trustManagers);
+		} catch (Exception e) {
+			throw new IOException("Error on creating SSLContext", e);
+		}
+	}
+
+	SSLContext getSslContext() {
+		return contexts.get();
+	}
+
+	long getFullHandshakes() {
+		return fullHandshakes.sum();
+	}
+
+	long getResumedHandshakes() {
+		return resumedHandshakes.sum();
+	}
+
+	@Override
+	public void close() {
+		contexts.close();
+	}
+
+	private TrustManager[] trackHandshakes(TrustManager[] trustManagers) {
+		TrustManager[] result = trustManagers.clone();
+		for (int i = 0; i < result.length; i++) {
+			if (result[i] instanceof X509ExtendedTrustManager tm) {
+				result[i] = new HandshakeTrackingTrustManager(tm);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Menandai socket/engine yang melewati verifikasi certificate server (full
+	 * handshake).
+	 */
+	private final class HandshakeTrackingTrustManager extends X509ExtendedTrustManager {
+
+		private final X509ExtendedTrustManager delegate;
+
+		HandshakeTrackingTrustManager(X509ExtendedTrustManager delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket)
+				throws CertificateException {
+			delegate.checkServerTrusted(chain, authType, socket);
+			verified.add(socket);
+		}
+
+		@Override
+		public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+				throws CertificateException {
+			delegate.checkServerTrusted(chain, authType, engine);
+			verified.add(engine);
+		}
+
+		@Override
+		public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+			delegate.checkServerTrusted(chain, authType);
+		}
+
+		@Override
+		public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket)
+				throws CertificateException {
+			delegate.checkClientTrusted(chain, authType, socket);
+		}
+
+		@Override
+		public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+				throws CertificateException {
+			delegate.checkClientTrusted(chain, authType, engine);
+		}
+
+		@Override
+		public void checkClientTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+			delegate.checkClientTrusted(chain, authType);
+		}
+
+		@Override
+		public X509Certificate[] getAcceptedIssuers() {
+			return delegate.getAcceptedIssuers();
+		}
+	}
+
+	static class ClientConfig {
+		private final int sessionCacheSize;
+
+		private final int sessionTimeoutSeconds;
+
+		private final int soTimeoutMillis;
+
+		private final String[] cipherSuites;
+
+		private final boolean sessionResumption;
+
+		ClientConfig(int sessionCacheSize, int sessionTimeoutSeconds, int soTimeoutMillis) {
+			this(sessionCacheSize, sessionTimeoutSeconds, soTimeoutMillis, null, true);
+		}
+
+		/**
+		 * @param cipherSuites      cipher suite yang boleh dinegosiasikan, atau null
+		 *                          untuk default JSSE.
+		 * @param sessionResumption false untuk memaksa full handshake di setiap
+		 *                          koneksi (misalnya untuk benchmark).
+		 */
+		ClientConfig(int sessionCacheSize, int sessionTimeoutSeconds, int soTimeoutMillis, String[] cipherSuites,
+				boolean sessionResumption) {
+			this.sessionCacheSize = sessionCacheSize;
+			this.sessionTimeoutSeconds = sessionTimeoutSeconds;
+			this.soTimeoutMillis = soTimeoutMillis;
+			this.cipherSuites = cipherSuites;
+			this.sessionResumption = sessionResumption;
+		}
+
+		static ClientConfig defaults() {
+			return new ClientConfig(1024, 3600, 30_000);
+		}
+
+		public int getSessionCacheSize() {
+			return sessionCacheSize;
+		}
+
+		public int getSessionTimeoutSeconds() {
+			return sessionTimeoutSeconds;
+		}
+
+		public int getSoTimeoutMillis() {
+			return soTimeoutMillis;
+		}
+
+		public String[] getCipherSuites() {
+			return cipherSuites;
+		}
+
+		public boolean isSessionResumption() {
+			return sessionResumption;
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package org.harvanir.security.example.mtls;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * MtlsConnectionPool
+ *
+ * Pool kecil berisi {@link MultiplexedConnection} ke satu host:port. Koneksi
+ * dibuat saat pertama dibutuhkan dan dipakai ulang selama masih hidup, jadi
+ * biaya handshake dibagi ke ribuan request. Request dikirim ke koneksi dengan
+ * in-flight paling sedikit; koneksi yang mati (idle timeout server, error I/O)
+ * diganti dengan koneksi baru, yang biasanya cukup resumed handshake berkat
+ * session cache {@link MtlsClient}.
+ *
+ * Slot berisi future koneksi dan diisi lewat CAS tanpa lock: thread yang
+ * memenangkan slot melakukan handshake, thread lain yang butuh koneksi baru
+ * ikut menunggu future yang sama, jadi request ke koneksi yang sudah terbuka
+ * tidak pernah tertahan oleh handshake.
+ */
+final class MtlsConnectionPool implements AutoCloseable {
+
+	private final MtlsClient client;
+
+	private final String host;
+
+	private final int port;
+
+	private final int maxInFlightPerConnection;
+
+	private final AtomicReferenceArray<CompletableFuture<MultiplexedConnection>> slots;
+
+	private volatile boolean closed;
+
+	MtlsConnectionPool(MtlsClient client, String host, int port, int size, int maxInFlightPerConnection) {
+		this.client = client;
+		this.host = host;
+		this.port = port;
+		this.maxInFlightPerConnection = maxInFlightPerConnection;
+		this.slots = new AtomicReferenceArray<>(size);
+	}
+
+	CompletableFuture<byte[]> send(byte[] payload) throws IOException, InterruptedException {
+		return acquire().send(payload);
+	}
+
+	CompletableFuture<String> send(String message) throws IOException, InterruptedException {
+		return acquire().send(message);
+	}
+
+	private MultiplexedConnection acquire() throws IOException {
+		for (;;) {
+			if (closed) {
+				throw new IOException("Pool closed");
+			}
+
+			MultiplexedConnection best = null;
+			CompletableFuture<MultiplexedConnection> pending = null;
+			int freeSlot = -1;
+			CompletableFuture<MultiplexedConnection> freeValue = null;
+			for (int i = 0; i < slots.length(); i++) {
+				CompletableFuture<MultiplexedConnection> slot = slots.get(i);
+				if (slot != null && !slot.isDone()) {
+					// handshake sedang berjalan di thread lain
+					if (pending == null) {
+						pending = slot;
+					}
+					continue;
+				}
+				MultiplexedConnection c = connectionOf(slot);
+				if (c == null || !c.isOpen()) {
+					if (freeSlot < 0) {
+						freeSlot = i;
+						freeValue = slot;
+					}
+				} else if (best == null || c.getInFlight() < best.getInFlight()) {
+					best = c;
+				}
+			}
+
+			// buka koneksi baru hanya jika semua koneksi yang ada sedang sibuk
+			if (best != null && (best.getInFlight() == 0 || freeSlot < 0 || pending != null)) {
+				return best;
+			}
+			if (pending != null) {
+				return await(pending);
+			}
+			MultiplexedConnection created = connect(freeSlot, freeValue);
+			if (created != null) {
+				return created;
+			}
+			// slot sudah diambil thread lain; pilih ulang
+		}
+	}
+
+	/**
+	 * @return koneksi baru, atau null jika slot sudah diganti thread lain.
+	 */
+	private MultiplexedConnection connect(int index, CompletableFuture<MultiplexedConnection> expected)
+			throws IOException {
+		CompletableFuture<MultiplexedConnection> reserved = new CompletableFuture<>();
+		if (!slots.compareAndSet(index, expected, reserved)) {
+			return null;
+		}
+		MultiplexedConnection dead = connectionOf(expected);
+		if (dead != null) {
+			dead.close();
+		}
+
+		MultiplexedConnection created;
+		try {
+			created = new MultiplexedConnection(client.connect(host, port), maxInFlightPerConnection);
+		} catch (IOException | RuntimeException e) {
+			reserved.completeExceptionally(e);
+			slots.compareAndSet(index, reserved, null);
+			throw e;
+		}
+		reserved.complete(created);
+		if (closed) {
+			// close() berjalan selama handshake dan mungkin tidak melihat koneksi ini
+			created.close();
+			throw new IOException("Pool closed");
+		}
+		return created;
+	}
+
+	private MultiplexedConnection await(CompletableFuture<MultiplexedConnection> pending) throws IOException {
+		try {
+			return pending.join();
+		} catch (CompletionException e) {
+			throw new IOException("Connecting to " + host + ":" + port + " failed", e.getCause());
+		}
+	}
+
+	private static MultiplexedConnection connectionOf(CompletableFuture<MultiplexedConnection> slot) {
+		return slot != null && slot.isDone() && !slot.isCompletedExceptionally() ? slot.join() : null;
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		for (int i = 0; i < slots.length(); i++) {
+			MultiplexedConnection c = connectionOf(slots.getAndSet(i, null));
+			if (c != null) {
+				c.close();
+			}
+		}
+	}
+}
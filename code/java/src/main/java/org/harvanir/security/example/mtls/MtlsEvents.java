@@ -0,0 +1,87 @@
+package org.harvanir.security.example.mtls;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * MtlsEvents
+ *
+ * Custom JFR event untuk jalur mTLS. Aktifkan dengan
+ * {@code -XX:StartFlightRecording} lalu buka hasilnya di JDK Mission Control
+ * (kategori "mTLS"), atau baca dengan {@code jfr print --events
+ * org.harvanir.mtls.*}. Jika recording tidak aktif, {@code commit()} hampir
+ * tanpa biaya.
+ */
+final class MtlsEvents {
+
+	private MtlsEvents() {
+	}
+
+	@Name("org.harvanir.mtls.Handshake")
+	@Label("mTLS Handshake")
+	@Category("mTLS")
+	@Description("Satu TLS handshake, sukses atau gagal")
+	@StackTrace(false)
+	static final class Handshake extends Event {
+
+		@Label("Side")
+		String side;
+
+		@Label("Peer")
+		String peer;
+
+		@Label("Protocol")
+		String protocol;
+
+		@Label("Cipher Suite")
+		String cipherSuite;
+
+		@Label("Resumed")
+		boolean resumed;
+
+		@Label("Success")
+		boolean success;
+
+		@Label("Error")
+		String error;
+
+		@Label("Peer Subject")
+		String peerSubject;
+
+		// transient: tidak ikut direkam, hanya untuk histogram durasi di MtlsMetrics
+		transient long startNanos;
+	}
+
+	@Name("org.harvanir.mtls.Connection")
+	@Label("mTLS Connection")
+	@Category("mTLS")
+	@Description("Satu koneksi mTLS dari accept sampai ditutup")
+	@StackTrace(false)
+	static final class Connection extends Event {
+
+		@Label("Side")
+		String side;
+
+		@Label("Peer")
+		String peer;
+
+		@Label("Bytes In")
+		@DataAmount
+		long bytesIn;
+
+		@Label("Bytes Out")
+		@DataAmount
+		long bytesOut;
+
+		@Label("Accept Queue Wait")
+		@Description("Waktu dari accept() sampai koneksi mulai dilayani")
+		@Timespan(Timespan.NANOSECONDS)
+		long acceptWait;
+	}
+}
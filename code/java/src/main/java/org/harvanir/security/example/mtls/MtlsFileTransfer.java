@@ -0,0 +1,181 @@
+package org.harvanir.security.example.mtls;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.net.ssl.SSLContext;
+
+import org.harvanir.security.example.mtls.MtlsSocketExample.KeystoreInfo;
+import org.harvanir.security.example.mtls.MtlsSocketExample.TruststoreInfo;
+
+/**
+ * MtlsFileTransfer
+ *
+ * Streaming file berukuran besar (multi-GB) lewat mTLS dengan memori konstan.
+ *
+ * Protokol: sender mengirim panjang file (int64) lalu isi file; receiver
+ * membalas jumlah byte yang diterima (int64) sebagai ack.
+ *
+ * - Mode {@link Mode#CHANNEL}: {@link FileChannel#read(ByteBuffer)} ke direct
+ * buffer dari {@link DirectBufferPool}, lalu dienkripsi per TLS record oleh
+ * {@link TlsChannel}.
+ * - Mode {@link Mode#MAPPED}: file di-map per window {@link #MAP_WINDOW} dan
+ * {@code MappedByteBuffer} langsung diberikan ke {@code SSLEngine.wrap}, tanpa
+ * salinan ke buffer perantara.
+ *
+ * Di sisi penerima plaintext di-unwrap ke direct buffer lalu ditulis ke
+ * {@link FileChannel}. Di kedua sisi hanya ada beberapa buffer berukuran tetap.
+ *
+ * Usage: {@code java MtlsFileTransfer [size-mb] [channel|mapped]}
+ */
+public class MtlsFileTransfer {
+
+	// beberapa TLS record per baca file, supaya syscall read tidak terlalu sering
+	private static final int CHUNK_SIZE = 4 * 16 * 1024;
+
+	private static final long MAP_WINDOW = 64L * 1024 * 1024;
+
+	private static final DirectBufferPool CHUNKS = new DirectBufferPool(CHUNK_SIZE, 64);
+
+	enum Mode {
+		CHANNEL, MAPPED
+	}
+
+	public static void main(String[] args) throws Exception {
+		long sizeMb = args.length > 0 ? Long.parseLong(args[0]) : 256;
+		Mode mode = args.length > 1 ? Mode.valueOf(args[1].toUpperCase()) : Mode.CHANNEL;
+
+		SSLContext serverCtx = MtlsSocketExample.createSslContext(
+				new KeystoreInfo(MtlsSocketExample.getCurrentFilePath("server.p12"), "serverpass"),
+				new TruststoreInfo(MtlsSocketExample.getCurrentFilePath("server-trust.p12"), "storepass"));
+		SSLContext clientCtx = MtlsSocketExample.createSslContext(
+				new KeystoreInfo(MtlsSocketExample.getCurrentFilePath("client.p12"), "clientpass"),
+				new TruststoreInfo(MtlsSocketExample.getCurrentFilePath("client-trust.p12"), "storepass"));
+
+		Path source = Files.createTempFile("mtls-transfer-src", ".bin");
+		Path target = Files.createTempFile("mtls-transfer-dst", ".bin");
+		try (ServerSocketChannel server = ServerSocketChannel.open()) {
+			server.bind(new InetSocketAddress("127.0.0.1", 0));
+			int port = ((InetSocketAddress) server.getLocalAddress()).getPort();
+			createSparseFile(source, sizeMb * 1024 * 1024);
+
+			Thread receiver = Thread.ofPlatform().name("mtls-file-receiver").start(() -> {
+				try (TlsChannel tls = TlsChannel.accept(serverCtx, server.accept())) {
+					long received = receive(tls, target);
+					System.out.println("[Server] Received " + received + " bytes into " + target);
+				} catch (IOException e) {
+					System.err.println("[Server] Receive failed: " + e.getMessage());
+				}
+			});
+
+			long start = System.nanoTime();
+			try (TlsChannel tls = TlsChannel.connect(clientCtx, "localhost", port)) {
+				long sent = send(tls, source, mode);
+				double seconds = (System.nanoTime() - start) / 1e9;
+				System.out.printf("[Client] Sent %d bytes (%s, %s) in %.2fs: %.1f MB/s%n", sent, mode,
+						tls.getSession().getCipherSuite(), seconds, sent / seconds / (1024 * 1024));
+			}
+			receiver.join();
+		} finally {
+			Files.deleteIfExists(source);
+			Files.deleteIfExists(target);
+		}
+	}
+
+	/**
+	 * Kirim file dan tunggu ack dari receiver.
+	 *
+	 * @return jumlah byte yang dikonfirmasi receiver.
+	 */
+	static long send(TlsChannel tls, Path file, Mode mode) throws IOException {
+		try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = fc.size();
+			tls.write(ByteBuffer.allocate(Long.BYTES).putLong(size).flip());
+
+			if (mode == Mode.MAPPED) {
+				sendMapped(tls, fc, size);
+			} else {
+				sendChannel(tls, fc);
+			}
+
+			ByteBuffer ack = ByteBuffer.allocate(Long.BYTES);
+			tls.readFully(ack);
+			long confirmed = ack.flip().getLong();
+			if (confirmed != size) {
+				throw new IOException("Receiver confirmed " + confirmed + " of " + size + " bytes");
+			}
+			return confirmed;
+		}
+	}
+
+	private static void sendChannel(TlsChannel tls, FileChannel fc) throws IOException {
+		ByteBuffer chunk = CHUNKS.acquire();
+		try {
+			while (fc.read(chunk) >= 0 || chunk.position() > 0) {
+				chunk.flip();
+				tls.write(chunk);
+				chunk.clear();
+			}
+		} finally {
+			CHUNKS.release(chunk);
+		}
+	}
+
+	private static void sendMapped(TlsChannel tls, FileChannel fc, long size) throws IOException {
+		for (long position = 0; position < size; position += MAP_WINDOW) {
+			// window dibatasi supaya address space yang di-map tetap kecil
+			MappedByteBuffer window = fc.map(FileChannel.MapMode.READ_ONLY, position,
+					Math.min(MAP_WINDOW, size - position));
+			tls.write(window);
+		}
+	}
+
+	/**
+	 * Terima file ke {@code target} lalu kirim ack.
+	 *
+	 * @return jumlah byte yang ditulis.
+	 */
+	static long receive(TlsChannel tls, Path target) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(Long.BYTES);
+		tls.readFully(header);
+		long size = header.flip().getLong();
+
+		long remaining = size;
+		ByteBuffer chunk = CHUNKS.acquire();
+		try (FileChannel fc = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (remaining > 0) {
+				chunk.clear().limit((int) Math.min(chunk.capacity(), remaining));
+				if (tls.read(chunk) < 0) {
+					throw new IOException("Connection closed with " + remaining + " bytes left");
+				}
+				chunk.flip();
+				remaining -= chunk.remaining();
+				while (chunk.hasRemaining()) {
+					fc.write(chunk);
+				}
+			}
+		} finally {
+			CHUNKS.release(chunk);
+		}
+
+		tls.write(ByteBuffer.allocate(Long.BYTES).putLong(size - remaining).flip());
+		return size - remaining;
+	}
+
+	private static void createSparseFile(Path file, long size) throws IOException {
+		try (FileChannel fc = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			// cukup tulis byte terakhir; sisanya sparse (nol)
+			if (size > 0) {
+				fc.write(ByteBuffer.wrap(new byte[] { 1 }), size - 1);
+			}
+		}
+	}
+}
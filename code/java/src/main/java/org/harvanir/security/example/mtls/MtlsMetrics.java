@@ -0,0 +1,174 @@
+package org.harvanir.security.example.mtls;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+
+/**
+ * MtlsMetrics
+ *
+ * Registry counter, gauge dan histogram untuk jalur mTLS, sekaligus helper
+ * yang mengisi {@link MtlsEvents}. Semua komponen mTLS memakai
+ * {@link #global()} supaya angka dari server blocking, NIO dan client
+ * terkumpul di satu tempat; {@link #snapshot()} mengembalikan dump teks
+ * sederhana.
+ */
+final class MtlsMetrics {
+
+	static final String HANDSHAKE_FULL = "mtls.handshake.full";
+
+	static final String HANDSHAKE_RESUMED = "mtls.handshake.resumed";
+
+	static final String HANDSHAKE_FAILED = "mtls.handshake.failed";
+
+	static final String HANDSHAKE_DURATION = "mtls.handshake.duration.nanos";
+
+	static final String HANDSHAKE_CIPHER_PREFIX = "mtls.handshake.cipher.";
+
+	static final String HANDSHAKE_PROTOCOL_PREFIX = "mtls.handshake.protocol.";
+
+	static final String BYTES_IN = "mtls.bytes.in";
+
+	static final String BYTES_OUT = "mtls.bytes.out";
+
+	static final String CONNECTIONS_ACTIVE = "mtls.connections.active";
+
+	static final String CONNECTIONS_TOTAL = "mtls.connections.total";
+
+	static final String ACCEPT_WAIT = "mtls.accept.wait.nanos";
+
+	static final String ADMISSION_REJECTED_PREFIX = "mtls.admission.rejected.";
+
+	static final String TRUST_CACHE_HIT = "mtls.trust.cache.hit";
+
+	static final String TRUST_CACHE_MISS = "mtls.trust.cache.miss";
+
+	static final String REVOCATION_CACHE_FRESH = "mtls.revocation.cache.fresh";
+
+	static final String REVOCATION_CACHE_STALE = "mtls.revocation.cache.stale";
+
+	static final String REVOCATION_CACHE_MISS = "mtls.revocation.cache.miss";
+
+	static final String REVOCATION_FETCH_FAILED = "mtls.revocation.fetch.failed";
+
+	static final String REVOCATION_REVOKED = "mtls.revocation.revoked";
+
+	private static final MtlsMetrics GLOBAL = new MtlsMetrics();
+
+	private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+	private final Map<String, AtomicLong> gauges = new ConcurrentHashMap<>();
+
+	private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+	static MtlsMetrics global() {
+		return GLOBAL;
+	}
+
+	LongAdder counter(String name) {
+		return counters.computeIfAbsent(name, n -> new LongAdder());
+	}
+
+	AtomicLong gauge(String name) {
+		return gauges.computeIfAbsent(name, n -> new AtomicLong());
+	}
+
+	LatencyHistogram histogram(String name) {
+		return histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+	}
+
+	/**
+	 * Mulai mengukur satu handshake. Panggil {@link #handshakeCompleted} atau
+	 * {@link #handshakeFailed} setelahnya.
+	 */
+	MtlsEvents.Handshake handshakeStarted(String side, String peer) {
+		MtlsEvents.Handshake event = new MtlsEvents.Handshake();
+		event.side = side;
+		event.peer = peer;
+		event.startNanos = System.nanoTime();
+		event.begin();
+		return event;
+	}
+
+	void handshakeCompleted(MtlsEvents.Handshake event, SSLSession session, boolean resumed) {
+		event.end();
+		histogram(HANDSHAKE_DURATION).record(System.nanoTime() - event.startNanos);
+		counter(resumed ? HANDSHAKE_RESUMED : HANDSHAKE_FULL).increment();
+		counter(HANDSHAKE_PROTOCOL_PREFIX + session.getProtocol()).increment();
+		counter(HANDSHAKE_CIPHER_PREFIX + session.getCipherSuite()).increment();
+
+		if (event.shouldCommit()) {
+			event.protocol = session.getProtocol();
+			event.cipherSuite = session.getCipherSuite();
+			event.resumed = resumed;
+			event.success = true;
+			try {
+				event.peerSubject = PeerCertificates.leafSubject(session.getPeerCertificates());
+			} catch (SSLPeerUnverifiedException e) {
+				event.peerSubject = null;
+			}
+			event.commit();
+		}
+	}
+
+	void handshakeFailed(MtlsEvents.Handshake event, Exception error) {
+		event.end();
+		counter(HANDSHAKE_FAILED).increment();
+		if (event.shouldCommit()) {
+			event.success = false;
+			event.error = error.getClass().getSimpleName() + ": " + error.getMessage();
+			event.commit();
+		}
+	}
+
+	/**
+	 * Session hasil resumption membawa creation time dari handshake awal, jadi
+	 * lebih tua dari awal handshake ini.
+	 */
+	static boolean isResumed(SSLSession session, long handshakeStartMillis) {
+		return session.getCreationTime() < handshakeStartMillis;
+	}
+
+	MtlsEvents.Connection connectionOpened(String side, String peer, long acceptWaitNanos) {
+		gauge(CONNECTIONS_ACTIVE).incrementAndGet();
+		counter(CONNECTIONS_TOTAL).increment();
+		histogram(ACCEPT_WAIT).record(acceptWaitNanos);
+
+		MtlsEvents.Connection event = new MtlsEvents.Connection();
+		event.side = side;
+		event.peer = peer;
+		event.acceptWait = acceptWaitNanos;
+		event.begin();
+		return event;
+	}
+
+	void connectionClosed(MtlsEvents.Connection event, long bytesIn, long bytesOut) {
+		gauge(CONNECTIONS_ACTIVE).decrementAndGet();
+		counter(BYTES_IN).add(bytesIn);
+		counter(BYTES_OUT).add(bytesOut);
+
+		event.end();
+		if (event.shouldCommit()) {
+			event.bytesIn = bytesIn;
+			event.bytesOut = bytesOut;
+			event.commit();
+		}
+	}
+
+	String snapshot() {
+		Map<String, String> values = new TreeMap<>();
+		counters.forEach((k, v) -> values.put(k, String.valueOf(v.sum())));
+		gauges.forEach((k, v) -> values.put(k, String.valueOf(v.get())));
+		histograms.forEach((k, h) -> values.put(k, "count=" + h.getCount() + " p50=" + h.getValueAtPercentile(50)
+				+ " p99=" + h.getValueAtPercentile(99) + " max=" + h.getMax()));
+
+		StringBuilder sb = new StringBuilder();
+		values.forEach((k, v) -> sb.append(k).append(' ').append(v).append(System.lineSeparator()));
+		return sb.toString();
+	}
+}
@@ -0,0 +1,400 @@
+package org.harvanir.security.example.mtls;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+
+/**
+ * MtlsServer
+ *
+ * Long-running accept loop untuk server mTLS. Setiap koneksi dilayani oleh
+ * satu virtual thread sehingga ribuan client idle tidak menghabiskan platform
+ * thread.
+ *
+ * - Setiap koneksi di-layer dengan {@link SSLContext} terbaru dari supplier
+ * (lihat {@link SslContextProvider}) dengan {@code setNeedClientAuth(true)},
+ * jadi cert rotation berlaku untuk koneksi baru tanpa membuka ulang listener.
+ * - Backlog dan idle timeout per koneksi diatur lewat {@link ServerConfig}.
+ * - {@link #close()} berhenti menerima koneksi baru, memberi waktu koneksi
+ * yang sedang berjalan untuk selesai, lalu menutup sisanya.
+ * - Handshake, koneksi aktif, byte in/out dan waktu tunggu setelah accept
+ * dicatat ke {@link MtlsMetrics} dan {@link MtlsEvents} (JFR).
+ * - Koneksi baru melewati {@link AdmissionController} di thread acceptor,
+ * sebelum ada kerja TLS apa pun. Koneksi yang ditolak langsung di-reset (RST)
+ * sehingga client cepat gagal dan bisa backoff, sementara koneksi yang sudah
+ * established tetap mendapat CPU.
+ */
+final class MtlsServer implements AutoCloseable {
+
+	private final Supplier<SSLContext> contexts;
+
+	private final ServerConfig config;
+
+	private final ConnectionHandler handler;
+
+	private final Set<SSLSocket> connections = ConcurrentHashMap.newKeySet();
+
+	private final MtlsMetrics metrics = MtlsMetrics.global();
+
+	private final AdmissionController admission;
+
+	private final CountDownLatch stopped = new CountDownLatch(1);
+
+	private ExecutorService workers;
+
+	private ServerSocket serverSocket;
+
+	private Thread acceptor;
+
+	private volatile boolean running;
+
+	MtlsServer(Supplier<SSLContext> contexts, ServerConfig config, ConnectionHandler handler) {
+		this.contexts = contexts;
+		this.config = config;
+		this.handler = handler;
+		this.admission = new AdmissionController(config.getAdmission());
+	}
+
+	synchronized MtlsServer start() throws IOException {
+		if (running) {
+			throw new IllegalStateException("Server already started");
+		}
+
+		serverSocket = new ServerSocket(config.getPort(), config.getBacklog(),
+				InetAddress.getByName(config.getBindAddress()));
+
+		workers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("mtls-conn-", 0).factory());
+		running = true;
+		acceptor = Thread.ofPlatform().name("mtls-acceptor").start(this::acceptLoop);
+
+		System.out.println("[Server] Listening on port " + getLocalPort() + ", waiting for mTLS clients...");
+		return this;
+	}
+
+	int getLocalPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	int getActiveConnections() {
+		return connections.size();
+	}
+
+	int getHandshakesInProgress() {
+		return admission.getHandshakesInProgress();
+	}
+
+	boolean isRunning() {
+		return running;
+	}
+
+	private void acceptLoop() {
+		try {
+			while (running) {
+				Socket raw;
+				long acceptedAt;
+				try {
+					raw = serverSocket.accept();
+					acceptedAt = System.nanoTime();
+				} catch (SocketException e) {
+					// listener ditutup oleh close()
+					if (!running) {
+						break;
+					}
+					System.err.println("[Server] Accept error: " + e.getMessage());
+					continue;
+				}
+
+				AdmissionController.Decision decision = admission.tryAdmit();
+				if (decision != AdmissionController.Decision.ADMITTED) {
+					reject(raw, decision);
+					continue;
+				}
+
+				SSLSocket socket;
+				try {
+					socket = wrap(raw);
+				} catch (IOException e) {
+					System.err.println("[Server] Error on creating TLS socket: " + e.getMessage());
+					admission.handshakeFinished();
+					admission.connectionClosed();
+					raw.close();
+					continue;
+				}
+
+				connections.add(socket);
+				try {
+					workers.execute(() -> serve(socket, acceptedAt));
+				} catch (RejectedExecutionException e) {
+					// close() sedang berjalan; kembalikan slot admission yang sudah diambil
+					connections.remove(socket);
+					admission.handshakeFinished();
+					admission.connectionClosed();
+					try {
+						socket.close();
+					} catch (IOException ignored) {
+						// socket memang sedang ditutup
+					}
+				}
+			}
+		} catch (IOException e) {
+			if (running) {
+				System.err.println("[Server] Accept loop terminated: " + e.getMessage());
+			}
+		} finally {
+			stopped.countDown();
+		}
+	}
+
+	/**
+	 * Tutup dengan RST (SO_LINGER 0): tidak ada TLS alert, tidak ada TIME_WAIT
+	 * di server.
+	 */
+	private void reject(Socket raw, AdmissionController.Decision decision) {
+		metrics.counter(MtlsMetrics.ADMISSION_REJECTED_PREFIX + decision.name().toLowerCase()).increment();
+		try {
+			raw.setSoLinger(true, 0);
+			raw.close();
+		} catch (IOException ignored) {
+			// peer sudah pergi
+		}
+	}
+
+	private SSLSocket wrap(Socket raw) throws IOException {
+		SSLSocket socket = (SSLSocket) contexts.get().getSocketFactory().createSocket(raw,
+				raw.getInetAddress().getHostAddress(), raw.getPort(), true);
+		socket.setUseClientMode(false);
+		socket.setNeedClientAuth(true);
+		return socket;
+	}
+
+	private void serve(SSLSocket s, long acceptedAt) {
+		String peer = s.getInetAddress().getHostAddress() + ":" + s.getPort();
+		MtlsEvents.Connection event = metrics.connectionOpened("server", peer, System.nanoTime() - acceptedAt);
+		CountingInputStream in = null;
+		CountingOutputStream out = null;
+
+		try (SSLSocket socket = s) {
+			try {
+				int handshakeTimeout = config.getAdmission().getHandshakeTimeoutMillis();
+				socket.setSoTimeout(handshakeTimeout > 0 ? handshakeTimeout : config.getIdleTimeoutMillis());
+				handshake(socket, peer);
+			} finally {
+				admission.handshakeFinished();
+			}
+			socket.setSoTimeout(config.getIdleTimeoutMillis());
+			in = new CountingInputStream(socket.getInputStream());
+			out = new CountingOutputStream(socket.getOutputStream());
+			handler.handle(socket, in, out);
+		} catch (Exception e) {
+			if (running) {
+				System.err.println("[Server] Connection handler error: " + e.getMessage());
+			}
+		} finally {
+			connections.remove(s);
+			admission.connectionClosed();
+			metrics.connectionClosed(event, in == null ? 0 : in.count, out == null ? 0 : out.count);
+		}
+	}
+
+	private void handshake(SSLSocket socket, String peer) throws IOException {
+		long startMillis = System.currentTimeMillis();
+		MtlsEvents.Handshake event = metrics.handshakeStarted("server", peer);
+		try {
+			socket.startHandshake();
+		} catch (IOException e) {
+			metrics.handshakeFailed(event, e);
+			throw e;
+		}
+		SSLSession session = socket.getSession();
+		metrics.handshakeCompleted(event, session, MtlsMetrics.isResumed(session, startMillis));
+	}
+
+	/**
+	 * Block sampai accept loop berhenti (dipanggil dari thread lain lewat
+	 * {@link #close()}).
+	 */
+	void awaitTermination() throws InterruptedException {
+		stopped.await();
+	}
+
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (!running) {
+				return;
+			}
+			running = false;
+		}
+
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			System.err.println("[Server] Error on closing listener: " + e.getMessage());
+		}
+
+		workers.shutdown();
+		try {
+			if (!workers.awaitTermination(config.getShutdownGraceMillis(), TimeUnit.MILLISECONDS)) {
+				// koneksi yang masih idle/aktif setelah grace period ditutup paksa
+				for (SSLSocket socket : connections) {
+					closeQuietly(socket);
+				}
+				workers.shutdownNow();
+				workers.awaitTermination(config.getShutdownGraceMillis(), TimeUnit.MILLISECONDS);
+			}
+			acceptor.join();
+		} catch (InterruptedException e) {
+			workers.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+		System.out.println("[Server] Stopped");
+	}
+
+	private static void closeQuietly(SSLSocket socket) {
+		try {
+			socket.close();
+		} catch (IOException ignored) {
+			// sudah ditutup oleh peer
+		}
+	}
+
+	/**
+	 * Dipanggil setelah handshake selesai. {@code in}/{@code out} adalah stream
+	 * socket yang menghitung byte aplikasi untuk metrics; handler sebaiknya
+	 * memakai keduanya, bukan {@code socket.getInputStream()}.
+	 */
+	@FunctionalInterface
+	interface ConnectionHandler {
+		void handle(SSLSocket socket, InputStream in, OutputStream out) throws Exception;
+	}
+
+	/**
+	 * Hanya dibaca oleh satu thread koneksi, jadi counter biasa sudah cukup.
+	 */
+	private static final class CountingInputStream extends FilterInputStream {
+		private long count;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				count += n;
+			}
+			return n;
+		}
+	}
+
+	/**
+	 * Penulis yang lebih dari satu thread harus sudah saling mengunci (lihat
+	 * {@link FramedConnectionHandler}).
+	 */
+	private static final class CountingOutputStream extends FilterOutputStream {
+		private long count;
+
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			// FilterOutputStream menulis byte per byte; langsung delegasikan
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+
+	static class ServerConfig {
+		private final String bindAddress;
+
+		private final int port;
+
+		private final int backlog;
+
+		private final int idleTimeoutMillis;
+
+		private final long shutdownGraceMillis;
+
+		private final AdmissionController.AdmissionConfig admission;
+
+		ServerConfig(String bindAddress, int port, int backlog, int idleTimeoutMillis, long shutdownGraceMillis) {
+			this(bindAddress, port, backlog, idleTimeoutMillis, shutdownGraceMillis,
+					AdmissionController.AdmissionConfig.unlimited());
+		}
+
+		ServerConfig(String bindAddress, int port, int backlog, int idleTimeoutMillis, long shutdownGraceMillis,
+				AdmissionController.AdmissionConfig admission) {
+			this.bindAddress = bindAddress;
+			this.port = port;
+			this.backlog = backlog;
+			this.idleTimeoutMillis = idleTimeoutMillis;
+			this.shutdownGraceMillis = shutdownGraceMillis;
+			this.admission = admission;
+		}
+
+		static ServerConfig defaults(int port) {
+			return new ServerConfig("0.0.0.0", port, 4096, 30_000, 5_000,
+					AdmissionController.AdmissionConfig.defaults());
+		}
+
+		public String getBindAddress() {
+			return bindAddress;
+		}
+
+		public int getPort() {
+			return port;
+		}
+
+		public int getBacklog() {
+			return backlog;
+		}
+
+		public int getIdleTimeoutMillis() {
+			return idleTimeoutMillis;
+		}
+
+		public long getShutdownGraceMillis() {
+			return shutdownGraceMillis;
+		}
+
+		public AdmissionController.AdmissionConfig getAdmission() {
+			return admission;
+		}
+	}
+}
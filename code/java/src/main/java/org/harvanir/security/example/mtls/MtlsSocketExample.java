@@ -4,24 +4,25 @@ import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyStore;
 import java.security.SecureRandom;
 import java.security.cert.Certificate;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.concurrent.Executors;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
+import javax.net.ssl.KeyManager;
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLServerSocket;
-import javax.net.ssl.SSLServerSocketFactory;
-import javax.net.ssl.SSLSession;
 import javax.net.ssl.SSLSocket;
-import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
 
 /**
@@ -32,6 +33,10 @@ import javax.net.ssl.TrustManagerFactory;
  * - Run server:
  * java MtlsSocketExample server <keystore.p12> <keystore-password>
  * <truststore.p12> <truststore-password> <port>
+ * - Run server in non-blocking SSLEngine/NIO mode: pass {@code nio} as the
+ * first argument to {@link #main(String[])}.
+ * - Run the length-prefixed, multiplexed protocol ({@link FrameCodec}) with a
+ * pooled, pipelining client: pass {@code framed} as the first argument.
  * - Run client:
  * java MtlsSocketExample client <keystore.p12> <keystore-password>
  * <truststore.p12> <truststore-password> <host:port>
@@ -49,32 +54,41 @@ public class MtlsSocketExample {
 		int serverPort = 8443;
 
 		// server server.p12 serverpass server-trust.p12 storepass 8443
-		Thread server = new Thread(() -> {
-			try {
-				System.out.println("current dir: " + System.getProperty("user.dir"));
-				KeystoreInfo ks = new KeystoreInfo(getCurrentFilePath("server.p12"), "serverpass");
-				TruststoreInfo ts = new TruststoreInfo(getCurrentFilePath("server-trust.p12"), "storepass");
-				runServer(ks, ts, serverPort);
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
-		});
-		server.start();
-
-		// client client.p12 clientpass client-trust.p12 storepass localhost 8443
-		Thread client = new Thread(() -> {
-			try {
-				KeystoreInfo ks = new KeystoreInfo(getCurrentFilePath("client.p12"), "clientpass");
-				TruststoreInfo ts = new TruststoreInfo(getCurrentFilePath("client-trust.p12"), "storepass");
-				runClient(ks, ts, host, serverPort);
-			} catch (Exception e) {
-				e.printStackTrace();
+		System.out.println("current dir: " + System.getProperty("user.dir"));
+		KeystoreInfo serverKs = new KeystoreInfo(getCurrentFilePath("server.p12"), "serverpass");
+		TruststoreInfo serverTs = new TruststoreInfo(getCurrentFilePath("server-trust.p12"), "storepass");
+
+		String mode = args.length > 0 ? args[0].toLowerCase() : "blocking";
+		MtlsServer.ServerConfig config = MtlsServer.ServerConfig.defaults(serverPort);
+
+		// cert rotation di server.p12/server-trust.p12 langsung dipakai koneksi baru
+		try (SslContextProvider contexts = new SslContextProvider(serverKs, serverTs).watch();
+				AutoCloseable _ = switch (mode) {
+				case "nio" -> runNioServer(contexts, config);
+				case "framed" -> runFramedServer(contexts, config);
+				default -> runServer(contexts, config);
+				}) {
+			// client client.p12 clientpass client-trust.p12 storepass localhost 8443
+			KeystoreInfo ks = new KeystoreInfo(getCurrentFilePath("client.p12"), "clientpass");
+			TruststoreInfo ts = new TruststoreInfo(getCurrentFilePath("client-trust.p12"), "storepass");
+
+			// SSLContext dibuat sekali; koneksi berikutnya me-resume session TLS 1.3
+			try (MtlsClient client = new MtlsClient(ks, ts)) {
+				if ("framed".equals(mode)) {
+					runFramedClient(client, host, serverPort);
+				} else {
+					for (int i = 0; i < 3; i++) {
+						runClient(client, host, serverPort);
+					}
+				}
+				System.out.println("[Client] Handshakes full: " + client.getFullHandshakes() + ", resumed: "
+						+ client.getResumedHandshakes());
 			}
-		});
-		client.start();
+			System.out.print(MtlsMetrics.global().snapshot());
+		}
 	}
 
-	private static String getCurrentFilePath(String fileName) {
+	static String getCurrentFilePath(String fileName) {
 		try {
 			return new File(System.getProperty("user.dir")).getParentFile().getParentFile()
 					.getPath() + File.separator + "mtls" + File.separator + fileName;
@@ -86,6 +100,16 @@ public class MtlsSocketExample {
 	}
 
 	static SSLContext createSslContext(KeystoreInfo ksInfo, TruststoreInfo tsInfo) throws Exception {
+		return createSslContext(loadKeyManagers(ksInfo), loadTrustManagers(tsInfo));
+	}
+
+	static SSLContext createSslContext(KeyManager[] keyManagers, TrustManager[] trustManagers) throws Exception {
+		SSLContext ctx = SSLContext.getInstance("TLSv1.3");
+		ctx.init(keyManagers, trustManagers, new SecureRandom());
+		return ctx;
+	}
+
+	static KeyManager[] loadKeyManagers(KeystoreInfo ksInfo) throws Exception {
 		// Load keystore (contains private key + cert)
 		KeyStore ks = KeyStore.getInstance(KEYSTORE_TYPE);
 		try (FileInputStream fis = new FileInputStream(ksInfo.getPath())) {
@@ -94,7 +118,10 @@ public class MtlsSocketExample {
 
 		KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
 		kmf.init(ks, ksInfo.getPass().toCharArray());
+		return kmf.getKeyManagers();
+	}
 
+	static TrustManager[] loadTrustManagers(TruststoreInfo tsInfo) throws Exception {
 		// Load truststore (contains CA certs)
 		KeyStore ts = KeyStore.getInstance(KEYSTORE_TYPE);
 		try (FileInputStream fis = new FileInputStream(tsInfo.getPath())) {
@@ -103,68 +130,80 @@ public class MtlsSocketExample {
 
 		TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
 		tmf.init(ts);
+		return tmf.getTrustManagers();
+	}
 
-		SSLContext ctx = SSLContext.getInstance("TLSv1.3");
-		ctx.init(kmf.getKeyManagers(), tmf.getTrustManagers(), new SecureRandom());
-		return ctx;
+	static MtlsServer runServer(KeystoreInfo ksInfo, TruststoreInfo tsInfo, int port) throws Exception {
+		return runServer(ksInfo, tsInfo, MtlsServer.ServerConfig.defaults(port));
 	}
 
-	static void runServer(KeystoreInfo ksInfo, TruststoreInfo tsInfo, int port) throws Exception {
-		SSLContext ctx = createSslContext(ksInfo, tsInfo);
-		SSLServerSocketFactory ssf = ctx.getServerSocketFactory();
-
-		try (SSLServerSocket serverSockeet = (SSLServerSocket) ssf.createServerSocket(port, 50,
-				InetAddress.getByName("0.0.0.0"))) {
-			serverSockeet.setNeedClientAuth(true);
-			System.out.println("[Server] Listening on port " + port + ", waiting for mTLS clients...");
-
-			var pool = Executors.newFixedThreadPool(1);
-			SSLSocket s = (SSLSocket) serverSockeet.accept();
-			pool.submit(() -> {
-				try (SSLSocket socket = s) {
-					socket.setSoTimeout(30_000);
-					System.out.println("[Server] Connection from " + socket.getInetAddress());
-					BufferedReader r = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-					BufferedWriter w = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
-
-					String line = r.readLine();
-					System.out.println("[Server] Received: " + line);
-					w.write("Hello from mTLS server. You said: " + line + "\n");
-					w.flush();
-
-					// print per cert subject if available
-					try {
-						SSLSession session = socket.getSession();
-						Certificate[] peerCerts = session.getPeerCertificates();
-
-						StringBuilder sb = new StringBuilder();
-						Arrays.stream(peerCerts)
-								.forEach(c -> {
-									sb.append("[Server] Client cert class: " + c.getType());
-									sb.append("\n");
-									sb.append("Client cert: " + Stream.of(c.toString().split("\\n")).limit(9)
-											.collect(Collectors.joining(System.lineSeparator())).toString());
-									sb.append("\n");
-								});
-						System.out.println(sb.toString());
-					} catch (Exception e) {
-						System.err.println("[Server] Error on get peer certs: " + e.getMessage());
-					}
-				} catch (Exception e) {
-					System.err.println("[Server] Connection handler error: " + e.getMessage());
-				}
-			});
+	static MtlsServer runServer(KeystoreInfo ksInfo, TruststoreInfo tsInfo, MtlsServer.ServerConfig config)
+			throws Exception {
+		return runServer(new SslContextProvider(ksInfo, tsInfo), config);
+	}
+
+	static MtlsServer runServer(Supplier<SSLContext> contexts, MtlsServer.ServerConfig config) throws Exception {
+		return new MtlsServer(contexts, config, MtlsSocketExample::handleConnection).start();
+	}
+
+	static NioMtlsServer runNioServer(KeystoreInfo ksInfo, TruststoreInfo tsInfo, MtlsServer.ServerConfig config)
+			throws Exception {
+		return runNioServer(new SslContextProvider(ksInfo, tsInfo), config);
+	}
+
+	static NioMtlsServer runNioServer(Supplier<SSLContext> contexts, MtlsServer.ServerConfig config)
+			throws Exception {
+		return new NioMtlsServer(contexts, config).start();
+	}
+
+	static MtlsServer runFramedServer(Supplier<SSLContext> contexts, MtlsServer.ServerConfig config)
+			throws Exception {
+		return new MtlsServer(contexts, config, new FramedConnectionHandler(MtlsSocketExample::handleRequest))
+				.start();
+	}
+
+	private static byte[] handleRequest(byte[] request) {
+		byte[] prefix = "Hello from mTLS server. You said: ".getBytes(StandardCharsets.UTF_8);
+		byte[] response = Arrays.copyOf(prefix, prefix.length + request.length);
+		System.arraycopy(request, 0, response, prefix.length, request.length);
+		return response;
+	}
+
+	private static void handleConnection(SSLSocket socket, InputStream in, OutputStream out) throws Exception {
+		System.out.println("[Server] Connection from " + socket.getInetAddress());
+		BufferedReader r = new BufferedReader(new InputStreamReader(in));
+		BufferedWriter w = new BufferedWriter(new OutputStreamWriter(out));
+
+		String line = r.readLine();
+		if (line == null) {
+			return;
 		}
+
+		// print per cert subject if available; ringkasan di-cache per certificate
+		try {
+			Certificate[] peerCerts = socket.getSession().getPeerCertificates();
+			System.out.print(PeerCertificates.describeChain("[Server] Client cert: ", peerCerts));
+		} catch (Exception e) {
+			System.err.println("[Server] Error on get peer certs: " + e.getMessage());
+		}
+
+		// satu koneksi bisa mengirim banyak request; idle timeout ditangani oleh
+		// SO_TIMEOUT dari MtlsServer
+		do {
+			System.out.println("[Server] Received: " + line);
+			w.write("Hello from mTLS server. You said: " + line + "\n");
+			w.flush();
+		} while ((line = r.readLine()) != null);
 	}
 
 	static void runClient(KeystoreInfo ksInfo, TruststoreInfo tsInfo, String host, int port) throws Exception {
-		SSLContext ctx = createSslContext(ksInfo, tsInfo);
-		SSLSocketFactory sf = ctx.getSocketFactory();
-
-		try (SSLSocket socket = (SSLSocket) sf.createSocket(host, port)) {
-			socket.setSoTimeout(30_000);
-			socket.startHandshake();
+		try (MtlsClient client = new MtlsClient(ksInfo, tsInfo)) {
+			runClient(client, host, port);
+		}
+	}
 
+	static void runClient(MtlsClient client, String host, int port) throws Exception {
+		try (SSLSocket socket = client.connect(host, port)) {
 			BufferedWriter w = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
 			BufferedReader r = new BufferedReader(new InputStreamReader(socket.getInputStream()));
 
@@ -176,28 +215,28 @@ public class MtlsSocketExample {
 			System.out.println("[Client] Server replied: " + reply);
 
 			try {
-				SSLSession session = socket.getSession();
-				java.security.cert.Certificate[] certs = session.getPeerCertificates();
+				Certificate[] certs = socket.getSession().getPeerCertificates();
 				System.out.println("[Client] server cert lenght: " + (certs != null ? certs.length : 0));
-				StringBuilder sb = new StringBuilder();
-
-				Arrays.stream(certs)
-						.forEach(c -> {
-							sb.append("[Client]");
-							sb.append("\n");
-							sb.append("Server cert class: " + c.getType());
-							sb.append("\n");
-							sb.append("Server cert: " + Stream.of(c.toString().split("\\n")).limit(9)
-									.collect(Collectors.joining(System.lineSeparator())).toString());
-							sb.append("\n");
-						});
-				System.out.println(sb.toString());
+				System.out.print(PeerCertificates.describeChain("[Client] Server cert: ", certs));
 			} catch (Exception e) {
 				System.err.println("[Client] Connection handler error: " + e.getMessage());
 			}
 		}
 	}
 
+	static void runFramedClient(MtlsClient client, String host, int port) throws Exception {
+		int requests = 1_000;
+		try (MtlsConnectionPool pool = new MtlsConnectionPool(client, host, port, 2, 256)) {
+			List<CompletableFuture<String>> replies = new ArrayList<>(requests);
+			for (int i = 0; i < requests; i++) {
+				replies.add(pool.send("Hello from mTLS client #" + i));
+			}
+			CompletableFuture.allOf(replies.toArray(CompletableFuture[]::new)).join();
+
+			System.out.println("[Client] " + requests + " pipelined replies, last: " + replies.getLast().join());
+		}
+	}
+
 	static class StoreInfo {
 		private String path;
 
@@ -0,0 +1,148 @@
+package org.harvanir.security.example.mtls;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.net.ssl.SSLSocket;
+
+import org.harvanir.security.example.mtls.FrameCodec.Frame;
+
+/**
+ * MultiplexedConnection
+ *
+ * Satu koneksi mTLS di sisi client yang membawa banyak request sekaligus
+ * (pipelining). Setiap request mendapat streamId unik; reader thread mencocokkan
+ * response ke {@link CompletableFuture} yang menunggu berdasarkan streamId,
+ * jadi response boleh datang dalam urutan apa pun.
+ */
+final class MultiplexedConnection implements AutoCloseable {
+
+	private static final int IO_BUFFER_SIZE = 16 * 1024;
+
+	private final SSLSocket socket;
+
+	private final DataInputStream in;
+
+	private final OutputStream out;
+
+	private final ReentrantLock writeLock = new ReentrantLock();
+
+	private final Map<Integer, CompletableFuture<byte[]>> pending = new ConcurrentHashMap<>();
+
+	private final AtomicInteger nextStreamId = new AtomicInteger();
+
+	private final Semaphore inFlight;
+
+	private final Thread reader;
+
+	private volatile boolean open = true;
+
+	MultiplexedConnection(SSLSocket socket, int maxInFlight) throws IOException {
+		this.socket = socket;
+		this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), IO_BUFFER_SIZE));
+		this.out = new BufferedOutputStream(socket.getOutputStream(), IO_BUFFER_SIZE);
+		this.inFlight = new Semaphore(maxInFlight);
+		// SO_TIMEOUT tidak dipakai: koneksi ini memang boleh idle di pool
+		socket.setSoTimeout(0);
+		this.reader = Thread.ofVirtual().name("mtls-mux-reader").start(this::readLoop);
+	}
+
+	/**
+	 * Kirim request tanpa menunggu response sebelumnya. Block hanya jika jumlah
+	 * request in-flight sudah mencapai batas.
+	 */
+	CompletableFuture<byte[]> send(byte[] payload) throws IOException, InterruptedException {
+		if (!open) {
+			throw new IOException("Connection closed");
+		}
+		inFlight.acquire();
+
+		int streamId = nextStreamId.incrementAndGet();
+		CompletableFuture<byte[]> future = new CompletableFuture<>();
+		pending.put(streamId, future);
+		future.whenComplete((r, e) -> inFlight.release());
+		if (!open) {
+			// reader berhenti sebelum future terdaftar
+			pending.remove(streamId);
+			future.completeExceptionally(new IOException("Connection closed"));
+			return future;
+		}
+
+		writeLock.lock();
+		try {
+			FrameCodec.write(out, streamId, FrameCodec.FLAG_NONE, payload);
+			out.flush();
+		} catch (IOException e) {
+			pending.remove(streamId);
+			future.completeExceptionally(e);
+			close();
+			throw e;
+		} finally {
+			writeLock.unlock();
+		}
+		return future;
+	}
+
+	CompletableFuture<String> send(String message) throws IOException, InterruptedException {
+		return send(message.getBytes(StandardCharsets.UTF_8))
+				.thenApply(b -> new String(b, StandardCharsets.UTF_8));
+	}
+
+	boolean isOpen() {
+		return open && !socket.isClosed();
+	}
+
+	int getInFlight() {
+		return pending.size();
+	}
+
+	private void readLoop() {
+		Exception failure = null;
+		try {
+			Frame frame;
+			while ((frame = FrameCodec.read(in)) != null) {
+				CompletableFuture<byte[]> future = pending.remove(frame.getStreamId());
+				if (future == null) {
+					System.err.println("[Client] Response for unknown stream " + frame.getStreamId());
+					continue;
+				}
+				if (frame.isError()) {
+					future.completeExceptionally(
+							new IOException("Server error: " + new String(frame.getPayload(), StandardCharsets.UTF_8)));
+				} else {
+					future.complete(frame.getPayload());
+				}
+			}
+		} catch (IOException e) {
+			failure = e;
+		} finally {
+			open = false;
+			IOException cause = new IOException("Connection closed", failure);
+			pending.values().forEach(f -> f.completeExceptionally(cause));
+			pending.clear();
+		}
+	}
+
+	@Override
+	public void close() {
+		open = false;
+		try {
+			socket.close();
+			reader.join();
+		} catch (IOException ignored) {
+			// socket sudah ditutup
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
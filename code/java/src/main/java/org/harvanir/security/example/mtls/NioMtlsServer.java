@@ -0,0 +1,567 @@
+package org.harvanir.security.example.mtls;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+
+/**
+ * NioMtlsServer
+ *
+ * Mode server non-blocking berbasis {@link SSLEngine} dan {@link Selector}.
+ * Satu thread acceptor membagi koneksi secara round-robin ke N reactor (default
+ * satu per core). Setiap reactor menjalankan state machine wrap/unwrap untuk
+ * koneksinya sendiri, sedangkan delegated task handshake (verifikasi
+ * sertifikat, operasi kunci) dijalankan di pool terpisah supaya reactor tidak
+ * ikut terblokir.
+ *
+ * Buffer net dan app diambil dari {@link DirectBufferPool} hanya saat ada data
+ * yang sedang diproses dan dikembalikan ketika kosong, sehingga koneksi idle
+ * hanya menyimpan state SSLEngine-nya saja.
+ *
+ * Protokol aplikasinya sama dengan {@link MtlsSocketExample}: satu baris
+ * request dibalas satu baris response. Metrics dan JFR event sama dengan
+ * {@link MtlsServer}; byte in/out dihitung dari plaintext aplikasi.
+ */
+final class NioMtlsServer implements AutoCloseable {
+
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+	private final Supplier<SSLContext> contexts;
+
+	private final MtlsServer.ServerConfig config;
+
+	private final Reactor[] reactors;
+
+	private final DirectBufferPool netPool;
+
+	private final DirectBufferPool appPool;
+
+	private final ExecutorService handshakeTasks;
+
+	private final MtlsMetrics metrics = MtlsMetrics.global();
+
+	private ServerSocketChannel serverChannel;
+
+	private Thread acceptor;
+
+	private volatile boolean running;
+
+	NioMtlsServer(Supplier<SSLContext> contexts, MtlsServer.ServerConfig config) {
+		this(contexts, config, Runtime.getRuntime().availableProcessors());
+	}
+
+	NioMtlsServer(Supplier<SSLContext> contexts, MtlsServer.ServerConfig config, int reactorCount) {
+		this.contexts = contexts;
+		this.config = config;
+		this.reactors = new Reactor[reactorCount];
+
+		SSLSession probe = contexts.get().createSSLEngine().getSession();
+		this.netPool = new DirectBufferPool(probe.getPacketBufferSize(), reactorCount * 64);
+		this.appPool = new DirectBufferPool(probe.getApplicationBufferSize(), reactorCount * 64);
+		this.handshakeTasks = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+				Thread.ofPlatform().name("mtls-handshake-", 0).daemon().factory());
+	}
+
+	synchronized NioMtlsServer start() throws IOException {
+		if (running) {
+			throw new IllegalStateException("Server already started");
+		}
+
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(new InetSocketAddress(config.getBindAddress(), config.getPort()), config.getBacklog());
+
+		for (int i = 0; i < reactors.length; i++) {
+			reactors[i] = new Reactor(Selector.open());
+			reactors[i].thread = Thread.ofPlatform().name("mtls-reactor-" + i).start(reactors[i]);
+		}
+
+		running = true;
+		acceptor = Thread.ofPlatform().name("mtls-nio-acceptor").start(this::acceptLoop);
+
+		System.out.println("[Server] NIO mode with " + reactors.length + " reactors listening on port "
+				+ getLocalPort() + ", waiting for mTLS clients...");
+		return this;
+	}
+
+	int getLocalPort() {
+		return serverChannel.socket().getLocalPort();
+	}
+
+	int getActiveConnections() {
+		int total = 0;
+		for (Reactor reactor : reactors) {
+			total += reactor.connections;
+		}
+		return total;
+	}
+
+	private void acceptLoop() {
+		int next = 0;
+		while (running) {
+			try {
+				SocketChannel channel = serverChannel.accept();
+				long acceptedAt = System.nanoTime();
+				channel.configureBlocking(false);
+				channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+				// context terbaru, supaya cert rotation berlaku untuk koneksi baru
+				SSLEngine engine = contexts.get().createSSLEngine();
+				engine.setUseClientMode(false);
+				engine.setNeedClientAuth(true);
+
+				reactors[next].register(new Connection(channel, engine, reactors[next], acceptedAt));
+				next = (next + 1) % reactors.length;
+			} catch (ClosedChannelException e) {
+				break;
+			} catch (IOException e) {
+				if (running) {
+					System.err.println("[Server] Accept error: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (!running) {
+				return;
+			}
+			running = false;
+		}
+
+		try {
+			serverChannel.close();
+			acceptor.join();
+			for (Reactor reactor : reactors) {
+				reactor.shutdown();
+			}
+			handshakeTasks.shutdown();
+			handshakeTasks.awaitTermination(config.getShutdownGraceMillis(), TimeUnit.MILLISECONDS);
+		} catch (IOException e) {
+			System.err.println("[Server] Error on closing listener: " + e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		System.out.println("[Server] Stopped");
+	}
+
+	/**
+	 * Satu selector + satu thread. Semua akses ke {@link Connection} milik
+	 * reactor ini terjadi di thread reactor, kecuali delegated task yang hasilnya
+	 * dikembalikan lewat {@link #execute(Runnable)}.
+	 */
+	private final class Reactor implements Runnable {
+
+		private final Selector selector;
+
+		private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+
+		private Thread thread;
+
+		private volatile int connections;
+
+		private volatile boolean stopping;
+
+		Reactor(Selector selector) {
+			this.selector = selector;
+		}
+
+		void register(Connection connection) {
+			execute(() -> {
+				connection.opened();
+				try {
+					connection.key = connection.channel.register(selector, SelectionKey.OP_READ, connection);
+					connections++;
+					connection.touch();
+				} catch (IOException e) {
+					connection.close(e);
+				}
+			});
+		}
+
+		void execute(Runnable task) {
+			pending.offer(task);
+			selector.wakeup();
+		}
+
+		@Override
+		public void run() {
+			long sweepInterval = Math.max(100, config.getIdleTimeoutMillis() / 4);
+			long nextSweep = System.currentTimeMillis() + sweepInterval;
+			try {
+				while (!stopping) {
+					selector.select(sweepInterval);
+					runPending();
+
+					for (SelectionKey key : selector.selectedKeys()) {
+						Connection connection = (Connection) key.attachment();
+						try {
+							if (!key.isValid()) {
+								connection.close();
+							} else if (key.isWritable()) {
+								connection.onWritable();
+							} else if (key.isReadable()) {
+								connection.onReadable();
+							}
+						} catch (IOException | RuntimeException e) {
+							System.err.println("[Server] Connection handler error: " + e.getMessage());
+							connection.close(e);
+						}
+					}
+					selector.selectedKeys().clear();
+
+					long now = System.currentTimeMillis();
+					if (now >= nextSweep) {
+						closeIdle(now);
+						nextSweep = now + sweepInterval;
+					}
+				}
+			} catch (IOException | ClosedSelectorException e) {
+				if (!stopping) {
+					System.err.println("[Server] Reactor terminated: " + e.getMessage());
+				}
+			} finally {
+				for (SelectionKey key : selector.keys()) {
+					((Connection) key.attachment()).close();
+				}
+				try {
+					selector.close();
+				} catch (IOException ignored) {
+					// reactor sudah berhenti
+				}
+			}
+		}
+
+		private void runPending() {
+			Runnable task;
+			while ((task = pending.poll()) != null) {
+				task.run();
+			}
+		}
+
+		private void closeIdle(long now) {
+			for (SelectionKey key : selector.keys()) {
+				Connection connection = (Connection) key.attachment();
+				if (now - connection.lastActivity > config.getIdleTimeoutMillis()) {
+					connection.close();
+				}
+			}
+		}
+
+		void shutdown() throws InterruptedException {
+			stopping = true;
+			selector.wakeup();
+			thread.join(config.getShutdownGraceMillis());
+		}
+	}
+
+	/**
+	 * State per koneksi. Buffer hanya dipegang selama masih ada data di dalamnya.
+	 */
+	private final class Connection {
+
+		private final SocketChannel channel;
+
+		private final SSLEngine engine;
+
+		private final Reactor reactor;
+
+		private final long acceptedAt;
+
+		private final Queue<ByteBuffer> outbound = new ArrayDeque<>();
+
+		private ByteArrayOutputStream partialLine;
+
+		private SelectionKey key;
+
+		private ByteBuffer netIn;
+
+		private ByteBuffer netOut;
+
+		private boolean tasksRunning;
+
+		private boolean closed;
+
+		private long lastActivity;
+
+		private MtlsEvents.Connection connectionEvent;
+
+		private MtlsEvents.Handshake handshakeEvent;
+
+		private long handshakeStartMillis;
+
+		private long bytesIn;
+
+		private long bytesOut;
+
+		Connection(SocketChannel channel, SSLEngine engine, Reactor reactor, long acceptedAt) {
+			this.channel = channel;
+			this.engine = engine;
+			this.reactor = reactor;
+			this.acceptedAt = acceptedAt;
+		}
+
+		void opened() {
+			String peer = channel.socket().getInetAddress().getHostAddress() + ":" + channel.socket().getPort();
+			connectionEvent = metrics.connectionOpened("server", peer, System.nanoTime() - acceptedAt);
+			handshakeStartMillis = System.currentTimeMillis();
+			handshakeEvent = metrics.handshakeStarted("server", peer);
+		}
+
+		private void onHandshakeStatus(HandshakeStatus status) {
+			if (status == HandshakeStatus.FINISHED && handshakeEvent != null) {
+				SSLSession session = engine.getSession();
+				metrics.handshakeCompleted(handshakeEvent, session,
+						MtlsMetrics.isResumed(session, handshakeStartMillis));
+				handshakeEvent = null;
+			}
+		}
+
+		void touch() {
+			lastActivity = System.currentTimeMillis();
+		}
+
+		void onReadable() throws IOException {
+			if (netIn == null) {
+				netIn = netPool.acquire();
+			}
+			int n = channel.read(netIn);
+			if (n < 0) {
+				try {
+					engine.closeInbound();
+				} catch (SSLException ignored) {
+					// peer menutup tanpa close_notify
+				}
+				close();
+				return;
+			}
+			touch();
+			process();
+		}
+
+		void onWritable() throws IOException {
+			if (flush()) {
+				process();
+			}
+		}
+
+		/**
+		 * Jalankan state machine sampai harus menunggu: data dari jaringan, socket
+		 * writable, atau delegated task selesai.
+		 */
+		private void process() throws IOException {
+			while (!closed && !tasksRunning && netOut == null) {
+				HandshakeStatus hs = engine.getHandshakeStatus();
+
+				if (hs == HandshakeStatus.NEED_TASK) {
+					runDelegatedTasks();
+					return;
+				}
+
+				if (hs == HandshakeStatus.NEED_WRAP) {
+					wrap(EMPTY);
+					continue;
+				}
+
+				if (hs == HandshakeStatus.NOT_HANDSHAKING && !outbound.isEmpty()) {
+					ByteBuffer src = outbound.peek();
+					wrap(src);
+					if (!src.hasRemaining()) {
+						outbound.poll();
+					}
+					continue;
+				}
+
+				if (engine.isInboundDone()) {
+					close();
+					return;
+				}
+
+				boolean hasNetData = netIn != null && netIn.position() > 0;
+				if (!hasNetData && hs != HandshakeStatus.NEED_UNWRAP_AGAIN) {
+					break;
+				}
+				if (!unwrap()) {
+					break;
+				}
+			}
+			updateInterest();
+		}
+
+		/**
+		 * @return false jika butuh data tambahan dari jaringan.
+		 */
+		private boolean unwrap() throws IOException {
+			if (netIn == null) {
+				netIn = netPool.acquire();
+			}
+			ByteBuffer appIn = appPool.acquire();
+			try {
+				netIn.flip();
+				SSLEngineResult result = engine.unwrap(netIn, appIn);
+				netIn.compact();
+				bytesIn += result.bytesProduced();
+				onHandshakeStatus(result.getHandshakeStatus());
+
+				switch (result.getStatus()) {
+				case OK:
+					appIn.flip();
+					onApplicationData(appIn);
+					return result.bytesConsumed() > 0 || result.bytesProduced() > 0
+							|| result.getHandshakeStatus() != HandshakeStatus.NEED_UNWRAP;
+				case BUFFER_UNDERFLOW:
+					return false;
+				case CLOSED:
+					engine.closeOutbound();
+					return true;
+				case BUFFER_OVERFLOW:
+				default:
+					throw new SSLException("Unexpected unwrap status " + result.getStatus());
+				}
+			} finally {
+				appPool.release(appIn);
+				if (netIn.position() == 0) {
+					netPool.release(netIn);
+					netIn = null;
+				}
+			}
+		}
+
+		private void wrap(ByteBuffer src) throws IOException {
+			netOut = netPool.acquire();
+			SSLEngineResult result = engine.wrap(src, netOut);
+			bytesOut += result.bytesConsumed();
+			onHandshakeStatus(result.getHandshakeStatus());
+			if (result.getStatus() != SSLEngineResult.Status.OK
+					&& result.getStatus() != SSLEngineResult.Status.CLOSED) {
+				throw new SSLException("Unexpected wrap status " + result.getStatus());
+			}
+			netOut.flip();
+			flush();
+			if (result.getStatus() == SSLEngineResult.Status.CLOSED && netOut == null) {
+				close();
+			}
+		}
+
+		/**
+		 * @return true jika seluruh isi netOut sudah terkirim.
+		 */
+		private boolean flush() throws IOException {
+			if (netOut == null) {
+				return true;
+			}
+			channel.write(netOut);
+			if (netOut.hasRemaining()) {
+				return false;
+			}
+			netPool.release(netOut);
+			netOut = null;
+			return true;
+		}
+
+		private void runDelegatedTasks() {
+			tasksRunning = true;
+			updateInterest();
+			handshakeTasks.execute(() -> {
+				Runnable task;
+				while ((task = engine.getDelegatedTask()) != null) {
+					task.run();
+				}
+				reactor.execute(() -> {
+					tasksRunning = false;
+					try {
+						process();
+					} catch (IOException | RuntimeException e) {
+						System.err.println("[Server] Handshake error: " + e.getMessage());
+						close(e);
+					}
+				});
+			});
+		}
+
+		private void onApplicationData(ByteBuffer appIn) {
+			while (appIn.hasRemaining()) {
+				byte b = appIn.get();
+				if (b == '\n') {
+					String line = partialLine == null ? "" : partialLine.toString(StandardCharsets.UTF_8);
+					partialLine = null;
+					System.out.println("[Server] Received: " + line);
+					outbound.offer(ByteBuffer.wrap(("Hello from mTLS server. You said: " + line + "\n")
+							.getBytes(StandardCharsets.UTF_8)));
+				} else {
+					if (partialLine == null) {
+						partialLine = new ByteArrayOutputStream(128);
+					}
+					partialLine.write(b);
+				}
+			}
+		}
+
+		private void updateInterest() {
+			if (closed || key == null || !key.isValid()) {
+				return;
+			}
+			int ops = 0;
+			if (!tasksRunning) {
+				ops = netOut != null ? SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+			}
+			key.interestOps(ops);
+		}
+
+		void close() {
+			close(null);
+		}
+
+		void close(Exception cause) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			if (handshakeEvent != null) {
+				metrics.handshakeFailed(handshakeEvent,
+						cause != null ? cause : new SSLException("Connection closed during handshake"));
+				handshakeEvent = null;
+			}
+			if (connectionEvent != null) {
+				metrics.connectionClosed(connectionEvent, bytesIn, bytesOut);
+			}
+			if (key != null) {
+				key.cancel();
+				reactor.connections--;
+			}
+			try {
+				channel.close();
+			} catch (IOException ignored) {
+				// channel sudah ditutup
+			}
+			netPool.release(netIn);
+			netPool.release(netOut);
+			netIn = null;
+			netOut = null;
+		}
+	}
+}
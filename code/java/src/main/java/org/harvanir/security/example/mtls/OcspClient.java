@@ -0,0 +1,287 @@
+package org.harvanir.security.example.mtls;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OcspClient
+ *
+ * Client OCSP (RFC 6960) minimal: membangun request untuk satu certificate,
+ * mengirimnya lewat HTTP POST, lalu mem-parse dan memverifikasi signature
+ * response. Signer yang diterima adalah issuer itu sendiri atau responder
+ * terdelegasi (certificate dengan EKU OCSPSigning yang ditandatangani issuer).
+ *
+ * Tidak memakai nonce: response memang dimaksudkan untuk di-cache sampai
+ * {@code nextUpdate} (lihat {@link RevocationChecker}).
+ */
+final class OcspClient {
+
+	static final String AIA_EXTENSION = "1.3.6.1.5.5.7.1.1";
+
+	private static final String OCSP_ACCESS_METHOD = "1.3.6.1.5.5.7.48.1";
+
+	private static final String BASIC_RESPONSE = "1.3.6.1.5.5.7.48.1.1";
+
+	private static final String OCSP_SIGNING = "1.3.6.1.5.5.7.3.9";
+
+	// toleransi beda jam dengan responder untuk thisUpdate
+	static final Duration CLOCK_SKEW = Duration.ofMinutes(5);
+
+	// 1.3.14.3.2.26 (SHA-1), hash CertID yang didukung semua responder
+	private static final byte[] SHA1_ALGORITHM = Der.encode(Der.SEQUENCE,
+			Der.encode(Der.OID, new byte[] { 0x2b, 0x0e, 0x03, 0x02, 0x1a }), Der.encode(Der.NULL));
+
+	// algoritma hash CertID di response -> nama MessageDigest
+	private static final Map<String, String> CERT_ID_DIGESTS = Map.of(
+			"1.3.14.3.2.26", "SHA-1",
+			"2.16.840.1.101.3.4.2.1", "SHA-256",
+			"2.16.840.1.101.3.4.2.2", "SHA-384",
+			"2.16.840.1.101.3.4.2.3", "SHA-512");
+
+	private static final Map<String, String> SIGNATURE_ALGORITHMS = Map.of(
+			"1.2.840.113549.1.1.5", "SHA1withRSA",
+			"1.2.840.113549.1.1.11", "SHA256withRSA",
+			"1.2.840.113549.1.1.12", "SHA384withRSA",
+			"1.2.840.113549.1.1.13", "SHA512withRSA",
+			"1.2.840.10045.4.3.2", "SHA256withECDSA",
+			"1.2.840.10045.4.3.3", "SHA384withECDSA",
+			"1.2.840.10045.4.3.4", "SHA512withECDSA",
+			"1.3.101.112", "Ed25519");
+
+	private final HttpClient http;
+
+	private final Duration timeout;
+
+	OcspClient(HttpClient http, Duration timeout) {
+		this.http = http;
+		this.timeout = timeout;
+	}
+
+	/**
+	 * @return URL responder OCSP dari extension AIA, atau null.
+	 */
+	static URI responderOf(X509Certificate cert) throws IOException {
+		byte[] ext = cert.getExtensionValue(AIA_EXTENSION);
+		if (ext == null) {
+			return null;
+		}
+		for (Der access : Der.parse(ext).unwrap().children()) {
+			Der location = access.child(1);
+			if (OCSP_ACCESS_METHOD.equals(access.child(0).oid()) && location.isContext(6)) {
+				return URI.create(new String(location.value(), StandardCharsets.US_ASCII));
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Minta dan verifikasi status satu certificate.
+	 */
+	Response fetch(URI responder, X509Certificate cert, X509Certificate issuer) throws IOException {
+		byte[] certId = certId(cert, issuer);
+		byte[] request = Der.encode(Der.SEQUENCE, // OCSPRequest
+				Der.encode(Der.SEQUENCE, // TBSRequest
+						Der.encode(Der.SEQUENCE, // requestList
+								Der.encode(Der.SEQUENCE, certId)))); // Request
+
+		HttpRequest httpRequest = HttpRequest.newBuilder(responder)
+				.timeout(timeout)
+				.header("Content-Type", "application/ocsp-request")
+				.header("Accept", "application/ocsp-response")
+				.POST(HttpRequest.BodyPublishers.ofByteArray(request))
+				.build();
+		HttpResponse<byte[]> httpResponse;
+		try {
+			httpResponse = http.send(httpRequest, HttpResponse.BodyHandlers.ofByteArray());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for OCSP responder", e);
+		}
+		if (httpResponse.statusCode() != 200) {
+			throw new IOException("OCSP responder " + responder + " returned HTTP " + httpResponse.statusCode());
+		}
+		return parse(httpResponse.body(), cert, issuer);
+	}
+
+	private static byte[] certId(X509Certificate cert, X509Certificate issuer) throws IOException {
+		byte[][] hashes = issuerHashes("SHA-1", issuer);
+		return Der.encode(Der.SEQUENCE, SHA1_ALGORITHM, Der.encode(Der.OCTET_STRING, hashes[0]),
+				Der.encode(Der.OCTET_STRING, hashes[1]), Der.encode(Der.INTEGER, cert.getSerialNumber().toByteArray()));
+	}
+
+	/**
+	 * @return issuerNameHash dan issuerKeyHash CertID dengan algoritma
+	 *         {@code digest}.
+	 */
+	private static byte[][] issuerHashes(String digest, X509Certificate issuer) throws IOException {
+		try {
+			MessageDigest md = MessageDigest.getInstance(digest);
+			byte[] nameHash = md.digest(issuer.getSubjectX500Principal().getEncoded());
+			// hash dari BIT STRING subjectPublicKey, bukan seluruh SubjectPublicKeyInfo
+			byte[] keyBits = Der.parse(issuer.getPublicKey().getEncoded()).child(1).bits();
+			return new byte[][] { nameHash, md.digest(keyBits) };
+		} catch (GeneralSecurityException e) {
+			throw new IOException("Cannot build OCSP CertID", e);
+		}
+	}
+
+	static Response parse(byte[] body, X509Certificate cert, X509Certificate issuer) throws IOException {
+		Der ocspResponse = Der.parse(body);
+		int status = ocspResponse.child(0).value()[0];
+		if (status != 0) {
+			throw new IOException("OCSP response status " + status);
+		}
+		Der responseBytes = ocspResponse.child(1).child(0);
+		if (!BASIC_RESPONSE.equals(responseBytes.child(0).oid())) {
+			throw new IOException("Unsupported OCSP response type " + responseBytes.child(0).oid());
+		}
+
+		Der basic = responseBytes.child(1).unwrap();
+		List<Der> parts = basic.children();
+		Der tbs = parts.get(0);
+		verifySignature(tbs.encoded(), parts.get(1).child(0).oid(), parts.get(2).bits(),
+				parts.size() > 3 ? parts.get(3).child(0).children() : List.of(), issuer);
+
+		BigInteger serial = cert.getSerialNumber();
+		List<Der> tbsParts = tbs.children();
+		// versi [0] opsional, lalu responderID dan producedAt
+		int index = tbsParts.get(0).isContext(0) ? 3 : 2;
+		for (Der single : tbsParts.get(index).children()) {
+			List<Der> fields = single.children();
+			if (!matches(fields.get(0), serial, issuer)) {
+				continue;
+			}
+			Der certStatus = fields.get(1);
+			Instant thisUpdate = fields.get(2).time();
+			Instant nextUpdate = null;
+			for (int i = 3; i < fields.size(); i++) {
+				if (fields.get(i).isContext(0)) {
+					nextUpdate = fields.get(i).child(0).time();
+				}
+			}
+			// response lama yang di-replay (OCSP lewat HTTP biasa) atau dari cache CDN
+			// tetap bertanda tangan valid, jadi masa berlakunya harus dicek sendiri
+			Instant now = Instant.now();
+			if (thisUpdate.isAfter(now.plus(CLOCK_SKEW))) {
+				throw new IOException("OCSP response thisUpdate " + thisUpdate + " is in the future");
+			}
+			if (nextUpdate != null && nextUpdate.isBefore(now)) {
+				throw new IOException("OCSP response expired at " + nextUpdate);
+			}
+
+			RevocationChecker.Status result;
+			if (certStatus.isContext(0)) {
+				result = RevocationChecker.Status.GOOD;
+			} else if (certStatus.isContext(1)) {
+				result = RevocationChecker.Status.REVOKED;
+			} else {
+				result = RevocationChecker.Status.UNKNOWN;
+			}
+			return new Response(result, thisUpdate, nextUpdate);
+		}
+		throw new IOException("OCSP response does not contain serial " + serial.toString(16));
+	}
+
+	private static boolean matches(Der responseCertId, BigInteger serial, X509Certificate issuer)
+			throws IOException {
+		// responder boleh menjawab dengan algoritma hash lain; hash issuer dihitung
+		// ulang dengan algoritma itu supaya serial yang sama dari CA lain tidak cocok
+		String digest = CERT_ID_DIGESTS.get(responseCertId.child(0).child(0).oid());
+		if (digest == null) {
+			return false;
+		}
+		List<Der> fields = responseCertId.children();
+		byte[][] hashes = issuerHashes(digest, issuer);
+		return Arrays.equals(fields.get(1).value(), hashes[0]) && Arrays.equals(fields.get(2).value(), hashes[1])
+				&& new BigInteger(fields.get(3).value()).equals(serial);
+	}
+
+	private static void verifySignature(byte[] tbs, String algorithmOid, byte[] signature, List<Der> certs,
+			X509Certificate issuer) throws IOException {
+		String algorithm = SIGNATURE_ALGORITHMS.get(algorithmOid);
+		if (algorithm == null) {
+			throw new IOException("Unsupported OCSP signature algorithm " + algorithmOid);
+		}
+		if (verify(algorithm, issuer.getPublicKey(), tbs, signature)) {
+			return;
+		}
+		for (Der encoded : certs) {
+			X509Certificate responder = delegatedResponder(encoded.encoded(), issuer);
+			if (responder != null && verify(algorithm, responder.getPublicKey(), tbs, signature)) {
+				return;
+			}
+		}
+		throw new IOException("OCSP response signature is not valid for issuer "
+				+ issuer.getSubjectX500Principal().getName());
+	}
+
+	private static X509Certificate delegatedResponder(byte[] encoded, X509Certificate issuer) {
+		try {
+			X509Certificate responder = (X509Certificate) CertificateFactory.getInstance("X.509")
+					.generateCertificate(new ByteArrayInputStream(encoded));
+			responder.checkValidity();
+			responder.verify(issuer.getPublicKey());
+			List<String> usages = responder.getExtendedKeyUsage();
+			return usages != null && usages.contains(OCSP_SIGNING) ? responder : null;
+		} catch (GeneralSecurityException e) {
+			return null;
+		}
+	}
+
+	private static boolean verify(String algorithm, PublicKey key, byte[] data, byte[] signature) {
+		try {
+			Signature verifier = Signature.getInstance(algorithm);
+			verifier.initVerify(key);
+			verifier.update(data);
+			return verifier.verify(signature);
+		} catch (GeneralSecurityException e) {
+			return false;
+		}
+	}
+
+	static final class Response {
+		private final RevocationChecker.Status status;
+
+		private final Instant thisUpdate;
+
+		private final Instant nextUpdate;
+
+		Response(RevocationChecker.Status status, Instant thisUpdate, Instant nextUpdate) {
+			this.status = status;
+			this.thisUpdate = thisUpdate;
+			this.nextUpdate = nextUpdate;
+		}
+
+		public RevocationChecker.Status getStatus() {
+			return status;
+		}
+
+		public Instant getThisUpdate() {
+			return thisUpdate;
+		}
+
+		/**
+		 * @return null jika responder tidak mengisi nextUpdate.
+		 */
+		public Instant getNextUpdate() {
+			return nextUpdate;
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package org.harvanir.security.example.mtls;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PeerCertificates
+ *
+ * Ringkasan certificate peer (subject, issuer, masa berlaku, fingerprint
+ * SHA-256) yang di-cache per certificate. Kunci cache adalah certificate itu
+ * sendiri: {@code equals}/{@code hashCode} X509Certificate dihitung dari
+ * encoding DER, jadi setara dengan fingerprint tanpa harus menghitung digest
+ * atau memanggil {@code toString()} di setiap koneksi. Jumlah armada cert
+ * biasanya kecil, tapi cache tetap dibatasi {@link #MAX_ENTRIES}.
+ */
+final class PeerCertificates {
+
+	private static final int MAX_ENTRIES = 4096;
+
+	private static final Map<Certificate, Summary> SUMMARIES = new ConcurrentHashMap<>();
+
+	private PeerCertificates() {
+	}
+
+	/**
+	 * @return ringkasan satu baris untuk certificate, dari cache jika sudah
+	 *         pernah dilihat.
+	 */
+	static String describe(Certificate certificate) {
+		return summary(certificate).line;
+	}
+
+	/**
+	 * @return subject certificate pertama (leaf) dalam chain, atau null.
+	 */
+	static String leafSubject(Certificate[] chain) {
+		if (chain == null || chain.length == 0) {
+			return null;
+		}
+		return summary(chain[0]).subject;
+	}
+
+	static String describeChain(String prefix, Certificate[] chain) {
+		StringBuilder sb = new StringBuilder();
+		for (Certificate c : chain) {
+			sb.append(prefix).append(describe(c)).append(System.lineSeparator());
+		}
+		return sb.toString();
+	}
+
+	private static Summary summary(Certificate certificate) {
+		Summary summary = SUMMARIES.get(certificate);
+		if (summary != null) {
+			return summary;
+		}
+		if (SUMMARIES.size() >= MAX_ENTRIES) {
+			// churn yang tidak wajar; mulai ulang daripada tumbuh tanpa batas
+			SUMMARIES.clear();
+		}
+		return SUMMARIES.computeIfAbsent(certificate, PeerCertificates::summarize);
+	}
+
+	private static Summary summarize(Certificate certificate) {
+		if (!(certificate instanceof X509Certificate x509)) {
+			String type = certificate.getType() + " certificate";
+			return new Summary(type, type);
+		}
+		String subject = x509.getSubjectX500Principal().getName();
+		return new Summary(subject, "subject=" + subject + ", issuer=" + x509.getIssuerX500Principal().getName()
+				+ ", notAfter=" + x509.getNotAfter().toInstant() + ", sha256=" + fingerprint(x509));
+	}
+
+	static String fingerprint(Certificate certificate) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(certificate.getEncoded());
+			return HexFormat.of().formatHex(digest);
+		} catch (NoSuchAlgorithmException | CertificateEncodingException e) {
+			throw new IllegalStateException("Cannot fingerprint certificate", e);
+		}
+	}
+
+	private static final class Summary {
+		private final String subject;
+
+		private final String line;
+
+		Summary(String subject, String line) {
+			this.subject = subject;
+			this.line = line;
+		}
+	}
+}
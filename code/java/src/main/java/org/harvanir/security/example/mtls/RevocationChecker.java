@@ -0,0 +1,425 @@
+package org.harvanir.security.example.mtls;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * RevocationChecker
+ *
+ * Status revocation certificate dari OCSP atau CRL yang di-cache di memori,
+ * supaya handshake tidak menunggu round-trip ke responder.
+ *
+ * - Sumber: OCSP (URL dari {@link RevocationConfig} atau extension AIA), jika
+ * tidak ada baru CRL (URL dari config atau extension CRL distribution point).
+ * CRL di-cache per URL, OCSP per certificate.
+ * - Response di-refresh di background {@code refreshMargin} sebelum
+ * {@code nextUpdate}.
+ * - Stale-while-revalidate: sampai {@code staleGrace} setelah
+ * {@code nextUpdate} response lama tetap dipakai sambil refresh berjalan.
+ * Response yang diterima dengan {@code nextUpdate} sudah lewat ditolak, supaya
+ * response lama yang di-replay tidak pernah dianggap status terbaru.
+ * - Cache miss (certificate pertama kali terlihat) menunggu fetch paling lama
+ * {@code missTimeout}; setelah itu hasilnya {@link Status#UNKNOWN} dan
+ * keputusannya diserahkan ke caller ({@link RevocationTrustManager}).
+ * - Entry yang tidak dipakai lebih lama dari {@code idleEviction} tidak di-
+ * refresh lagi dan dibuang.
+ */
+final class RevocationChecker implements AutoCloseable {
+
+	enum Status {
+		GOOD, REVOKED, UNKNOWN
+	}
+
+	static final String CRL_DISTRIBUTION_POINTS = "2.5.29.31";
+
+	// dipakai jika response tidak punya nextUpdate
+	private static final Duration DEFAULT_VALIDITY = Duration.ofHours(1);
+
+	private static final Duration RETRY_INTERVAL = Duration.ofSeconds(30);
+
+	private static volatile RevocationChecker shared;
+
+	private final RevocationConfig config;
+
+	private final HttpClient http;
+
+	private final OcspClient ocsp;
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+			Thread.ofPlatform().name("mtls-revocation-refresh").daemon().factory());
+
+	private final ExecutorService fetchers = Executors
+			.newThreadPerTaskExecutor(Thread.ofVirtual().name("mtls-revocation-fetch-", 0).factory());
+
+	private final MtlsMetrics metrics = MtlsMetrics.global();
+
+	RevocationChecker(RevocationConfig config) {
+		this.config = config;
+		this.http = HttpClient.newBuilder().connectTimeout(config.getRequestTimeout()).build();
+		this.ocsp = new OcspClient(http, config.getRequestTimeout());
+		// timer yang digantikan langsung keluar dari antrean
+		scheduler.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * Instance bersama untuk semua SSLContext di proses ini, supaya cache tidak
+	 * hilang ketika context di-reload.
+	 */
+	static RevocationChecker shared() {
+		RevocationChecker checker = shared;
+		if (checker == null) {
+			synchronized (RevocationChecker.class) {
+				checker = shared;
+				if (checker == null) {
+					checker = new RevocationChecker(RevocationConfig.defaults());
+					shared = checker;
+				}
+			}
+		}
+		return checker;
+	}
+
+	RevocationConfig getConfig() {
+		return config;
+	}
+
+	Status check(X509Certificate cert, X509Certificate issuer) {
+		Entry entry;
+		try {
+			entry = entry(cert, issuer);
+		} catch (IOException e) {
+			metrics.counter(MtlsMetrics.REVOCATION_FETCH_FAILED).increment();
+			return Status.UNKNOWN;
+		}
+		if (entry == null) {
+			// tidak ada OCSP responder maupun CRL untuk certificate ini
+			return Status.UNKNOWN;
+		}
+		entry.lastAccess = System.currentTimeMillis();
+
+		Snapshot snapshot = entry.current;
+		Instant now = Instant.now();
+		if (snapshot != null && now.isBefore(snapshot.nextUpdate)) {
+			metrics.counter(MtlsMetrics.REVOCATION_CACHE_FRESH).increment();
+			return snapshot.statusOf(cert);
+		}
+		if (snapshot != null && now.isBefore(snapshot.nextUpdate.plus(config.getStaleGrace()))) {
+			metrics.counter(MtlsMetrics.REVOCATION_CACHE_STALE).increment();
+			refresh(entry);
+			return snapshot.statusOf(cert);
+		}
+
+		metrics.counter(MtlsMetrics.REVOCATION_CACHE_MISS).increment();
+		try {
+			return refresh(entry).get(config.getMissTimeout().toMillis(), TimeUnit.MILLISECONDS).statusOf(cert);
+		} catch (TimeoutException | ExecutionException e) {
+			return Status.UNKNOWN;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return Status.UNKNOWN;
+		}
+	}
+
+	private Entry entry(X509Certificate cert, X509Certificate issuer) throws IOException {
+		URI responder = config.getOcspResponder() != null ? config.getOcspResponder() : OcspClient.responderOf(cert);
+		if (responder != null) {
+			String key = "ocsp:" + responder + '|' + issuer.getSubjectX500Principal().getName() + '|'
+					+ cert.getSerialNumber().toString(16);
+			return entries.computeIfAbsent(key, k -> new Entry(k, () -> fetchOcsp(responder, cert, issuer)));
+		}
+
+		URI crl = config.getCrlUrl() != null ? config.getCrlUrl() : crlOf(cert);
+		if (crl != null) {
+			return entries.computeIfAbsent("crl:" + crl, k -> new Entry(k, () -> fetchCrl(crl, issuer)));
+		}
+		return null;
+	}
+
+	/**
+	 * Mulai refresh jika belum ada yang berjalan untuk entry ini.
+	 */
+	private CompletableFuture<Snapshot> refresh(Entry entry) {
+		CompletableFuture<Snapshot> inFlight = entry.inFlight.get();
+		if (inFlight != null) {
+			return inFlight;
+		}
+		CompletableFuture<Snapshot> future = new CompletableFuture<>();
+		if (!entry.inFlight.compareAndSet(null, future)) {
+			return entry.inFlight.get();
+		}
+
+		fetchers.execute(() -> {
+			try {
+				Snapshot snapshot = entry.fetcher.fetch();
+				entry.current = snapshot;
+				schedule(entry, refreshDelay(snapshot.nextUpdate));
+				future.complete(snapshot);
+			} catch (Exception e) {
+				metrics.counter(MtlsMetrics.REVOCATION_FETCH_FAILED).increment();
+				System.err.println("[Revocation] Refresh of " + entry.key + " failed: " + e.getMessage());
+				schedule(entry, RETRY_INTERVAL);
+				future.completeExceptionally(e);
+			} finally {
+				entry.inFlight.set(null);
+			}
+		});
+		return future;
+	}
+
+	private Duration refreshDelay(Instant nextUpdate) {
+		Duration remaining = Duration.between(Instant.now(), nextUpdate);
+		Duration delay = remaining.minus(config.getRefreshMargin());
+		// margin lebih besar dari validity: refresh di tengah jalan
+		if (delay.isNegative()) {
+			delay = remaining.dividedBy(2);
+		}
+		// jangan refetch terus-menerus jika nextUpdate hampir atau sudah lewat
+		return delay.compareTo(RETRY_INTERVAL) < 0 ? RETRY_INTERVAL : delay;
+	}
+
+	/**
+	 * Paling banyak satu refresh terjadwal per entry: jadwal baru menggantikan
+	 * yang lama, jadi refresh dari {@link #check} tidak menambah rantai timer.
+	 */
+	private void schedule(Entry entry, Duration delay) {
+		synchronized (entry) {
+			if (scheduler.isShutdown()) {
+				return;
+			}
+			if (entry.timer != null) {
+				entry.timer.cancel(false);
+			}
+			entry.timer = scheduler.schedule(() -> {
+				if (System.currentTimeMillis() - entry.lastAccess > config.getIdleEviction().toMillis()) {
+					entries.remove(entry.key, entry);
+				} else {
+					refresh(entry);
+				}
+			}, delay.toMillis(), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private Snapshot fetchOcsp(URI responder, X509Certificate cert, X509Certificate issuer) throws IOException {
+		OcspClient.Response response = ocsp.fetch(responder, cert, issuer);
+		Instant nextUpdate = response.getNextUpdate() != null ? response.getNextUpdate()
+				: Instant.now().plus(DEFAULT_VALIDITY);
+		return new Snapshot(response.getStatus(), null, nextUpdate);
+	}
+
+	private Snapshot fetchCrl(URI url, X509Certificate issuer) throws IOException {
+		HttpRequest request = HttpRequest.newBuilder(url).timeout(config.getRequestTimeout()).GET().build();
+		HttpResponse<byte[]> response;
+		try {
+			response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while downloading CRL", e);
+		}
+		if (response.statusCode() != 200) {
+			throw new IOException("CRL " + url + " returned HTTP " + response.statusCode());
+		}
+
+		try {
+			X509CRL crl = (X509CRL) CertificateFactory.getInstance("X.509")
+					.generateCRL(new ByteArrayInputStream(response.body()));
+			crl.verify(issuer.getPublicKey());
+			Instant nextUpdate = crl.getNextUpdate() != null ? crl.getNextUpdate().toInstant()
+					: Instant.now().plus(DEFAULT_VALIDITY);
+			if (nextUpdate.isBefore(Instant.now())) {
+				throw new IOException("CRL from " + url + " expired at " + nextUpdate);
+			}
+			return new Snapshot(null, crl, nextUpdate);
+		} catch (GeneralSecurityException e) {
+			throw new IOException("Invalid CRL from " + url, e);
+		}
+	}
+
+	/**
+	 * @return URI http pertama di extension CRL distribution point, atau null.
+	 */
+	static URI crlOf(X509Certificate cert) throws IOException {
+		byte[] ext = cert.getExtensionValue(CRL_DISTRIBUTION_POINTS);
+		return ext == null ? null : firstUri(Der.parse(ext).unwrap());
+	}
+
+	private static URI firstUri(Der node) throws IOException {
+		// GeneralName uniformResourceIdentifier [6] IA5String
+		if (node.isContext(6) && !node.isConstructed()) {
+			String uri = new String(node.value(), StandardCharsets.US_ASCII);
+			return uri.startsWith("http") ? URI.create(uri) : null;
+		}
+		if (!node.isConstructed()) {
+			return null;
+		}
+		for (Der child : node.children()) {
+			URI uri = firstUri(child);
+			if (uri != null) {
+				return uri;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void close() {
+		scheduler.shutdownNow();
+		fetchers.shutdownNow();
+	}
+
+	@FunctionalInterface
+	private interface Fetcher {
+		Snapshot fetch() throws IOException;
+	}
+
+	private static final class Entry {
+		private final String key;
+
+		private final Fetcher fetcher;
+
+		private final AtomicReference<CompletableFuture<Snapshot>> inFlight = new AtomicReference<>();
+
+		private volatile Snapshot current;
+
+		private volatile long lastAccess = System.currentTimeMillis();
+
+		// dijaga oleh lock entry
+		private ScheduledFuture<?> timer;
+
+		Entry(String key, Fetcher fetcher) {
+			this.key = key;
+			this.fetcher = fetcher;
+		}
+	}
+
+	/**
+	 * Hasil OCSP (status satu certificate) atau CRL (status semua certificate
+	 * dari issuer yang sama).
+	 */
+	private static final class Snapshot {
+		private final Status status;
+
+		private final X509CRL crl;
+
+		private final Instant nextUpdate;
+
+		Snapshot(Status status, X509CRL crl, Instant nextUpdate) {
+			this.status = status;
+			this.crl = crl;
+			this.nextUpdate = nextUpdate;
+		}
+
+		Status statusOf(X509Certificate cert) {
+			if (crl == null) {
+				return status;
+			}
+			return crl.isRevoked(cert) ? Status.REVOKED : Status.GOOD;
+		}
+	}
+
+	static class RevocationConfig {
+		private final URI ocspResponder;
+
+		private final URI crlUrl;
+
+		private final Duration refreshMargin;
+
+		private final Duration staleGrace;
+
+		private final Duration missTimeout;
+
+		private final Duration requestTimeout;
+
+		private final Duration idleEviction;
+
+		private final boolean failOpen;
+
+		/**
+		 * @param ocspResponder override URL responder OCSP (misalnya responder lokal
+		 *                      untuk test), atau null untuk memakai AIA.
+		 * @param crlUrl        override URL CRL, atau null untuk memakai CRL DP.
+		 * @param failOpen      terima certificate jika status tidak diketahui
+		 *                      (tidak ada sumber, responder down, miss timeout).
+		 */
+		RevocationConfig(URI ocspResponder, URI crlUrl, Duration refreshMargin, Duration staleGrace,
+				Duration missTimeout, Duration requestTimeout, Duration idleEviction, boolean failOpen) {
+			this.ocspResponder = ocspResponder;
+			this.crlUrl = crlUrl;
+			this.refreshMargin = refreshMargin;
+			this.staleGrace = staleGrace;
+			this.missTimeout = missTimeout;
+			this.requestTimeout = requestTimeout;
+			this.idleEviction = idleEviction;
+			this.failOpen = failOpen;
+		}
+
+		/**
+		 * URL bisa di-override dengan system property {@code mtls.revocation.ocsp-url}
+		 * dan {@code mtls.revocation.crl-url}; {@code mtls.revocation.fail-open=false}
+		 * menolak certificate dengan status tidak diketahui.
+		 */
+		static RevocationConfig defaults() {
+			String ocspUrl = System.getProperty("mtls.revocation.ocsp-url");
+			String crlUrl = System.getProperty("mtls.revocation.crl-url");
+			return new RevocationConfig(ocspUrl != null ? URI.create(ocspUrl) : null,
+					crlUrl != null ? URI.create(crlUrl) : null, Duration.ofMinutes(5), Duration.ofHours(1),
+					Duration.ofSeconds(2), Duration.ofSeconds(5), Duration.ofDays(1),
+					Boolean.parseBoolean(System.getProperty("mtls.revocation.fail-open", "true")));
+		}
+
+		public URI getOcspResponder() {
+			return ocspResponder;
+		}
+
+		public URI getCrlUrl() {
+			return crlUrl;
+		}
+
+		public Duration getRefreshMargin() {
+			return refreshMargin;
+		}
+
+		public Duration getStaleGrace() {
+			return staleGrace;
+		}
+
+		public Duration getMissTimeout() {
+			return missTimeout;
+		}
+
+		public Duration getRequestTimeout() {
+			return requestTimeout;
+		}
+
+		public Duration getIdleEviction() {
+			return idleEviction;
+		}
+
+		public boolean isFailOpen() {
+			return failOpen;
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package org.harvanir.security.example.mtls;
+
+import java.net.Socket;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+
+/**
+ * RevocationTrustManager
+ *
+ * Setelah delegate memvalidasi chain, cek status revocation setiap certificate
+ * (kecuali trust anchor) lewat {@link RevocationChecker}. Lookup hanya membaca
+ * cache di memori; fetch ke responder berjalan di background kecuali untuk
+ * certificate yang baru pertama kali terlihat.
+ *
+ * Dipasang di luar {@link CachingTrustManager}, jadi certificate yang dicabut
+ * tetap ditolak walaupun hasil validasi chain-nya masih ada di cache.
+ */
+final class RevocationTrustManager extends X509ExtendedTrustManager {
+
+	private final X509ExtendedTrustManager delegate;
+
+	private final RevocationChecker checker;
+
+	private final MtlsMetrics metrics = MtlsMetrics.global();
+
+	RevocationTrustManager(X509ExtendedTrustManager delegate, RevocationChecker checker) {
+		this.delegate = delegate;
+		this.checker = checker;
+	}
+
+	static TrustManager[] wrap(TrustManager[] trustManagers, RevocationChecker checker) {
+		TrustManager[] wrapped = trustManagers.clone();
+		for (int i = 0; i < wrapped.length; i++) {
+			if (wrapped[i] instanceof X509ExtendedTrustManager tm) {
+				wrapped[i] = new RevocationTrustManager(tm, checker);
+			}
+		}
+		return wrapped;
+	}
+
+	@Override
+	public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket)
+			throws CertificateException {
+		delegate.checkClientTrusted(chain, authType, socket);
+		checkRevocation(chain);
+	}
+
+	@Override
+	public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+			throws CertificateException {
+		delegate.checkClientTrusted(chain, authType, engine);
+		checkRevocation(chain);
+	}
+
+	@Override
+	public void checkClientTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+		delegate.checkClientTrusted(chain, authType);
+		checkRevocation(chain);
+	}
+
+	@Override
+	public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket)
+			throws CertificateException {
+		delegate.checkServerTrusted(chain, authType, socket);
+		checkRevocation(chain);
+	}
+
+	@Override
+	public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+			throws CertificateException {
+		delegate.checkServerTrusted(chain, authType, engine);
+		checkRevocation(chain);
+	}
+
+	@Override
+	public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+		delegate.checkServerTrusted(chain, authType);
+		checkRevocation(chain);
+	}
+
+	@Override
+	public X509Certificate[] getAcceptedIssuers() {
+		return delegate.getAcceptedIssuers();
+	}
+
+	private void checkRevocation(X509Certificate[] chain) throws CertificateException {
+		for (int i = 0; i < chain.length; i++) {
+			X509Certificate cert = chain[i];
+			if (cert.getSubjectX500Principal().equals(cert.getIssuerX500Principal())) {
+				// self-signed: trust anchor, tidak bisa dicabut lewat OCSP/CRL
+				continue;
+			}
+			X509Certificate issuer = i + 1 < chain.length ? chain[i + 1] : findIssuer(cert);
+			if (issuer == null) {
+				continue;
+			}
+
+			RevocationChecker.Status status = checker.check(cert, issuer);
+			if (status == RevocationChecker.Status.REVOKED) {
+				metrics.counter(MtlsMetrics.REVOCATION_REVOKED).increment();
+				throw new CertificateException("Certificate revoked: " + cert.getSubjectX500Principal().getName()
+						+ ", serial " + cert.getSerialNumber().toString(16));
+			}
+			if (status == RevocationChecker.Status.UNKNOWN && !checker.getConfig().isFailOpen()) {
+				throw new CertificateException("Revocation status unknown: "
+						+ cert.getSubjectX500Principal().getName());
+			}
+		}
+	}
+
+	private X509Certificate findIssuer(X509Certificate cert) {
+		for (X509Certificate anchor : delegate.getAcceptedIssuers()) {
+			if (anchor.getSubjectX500Principal().equals(cert.getIssuerX500Principal())) {
+				return anchor;
+			}
+		}
+		return null;
+	}
+}
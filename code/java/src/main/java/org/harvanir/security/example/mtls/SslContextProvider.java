@@ -0,0 +1,187 @@
+package org.harvanir.security.example.mtls;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javax.net.ssl.SSLContext;
+
+import org.harvanir.security.example.mtls.MtlsSocketExample.KeystoreInfo;
+import org.harvanir.security.example.mtls.MtlsSocketExample.TruststoreInfo;
+
+/**
+ * SslContextProvider
+ *
+ * Menyimpan {@link SSLContext} yang sudah dibuat supaya keystore dan truststore
+ * tidak di-parse ulang setiap koneksi. Jika {@link #watch()} dipanggil,
+ * direktori keystore/truststore dipantau dengan {@link WatchService}; ketika
+ * file berubah (cert rotation) context baru dibuat lalu ditukar secara atomik.
+ *
+ * Koneksi baru langsung memakai context baru, sedangkan koneksi yang sedang
+ * berjalan tetap memakai session lamanya. Jika reload gagal (misalnya file
+ * masih setengah ditulis), context lama tetap dipakai sampai event berikutnya.
+ *
+ * Context default (untuk server) memakai {@link CachingTrustManager}; karena
+ * trust manager dibuat ulang di setiap reload, cache validasi chain ikut
+ * ter-invalidate ketika truststore berubah. Status revocation dicek oleh
+ * {@link RevocationTrustManager} dengan cache bersama yang tetap hidup lintas
+ * reload.
+ */
+final class SslContextProvider implements Supplier<SSLContext>, AutoCloseable {
+
+	// tunggu sebentar setelah event pertama supaya rename/copy beberapa file
+	// dianggap satu rotation
+	private static final long DEBOUNCE_MILLIS = 250;
+
+	private final List<Path> files;
+
+	private final ContextFactory factory;
+
+	private final List<Consumer<SSLContext>> reloadListeners = new CopyOnWriteArrayList<>();
+
+	private volatile SSLContext current;
+
+	private volatile String fingerprint;
+
+	private WatchService watchService;
+
+	private Thread watcher;
+
+	SslContextProvider(KeystoreInfo ksInfo, TruststoreInfo tsInfo) throws Exception {
+		this(ksInfo, tsInfo, () -> MtlsSocketExample.createSslContext(MtlsSocketExample.loadKeyManagers(ksInfo),
+				RevocationTrustManager.wrap(CachingTrustManager.wrap(MtlsSocketExample.loadTrustManagers(tsInfo)),
+						RevocationChecker.shared())));
+	}
+
+	SslContextProvider(KeystoreInfo ksInfo, TruststoreInfo tsInfo, ContextFactory factory) throws Exception {
+		this.files = List.of(Path.of(ksInfo.getPath()).toAbsolutePath(), Path.of(tsInfo.getPath()).toAbsolutePath());
+		this.factory = factory;
+		this.fingerprint = fingerprint();
+		this.current = factory.create();
+	}
+
+	@Override
+	public SSLContext get() {
+		return current;
+	}
+
+	void addReloadListener(Consumer<SSLContext> listener) {
+		reloadListeners.add(listener);
+	}
+
+	/**
+	 * Mulai memantau direktori keystore dan truststore.
+	 */
+	synchronized SslContextProvider watch() throws IOException {
+		if (watcher != null) {
+			return this;
+		}
+
+		watchService = FileSystems.getDefault().newWatchService();
+		Set<Path> dirs = new LinkedHashSet<>();
+		for (Path file : files) {
+			dirs.add(file.getParent());
+		}
+		for (Path dir : dirs) {
+			dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		}
+
+		watcher = Thread.ofPlatform().name("mtls-store-watcher").daemon().start(this::watchLoop);
+		return this;
+	}
+
+	private void watchLoop() {
+		try {
+			while (true) {
+				WatchKey key = watchService.take();
+				drain(key);
+
+				// kumpulkan event susulan dari rotation yang sama
+				WatchKey next;
+				while ((next = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+					drain(next);
+				}
+				reloadIfChanged();
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// provider ditutup
+		}
+	}
+
+	private static void drain(WatchKey key) {
+		key.pollEvents();
+		key.reset();
+	}
+
+	/**
+	 * Bangun ulang context jika isi keystore/truststore berubah. Event untuk file
+	 * lain di direktori yang sama (atau symlink swap) dicek lewat fingerprint.
+	 */
+	synchronized boolean reloadIfChanged() {
+		String latest = fingerprint();
+		if (latest.equals(fingerprint)) {
+			return false;
+		}
+
+		try {
+			SSLContext reloaded = factory.create();
+			current = reloaded;
+			fingerprint = latest;
+			System.out.println("[SslContextProvider] Reloaded SSLContext from " + files);
+			for (Consumer<SSLContext> listener : reloadListeners) {
+				listener.accept(reloaded);
+			}
+			return true;
+		} catch (Exception e) {
+			System.err.println("[SslContextProvider] Reload failed, keep using previous context: " + e.getMessage());
+			return false;
+		}
+	}
+
+	private String fingerprint() {
+		StringBuilder sb = new StringBuilder();
+		for (Path file : files) {
+			try {
+				sb.append(Files.getLastModifiedTime(file).toMillis()).append(':').append(Files.size(file));
+			} catch (IOException e) {
+				sb.append("missing");
+			}
+			sb.append(';');
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public synchronized void close() {
+		if (watchService == null) {
+			return;
+		}
+		try {
+			watchService.close();
+			watcher.join();
+		} catch (IOException e) {
+			System.err.println("[SslContextProvider] Error on closing watcher: " + e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		watchService = null;
+		watcher = null;
+	}
+
+	@FunctionalInterface
+	interface ContextFactory {
+		SSLContext create() throws Exception;
+	}
+}
@@ -0,0 +1,243 @@
+package org.harvanir.security.example.mtls;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+
+/**
+ * TlsChannel
+ *
+ * {@link SSLEngine} di atas {@link SocketChannel} mode blocking. Berbeda dengan
+ * {@code SSLSocket} yang hanya menerima {@code byte[]}, kelas ini bisa
+ * menerima dan mengisi {@link ByteBuffer} (termasuk direct buffer dan
+ * {@code MappedByteBuffer}) tanpa salinan ke heap.
+ *
+ * - {@link #write(ByteBuffer)} memotong data per TLS record (maksimal 16 KB
+ * plaintext per {@code wrap}) dan baru lanjut setelah record sebelumnya
+ * selesai ditulis ke socket, jadi backpressure datang dari TCP send buffer.
+ * - Buffer net dan app berukuran tetap, berapa pun besar data yang dikirim.
+ *
+ * Tidak thread-safe: satu thread menulis dan membaca pada satu waktu.
+ */
+final class TlsChannel implements AutoCloseable {
+
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+	private final SocketChannel channel;
+
+	private final SSLEngine engine;
+
+	private final ByteBuffer netIn;
+
+	private final ByteBuffer netOut;
+
+	// plaintext yang sudah di-unwrap tapi belum dibaca (mode read setelah flip)
+	private final ByteBuffer appIn;
+
+	private boolean inboundClosed;
+
+	private TlsChannel(SocketChannel channel, SSLEngine engine) {
+		this.channel = channel;
+		this.engine = engine;
+
+		SSLSession session = engine.getSession();
+		this.netIn = ByteBuffer.allocateDirect(session.getPacketBufferSize());
+		this.netOut = ByteBuffer.allocateDirect(session.getPacketBufferSize());
+		this.appIn = ByteBuffer.allocateDirect(session.getApplicationBufferSize()).flip();
+	}
+
+	static TlsChannel connect(SSLContext ctx, String host, int port) throws IOException {
+		SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port));
+		SSLEngine engine = ctx.createSSLEngine(host, port);
+		engine.setUseClientMode(true);
+		return handshake(channel, engine);
+	}
+
+	static TlsChannel accept(SSLContext ctx, SocketChannel channel) throws IOException {
+		SSLEngine engine = ctx.createSSLEngine();
+		engine.setUseClientMode(false);
+		engine.setNeedClientAuth(true);
+		return handshake(channel, engine);
+	}
+
+	private static TlsChannel handshake(SocketChannel channel, SSLEngine engine) throws IOException {
+		try {
+			channel.configureBlocking(true);
+			TlsChannel tls = new TlsChannel(channel, engine);
+			engine.beginHandshake();
+			while (true) {
+				HandshakeStatus hs = engine.getHandshakeStatus();
+				if (hs == HandshakeStatus.NOT_HANDSHAKING || hs == HandshakeStatus.FINISHED) {
+					return tls;
+				}
+				if (!tls.step(hs)) {
+					throw new EOFException("Connection closed during handshake");
+				}
+			}
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	SSLSession getSession() {
+		return engine.getSession();
+	}
+
+	/**
+	 * Enkripsi dan kirim seluruh isi {@code src}.
+	 */
+	void write(ByteBuffer src) throws IOException {
+		while (src.hasRemaining()) {
+			wrap(src);
+		}
+	}
+
+	/**
+	 * Baca plaintext ke {@code dst}.
+	 *
+	 * @return jumlah byte, atau -1 jika peer sudah menutup koneksi.
+	 */
+	int read(ByteBuffer dst) throws IOException {
+		while (!appIn.hasRemaining()) {
+			if (inboundClosed) {
+				return -1;
+			}
+			appIn.clear();
+			try {
+				if (!unwrap()) {
+					inboundClosed = true;
+				}
+			} finally {
+				appIn.flip();
+			}
+		}
+
+		int n = Math.min(dst.remaining(), appIn.remaining());
+		int limit = appIn.limit();
+		appIn.limit(appIn.position() + n);
+		dst.put(appIn);
+		appIn.limit(limit);
+		return n;
+	}
+
+	void readFully(ByteBuffer dst) throws IOException {
+		while (dst.hasRemaining()) {
+			if (read(dst) < 0) {
+				throw new EOFException("Connection closed with " + dst.remaining() + " bytes left");
+			}
+		}
+	}
+
+	/**
+	 * Jalankan satu langkah handshake. @return false jika koneksi tertutup.
+	 */
+	private boolean step(HandshakeStatus hs) throws IOException {
+		switch (hs) {
+		case NEED_TASK:
+			Runnable task;
+			while ((task = engine.getDelegatedTask()) != null) {
+				task.run();
+			}
+			return true;
+		case NEED_WRAP:
+			wrap(EMPTY);
+			return true;
+		case NEED_UNWRAP:
+		case NEED_UNWRAP_AGAIN:
+			appIn.clear();
+			try {
+				return unwrap();
+			} finally {
+				appIn.flip();
+			}
+		default:
+			return true;
+		}
+	}
+
+	private void wrap(ByteBuffer src) throws IOException {
+		netOut.clear();
+		SSLEngineResult result = engine.wrap(src, netOut);
+		if (result.getStatus() != SSLEngineResult.Status.OK
+				&& result.getStatus() != SSLEngineResult.Status.CLOSED) {
+			throw new SSLException("Unexpected wrap status " + result.getStatus());
+		}
+
+		netOut.flip();
+		while (netOut.hasRemaining()) {
+			// blocking write: menunggu sampai TCP send buffer punya ruang
+			channel.write(netOut);
+		}
+		runTasks(result);
+	}
+
+	/**
+	 * Unwrap satu record ke {@link #appIn} (mode write), membaca dari socket jika
+	 * record belum lengkap. Respon post-handshake (misalnya KeyUpdate) ikut
+	 * dikirim di sini.
+	 *
+	 * @return false jika peer menutup koneksi.
+	 */
+	private boolean unwrap() throws IOException {
+		while (true) {
+			netIn.flip();
+			SSLEngineResult result = engine.unwrap(netIn, appIn);
+			netIn.compact();
+
+			switch (result.getStatus()) {
+			case OK:
+				runTasks(result);
+				if (engine.getHandshakeStatus() == HandshakeStatus.NEED_WRAP && !engine.isOutboundDone()) {
+					wrap(EMPTY);
+				}
+				if (result.bytesProduced() > 0 || engine.getHandshakeStatus() != HandshakeStatus.NOT_HANDSHAKING
+						|| result.getHandshakeStatus() == HandshakeStatus.FINISHED) {
+					return true;
+				}
+				// record non-data (misalnya NewSessionTicket): lanjut ke record berikutnya
+				break;
+			case BUFFER_UNDERFLOW:
+				if (channel.read(netIn) < 0) {
+					return false;
+				}
+				break;
+			case CLOSED:
+				return false;
+			case BUFFER_OVERFLOW:
+			default:
+				throw new SSLException("Unexpected unwrap status " + result.getStatus());
+			}
+		}
+	}
+
+	private void runTasks(SSLEngineResult result) {
+		if (result.getHandshakeStatus() == HandshakeStatus.NEED_TASK) {
+			Runnable task;
+			while ((task = engine.getDelegatedTask()) != null) {
+				task.run();
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			engine.closeOutbound();
+			while (!engine.isOutboundDone()) {
+				wrap(EMPTY);
+			}
+		} finally {
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package org.harvanir.security.example.encryption;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class BulkCipherTests {
+
+	private static final int ROUNDS = 200;
+
+	private final Random random = new Random(42);
+
+	@Test
+	void caesarMatchesDemo() {
+		BulkCipher cipher = BulkCipher.caesar(CaesarCipherDemo.SHIFT);
+		for (int i = 0; i < ROUNDS; i++) {
+			String text = randomText(random.nextInt(300), 0xFFFF);
+			assertEquals(CaesarCipherDemo.encrypt(text), cipher.apply(text));
+			assertEquals(CaesarCipherDemo.decrypt(text), cipher.inverse().apply(text));
+
+			String latin1 = randomText(random.nextInt(300), 0xFF);
+			assertArrayEquals(latin1(CaesarCipherDemo.encrypt(latin1)), cipher.apply(latin1(latin1)));
+		}
+	}
+
+	@Test
+	void caesarWrapsEveryShift() {
+		String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZ@[`{abcdefghijklmnopqrstuvwxyz".repeat(3);
+		for (int shift = -30; shift <= 30; shift++) {
+			BulkCipher cipher = BulkCipher.caesar(shift);
+			String encrypted = cipher.apply(alphabet);
+			assertEquals(new String(latin1(encrypted), StandardCharsets.ISO_8859_1),
+					new String(cipher.apply(latin1(alphabet)), StandardCharsets.ISO_8859_1));
+			assertEquals(alphabet, cipher.inverse().apply(encrypted));
+		}
+	}
+
+	@Test
+	void asciiShiftMatchesDemo() {
+		BulkCipher cipher = BulkCipher.asciiShift(AsciiCipherDemo.SHIFT);
+		for (int i = 0; i < ROUNDS; i++) {
+			String text = randomText(random.nextInt(300), 0xFFFF);
+			assertEquals(AsciiCipherDemo.encrypt(text), cipher.apply(text));
+			assertEquals(AsciiCipherDemo.decrypt(text), cipher.inverse().apply(text));
+
+			// jalur byte sama dengan demo selama hasilnya masih di bawah 256
+			String latin1 = randomText(random.nextInt(300), 0xFF - AsciiCipherDemo.SHIFT);
+			assertArrayEquals(latin1(AsciiCipherDemo.encrypt(latin1)), cipher.apply(latin1(latin1)));
+		}
+	}
+
+	@Test
+	void xorMatchesDemo() {
+		BulkCipher cipher = BulkCipher.xor(XorCipherDemo.KEY);
+		for (int i = 0; i < ROUNDS; i++) {
+			String text = randomText(random.nextInt(300), 0xFFFF);
+			assertEquals(XorCipherDemo.encrypt(text, XorCipherDemo.KEY), cipher.apply(text));
+			assertEquals(XorCipherDemo.decrypt(text, XorCipherDemo.KEY), cipher.inverse().apply(text));
+
+			String latin1 = randomText(random.nextInt(300), 0xFF);
+			assertArrayEquals(latin1(XorCipherDemo.encrypt(latin1, XorCipherDemo.KEY)), cipher.apply(latin1(latin1)));
+		}
+	}
+
+	@Test
+	void repeatingKeyXorKeepsPhaseAcrossChunks() {
+		char[] key = "Harvan-Key-17".toCharArray();
+		BulkCipher cipher = BulkCipher.xor(key);
+		byte[] data = new byte[10_000];
+		random.nextBytes(data);
+
+		byte[] expected = new byte[data.length];
+		for (int i = 0; i < data.length; i++) {
+			expected[i] = (byte) (data[i] ^ key[i % key.length]);
+		}
+
+		byte[] chunked = data.clone();
+		for (int from = 0; from < chunked.length;) {
+			int length = Math.min(1 + random.nextInt(700), chunked.length - from);
+			cipher.apply(chunked, from, chunked, from, length, from);
+			from += length;
+		}
+		assertArrayEquals(expected, chunked);
+		assertArrayEquals(data, cipher.apply(chunked));
+	}
+
+	@Test
+	void buffersMatchArrays() {
+		BulkCipher cipher = BulkCipher.caesar(7);
+		String text = randomText(5_003, 0x7F);
+
+		CharBuffer chars = CharBuffer.allocate(text.length());
+		cipher.apply(CharBuffer.wrap(text), chars, 0);
+		assertEquals(cipher.apply(text), chars.flip().toString());
+
+		byte[] bytes = latin1(text);
+		ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+		cipher.apply(ByteBuffer.wrap(bytes), direct, 0);
+		byte[] fromDirect = new byte[bytes.length];
+		direct.flip().get(fromDirect);
+		assertArrayEquals(cipher.apply(bytes.clone()), fromDirect);
+	}
+
+	@Test
+	void streamsFiles() throws Exception {
+		BulkCipher cipher = BulkCipher.xor("log-key".toCharArray());
+		byte[] data = new byte[200_001];
+		random.nextBytes(data);
+
+		Path plain = Files.createTempFile("bulk-cipher-plain", ".bin");
+		Path encrypted = Files.createTempFile("bulk-cipher-encrypted", ".bin");
+		Path decrypted = Files.createTempFile("bulk-cipher-decrypted", ".bin");
+		try {
+			Files.write(plain, data);
+			assertEquals(data.length, cipher.applyFile(plain, encrypted));
+			assertArrayEquals(cipher.apply(data.clone()), Files.readAllBytes(encrypted));
+
+			cipher.inverse().applyFile(encrypted, decrypted);
+			assertArrayEquals(data, Files.readAllBytes(decrypted));
+		} finally {
+			Files.deleteIfExists(plain);
+			Files.deleteIfExists(encrypted);
+			Files.deleteIfExists(decrypted);
+		}
+	}
+
+	private String randomText(int length, int maxChar) {
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			// sebagian besar huruf ASCII supaya jalur Caesar ikut teruji
+			chars[i] = random.nextInt(4) == 0 ? (char) random.nextInt(maxChar + 1)
+					: (char) ((random.nextBoolean() ? 'a' : 'A') + random.nextInt(26));
+		}
+		return new String(chars);
+	}
+
+	private static byte[] latin1(String text) {
+		return text.getBytes(StandardCharsets.ISO_8859_1);
+	}
+}
@@ -0,0 +1,136 @@
+package org.harvanir.security.example.encryption;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class NonceSequenceTests {
+
+	private static final int THREADS = 8;
+
+	private static final int PER_THREAD = 100_000;
+
+	@Test
+	void noncesAreUniqueAcrossThreads() throws Exception {
+		NonceSequence sequence = new NonceSequence();
+		long[][] counters = generate(THREADS, PER_THREAD, nonce -> sequence.next(nonce), sequence);
+
+		long[] all = Arrays.stream(counters).flatMapToLong(Arrays::stream).sorted().toArray();
+		assertEquals(THREADS * PER_THREAD, all.length);
+		for (int i = 1; i < all.length; i++) {
+			assertNotEquals(all[i - 1], all[i], "duplicate nonce counter");
+		}
+	}
+
+	@Test
+	void engineNoncesAreUniqueAcrossThreads() throws Exception {
+		AesGcmEngine engine = new AesGcmEngine(new byte[32]);
+		byte[] plain = "nonce".getBytes(StandardCharsets.UTF_8);
+		long[][] counters = generate(THREADS, PER_THREAD / 10, nonce -> {
+			byte[] sealed = engine.encrypt(plain);
+			System.arraycopy(sealed, 0, nonce, 0, AesGcmEngine.NONCE_LENGTH);
+			assertArrayEquals(plain, engine.decrypt(sealed));
+		}, engine.getNonceSequence());
+
+		Set<Long> seen = new HashSet<>();
+		for (long[] perThread : counters) {
+			for (long counter : perThread) {
+				assertTrue(seen.add(counter), "duplicate nonce counter");
+			}
+		}
+	}
+
+	@Test
+	void refusesNoncesPastLimit() throws Exception {
+		NonceSequence sequence = new NonceSequence(2_500);
+		byte[] nonce = new byte[AesGcmEngine.NONCE_LENGTH];
+		for (int i = 0; i < 2_500; i++) {
+			sequence.next(nonce);
+		}
+
+		assertTrue(sequence.isRekeyDue());
+		assertEquals(0, sequence.getRemaining());
+		assertThrows(GeneralSecurityException.class, () -> sequence.next(nonce));
+	}
+
+	@Test
+	void keyringRotatesBeforeLimit() throws Exception {
+		Keyring keyring = new Keyring(1, new byte[32], 4 * NonceSequence.BLOCK);
+		byte[] plain = "rotasi".getBytes(StandardCharsets.UTF_8);
+
+		byte[][] sealed = new byte[20_000][];
+		for (int i = 0; i < sealed.length; i++) {
+			sealed[i] = keyring.encrypt(plain);
+		}
+
+		assertTrue(keyring.primary().getId() > 1);
+		assertTrue(keyring.primary().getEngine().getNonceSequence().getRemaining() > 0);
+		for (byte[] envelope : sealed) {
+			assertArrayEquals(plain, keyring.decrypt(envelope));
+		}
+	}
+
+	// semua thread meminta nonce bersamaan; hasilnya counter 64 bit per nonce,
+	// setelah memastikan prefix 4 byte sama untuk satu sequence
+	private static long[][] generate(int threads, int perThread, NonceSink sink, NonceSequence sequence)
+			throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<long[]>> futures = new ArrayList<>();
+			byte[][] prefixes = new byte[threads][];
+			for (int t = 0; t < threads; t++) {
+				int thread = t;
+				futures.add(executor.submit(() -> {
+					byte[] nonce = new byte[AesGcmEngine.NONCE_LENGTH];
+					long[] counters = new long[perThread];
+					start.await();
+					for (int i = 0; i < perThread; i++) {
+						sink.accept(nonce);
+						if (i == 0) {
+							prefixes[thread] = Arrays.copyOf(nonce, 4);
+						} else if (!Arrays.equals(prefixes[thread], 0, 4, nonce, 0, 4)) {
+							throw new AssertionError("nonce prefix changed");
+						}
+						counters[i] = ByteBuffer.wrap(nonce, 4, 8).getLong();
+					}
+					return counters;
+				}));
+			}
+			start.countDown();
+
+			long[][] result = new long[threads][];
+			for (int t = 0; t < threads; t++) {
+				result[t] = futures.get(t).get(60, TimeUnit.SECONDS);
+				assertArrayEquals(prefixes[0], prefixes[t]);
+			}
+			assertTrue(sequence.getLeased() >= (long) threads * perThread);
+			return result;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@FunctionalInterface
+	private interface NonceSink {
+		void accept(byte[] nonce) throws Exception;
+	}
+}
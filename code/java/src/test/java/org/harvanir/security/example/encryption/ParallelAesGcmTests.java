@@ -0,0 +1,228 @@
+package org.harvanir.security.example.encryption;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+import org.junit.jupiter.api.Test;
+
+class ParallelAesGcmTests {
+
+	private static final int CHUNK = StreamingAesGcm.MIN_SEGMENT_SIZE;
+
+	private static final int SEALED_CHUNK = CHUNK + StreamingAesGcm.TAG_LENGTH;
+
+	private static final int HEADER = StreamingAesGcm.HEADER_LENGTH;
+
+	// sekitar batas chunk, plus beberapa chunk penuh supaya task benar-benar dipecah
+	private static final List<Integer> SIZES = List.of(0, 1, CHUNK - 1, CHUNK, CHUNK + 1, 2 * CHUNK, 9 * CHUNK,
+			9 * CHUNK + 3);
+
+	private static final SecureRandom RNG = new SecureRandom();
+
+	private final SecretKey key = key();
+
+	@Test
+	void parallelOutputEqualsSequentialSealing() throws Exception {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			ParallelAesGcm parallel = new ParallelAesGcm(key, CHUNK, pool);
+			for (int size : SIZES) {
+				byte[] plain = random(size);
+				byte[] container = parallel.encrypt(plain);
+
+				// header acak per container: segel ulang satu per satu dengan header yang sama
+				assertArrayEquals(sealSequentially(container, plain), container);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void roundTripAcrossPoolSizes() throws Exception {
+		ForkJoinPool single = new ForkJoinPool(1);
+		ForkJoinPool wide = new ForkJoinPool(4);
+		try {
+			ParallelAesGcm sequential = new ParallelAesGcm(key, CHUNK, single);
+			ParallelAesGcm parallel = new ParallelAesGcm(key, CHUNK, wide);
+			for (int size : SIZES) {
+				byte[] plain = random(size);
+
+				assertArrayEquals(plain, parallel.decrypt(sequential.encrypt(plain)));
+				assertArrayEquals(plain, sequential.decrypt(parallel.encrypt(plain)));
+			}
+		} finally {
+			single.shutdown();
+			wide.shutdown();
+		}
+	}
+
+	@Test
+	void chunkBoundariesMatchStreamingFormat() throws Exception {
+		ParallelAesGcm parallel = new ParallelAesGcm(key, CHUNK, ForkJoinPool.commonPool());
+		StreamingAesGcm streaming = new StreamingAesGcm(key, CHUNK);
+		for (int size : SIZES) {
+			byte[] plain = random(size);
+			byte[] container = parallel.encrypt(plain);
+
+			long chunks = Math.max(1, (size + CHUNK - 1) / CHUNK);
+			assertEquals(HEADER + size + chunks * StreamingAesGcm.TAG_LENGTH, container.length);
+			assertEquals(size, ParallelAesGcm.plaintextSize(ByteBuffer.wrap(container)));
+
+			// container bisa dibuka StreamingAesGcm dan sebaliknya
+			ByteArrayOutputStream opened = new ByteArrayOutputStream();
+			try (WritableByteChannel out = Channels.newChannel(opened)) {
+				streaming.decrypt(Channels.newChannel(new ByteArrayInputStream(container)), out);
+			}
+			assertArrayEquals(plain, opened.toByteArray());
+
+			ByteArrayOutputStream sealed = new ByteArrayOutputStream();
+			try (WritableByteChannel out = Channels.newChannel(sealed)) {
+				streaming.encrypt(Channels.newChannel(new ByteArrayInputStream(plain)), out);
+			}
+			assertArrayEquals(plain, parallel.decrypt(sealed.toByteArray()));
+		}
+	}
+
+	@Test
+	void byteBufferPositionsAreAdvanced() throws Exception {
+		ParallelAesGcm parallel = new ParallelAesGcm(key, CHUNK, ForkJoinPool.commonPool());
+		byte[] plain = random(3 * CHUNK + 5);
+		int sealedSize = (int) parallel.ciphertextSize(plain.length);
+
+		// offset di kedua buffer: slice per chunk harus relatif terhadap posisi
+		ByteBuffer in = ByteBuffer.allocateDirect(plain.length + 20).position(7);
+		in.put(plain).flip().position(7);
+		ByteBuffer sealed = ByteBuffer.allocateDirect(sealedSize + 20).position(11);
+		parallel.encrypt(in, sealed);
+		assertFalse(in.hasRemaining());
+		assertEquals(11 + sealedSize, sealed.position());
+
+		ByteBuffer opened = ByteBuffer.allocate(plain.length + 20).position(3);
+		parallel.decrypt(sealed.flip().position(11), opened);
+		assertEquals(3 + plain.length, opened.position());
+		assertArrayEquals(plain, Arrays.copyOfRange(opened.array(), 3, 3 + plain.length));
+
+		assertThrows(IllegalArgumentException.class,
+				() -> parallel.encrypt(ByteBuffer.wrap(plain), ByteBuffer.allocate(sealedSize - 1)));
+	}
+
+	@Test
+	void tamperedOrReorderedChunksAreDetected() throws Exception {
+		ParallelAesGcm parallel = new ParallelAesGcm(key, CHUNK, ForkJoinPool.commonPool());
+		byte[] container = parallel.encrypt(random(6 * CHUNK + 9));
+
+		byte[] flipped = container.clone();
+		flipped[HEADER + 4 * SEALED_CHUNK + 10] ^= 1;
+		assertThrows(AEADBadTagException.class, () -> parallel.decrypt(flipped));
+
+		byte[] tag = container.clone();
+		tag[tag.length - 1] ^= 1;
+		assertThrows(AEADBadTagException.class, () -> parallel.decrypt(tag));
+
+		byte[] swapped = container.clone();
+		System.arraycopy(container, HEADER + SEALED_CHUNK, swapped, HEADER + 2 * SEALED_CHUNK, SEALED_CHUNK);
+		System.arraycopy(container, HEADER + 2 * SEALED_CHUNK, swapped, HEADER + SEALED_CHUNK, SEALED_CHUNK);
+		assertThrows(AEADBadTagException.class, () -> parallel.decrypt(swapped));
+
+		byte[] header = container.clone();
+		header[HEADER - 1] ^= 1;
+		assertThrows(AEADBadTagException.class, () -> parallel.decrypt(header));
+	}
+
+	@Test
+	void truncationIsDetected() throws Exception {
+		ParallelAesGcm parallel = new ParallelAesGcm(key, CHUNK, ForkJoinPool.commonPool());
+		byte[] container = parallel.encrypt(random(4 * CHUNK));
+
+		// chunk terakhir hilang tepat di batas chunk
+		byte[] dropped = Arrays.copyOf(container, container.length - SEALED_CHUNK);
+		assertThrows(AEADBadTagException.class, () -> parallel.decrypt(dropped));
+
+		// sisa chunk terakhir lebih pendek dari tag
+		byte[] tagless = Arrays.copyOf(container, HEADER + 3 * SEALED_CHUNK + 7);
+		assertThrows(AEADBadTagException.class, () -> ParallelAesGcm.plaintextSize(ByteBuffer.wrap(tagless)));
+		assertThrows(AEADBadTagException.class, () -> parallel.decrypt(tagless));
+
+		byte[] cut = Arrays.copyOf(container, container.length - 1);
+		assertThrows(AEADBadTagException.class, () -> parallel.decrypt(cut));
+		assertThrows(AEADBadTagException.class, () -> parallel.decrypt(Arrays.copyOf(container, HEADER)));
+	}
+
+	@Test
+	void fileModeRoundTripAndFailureCleanup() throws Exception {
+		ParallelAesGcm parallel = new ParallelAesGcm(key, CHUNK, ForkJoinPool.commonPool());
+		Path plainFile = Files.createTempFile("pag-plain", ".bin");
+		Path sealedFile = Files.createTempFile("pag-sealed", ".bin");
+		Path openedFile = Files.createTempFile("pag-opened", ".bin");
+		try {
+			byte[] plain = random(7 * CHUNK + 1);
+			Files.write(plainFile, plain);
+
+			assertEquals(parallel.ciphertextSize(plain.length), parallel.encryptFile(plainFile, sealedFile));
+			assertEquals(plain.length, parallel.decryptFile(sealedFile, openedFile));
+			assertArrayEquals(plain, Files.readAllBytes(openedFile));
+			assertArrayEquals(plain, parallel.decrypt(Files.readAllBytes(sealedFile)));
+
+			byte[] sealed = Files.readAllBytes(sealedFile);
+			Files.write(sealedFile, Arrays.copyOf(sealed, sealed.length - SEALED_CHUNK + CHUNK));
+			assertThrows(AEADBadTagException.class, () -> parallel.decryptFile(sealedFile, openedFile));
+			// plaintext parsial tidak boleh tertinggal
+			assertFalse(Files.exists(openedFile));
+		} finally {
+			Files.deleteIfExists(plainFile);
+			Files.deleteIfExists(sealedFile);
+			Files.deleteIfExists(openedFile);
+		}
+	}
+
+	private byte[] sealSequentially(byte[] container, byte[] plain) throws Exception {
+		StreamingAesGcm.Header header = StreamingAesGcm.Header.parse(Arrays.copyOf(container, HEADER));
+		SecretKey derived = header.deriveKey(key);
+		Cipher cipher = Cipher.getInstance(StreamingAesGcm.TRANSFORMATION);
+
+		ByteBuffer out = ByteBuffer.allocate(container.length).put(header.getEncoded());
+		long chunks = Math.max(1, (plain.length + CHUNK - 1) / CHUNK);
+		for (int chunk = 0; chunk < chunks; chunk++) {
+			int offset = chunk * CHUNK;
+			ByteBuffer in = ByteBuffer.wrap(plain, offset, Math.min(CHUNK, plain.length - offset));
+			StreamingAesGcm.seal(cipher, derived, header, chunk, chunk == chunks - 1, in, out);
+		}
+		return out.array();
+	}
+
+	private static byte[] random(int size) {
+		byte[] bytes = new byte[size];
+		RNG.nextBytes(bytes);
+		return bytes;
+	}
+
+	private static SecretKey key() {
+		try {
+			KeyGenerator kg = KeyGenerator.getInstance("AES");
+			kg.init(256);
+			return kg.generateKey();
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
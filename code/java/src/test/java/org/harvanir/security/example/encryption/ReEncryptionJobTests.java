@@ -0,0 +1,61 @@
+package org.harvanir.security.example.encryption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+class ReEncryptionJobTests {
+
+	private static final int RECORDS = 50;
+
+	@Test
+	void failuresAreReportedPerPassAndCountAsRemaining() throws Exception {
+		Keyring keyring = new Keyring(1, new byte[32]);
+		ConcurrentMap<Integer, byte[]> store = new ConcurrentHashMap<>();
+		for (int i = 0; i < RECORDS; i++) {
+			store.put(i, keyring.encrypt(("record ke-" + i).getBytes(StandardCharsets.UTF_8)));
+		}
+		// tag rusak: lolos parse envelope tapi gagal di-decrypt
+		byte[] corrupted = keyring.encrypt("rusak".getBytes(StandardCharsets.UTF_8));
+		corrupted[corrupted.length - 1] ^= 1;
+		store.put(100, corrupted);
+		// bukan envelope sama sekali
+		store.put(101, new byte[] { 1, 2, 3 });
+		keyring.rotate();
+
+		try (ReEncryptionJob<Integer> job = new ReEncryptionJob<>(keyring, store, 100_000, Duration.ofMillis(10))
+				.start()) {
+			await(() -> job.getMigrated() == RECORDS && job.getRemaining() == 2);
+			// beberapa pass lagi: record yang sama tidak dihitung berulang
+			Thread.sleep(100);
+			assertEquals(RECORDS, job.getMigrated());
+			assertEquals(2, job.getFailed());
+			assertEquals(2, job.getRemaining());
+			assertEquals(0, job.getConflicts());
+			for (int i = 0; i < RECORDS; i++) {
+				assertFalse(keyring.isStale(Envelope.wrap(ByteBuffer.wrap(store.get(i)))));
+			}
+
+			store.remove(100);
+			store.remove(101);
+			await(() -> job.getFailed() == 0 && job.getRemaining() == 0);
+		}
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+		while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+		assertTrue(condition.getAsBoolean());
+	}
+}
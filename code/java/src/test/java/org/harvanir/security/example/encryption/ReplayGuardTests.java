@@ -0,0 +1,137 @@
+package org.harvanir.security.example.encryption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class ReplayGuardTests {
+
+	private static final int THREADS = 8;
+
+	// window satu blok (64 nomor urut) supaya mudah keluar dari window
+	private static final ReplayGuard.ReplayConfig SMALL = new ReplayGuard.ReplayConfig(64, 1, Duration.ofMinutes(2),
+			Duration.ofSeconds(30), 4, 1 << 16);
+
+	@Test
+	void duplicateIsRejected() {
+		ReplayGuard guard = new ReplayGuard(ReplayGuard.ReplayConfig.defaults());
+		long now = now();
+
+		assertEquals(ReplayGuard.Verdict.FRESH, guard.check(1, 7, now));
+		// check tidak mengubah state
+		assertEquals(ReplayGuard.Verdict.FRESH, guard.check(1, 7, now));
+		assertTrue(guard.commit(1, 7, now));
+
+		assertEquals(ReplayGuard.Verdict.DUPLICATE, guard.check(1, 7, now));
+		assertFalse(guard.commit(1, 7, now));
+		// stream lain dengan nomor urut yang sama tidak terpengaruh
+		assertEquals(ReplayGuard.Verdict.FRESH, guard.check(2, 7, now));
+	}
+
+	@Test
+	void reorderedMessagesInsideWindowAreAccepted() {
+		ReplayGuard guard = new ReplayGuard(ReplayGuard.ReplayConfig.defaults());
+		long now = now();
+
+		// window dimulai dari nomor urut pertama yang di-commit
+		assertTrue(guard.commit(1, 0, now));
+		assertTrue(guard.commit(1, 500, now));
+		for (long sequence = 499; sequence > 0; sequence--) {
+			assertEquals(ReplayGuard.Verdict.FRESH, guard.check(1, sequence, now), "sequence " + sequence);
+			assertTrue(guard.commit(1, sequence, now));
+		}
+		for (long sequence = 0; sequence <= 500; sequence++) {
+			assertEquals(ReplayGuard.Verdict.DUPLICATE, guard.check(1, sequence, now), "sequence " + sequence);
+		}
+	}
+
+	@Test
+	void timestampsOutsideAgeAndSkewAreRejected() {
+		ReplayGuard guard = new ReplayGuard(ReplayGuard.ReplayConfig.defaults());
+		long now = now();
+
+		assertEquals(ReplayGuard.Verdict.TOO_OLD, guard.check(1, 1, now - Duration.ofMinutes(2).toSeconds() - 5));
+		assertEquals(ReplayGuard.Verdict.FUTURE, guard.check(1, 2, now + Duration.ofSeconds(30).toSeconds() + 5));
+		assertEquals(ReplayGuard.Verdict.FRESH, guard.check(1, 3, now - Duration.ofMinutes(1).toSeconds()));
+	}
+
+	@Test
+	void sequenceOutsideWindowIsCheckedInBloomFilter() {
+		ReplayGuard guard = new ReplayGuard(SMALL);
+		long now = now();
+
+		assertTrue(guard.commit(1, 0, now));
+		// geser window beberapa blok ke depan; nomor 0 dan 1 keluar dari window
+		assertTrue(guard.commit(1, 1_000, now));
+
+		assertEquals(ReplayGuard.Verdict.DUPLICATE, guard.check(1, 0, now));
+		assertFalse(guard.commit(1, 0, now));
+		assertEquals(ReplayGuard.Verdict.FRESH, guard.check(1, 1, now));
+		assertTrue(guard.commit(1, 1, now));
+		assertEquals(ReplayGuard.Verdict.DUPLICATE, guard.check(1, 1, now));
+	}
+
+	@Test
+	void evictedStreamIsStillDetected() {
+		ReplayGuard guard = new ReplayGuard(SMALL);
+		long now = now();
+
+		assertTrue(guard.commit(1, 5, now));
+		assertTrue(guard.commit(2, 5, now));
+		assertEquals(1, guard.getStreamCount());
+
+		assertEquals(ReplayGuard.Verdict.DUPLICATE, guard.check(1, 5, now));
+		assertFalse(guard.commit(1, 5, now));
+	}
+
+	@Test
+	void onlyOneConcurrentCommitWins() throws Exception {
+		ReplayGuard guard = new ReplayGuard(ReplayGuard.ReplayConfig.defaults());
+		long now = now();
+		int messages = 1_000;
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<Integer>> futures = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				futures.add(executor.submit(() -> {
+					int won = 0;
+					start.await();
+					for (long sequence = 0; sequence < messages; sequence++) {
+						// semua salinan lolos check, commit yang menentukan
+						if (guard.check(1, sequence, now) == ReplayGuard.Verdict.FRESH
+								&& guard.commit(1, sequence, now)) {
+							won++;
+						}
+					}
+					return won;
+				}));
+			}
+			start.countDown();
+
+			int total = 0;
+			for (Future<Integer> future : futures) {
+				total += future.get(60, TimeUnit.SECONDS);
+			}
+			assertEquals(messages, total);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static long now() {
+		return System.currentTimeMillis() / 1000;
+	}
+}
@@ -0,0 +1,229 @@
+package org.harvanir.security.example.encryption;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+import org.junit.jupiter.api.Test;
+
+class StreamingAesGcmTests {
+
+	// segmen terkecil supaya test cepat dan mudah melewati batas segmen
+	private static final int SEGMENT = StreamingAesGcm.MIN_SEGMENT_SIZE;
+
+	private static final int SEALED_SEGMENT = SEGMENT + StreamingAesGcm.TAG_LENGTH;
+
+	private static final List<Integer> SIZES = List.of(0, 1, SEGMENT - 1, SEGMENT, SEGMENT + 1, 3 * SEGMENT,
+			3 * SEGMENT + 17);
+
+	private static final SecureRandom RNG = new SecureRandom();
+
+	private final StreamingAesGcm aead = new StreamingAesGcm(key(), SEGMENT);
+
+	@Test
+	void channelRoundTrip() throws Exception {
+		for (int size : SIZES) {
+			byte[] plain = random(size);
+			byte[] sealed = encrypt(plain);
+
+			assertEquals(StreamingAesGcm.ciphertextSize(size, SEGMENT), sealed.length);
+			assertArrayEquals(plain, decrypt(sealed));
+		}
+	}
+
+	@Test
+	void mappedRoundTripIsCompatibleWithChannel() throws Exception {
+		Path plainFile = Files.createTempFile("sag-plain", ".bin");
+		Path sealedFile = Files.createTempFile("sag-sealed", ".bin");
+		Path openedFile = Files.createTempFile("sag-opened", ".bin");
+		try {
+			for (int size : SIZES) {
+				byte[] plain = random(size);
+				Files.write(plainFile, plain);
+
+				long sealedSize = aead.encryptFile(plainFile, sealedFile);
+				assertEquals(StreamingAesGcm.ciphertextSize(size, SEGMENT), sealedSize);
+				assertEquals(sealedSize, Files.size(sealedFile));
+				assertEquals(size, aead.decryptFile(sealedFile, openedFile));
+				assertArrayEquals(plain, Files.readAllBytes(openedFile));
+
+				// format sama: hasil mapped bisa dibuka lewat channel dan sebaliknya
+				assertArrayEquals(plain, decrypt(Files.readAllBytes(sealedFile)));
+				Files.write(sealedFile, encrypt(plain));
+				aead.decryptFile(sealedFile, openedFile);
+				assertArrayEquals(plain, Files.readAllBytes(openedFile));
+			}
+		} finally {
+			Files.deleteIfExists(plainFile);
+			Files.deleteIfExists(sealedFile);
+			Files.deleteIfExists(openedFile);
+		}
+	}
+
+	@Test
+	void emptyInputIsSingleTagOnlySegment() throws Exception {
+		byte[] sealed = encrypt(new byte[0]);
+
+		assertEquals(StreamingAesGcm.HEADER_LENGTH + StreamingAesGcm.TAG_LENGTH, sealed.length);
+		assertEquals(0, decrypt(sealed).length);
+		// header saja tanpa tag segmen terakhir
+		byte[] headerOnly = Arrays.copyOf(sealed, StreamingAesGcm.HEADER_LENGTH);
+		assertThrows(AEADBadTagException.class, () -> decrypt(headerOnly));
+	}
+
+	@Test
+	void droppedFinalSegmentIsDetected() throws Exception {
+		// kelipatan pas ukuran segmen: setelah segmen terakhir dibuang, stream
+		// berhenti tepat di batas segmen
+		byte[] sealed = encrypt(random(3 * SEGMENT));
+		byte[] dropped = Arrays.copyOf(sealed, sealed.length - SEALED_SEGMENT);
+
+		assertThrows(AEADBadTagException.class, () -> decrypt(dropped));
+		assertMappedDecryptFails(dropped);
+	}
+
+	@Test
+	void truncatedFinalTagIsDetected() throws Exception {
+		byte[] sealed = encrypt(random(SEGMENT + 100));
+		byte[] truncated = Arrays.copyOf(sealed, sealed.length - 1);
+		// sisa segmen terakhir lebih pendek dari tag
+		byte[] tagless = Arrays.copyOf(sealed, StreamingAesGcm.HEADER_LENGTH + SEALED_SEGMENT + 5);
+
+		assertThrows(AEADBadTagException.class, () -> decrypt(truncated));
+		assertThrows(AEADBadTagException.class, () -> decrypt(tagless));
+		assertMappedDecryptFails(truncated);
+		assertMappedDecryptFails(tagless);
+	}
+
+	@Test
+	void swappedSegmentsAreDetected() throws Exception {
+		byte[] sealed = encrypt(random(3 * SEGMENT + 17));
+		byte[] swapped = sealed.clone();
+		int first = StreamingAesGcm.HEADER_LENGTH;
+		int second = first + SEALED_SEGMENT;
+		System.arraycopy(sealed, first, swapped, second, SEALED_SEGMENT);
+		System.arraycopy(sealed, second, swapped, first, SEALED_SEGMENT);
+
+		assertThrows(AEADBadTagException.class, () -> decrypt(swapped));
+		assertMappedDecryptFails(swapped);
+	}
+
+	@Test
+	void tamperedCiphertextAndHeaderAreDetected() throws Exception {
+		byte[] sealed = encrypt(random(2 * SEGMENT));
+
+		byte[] body = sealed.clone();
+		body[StreamingAesGcm.HEADER_LENGTH + SEGMENT / 2] ^= 1;
+		assertThrows(AEADBadTagException.class, () -> decrypt(body));
+
+		// salt dan nonce prefix: key/nonce lain, header juga AAD
+		for (int offset = 8; offset < StreamingAesGcm.HEADER_LENGTH; offset += 13) {
+			byte[] header = sealed.clone();
+			header[offset] ^= 1;
+			assertThrows(AEADBadTagException.class, () -> decrypt(header), "offset " + offset);
+			assertMappedDecryptFails(header);
+		}
+
+		byte[] magic = sealed.clone();
+		magic[0] = 'X';
+		assertThrows(AEADBadTagException.class, () -> decrypt(magic));
+	}
+
+	@Test
+	void segmentSizeIsBounded() throws Exception {
+		assertThrows(IllegalArgumentException.class,
+				() -> new StreamingAesGcm(key(), StreamingAesGcm.MAX_SEGMENT_SIZE + 1));
+		assertThrows(IllegalArgumentException.class,
+				() -> new StreamingAesGcm(key(), StreamingAesGcm.MIN_SEGMENT_SIZE - 1));
+
+		// header belum terautentikasi: ukuran segmen besar ditolak sebelum alokasi
+		byte[] sealed = encrypt(random(10));
+		for (int size : List.of(StreamingAesGcm.MAX_SEGMENT_SIZE + 1, Integer.MAX_VALUE,
+				StreamingAesGcm.MIN_SEGMENT_SIZE - 1, -1)) {
+			byte[] forged = sealed.clone();
+			ByteBuffer.wrap(forged).putInt(4, size);
+			assertThrows(AEADBadTagException.class, () -> decrypt(forged), "size " + size);
+			assertMappedDecryptFails(forged);
+		}
+	}
+
+	@Test
+	void segmentCountIsLimitedByNonceCounter() {
+		// nomor segmen di nonce hanya 32 bit
+		StreamingAesGcm.checkSegmentCount(1);
+		StreamingAesGcm.checkSegmentCount(0xFFFFFFFFL);
+		assertThrows(IllegalArgumentException.class, () -> StreamingAesGcm.checkSegmentCount(0x1_0000_0000L));
+	}
+
+	@Test
+	void otherKeyCannotDecrypt() throws Exception {
+		byte[] sealed = encrypt(random(SEGMENT));
+		StreamingAesGcm other = new StreamingAesGcm(key(), SEGMENT);
+
+		assertThrows(AEADBadTagException.class,
+				() -> other.decrypt(Channels.newChannel(new ByteArrayInputStream(sealed)),
+						Channels.newChannel(new ByteArrayOutputStream())));
+	}
+
+	private byte[] encrypt(byte[] plain) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (WritableByteChannel channel = Channels.newChannel(out)) {
+			aead.encrypt(Channels.newChannel(new ByteArrayInputStream(plain)), channel);
+		}
+		return out.toByteArray();
+	}
+
+	private byte[] decrypt(byte[] sealed) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (WritableByteChannel channel = Channels.newChannel(out)) {
+			aead.decrypt(Channels.newChannel(new ByteArrayInputStream(sealed)), channel);
+		}
+		return out.toByteArray();
+	}
+
+	private void assertMappedDecryptFails(byte[] sealed) throws Exception {
+		Path source = Files.createTempFile("sag-bad", ".bin");
+		Path target = source.resolveSibling(source.getFileName() + ".out");
+		try {
+			Files.write(source, sealed);
+			assertThrows(AEADBadTagException.class, () -> aead.decryptFile(source, target));
+			// plaintext parsial tidak boleh tertinggal
+			assertFalse(Files.exists(target));
+		} finally {
+			Files.deleteIfExists(source);
+			Files.deleteIfExists(target);
+		}
+	}
+
+	private static byte[] random(int size) {
+		byte[] bytes = new byte[size];
+		RNG.nextBytes(bytes);
+		return bytes;
+	}
+
+	private static SecretKey key() {
+		try {
+			KeyGenerator kg = KeyGenerator.getInstance("AES");
+			kg.init(256);
+			return kg.generateKey();
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package org.harvanir.security.example.hashing;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class PasswordHashTests {
+
+	private static final char[] PASSWORD = "rahasiaBanget123".toCharArray();
+
+	private static final char[] WRONG = "salahPassword".toCharArray();
+
+	// parameter murah supaya test cepat
+	private static final PasswordHashers HASHERS = new PasswordHashers(new Argon2idHasher(1, 1024, 1),
+			List.of(new Pbkdf2Hasher(1_000), new BcryptHasher(4), new ScryptHasher(1024, 8, 1)), 16);
+
+	@Test
+	void parsesPhcArgon2id() {
+		PasswordHash hash = PasswordHash.parse("$argon2id$v=19$m=65536,t=3,p=2$c2FsdHNhbHQ$aGFzaGhhc2g");
+
+		assertEquals("argon2id", hash.getId());
+		assertEquals(19, hash.getVersion());
+		assertEquals(65536, hash.param("m"));
+		assertEquals(3, hash.param("t"));
+		assertEquals(2, hash.param("p"));
+		assertArrayEquals("saltsalt".getBytes(StandardCharsets.US_ASCII), hash.getSalt());
+		assertArrayEquals("hashhash".getBytes(StandardCharsets.US_ASCII), hash.getHash());
+		assertThrows(IllegalArgumentException.class, () -> hash.param("i"));
+	}
+
+	@Test
+	void argon2idRoundTrip() {
+		String stored = HASHERS.hash(PASSWORD);
+		PasswordHash hash = PasswordHash.parse(stored);
+
+		assertEquals(Argon2idHasher.ID, hash.getId());
+		assertEquals(1024, hash.param("m"));
+		assertEquals(1, hash.param("t"));
+		assertEquals(1, hash.param("p"));
+		assertRoundTrip(stored);
+	}
+
+	@Test
+	void pbkdf2RoundTrip() {
+		String stored = new Pbkdf2Hasher(1_000).hash(PASSWORD);
+		PasswordHash hash = PasswordHash.parse(stored);
+
+		assertEquals(Pbkdf2Hasher.ID, hash.getId());
+		assertEquals(-1, hash.getVersion());
+		assertEquals(1_000, hash.param("i"));
+		assertEquals(16, hash.getSalt().length);
+		assertEquals(32, hash.getHash().length);
+		assertRoundTrip(stored);
+	}
+
+	@Test
+	void bcryptRoundTrip() {
+		String stored = new BcryptHasher(4).hash(PASSWORD);
+		PasswordHash hash = PasswordHash.parse(stored);
+
+		assertEquals("2a", hash.getId());
+		assertEquals(4, hash.param("cost"));
+		assertNull(hash.getSalt());
+		assertNull(hash.getHash());
+		assertRoundTrip(stored);
+	}
+
+	@Test
+	void bcryptRevisionsShareKnownAnswer() {
+		// vektor dari libxcrypt; ketiga revisi menghasilkan digest yang sama
+		String digest = "$04$abcdefghijklmnopqrstuuHho4VIgoXVHdNA.TTmkwmm1BJUmhxiC";
+		for (String id : List.of("2a", "2b", "2y")) {
+			String stored = "$" + id + digest;
+			PasswordHash hash = PasswordHash.parse(stored);
+
+			assertEquals(id, hash.getId());
+			assertFalse(new BcryptHasher(4).needsRehash(hash), stored);
+			assertRoundTrip(stored);
+		}
+	}
+
+	@Test
+	void scryptRoundTrip() {
+		String stored = new ScryptHasher(1024, 8, 1).hash(PASSWORD);
+		PasswordHash hash = PasswordHash.parse(stored);
+
+		assertEquals("s0", hash.getId());
+		assertEquals(10, hash.param("ln"));
+		assertEquals(8, hash.param("r"));
+		assertEquals(1, hash.param("p"));
+		assertRoundTrip(stored);
+	}
+
+	@Test
+	void legacyPbkdf2RoundTrip() {
+		byte[] salt = "legacy-salt-1234".getBytes(StandardCharsets.US_ASCII);
+		byte[] derived = Pbkdf2Hasher.derive(PASSWORD, salt, 1_000, 256);
+		Base64.Encoder b64 = Base64.getEncoder();
+		String stored = String.join("$", "pbkdf2", "sha256", "1000", b64.encodeToString(salt),
+				b64.encodeToString(derived));
+		PasswordHash hash = PasswordHash.parse(stored);
+
+		assertEquals(Pbkdf2Hasher.ID, hash.getId());
+		assertEquals(1_000, hash.param("i"));
+		assertArrayEquals(salt, hash.getSalt());
+		assertArrayEquals(derived, hash.getHash());
+		assertRoundTrip(stored);
+		// format lama selalu di-upgrade
+		assertTrue(HASHERS.needsRehash(stored));
+	}
+
+	@Test
+	void otherLegacyDigestIsNotVerifiedAsSha256() {
+		byte[] salt = "legacy-salt-1234".getBytes(StandardCharsets.US_ASCII);
+		Base64.Encoder b64 = Base64.getEncoder();
+		// hash SHA-256 yang diberi label sha1 tidak boleh lolos
+		String stored = String.join("$", "pbkdf2", "sha1", "1000", b64.encodeToString(salt),
+				b64.encodeToString(Pbkdf2Hasher.derive(PASSWORD, salt, 1_000, 256)));
+
+		assertEquals("pbkdf2-sha1", PasswordHash.parse(stored).getId());
+		assertFalse(HASHERS.verify(PASSWORD, stored));
+	}
+
+	@Test
+	void malformedHashesAreRejected() {
+		List<String> malformed = List.of(
+				"",
+				"$",
+				"plaintext",
+				"$argon2id$v=19$m=65536,t=3,p=2$c2FsdA",
+				"$argon2id$v=x$m=65536,t=3,p=2$c2FsdA$aGFzaA",
+				"$argon2id$v=19$m=,t=3,p=2$c2FsdA$aGFzaA",
+				"$argon2id$v=19$=1,t=3$c2FsdA$aGFzaA",
+				"$argon2id$v=19$m=65536,t=3,p=2$c2FsdA$aGFzaA$extra",
+				"$pbkdf2-sha256$i=1000$!!!$aGFzaA",
+				"$2a$12$short",
+				"$2a$xx$" + "a".repeat(53),
+				"$s0$zz$c2FsdA==$aGFzaA==",
+				"$s0$e0801$c2FsdA==",
+				"pbkdf2$sha256$abc$c2FsdA==$aGFzaA==",
+				"pbkdf2$sha256$1000$c2FsdA==");
+		for (String stored : malformed) {
+			assertThrows(IllegalArgumentException.class, () -> PasswordHash.parse(stored), stored);
+			assertFalse(HASHERS.verify(PASSWORD, stored), stored);
+			assertTrue(HASHERS.needsRehash(stored), stored);
+		}
+	}
+
+	@Test
+	void unusableParametersFailVerification() {
+		List<String> unusable = List.of(
+				// algoritma tidak terdaftar
+				"$md5$i=1000$c2FsdA$aGFzaA",
+				// parameter wajib tidak ada
+				"$pbkdf2-sha256$n=1000$c2FsdA$aGFzaA",
+				// iterasi nol dan salt kosong ditolak oleh PBEKeySpec
+				"$pbkdf2-sha256$i=0$c2FsdA$aGFzaA",
+				"$pbkdf2-sha256$i=1000$$aGFzaA");
+		for (String stored : unusable) {
+			assertFalse(HASHERS.verify(PASSWORD, stored), stored);
+			assertTrue(HASHERS.needsRehash(stored), stored);
+		}
+	}
+
+	private static void assertRoundTrip(String stored) {
+		assertTrue(HASHERS.verify(PASSWORD, stored), stored);
+		assertFalse(HASHERS.verify(WRONG, stored), stored);
+	}
+}
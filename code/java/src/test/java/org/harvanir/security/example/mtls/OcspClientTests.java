@@ -0,0 +1,142 @@
+package org.harvanir.security.example.mtls;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+class OcspClientTests {
+
+	@Test
+	void goodAndRevokedStatusAreParsed() throws Exception {
+		Fixture fx = new Fixture();
+		Instant now = Instant.now();
+
+		OcspClient.Response good = OcspClient.parse(fx.response(RevocationChecker.Status.GOOD, now,
+				now.plus(Duration.ofHours(1))), fx.leaf, fx.ca);
+		assertEquals(RevocationChecker.Status.GOOD, good.getStatus());
+		assertEquals(now.getEpochSecond(), good.getThisUpdate().getEpochSecond());
+
+		OcspClient.Response revoked = OcspClient.parse(fx.response(RevocationChecker.Status.REVOKED, now, null),
+				fx.leaf, fx.ca);
+		assertEquals(RevocationChecker.Status.REVOKED, revoked.getStatus());
+		assertNull(revoked.getNextUpdate());
+	}
+
+	@Test
+	void expiredNextUpdateIsRejected() throws Exception {
+		Fixture fx = new Fixture();
+		Instant now = Instant.now();
+		// signature valid, tapi response lama yang di-replay
+		byte[] body = fx.response(RevocationChecker.Status.GOOD, now.minus(Duration.ofHours(2)),
+				now.minus(Duration.ofHours(1)));
+
+		assertThrows(IOException.class, () -> OcspClient.parse(body, fx.leaf, fx.ca));
+	}
+
+	@Test
+	void futureThisUpdateIsRejectedBeyondClockSkew() throws Exception {
+		Fixture fx = new Fixture();
+		Instant now = Instant.now();
+		byte[] future = fx.response(RevocationChecker.Status.GOOD, now.plus(OcspClient.CLOCK_SKEW).plusSeconds(60),
+				now.plus(Duration.ofHours(2)));
+		byte[] skewed = fx.response(RevocationChecker.Status.GOOD, now.plusSeconds(60), now.plus(Duration.ofHours(2)));
+
+		assertThrows(IOException.class, () -> OcspClient.parse(future, fx.leaf, fx.ca));
+		// jam responder sedikit lebih cepat masih diterima
+		assertEquals(RevocationChecker.Status.GOOD, OcspClient.parse(skewed, fx.leaf, fx.ca).getStatus());
+	}
+
+	@Test
+	void responseSignedByUnrelatedKeyIsRejected() throws Exception {
+		Fixture fx = new Fixture();
+		Instant now = Instant.now();
+		KeyPair other = TestPki.keyPair();
+		byte[] body = TestPki.ocspResponse(fx.leaf, fx.ca, TestPki.SHA1, RevocationChecker.Status.GOOD, now,
+				now.plus(Duration.ofHours(1)), other.getPrivate());
+
+		assertThrows(IOException.class, () -> OcspClient.parse(body, fx.leaf, fx.ca));
+	}
+
+	@Test
+	void delegatedResponderNeedsOcspSigningFromIssuer() throws Exception {
+		Fixture fx = new Fixture();
+		Instant now = Instant.now();
+		Instant next = now.plus(Duration.ofHours(1));
+		KeyPair responderKey = TestPki.keyPair();
+
+		X509Certificate delegated = TestPki.certificate("CN=OCSP Responder", responderKey, fx.ca,
+				fx.caKey.getPrivate(), BigInteger.valueOf(100), true);
+		byte[] accepted = TestPki.ocspResponse(fx.leaf, fx.ca, TestPki.SHA1, RevocationChecker.Status.GOOD, now, next,
+				responderKey.getPrivate(), delegated);
+		assertEquals(RevocationChecker.Status.GOOD, OcspClient.parse(accepted, fx.leaf, fx.ca).getStatus());
+
+		// certificate dari issuer yang sama tapi tanpa EKU OCSPSigning
+		X509Certificate plain = TestPki.certificate("CN=Not A Responder", responderKey, fx.ca, fx.caKey.getPrivate(),
+				BigInteger.valueOf(101), false);
+		byte[] noEku = TestPki.ocspResponse(fx.leaf, fx.ca, TestPki.SHA1, RevocationChecker.Status.GOOD, now, next,
+				responderKey.getPrivate(), plain);
+		assertThrows(IOException.class, () -> OcspClient.parse(noEku, fx.leaf, fx.ca));
+
+		// EKU OCSPSigning tapi ditandatangani CA lain
+		KeyPair otherCaKey = TestPki.keyPair();
+		X509Certificate otherCa = TestPki.certificate("CN=Other CA", otherCaKey, null, otherCaKey.getPrivate(),
+				BigInteger.ONE, false);
+		X509Certificate foreign = TestPki.certificate("CN=OCSP Responder", responderKey, otherCa,
+				otherCaKey.getPrivate(), BigInteger.valueOf(102), true);
+		byte[] notDelegated = TestPki.ocspResponse(fx.leaf, fx.ca, TestPki.SHA1, RevocationChecker.Status.GOOD, now,
+				next, responderKey.getPrivate(), foreign);
+		assertThrows(IOException.class, () -> OcspClient.parse(notDelegated, fx.leaf, fx.ca));
+	}
+
+	@Test
+	void sha256CertIdMustMatchIssuerHashes() throws Exception {
+		Fixture fx = new Fixture();
+		Instant now = Instant.now();
+		Instant next = now.plus(Duration.ofHours(1));
+
+		byte[] matching = TestPki.ocspResponse(fx.leaf, fx.ca, TestPki.SHA256, RevocationChecker.Status.REVOKED, now,
+				next, fx.caKey.getPrivate());
+		assertEquals(RevocationChecker.Status.REVOKED, OcspClient.parse(matching, fx.leaf, fx.ca).getStatus());
+
+		// serial sama, tapi CertID dihitung dari issuer lain
+		KeyPair otherKey = TestPki.keyPair();
+		X509Certificate otherCa = TestPki.certificate("CN=Other CA", otherKey, null, otherKey.getPrivate(),
+				BigInteger.ONE, false);
+		byte[] foreign = TestPki.ocspResponse(fx.leaf, otherCa, TestPki.SHA256, RevocationChecker.Status.GOOD, now,
+				next, fx.caKey.getPrivate());
+		assertThrows(IOException.class, () -> OcspClient.parse(foreign, fx.leaf, fx.ca));
+	}
+
+	/**
+	 * CA self-signed dan satu certificate leaf darinya.
+	 */
+	static final class Fixture {
+		final KeyPair caKey;
+
+		final X509Certificate ca;
+
+		final X509Certificate leaf;
+
+		Fixture() throws GeneralSecurityException {
+			caKey = TestPki.keyPair();
+			ca = TestPki.certificate("CN=Test CA", caKey, null, caKey.getPrivate(), BigInteger.ONE, false);
+			leaf = TestPki.certificate("CN=client", TestPki.keyPair(), ca, caKey.getPrivate(),
+					BigInteger.valueOf(0x1234), false);
+		}
+
+		byte[] response(RevocationChecker.Status status, Instant thisUpdate, Instant nextUpdate)
+				throws GeneralSecurityException, IOException {
+			return TestPki.ocspResponse(leaf, ca, TestPki.SHA1, status, thisUpdate, nextUpdate, caKey.getPrivate());
+		}
+	}
+}
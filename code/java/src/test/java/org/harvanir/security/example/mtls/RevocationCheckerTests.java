@@ -0,0 +1,138 @@
+package org.harvanir.security.example.mtls;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.Test;
+
+class RevocationCheckerTests {
+
+	@Test
+	void goodAndRevokedFromResponderAreCached() throws Exception {
+		OcspClientTests.Fixture fx = new OcspClientTests.Fixture();
+		try (TestPki.Responder responder = new TestPki.Responder();
+				RevocationChecker checker = new RevocationChecker(config(responder))) {
+			responder.respond(() -> response(fx, RevocationChecker.Status.GOOD, Duration.ofHours(1)));
+
+			assertEquals(RevocationChecker.Status.GOOD, checker.check(fx.leaf, fx.ca));
+			// response masih fresh: tidak ada request kedua
+			assertEquals(RevocationChecker.Status.GOOD, checker.check(fx.leaf, fx.ca));
+			assertEquals(1, responder.getRequests());
+		}
+
+		try (TestPki.Responder responder = new TestPki.Responder();
+				RevocationChecker checker = new RevocationChecker(config(responder))) {
+			responder.respond(() -> response(fx, RevocationChecker.Status.REVOKED, Duration.ofHours(1)));
+
+			assertEquals(RevocationChecker.Status.REVOKED, checker.check(fx.leaf, fx.ca));
+		}
+	}
+
+	@Test
+	void invalidResponsesAreUnknown() throws Exception {
+		OcspClientTests.Fixture fx = new OcspClientTests.Fixture();
+		try (TestPki.Responder responder = new TestPki.Responder();
+				RevocationChecker checker = new RevocationChecker(config(responder))) {
+			Instant now = Instant.now();
+			// nextUpdate sudah lewat
+			byte[] expired = fx.response(RevocationChecker.Status.GOOD, now.minus(Duration.ofHours(2)),
+					now.minus(Duration.ofHours(1)));
+			responder.respond(() -> expired);
+			assertEquals(RevocationChecker.Status.UNKNOWN, checker.check(fx.leaf, fx.ca));
+
+			// ditandatangani key yang bukan issuer maupun delegasinya
+			byte[] forged = TestPki.ocspResponse(fx.leaf, fx.ca, TestPki.SHA1, RevocationChecker.Status.GOOD, now,
+					now.plus(Duration.ofHours(1)), TestPki.keyPair().getPrivate());
+			responder.respond(() -> forged);
+			assertEquals(RevocationChecker.Status.UNKNOWN, checker.check(fx.leaf, fx.ca));
+			assertEquals(2, responder.getRequests());
+		}
+	}
+
+	@Test
+	void staleResponseIsServedWhileRevalidating() throws Exception {
+		OcspClientTests.Fixture fx = new OcspClientTests.Fixture();
+		try (TestPki.Responder responder = new TestPki.Responder();
+				RevocationChecker checker = new RevocationChecker(config(responder))) {
+			responder.respond(() -> response(fx, RevocationChecker.Status.GOOD, Duration.ofSeconds(2)));
+			assertEquals(RevocationChecker.Status.GOOD, checker.check(fx.leaf, fx.ca));
+
+			// tunggu sampai nextUpdate lewat; responder sekarang menjawab REVOKED
+			Thread.sleep(2_100);
+			responder.respond(() -> response(fx, RevocationChecker.Status.REVOKED, Duration.ofHours(1)));
+			LongAdder stale = MtlsMetrics.global().counter(MtlsMetrics.REVOCATION_CACHE_STALE);
+			long staleBefore = stale.sum();
+
+			// masih dalam staleGrace: status lama langsung dipakai, refresh di background
+			assertEquals(RevocationChecker.Status.GOOD, checker.check(fx.leaf, fx.ca));
+			assertEquals(staleBefore + 1, stale.sum());
+			awaitRequests(responder, 2);
+			awaitStatus(checker, fx, RevocationChecker.Status.REVOKED);
+			assertEquals(2, responder.getRequests());
+		}
+	}
+
+	@Test
+	void refreshIsNotScheduledBelowRetryFloor() throws Exception {
+		OcspClientTests.Fixture fx = new OcspClientTests.Fixture();
+		try (TestPki.Responder responder = new TestPki.Responder();
+				RevocationChecker checker = new RevocationChecker(config(responder))) {
+			// nextUpdate hampir lewat: tanpa batas bawah refresh akan berulang terus
+			responder.respond(() -> response(fx, RevocationChecker.Status.GOOD, Duration.ofSeconds(1)));
+			assertEquals(RevocationChecker.Status.GOOD, checker.check(fx.leaf, fx.ca));
+
+			Thread.sleep(1_500);
+			assertEquals(1, responder.getRequests());
+		}
+	}
+
+	@Test
+	void failedFetchIsRetriedAfterRetryFloor() throws Exception {
+		OcspClientTests.Fixture fx = new OcspClientTests.Fixture();
+		try (TestPki.Responder responder = new TestPki.Responder();
+				RevocationChecker checker = new RevocationChecker(config(responder))) {
+			// body null: HTTP 500
+			assertEquals(RevocationChecker.Status.UNKNOWN, checker.check(fx.leaf, fx.ca));
+
+			Thread.sleep(1_000);
+			assertEquals(1, responder.getRequests());
+		}
+	}
+
+	private static RevocationChecker.RevocationConfig config(TestPki.Responder responder) {
+		return new RevocationChecker.RevocationConfig(responder.getUri(), null, Duration.ofMinutes(5),
+				Duration.ofHours(1), Duration.ofSeconds(5), Duration.ofSeconds(5), Duration.ofDays(1), true);
+	}
+
+	private static byte[] response(OcspClientTests.Fixture fx, RevocationChecker.Status status, Duration validity) {
+		Instant now = Instant.now();
+		try {
+			return fx.response(status, now, now.plus(validity));
+		} catch (GeneralSecurityException | IOException e) {
+			throw new UncheckedIOException(new IOException(e));
+		}
+	}
+
+	private static void awaitRequests(TestPki.Responder responder, int count) throws InterruptedException {
+		long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (responder.getRequests() < count && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(count, responder.getRequests());
+	}
+
+	private static void awaitStatus(RevocationChecker checker, OcspClientTests.Fixture fx,
+			RevocationChecker.Status expected) throws InterruptedException {
+		long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (checker.check(fx.leaf, fx.ca) != expected && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(expected, checker.check(fx.leaf, fx.ca));
+	}
+}
@@ -0,0 +1,236 @@
+package org.harvanir.security.example.mtls;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import javax.security.auth.x500.X500Principal;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * TestPki
+ *
+ * CA, certificate dan response OCSP buatan sendiri untuk test revocation,
+ * dibangun dengan {@link Der} supaya tidak butuh file fixture atau library
+ * tambahan. Semua key EC P-256 karena generate-nya cepat.
+ */
+final class TestPki {
+
+	static final String SHA1 = "1.3.14.3.2.26";
+
+	static final String SHA256 = "2.16.840.1.101.3.4.2.1";
+
+	private static final String SHA256_WITH_ECDSA = "1.2.840.10045.4.3.2";
+
+	private static final String EXTENDED_KEY_USAGE = "2.5.29.37";
+
+	private static final String OCSP_SIGNING = "1.3.6.1.5.5.7.3.9";
+
+	private static final String BASIC_RESPONSE = "1.3.6.1.5.5.7.48.1.1";
+
+	private static final DateTimeFormatter UTC_TIME = DateTimeFormatter.ofPattern("yyMMddHHmmss'Z'")
+			.withZone(ZoneOffset.UTC);
+
+	private static final DateTimeFormatter GENERALIZED_TIME = DateTimeFormatter.ofPattern("uuuuMMddHHmmss'Z'")
+			.withZone(ZoneOffset.UTC);
+
+	private TestPki() {
+	}
+
+	static KeyPair keyPair() throws GeneralSecurityException {
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+		generator.initialize(256);
+		return generator.generateKeyPair();
+	}
+
+	/**
+	 * @param issuer null untuk certificate self-signed.
+	 */
+	static X509Certificate certificate(String subject, KeyPair subjectKey, X509Certificate issuer,
+			PrivateKey signer, BigInteger serial, boolean ocspSigning) throws GeneralSecurityException {
+		byte[] subjectName = new X500Principal(subject).getEncoded();
+		byte[] issuerName = issuer != null ? issuer.getSubjectX500Principal().getEncoded() : subjectName;
+		Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+		byte[] extensions = new byte[0];
+		if (ocspSigning) {
+			byte[] eku = Der.encode(Der.SEQUENCE, oid(OCSP_SIGNING));
+			extensions = Der.encode(0xa3, Der.encode(Der.SEQUENCE,
+					Der.encode(Der.SEQUENCE, oid(EXTENDED_KEY_USAGE), Der.encode(Der.OCTET_STRING, eku))));
+		}
+		byte[] tbs = Der.encode(Der.SEQUENCE,
+				Der.encode(0xa0, Der.encode(Der.INTEGER, new byte[] { 2 })),
+				Der.encode(Der.INTEGER, serial.toByteArray()),
+				algorithm(SHA256_WITH_ECDSA),
+				issuerName,
+				Der.encode(Der.SEQUENCE, utcTime(now.minus(1, ChronoUnit.DAYS)), utcTime(now.plus(30, ChronoUnit.DAYS))),
+				subjectName,
+				subjectKey.getPublic().getEncoded(),
+				extensions);
+		byte[] encoded = Der.encode(Der.SEQUENCE, tbs, algorithm(SHA256_WITH_ECDSA), bitString(sign(signer, tbs)));
+		return (X509Certificate) CertificateFactory.getInstance("X.509")
+				.generateCertificate(new ByteArrayInputStream(encoded));
+	}
+
+	/**
+	 * Response OCSP sukses untuk satu certificate.
+	 *
+	 * @param certIdIssuer issuer yang dipakai menghitung hash CertID (biasanya
+	 *                     issuer asli certificate).
+	 * @param nextUpdate   null jika tidak diisi.
+	 * @param extraCerts   certificate responder terdelegasi, jika ada.
+	 */
+	static byte[] ocspResponse(X509Certificate cert, X509Certificate certIdIssuer, String certIdDigest,
+			RevocationChecker.Status status, Instant thisUpdate, Instant nextUpdate, PrivateKey signer,
+			X509Certificate... extraCerts) throws GeneralSecurityException, IOException {
+		byte[] certStatus = switch (status) {
+			case GOOD -> Der.encode(0x80);
+			case REVOKED -> Der.encode(0xa1, generalizedTime(thisUpdate.minus(1, ChronoUnit.HOURS)));
+			case UNKNOWN -> Der.encode(0x82);
+		};
+		byte[] single = Der.encode(Der.SEQUENCE,
+				certId(cert, certIdIssuer, certIdDigest),
+				certStatus,
+				generalizedTime(thisUpdate),
+				nextUpdate != null ? Der.encode(0xa0, generalizedTime(nextUpdate)) : new byte[0]);
+		byte[] responderId = Der.encode(0xa2, Der.encode(Der.OCTET_STRING, new byte[20]));
+		byte[] tbs = Der.encode(Der.SEQUENCE, responderId, generalizedTime(Instant.now()),
+				Der.encode(Der.SEQUENCE, single));
+
+		byte[] certs = new byte[0];
+		if (extraCerts.length > 0) {
+			byte[][] encoded = new byte[extraCerts.length][];
+			for (int i = 0; i < extraCerts.length; i++) {
+				encoded[i] = extraCerts[i].getEncoded();
+			}
+			certs = Der.encode(0xa0, Der.encode(Der.SEQUENCE, encoded));
+		}
+		byte[] basic = Der.encode(Der.SEQUENCE, tbs, algorithm(SHA256_WITH_ECDSA), bitString(sign(signer, tbs)),
+				certs);
+		return Der.encode(Der.SEQUENCE,
+				Der.encode(Der.ENUMERATED, new byte[] { 0 }),
+				Der.encode(0xa0, Der.encode(Der.SEQUENCE, oid(BASIC_RESPONSE), Der.encode(Der.OCTET_STRING, basic))));
+	}
+
+	private static byte[] certId(X509Certificate cert, X509Certificate issuer, String digestOid)
+			throws GeneralSecurityException, IOException {
+		MessageDigest md = MessageDigest.getInstance(SHA1.equals(digestOid) ? "SHA-1" : "SHA-256");
+		byte[] nameHash = md.digest(issuer.getSubjectX500Principal().getEncoded());
+		byte[] keyHash = md.digest(Der.parse(issuer.getPublicKey().getEncoded()).child(1).bits());
+		return Der.encode(Der.SEQUENCE,
+				Der.encode(Der.SEQUENCE, oid(digestOid), Der.encode(Der.NULL)),
+				Der.encode(Der.OCTET_STRING, nameHash),
+				Der.encode(Der.OCTET_STRING, keyHash),
+				Der.encode(Der.INTEGER, cert.getSerialNumber().toByteArray()));
+	}
+
+	private static byte[] sign(PrivateKey key, byte[] data) throws GeneralSecurityException {
+		Signature signature = Signature.getInstance("SHA256withECDSA");
+		signature.initSign(key);
+		signature.update(data);
+		return signature.sign();
+	}
+
+	private static byte[] algorithm(String oid) {
+		return Der.encode(Der.SEQUENCE, oid(oid));
+	}
+
+	private static byte[] bitString(byte[] bits) {
+		byte[] value = new byte[bits.length + 1];
+		System.arraycopy(bits, 0, value, 1, bits.length);
+		return Der.encode(Der.BIT_STRING, value);
+	}
+
+	private static byte[] utcTime(Instant time) {
+		return Der.encode(0x17, UTC_TIME.format(time).getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private static byte[] generalizedTime(Instant time) {
+		return Der.encode(Der.GENERALIZED_TIME, GENERALIZED_TIME.format(time).getBytes(StandardCharsets.US_ASCII));
+	}
+
+	static byte[] oid(String dotted) {
+		String[] arcs = dotted.split("\\.");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		long first = Long.parseLong(arcs[0]) * 40 + Long.parseLong(arcs[1]);
+		for (int i = 1; i < arcs.length; i++) {
+			long arc = i == 1 ? first : Long.parseLong(arcs[i]);
+			int groups = Math.max(1, (64 - Long.numberOfLeadingZeros(arc) + 6) / 7);
+			for (int g = groups - 1; g >= 0; g--) {
+				out.write((int) ((arc >>> (g * 7)) & 0x7f) | (g > 0 ? 0x80 : 0));
+			}
+		}
+		return Der.encode(Der.OID, out.toByteArray());
+	}
+
+	/**
+	 * Responder OCSP lokal: setiap POST dijawab dengan isi {@link #respond};
+	 * body null menghasilkan HTTP 500.
+	 */
+	static final class Responder implements AutoCloseable {
+
+		private final HttpServer server;
+
+		private final AtomicReference<Supplier<byte[]>> body = new AtomicReference<>(() -> null);
+
+		private final AtomicInteger requests = new AtomicInteger();
+
+		Responder() throws IOException {
+			server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+			server.createContext("/", exchange -> {
+				requests.incrementAndGet();
+				exchange.getRequestBody().readAllBytes();
+				byte[] response = body.get().get();
+				if (response == null) {
+					exchange.sendResponseHeaders(500, -1);
+				} else {
+					exchange.getResponseHeaders().set("Content-Type", "application/ocsp-response");
+					exchange.sendResponseHeaders(200, response.length);
+					try (OutputStream out = exchange.getResponseBody()) {
+						out.write(response);
+					}
+				}
+				exchange.close();
+			});
+			server.start();
+		}
+
+		void respond(Supplier<byte[]> supplier) {
+			body.set(supplier);
+		}
+
+		int getRequests() {
+			return requests.get();
+		}
+
+		URI getUri() {
+			return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/ocsp");
+		}
+
+		@Override
+		public void close() {
+			server.stop(0);
+		}
+	}
+}
@@ -7,11 +7,29 @@ SERVER_PASS="serverpass"
 CLIENT_PASS="clientpass"
 STORE_PASS="storepass"   # untuk PKCS12 keystore dan truststore
 
-OUTDIR="./mtls-certs"
+# KEY_TYPE=rsa (default) atau KEY_TYPE=ec (P-256) untuk membandingkan biaya handshake.
+# File hasil EC diberi suffix "-ec", misalnya server-ec.p12.
+KEY_TYPE="${KEY_TYPE:-rsa}"
+case "$KEY_TYPE" in
+  rsa) SUFFIX="" ;;
+  ec) SUFFIX="-ec" ;;
+  *) echo "KEY_TYPE harus rsa atau ec" >&2; exit 1 ;;
+esac
+
+# genkey <output> <rsa-bits>
+genkey() {
+  if [ "$KEY_TYPE" = "ec" ]; then
+    openssl genpkey -algorithm EC -out "$1" -pkeyopt ec_paramgen_curve:P-256
+  else
+    openssl genpkey -algorithm RSA -out "$1" -pkeyopt rsa_keygen_bits:"$2"
+  fi
+}
+
+OUTDIR="./mtls-certs${SUFFIX}"
 
 # Hapus file-file yang sebelumnya di-copy ke parent directory
 echo "Membersihkan file-file lama..."
-rm -f server.p12 client.p12 server-trust.p12 client-trust.p12 ca.crt.pem
+rm -f "server${SUFFIX}.p12" "client${SUFFIX}.p12" "server-trust${SUFFIX}.p12" "client-trust${SUFFIX}.p12" "ca${SUFFIX}.crt.pem"
 
 # Hapus direktori mtls-certs beserta isinya untuk memulai dari awal
 rm -rf "$OUTDIR"
@@ -20,12 +38,12 @@ mkdir -p "$OUTDIR"
 cd "$OUTDIR"
 
 echo "1) Membuat CA (private key + self-signed cert)"
-openssl genpkey -algorithm RSA -out ca.key.pem -pkeyopt rsa_keygen_bits:4096
+genkey ca.key.pem 4096
 openssl req -x509 -new -nodes -key ca.key.pem -sha256 -days 3650 \
   -subj "/CN=Test-Root-CA" -out ca.crt.pem
 
 echo "2) Membuat Server key + CSR"
-openssl genpkey -algorithm RSA -out server.key.pem -pkeyopt rsa_keygen_bits:2048
+genkey server.key.pem 2048
 openssl req -new -key server.key.pem -subj "/CN=localhost" -out server.csr.pem
 
 echo "3) Sign server CSR with CA"
@@ -33,7 +51,7 @@ openssl x509 -req -in server.csr.pem -CA ca.crt.pem -CAkey ca.key.pem -CAcreates
   -out server.crt.pem -days 825 -sha256
 
 echo "4) Membuat Client key + CSR"
-openssl genpkey -algorithm RSA -out client.key.pem -pkeyopt rsa_keygen_bits:2048
+genkey client.key.pem 2048
 openssl req -new -key client.key.pem -subj "/CN=client-001" -out client.csr.pem
 
 echo "5) Sign client CSR with CA"
@@ -69,7 +87,11 @@ keytool -importcert -noprompt \
   -keystore client-trust.p12 -storetype PKCS12 -storepass "$STORE_PASS"
 
 # Copy artifacts to top-level for convenience
-cp server.p12 client.p12 server-trust.p12 client-trust.p12 ca.crt.pem ../
+cp server.p12 "../server${SUFFIX}.p12"
+cp client.p12 "../client${SUFFIX}.p12"
+cp server-trust.p12 "../server-trust${SUFFIX}.p12"
+cp client-trust.p12 "../client-trust${SUFFIX}.p12"
+cp ca.crt.pem "../ca${SUFFIX}.crt.pem"
 cd ..
 echo "Selesai. File yang dibuat:"
-ls -la mtls-certs server.p12 client.p12 server-trust.p12 client-trust.p12 ca.crt.pem
+ls -la "$OUTDIR" "server${SUFFIX}.p12" "client${SUFFIX}.p12" "server-trust${SUFFIX}.p12" "client-trust${SUFFIX}.p12" "ca${SUFFIX}.crt.pem"